@@ -13,12 +13,28 @@ android {
         targetSdk = 34
         versionCode = 1
         versionName = "1.0"
+
+        // Service de suivi dans un processus dédié, à l'abri de la mémoire et des plantages de l'interface
+        manifestPlaceholders["trackerProcess"] =
+            if (providers.gradleProperty("tracker.separateProcess").orNull.toBoolean()) ":tracker"
+            else applicationId!!
     }
 
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_17
         targetCompatibility = JavaVersion.VERSION_17
     }
+
+    testOptions {
+        // Robolectric : Location, Bundle et Context réels dans les tests JVM
+        unitTests.isIncludeAndroidResources = true
+        unitTests.all { test ->
+            // Générateur de charge (FleetLoadGenerator) : -Dloadgen.* transmis à la JVM de test
+            System.getProperties().stringPropertyNames()
+                .filter { it.startsWith("loadgen.") }
+                .forEach { test.systemProperty(it, System.getProperty(it)) }
+        }
+    }
 }
 
 dependencies {
@@ -30,6 +46,7 @@ dependencies {
     // UI classique XML
     implementation("com.google.android.material:material:1.11.0")
     implementation("androidx.constraintlayout:constraintlayout:2.1.4")
+    implementation("androidx.recyclerview:recyclerview:1.3.2")
 
     // GPS / Localisation
     implementation(libs.play.services.location)
@@ -49,6 +66,7 @@ dependencies {
 
     // Tests
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.robolectric:robolectric:4.12.2")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import lombok.NonNull;
+
+/**
+ * Suivi compact des positions confirmées par le backend.
+ *
+ * <p>Tous les numéros inférieurs au filigrane sont confirmés ; au-delà, une fenêtre
+ * de {@link #WINDOW} bits (tableau circulaire) marque les confirmations reçues
+ * dans le désordre. Le filigrane avance dès que la suite est contiguë et il est
+ * persisté dans le magasin d'état ; les bits au-delà ne le sont pas, une reprise
+ * après redémarrage peut donc renvoyer quelques positions déjà reçues, que le
+ * backend écarte grâce à leur identifiant.</p>
+ *
+ * <p>Le filigrane ne dépasse jamais une position non confirmée. Une confirmation
+ * au-delà de la fenêtre (arriéré hors ligne encore en attente derrière la voie directe)
+ * est gardée à part, jusqu'à {@link #MAX_OVERFLOW} ; au-delà, les plus lointaines sont
+ * oubliées et seront simplement renvoyées.</p>
+ *
+ * <p>Une position perdue en route (voies en mémoire d'un processus tué, position jamais
+ * soumise) ne sera jamais confirmée : {@link #skipTo(long)} permet au filigrane de la
+ * dépasser, une fois établi que rien de plus ancien n'attend encore d'envoi.</p>
+ */
+public class AckTracker {
+
+    private static final String TAG = "AckTracker";
+    static final int WINDOW = 8192;
+    static final int MAX_OVERFLOW = 16_384;
+
+    private final ServiceStateStore store;
+    private final long[] bits = new long[WINDOW / 64];
+    // Confirmations au-delà de la fenêtre, replacées dans la fenêtre quand elle avance
+    private final TreeSet<Long> overflow = new TreeSet<>();
+    private long watermark;
+    // Numéro suivant la plus haute confirmation reçue : au-delà du filigrane, il reste des trous
+    private long highest;
+
+    public AckTracker(@NonNull final ServiceStateStore store) {
+        this.store = store;
+        this.watermark = store.getLong(ServiceStateStore.Key.ACK_WATERMARK);
+        this.highest = watermark;
+    }
+
+    public synchronized boolean isAcked(final long sequence) {
+        if (sequence < watermark) {
+            return true;
+        }
+        return sequence - watermark < WINDOW ? isSet(sequence) : overflow.contains(sequence);
+    }
+
+    /**
+     * Positions du lot pas encore confirmées (les positions non numérotées sont gardées)
+     */
+    public synchronized List<Location> filterUnacked(@NonNull final List<Location> locations) {
+        final var unacked = new ArrayList<Location>(locations.size());
+        for (Location location : locations) {
+            final var sequence = FixIdentity.getSequence(location);
+            if (sequence < 0 || !isAcked(sequence)) {
+                unacked.add(location);
+            }
+        }
+        return unacked;
+    }
+
+    /**
+     * Marquer un lot comme confirmé, ou comme n'ayant rien à envoyer
+     */
+    public synchronized void ack(@NonNull final List<Location> locations) {
+        final var before = watermark;
+        for (Location location : locations) {
+            final var sequence = FixIdentity.getSequence(location);
+            if (sequence >= 0) {
+                mark(sequence);
+            }
+        }
+        if (watermark != before) {
+            store.putLong(ServiceStateStore.Key.ACK_WATERMARK, watermark);
+        }
+    }
+
+    /**
+     * Tenir pour traités tous les numéros inférieurs à {@code floor}, confirmés ou non.
+     * L'appelant garantit qu'aucune de ces positions n'attend plus d'envoi.
+     *
+     * @return nombre de positions jamais confirmées ainsi abandonnées
+     */
+    public synchronized long skipTo(final long floor) {
+        if (floor <= watermark) {
+            return 0;
+        }
+        final var inWindow = Math.min(floor - watermark, WINDOW);
+        var skipped = floor - watermark - inWindow;
+        for (long sequence = watermark; sequence < watermark + inWindow; sequence++) {
+            if (isSet(sequence)) {
+                clear(sequence);
+            } else {
+                skipped++;
+            }
+        }
+        final var passed = overflow.headSet(floor);
+        skipped -= passed.size();
+        passed.clear();
+        watermark = floor;
+        highest = Math.max(highest, watermark);
+        advance();
+        store.putLong(ServiceStateStore.Key.ACK_WATERMARK, watermark);
+        return skipped;
+    }
+
+    /**
+     * Vrai si des confirmations attendent au-delà du filigrane (position manquante avant elles)
+     */
+    public synchronized boolean hasGaps() {
+        return highest > watermark;
+    }
+
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    private void mark(final long sequence) {
+        if (sequence < watermark) {
+            return;
+        }
+        highest = Math.max(highest, sequence + 1);
+        if (sequence - watermark >= WINDOW) {
+            overflow.add(sequence);
+            if (overflow.size() > MAX_OVERFLOW) {
+                // Confirmation oubliée : la position sera renvoyée (idempotent)
+                overflow.pollLast();
+                Log.w(TAG, "Trop de confirmations hors fenêtre, la plus lointaine est oubliée");
+            }
+            return;
+        }
+        set(sequence);
+        advance();
+    }
+
+    /**
+     * Avancer le filigrane sur les confirmations contiguës, en ramenant dans la
+     * fenêtre les confirmations mises à part qu'elle atteint
+     */
+    private void advance() {
+        while (true) {
+            while (isSet(watermark)) {
+                clear(watermark);
+                watermark++;
+            }
+            var moved = false;
+            while (!overflow.isEmpty() && overflow.first() - watermark < WINDOW) {
+                set(overflow.pollFirst());
+                moved = true;
+            }
+            if (!moved) {
+                return;
+            }
+        }
+    }
+
+    private boolean isSet(final long sequence) {
+        final var index = (int) (sequence % WINDOW);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void set(final long sequence) {
+        final var index = (int) (sequence % WINDOW);
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private void clear(final long sequence) {
+        final var index = (int) (sequence % WINDOW);
+        bits[index >>> 6] &= ~(1L << index);
+    }
+}
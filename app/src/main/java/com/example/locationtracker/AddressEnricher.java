@@ -0,0 +1,154 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.NonNull;
+
+/**
+ * Enrichissement des adresses, découplé de l'envoi des positions.
+ *
+ * <p>Les positions sont d'abord envoyées sans adresse. Une fois confirmées, elles passent
+ * par le pool de géocodage ({@link EnrichmentExecutor}). L'adresse trouvée est envoyée
+ * comme enregistrement correctif rattaché à l'identifiant de la position, par lots.</p>
+ *
+ * <p>Un géocodage trop long est abandonné : le thread du pool passe à la demande suivante,
+ * et une réponse arrivée après coup est ignorée.</p>
+ */
+public class AddressEnricher {
+
+    private static final String TAG = "AddressEnricher";
+    private static final int PATCH_BATCH_SIZE = 50;
+    // En deçà, l'adresse de la position précédente est réutilisée sans nouvel appel
+    private static final double REUSE_DISTANCE_METERS = 25;
+
+    private final ReverseGeocoder geocoder;
+    private final LocationRepository repository;
+    private final FixIdentity fixIdentity;
+    private final EnrichmentExecutor executor;
+    private final FixTrace fixTrace;
+    private final long maxQueueAge;
+    private final long maxRunTime;
+
+    // Demandes acceptées pas encore terminées : le lot part quand il n'en reste plus
+    private final AtomicInteger outstanding = new AtomicInteger();
+    // Adresses à envoyer, par identifiant de position
+    private final Map<String, String> pending = new LinkedHashMap<>();
+    // Dernière adresse calculée (partagée entre les threads du pool)
+    private double lastLatitude = Double.NaN;
+    private double lastLongitude = Double.NaN;
+    private String lastAddress;
+
+    /**
+     * @param maxQueueAge échéance de chaque demande dans la file du pool
+     * @param maxRunTime  durée maximale d'un géocodage (sources enchaînées comprises)
+     */
+    public AddressEnricher(@NonNull final ReverseGeocoder geocoder, @NonNull final LocationRepository repository,
+                           @NonNull final FixIdentity fixIdentity, @NonNull final EnrichmentExecutor executor,
+                           @NonNull final FixTrace fixTrace, final long maxQueueAge, final long maxRunTime) {
+        this.geocoder = geocoder;
+        this.repository = repository;
+        this.fixIdentity = fixIdentity;
+        this.executor = executor;
+        this.fixTrace = fixTrace;
+        this.maxQueueAge = maxQueueAge;
+        this.maxRunTime = maxRunTime;
+    }
+
+    /**
+     * Demander l'adresse de positions déjà envoyées ; file pleine, les plus anciennes
+     * demandes sont abandonnées
+     */
+    public void enqueue(@NonNull final List<Location> locations) {
+        for (Location location : locations) {
+            final var fixId = fixIdentity.getFixId(location);
+            if (fixId == null) {
+                continue;
+            }
+            final var latitude = location.getLatitude();
+            final var longitude = location.getLongitude();
+            final var cookie = FixTrace.getCookie(location);
+            // Terminée une seule fois : exécutée, ou abandonnée (une réponse tardive est ignorée)
+            final var finished = new AtomicBoolean();
+            outstanding.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    final var span = fixTrace.start(FixTrace.Stage.GEOCODE, cookie);
+                    try {
+                        enrich(fixId, latitude, longitude, finished);
+                    } finally {
+                        span.end();
+                    }
+                }, maxQueueAge, maxRunTime, () -> finish(finished));
+            } catch (RejectedExecutionException e) {
+                outstanding.decrementAndGet();
+                Log.w(TAG, "Demande d'adresse refusée: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void enrich(final String fixId, final double latitude, final double longitude,
+                        final AtomicBoolean finished) {
+        try {
+            var address = cachedAddress(latitude, longitude);
+            if (address == null) {
+                address = geocoder.reverseGeocode(latitude, longitude);
+                synchronized (this) {
+                    lastLatitude = latitude;
+                    lastLongitude = longitude;
+                    lastAddress = address;
+                }
+            }
+            if (address != null && !finished.get()) {
+                synchronized (pending) {
+                    pending.put(fixId, address);
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Erreur géocodage: " + e.getMessage());
+        } finally {
+            finish(finished);
+        }
+    }
+
+    private void finish(final AtomicBoolean finished) {
+        if (finished.compareAndSet(false, true)) {
+            done();
+        }
+    }
+
+    private synchronized String cachedAddress(final double latitude, final double longitude) {
+        if (lastAddress != null
+                && GeoMath.haversine(lastLatitude, lastLongitude, latitude, longitude) < REUSE_DISTANCE_METERS) {
+            return lastAddress;
+        }
+        return null;
+    }
+
+    /**
+     * Fin d'une demande (exécutée ou abandonnée) : envoyer les adresses quand
+     * il n'y a plus rien en cours ou qu'un lot est complet
+     */
+    private void done() {
+        final var remaining = outstanding.decrementAndGet();
+        final Map<String, String> patches;
+        synchronized (pending) {
+            if (pending.isEmpty() || (remaining > 0 && pending.size() < PATCH_BATCH_SIZE)) {
+                return;
+            }
+            patches = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        repository.createAddressPatches(patches)
+                .addOnSuccessListener(result -> Log.d(TAG, patches.size() + " adresse(s) envoyée(s)"))
+                .addOnFailureListener(e -> Log.w(TAG, "Erreur envoi des adresses: " + e.getMessage()));
+    }
+}
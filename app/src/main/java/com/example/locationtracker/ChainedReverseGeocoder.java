@@ -0,0 +1,49 @@
+package com.example.locationtracker;
+
+import android.util.Log;
+
+import java.util.List;
+
+import lombok.NonNull;
+
+/**
+ * Essaie les géocodeurs dans l'ordre configuré ; la première réponse non vide l'emporte.
+ * Une source en erreur est ignorée pour cette requête.
+ */
+public class ChainedReverseGeocoder implements ReverseGeocoder {
+
+    private static final String TAG = "ChainedReverseGeocoder";
+
+    private final List<ReverseGeocoder> geocoders;
+
+    public ChainedReverseGeocoder(@NonNull final List<ReverseGeocoder> geocoders) {
+        this.geocoders = List.copyOf(geocoders);
+    }
+
+    @Override
+    public String reverseGeocode(final double latitude, final double longitude) {
+        for (ReverseGeocoder geocoder : geocoders) {
+            try {
+                final var address = geocoder.reverseGeocode(latitude, longitude);
+                if (address != null && !address.isEmpty()) {
+                    return address;
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Géocodeur " + geocoder.getName() + " en erreur: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        final var names = new StringBuilder();
+        for (ReverseGeocoder geocoder : geocoders) {
+            if (names.length() > 0) {
+                names.append('>');
+            }
+            names.append(geocoder.getName());
+        }
+        return names.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.locationtracker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * État de l'appareil joint aux envois. Classe Java pure : les mêmes champs
+ * sont produits par l'appareil et par les outils de charge sur JVM.
+ */
+@Getter
+@Builder
+public class DeviceStatus {
+    private final String manufacturer;
+    private final String model;
+    private final String androidVersion;
+    private final boolean screenOn;
+    private final boolean deviceLocked;
+    private final int batteryPercent;
+    private final boolean charging;
+    private final boolean powerSaveMode;
+    private final boolean hasInternet;
+    private final String networkType;
+    private final boolean gpsEnabled;
+    private final boolean fineLocationGranted;
+    private final boolean backgroundLocationGranted;
+    private final long timestamp;
+
+    /**
+     * Représentation envoyée à la Cloud Function
+     */
+    public Map<String, Object> toMap() {
+        final var document = new HashMap<String, Object>();
+        document.put("manufacturer", manufacturer);
+        document.put("model", model);
+        document.put("androidVersion", androidVersion);
+        document.put("screenOn", screenOn);
+        document.put("deviceLocked", deviceLocked);
+        document.put("batteryPercent", batteryPercent);
+        document.put("charging", charging);
+        document.put("powerSaveMode", powerSaveMode);
+        document.put("hasInternet", hasInternet);
+        document.put("networkType", networkType);
+        document.put("gpsEnabled", gpsEnabled);
+        document.put("fineLocationGranted", fineLocationGranted);
+        document.put("backgroundLocationGranted", backgroundLocationGranted);
+        document.put("timestamp", timestamp);
+        return document;
+    }
+}
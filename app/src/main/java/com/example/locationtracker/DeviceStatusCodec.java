@@ -0,0 +1,190 @@
+package com.example.locationtracker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import lombok.NonNull;
+
+/**
+ * Encodage différentiel de l'état de l'appareil dans les documents envoyés.
+ * Java pur : l'encodeur sert à l'appareil et au générateur de charge, le décodeur
+ * au substitut du backend.
+ *
+ * <p>Chaque état encodé porte un numéro {@code seq}. Un état complet ({@code full: true})
+ * contient tous les champs ; les suivants ne contiennent que les champs modifiés
+ * (l'horodatage n'accompagne qu'un changement).</p>
+ *
+ * <p>Un flux d'envoi garde son état d'un lot à l'autre : le premier document d'un lot
+ * est une différence ({@code base}) avec le dernier état dont l'envoi a été confirmé,
+ * que le backend a donc forcément reçu. Un lot perdu, rejoué ou arrivé dans le désordre
+ * ne casse pas la reconstruction des autres. Un état complet n'est envoyé qu'au premier
+ * lot, puis sur demande ({@link Encoder#resync()}, par exemple à la reconnexion).</p>
+ */
+public final class DeviceStatusCodec {
+
+    public static final String SEQUENCE = "seq";
+    public static final String FULL = "full";
+    public static final String BASE = "base";
+    // Change à chaque lecture : n'est pas comparé, accompagne seulement les changements
+    private static final String TIMESTAMP = "timestamp";
+
+    private DeviceStatusCodec() {
+    }
+
+    /**
+     * Côté appareil : se souvient du dernier état encodé, et du dernier état confirmé
+     * qui sert de base au lot suivant
+     */
+    public static class Encoder {
+        // Lots préparés dont l'envoi n'est pas encore confirmé
+        private static final int MAX_PENDING = 16;
+
+        // Entier (et non long) : les long partent en Int64Value, bien plus volumineux
+        private int sequence;
+        private Map<String, Object> last;
+        private int confirmedSequence;
+        private Map<String, Object> confirmed;
+        private final Map<Integer, Map<String, Object>> pending = new LinkedHashMap<>();
+
+        /**
+         * État complet (début de lot ou de session), ou seulement les champs modifiés
+         */
+        public synchronized Map<String, Object> encode(@NonNull final DeviceStatus status, final boolean full) {
+            final var current = status.toMap();
+            final var encoded = new HashMap<String, Object>();
+            encoded.put(SEQUENCE, ++sequence);
+            if (full || last == null) {
+                encoded.putAll(current);
+                encoded.put(FULL, true);
+            } else {
+                putChanges(encoded, current, last);
+            }
+            last = current;
+            return encoded;
+        }
+
+        /**
+         * États d'un lot entier : le premier document est une différence avec le dernier
+         * état confirmé (complet s'il n'y en a pas), les suivants des différences avec
+         * le précédent ; numérotés d'un seul tenant même si plusieurs lots sont préparés
+         * en parallèle. Confirmer le premier document une fois le lot envoyé.
+         */
+        public synchronized List<Map<String, Object>> encodeBatch(@NonNull final DeviceStatus status, final int count) {
+            final var encoded = new ArrayList<Map<String, Object>>(count);
+            if (count == 0) {
+                return encoded;
+            }
+            final var current = status.toMap();
+            final var head = new HashMap<String, Object>();
+            head.put(SEQUENCE, ++sequence);
+            if (confirmed == null) {
+                head.putAll(current);
+                head.put(FULL, true);
+            } else {
+                head.put(BASE, confirmedSequence);
+                putChanges(head, current, confirmed);
+            }
+            last = current;
+            pending.put(sequence, current);
+            if (pending.size() > MAX_PENDING) {
+                pending.remove(pending.keySet().iterator().next());
+            }
+            encoded.add(head);
+            for (int i = 1; i < count; i++) {
+                encoded.add(encode(status, false));
+            }
+            return encoded;
+        }
+
+        /**
+         * Envoi confirmé du lot dont {@code head} est le premier document :
+         * son état devient la base des lots suivants
+         */
+        public synchronized void confirm(@NonNull final Map<String, Object> head) {
+            final var headSequence = ((Number) head.get(SEQUENCE)).intValue();
+            final var state = pending.remove(headSequence);
+            if (state != null && (confirmed == null || headSequence > confirmedSequence)) {
+                confirmed = state;
+                confirmedSequence = headSequence;
+            }
+        }
+
+        /**
+         * Le prochain lot commence par un état complet (reconnexion, backend réinitialisé)
+         */
+        public synchronized void resync() {
+            confirmed = null;
+            pending.clear();
+        }
+
+        private static void putChanges(final Map<String, Object> encoded, final Map<String, Object> current,
+                                       final Map<String, Object> reference) {
+            final var before = encoded.size();
+            for (Map.Entry<String, Object> entry : current.entrySet()) {
+                if (!TIMESTAMP.equals(entry.getKey()) && !Objects.equals(entry.getValue(), reference.get(entry.getKey()))) {
+                    encoded.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (encoded.size() > before) {
+                encoded.put(TIMESTAMP, current.get(TIMESTAMP));
+            }
+        }
+    }
+
+    /**
+     * Côté backend : reconstruit l'état complet, documents pris dans l'ordre d'envoi
+     */
+    public static class Decoder {
+        // Premiers documents des derniers lots : bases possibles des lots suivants
+        private static final int MAX_BASES = 32;
+
+        private long sequence = -1;
+        private Map<String, Object> state;
+        private final Map<Long, Map<String, Object>> bases = new LinkedHashMap<>();
+
+        /**
+         * État complet après application de {@code encoded}
+         *
+         * @throws IllegalStateException différence sans état de base ou numéro manquant
+         */
+        public synchronized Map<String, Object> apply(@NonNull final Map<String, Object> encoded) {
+            final var sequence = ((Number) encoded.get(SEQUENCE)).longValue();
+            if (Boolean.TRUE.equals(encoded.get(FULL))) {
+                state = new HashMap<>(encoded);
+                state.remove(FULL);
+                remember(sequence);
+            } else if (encoded.containsKey(BASE)) {
+                final var base = bases.get(((Number) encoded.get(BASE)).longValue());
+                if (base == null) {
+                    throw new IllegalStateException("Différence " + sequence + " sur une base inconnue: "
+                            + encoded.get(BASE));
+                }
+                state = new HashMap<>(base);
+                state.putAll(encoded);
+                state.remove(BASE);
+                remember(sequence);
+            } else if (state == null || sequence != this.sequence + 1) {
+                throw new IllegalStateException("Différence " + sequence + " sans état de base (dernier: "
+                        + this.sequence + ")");
+            } else {
+                state.putAll(encoded);
+            }
+            state.remove(SEQUENCE);
+            this.sequence = sequence;
+            return new HashMap<>(state);
+        }
+
+        private void remember(final long sequence) {
+            final var base = new HashMap<>(state);
+            base.remove(SEQUENCE);
+            bases.put(sequence, base);
+            if (bases.size() > MAX_BASES) {
+                bases.remove(bases.keySet().iterator().next());
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.locationtracker;
+
+import android.Manifest;
+import android.app.KeyguardManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.location.LocationManager;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * État de l'appareil tenu à jour par les broadcasts système : chaque changement
+ * marque son groupe de champs, et seul ce groupe est relu à la demande suivante.
+ * Un état inchangé ne coûte qu'une lecture de référence.
+ *
+ * <p>Sans surveillance active (avant {@link #start()}), tout est relu à chaque demande.
+ * Les permissions ne sont lues qu'au démarrage : leur retrait tue le processus.</p>
+ */
+public class DeviceStatusMonitor {
+
+    private static final String TAG = "DeviceStatusMonitor";
+
+    private static final int SCREEN = 1;
+    private static final int LOCK = 1 << 1;
+    private static final int BATTERY = 1 << 2;
+    private static final int POWER_SAVE = 1 << 3;
+    private static final int NETWORK = 1 << 4;
+    private static final int GPS = 1 << 5;
+    private static final int PERMISSIONS = 1 << 6;
+    private static final int ALL = (1 << 7) - 1;
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final KeyguardManager keyguardManager;
+    private final ConnectivityManager connectivityManager;
+    private final LocationManager locationManager;
+
+    // Groupes à relire à la prochaine demande
+    private final AtomicInteger dirty = new AtomicInteger(ALL);
+    private volatile boolean monitoring;
+    private BroadcastReceiver receiver;
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    /**
+     * Prévenu (thread de connectivité) quand un réseau par défaut devient disponible
+     */
+    @Setter
+    private volatile Runnable networkListener;
+
+    // Dernières valeurs lues (accès sous verrou)
+    private boolean screenOn;
+    private boolean deviceLocked;
+    private int batteryPercent = -1;
+    private boolean charging;
+    private boolean powerSaveMode;
+    private boolean hasInternet;
+    private String networkType = "NONE";
+    private boolean gpsEnabled;
+    private boolean fineLocationGranted;
+    private boolean backgroundLocationGranted;
+    private DeviceStatus snapshot;
+
+    public DeviceStatusMonitor(@NonNull final Context context) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.keyguardManager = (KeyguardManager) context.getSystemService(Context.KEYGUARD_SERVICE);
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+    }
+
+    /**
+     * Commencer la surveillance (broadcasts et réseau par défaut)
+     */
+    public synchronized void start() {
+        if (monitoring) {
+            return;
+        }
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onBroadcast(intent);
+            }
+        };
+        final var filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_USER_PRESENT);
+        filter.addAction(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        filter.addAction(LocationManager.PROVIDERS_CHANGED_ACTION);
+        // Broadcast collant : l'état de la batterie est livré dès l'enregistrement
+        final Intent battery;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            battery = context.registerReceiver(receiver, filter, Context.RECEIVER_NOT_EXPORTED);
+        } else {
+            battery = context.registerReceiver(receiver, filter);
+        }
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                markDirty(NETWORK);
+                final var listener = networkListener;
+                if (listener != null) {
+                    listener.run();
+                }
+            }
+
+            @Override
+            public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+                markDirty(NETWORK);
+            }
+
+            @Override
+            public void onLost(@NonNull Network network) {
+                markDirty(NETWORK);
+            }
+        };
+        connectivityManager.registerDefaultNetworkCallback(networkCallback);
+        dirty.set(ALL);
+        if (battery != null) {
+            readBattery(battery);
+        }
+        monitoring = true;
+        Log.d(TAG, "Surveillance de l'état de l'appareil démarrée");
+    }
+
+    public synchronized void stop() {
+        if (!monitoring) {
+            return;
+        }
+        monitoring = false;
+        try {
+            context.unregisterReceiver(receiver);
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Surveillance déjà arrêtée", e);
+        }
+        receiver = null;
+        networkCallback = null;
+        dirty.set(ALL);
+    }
+
+    /**
+     * État courant : le même objet tant que rien n'a changé (horodatage de la dernière relecture)
+     */
+    public synchronized DeviceStatus getSnapshot() {
+        final var changed = monitoring ? dirty.getAndSet(0) : ALL;
+        if (changed == 0 && snapshot != null) {
+            return snapshot;
+        }
+        if ((changed & SCREEN) != 0) {
+            screenOn = powerManager.isInteractive();
+        }
+        if ((changed & LOCK) != 0) {
+            deviceLocked = keyguardManager.isKeyguardLocked();
+        }
+        if ((changed & BATTERY) != 0 && (!monitoring || batteryPercent < 0)) {
+            final var battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (battery != null) {
+                readBattery(battery);
+            }
+        }
+        if ((changed & POWER_SAVE) != 0) {
+            powerSaveMode = powerManager.isPowerSaveMode();
+        }
+        if ((changed & NETWORK) != 0) {
+            readNetwork();
+        }
+        if ((changed & GPS) != 0) {
+            gpsEnabled = locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER);
+        }
+        if ((changed & PERMISSIONS) != 0) {
+            fineLocationGranted = ContextCompat.checkSelfPermission(
+                    context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+            backgroundLocationGranted = Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                    || ContextCompat.checkSelfPermission(
+                    context, Manifest.permission.ACCESS_BACKGROUND_LOCATION) == PackageManager.PERMISSION_GRANTED;
+        }
+        snapshot = DeviceStatus.builder()
+                .manufacturer(Build.MANUFACTURER)
+                .model(Build.MODEL)
+                .androidVersion(Build.VERSION.RELEASE)
+                .screenOn(screenOn)
+                .deviceLocked(deviceLocked)
+                .batteryPercent(batteryPercent)
+                .charging(charging)
+                .powerSaveMode(powerSaveMode)
+                .hasInternet(hasInternet)
+                .networkType(networkType)
+                .gpsEnabled(gpsEnabled)
+                .fineLocationGranted(fineLocationGranted)
+                .backgroundLocationGranted(backgroundLocationGranted)
+                .timestamp(System.currentTimeMillis())
+                .build();
+        return snapshot;
+    }
+
+    private void onBroadcast(final Intent intent) {
+        final var action = intent.getAction();
+        if (action == null) {
+            return;
+        }
+        switch (action) {
+            case Intent.ACTION_SCREEN_ON:
+            case Intent.ACTION_SCREEN_OFF:
+            case Intent.ACTION_USER_PRESENT:
+                markDirty(SCREEN | LOCK);
+                break;
+            case Intent.ACTION_BATTERY_CHANGED:
+                // Très fréquent (tension, température) : seuls pourcentage et charge comptent
+                synchronized (this) {
+                    if (readBattery(intent)) {
+                        markDirty(BATTERY);
+                    }
+                }
+                break;
+            case PowerManager.ACTION_POWER_SAVE_MODE_CHANGED:
+                markDirty(POWER_SAVE);
+                break;
+            case LocationManager.PROVIDERS_CHANGED_ACTION:
+                markDirty(GPS);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void markDirty(final int groups) {
+        dirty.getAndAccumulate(groups, (current, added) -> current | added);
+    }
+
+    /**
+     * Lire pourcentage et charge depuis l'intent de batterie ; vrai si l'un d'eux a changé
+     */
+    private boolean readBattery(final Intent battery) {
+        final var level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        final var scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        final var percent = (int) ((level / (float) scale) * 100);
+        final var status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        final var nowCharging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL;
+        final var changed = percent != batteryPercent || nowCharging != charging;
+        batteryPercent = percent;
+        charging = nowCharging;
+        return changed;
+    }
+
+    private void readNetwork() {
+        final var caps = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
+        hasInternet = caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        networkType = "NONE";
+        if (caps != null) {
+            if (caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+                networkType = "WIFI";
+            } else if (caps.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+                networkType = "MOBILE";
+            }
+        }
+    }
+}
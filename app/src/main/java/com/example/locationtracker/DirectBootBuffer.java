@@ -0,0 +1,103 @@
+package com.example.locationtracker;
+
+import android.content.Context;
+import android.location.Location;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.NonNull;
+
+/**
+ * Tampon des positions reçues avant le premier déverrouillage (Direct Boot).
+ * Stocké dans le stockage protégé par l'appareil, seul accessible à ce moment-là,
+ * sous forme d'enregistrements binaires de taille fixe ({@link FixRecords}) ajoutés en fin de fichier.
+ */
+public class DirectBootBuffer {
+
+    private static final String TAG = "DirectBootBuffer";
+    // v2 : enregistrement complété du numéro de séquence de la position
+    private static final String FILE_NAME = "direct_boot_fixes_v2.bin";
+    private static final String PROVIDER = "direct-boot";
+
+    private static final int RECORD_SIZE = FixRecords.RECORD_SIZE;
+
+    private final File file;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    public DirectBootBuffer(@NonNull final Context context) {
+        final var deviceContext = context.createDeviceProtectedStorageContext();
+        this.file = new File(deviceContext.getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * Ajouter un lot de positions en fin de tampon ; un enregistrement tronqué
+     * (coupure pendant l'écriture) est écrasé, sans décaler les suivants
+     */
+    public synchronized void append(@NonNull final List<Location> locations) throws IOException {
+        try (var raf = new RandomAccessFile(file, "rw")) {
+            final var channel = raf.getChannel();
+            final var end = channel.size() / RECORD_SIZE * RECORD_SIZE;
+            if (end != channel.size()) {
+                Log.w(TAG, "Enregistrement tronqué écarté");
+                channel.truncate(end);
+            }
+            channel.position(end);
+            for (Location location : locations) {
+                record.clear();
+                FixRecords.encode(location, record);
+                record.flip();
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+            channel.force(false);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return !file.exists() || file.length() < RECORD_SIZE;
+    }
+
+    public synchronized int size() {
+        return file.exists() ? (int) (file.length() / RECORD_SIZE) : 0;
+    }
+
+    /**
+     * Relire toutes les positions tamponnées, dans l'ordre d'arrivée.
+     * Un enregistrement tronqué en fin de fichier (coupure) est ignoré.
+     */
+    public synchronized List<Location> readAll() throws IOException {
+        final var locations = new ArrayList<Location>(size());
+        if (!file.exists()) {
+            return locations;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                final var location = FixRecords.decode(in, PROVIDER);
+                if (location == null) {
+                    break;
+                }
+                locations.add(location);
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Vider le tampon une fois son contenu remis au pipeline complet
+     */
+    public synchronized void clear() {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Impossible de supprimer " + file);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.locationtracker;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * Pool de travail borné pour la préparation des envois et l'enrichissement.
+ *
+ * <p>Parallélisme et capacité de file configurables ; chaque tâche porte une échéance :
+ * passée en file d'attente, elle n'est pas exécutée et son callback d'abandon est appelé.
+ * File pleine : selon la {@link RejectionPolicy}, la plus ancienne tâche est abandonnée
+ * ou la nouvelle est refusée. Le pool est démarré et arrêté avec le service ;
+ * arrêté, il refuse toute tâche.</p>
+ *
+ * <p>Une tâche peut aussi avoir une durée d'exécution maximale (appel réseau bloquant) :
+ * elle tourne alors sur un thread d'appel, que le thread du pool attend au plus ce délai
+ * avant d'interrompre l'appel et de passer à la suite. Les threads d'appel sont bornés
+ * par le parallélisme : tous occupés par des appels bloqués, les tâches suivantes sont
+ * abandonnées sans attendre.</p>
+ *
+ * <p>Temps d'attente en file et d'exécution sont mesurés (moyenne et maximum).</p>
+ */
+public class EnrichmentExecutor {
+
+    private static final String TAG = "EnrichmentExecutor";
+
+    public enum RejectionPolicy {
+        // Abandonner la tâche la plus ancienne (données périssables)
+        DISCARD_OLDEST,
+        // Refuser la nouvelle tâche : l'appelant est prévenu par une exception
+        ABORT
+    }
+
+    /**
+     * Instantané des compteurs du pool
+     */
+    @Getter
+    @Builder
+    @ToString
+    public static class Metrics {
+        private final String name;
+        private final long submitted;
+        private final long completed;
+        private final long failed;
+        private final long expired;
+        private final long timedOut;
+        private final long rejected;
+        private final int queued;
+        private final int active;
+        private final long averageQueueWaitMillis;
+        private final long maxQueueWaitMillis;
+        private final long averageRunMillis;
+        private final long maxRunMillis;
+    }
+
+    private final String name;
+    private final int parallelism;
+    private final int queueCapacity;
+    private final int threadPriority;
+    private final RejectionPolicy rejectionPolicy;
+
+    private volatile ThreadPoolExecutor executor;
+    // Appels à durée bornée, attendus par les threads du pool
+    private volatile ThreadPoolExecutor calls;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalQueueWait = new LongAdder();
+    private final LongAdder totalRun = new LongAdder();
+    private final AtomicLong maxQueueWait = new AtomicLong();
+    private final AtomicLong maxRun = new AtomicLong();
+
+    /**
+     * @param threadPriority priorité {@link Process} des threads du pool
+     */
+    public EnrichmentExecutor(@NonNull final String name, final int parallelism, final int queueCapacity,
+                              final int threadPriority, @NonNull final RejectionPolicy rejectionPolicy) {
+        this.name = name;
+        this.parallelism = Math.max(1, parallelism);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.threadPriority = threadPriority;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    /**
+     * Démarrer le pool (sans effet s'il tourne déjà)
+     */
+    public synchronized void start() {
+        if (executor != null && !executor.isShutdown()) {
+            return;
+        }
+        final var pool = new ThreadPoolExecutor(parallelism, parallelism, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(threadPriority);
+                    runnable.run();
+                }, name + "-" + threadCount.incrementAndGet()),
+                new Rejection());
+        pool.allowCoreThreadTimeOut(true);
+        calls = new ThreadPoolExecutor(0, parallelism, 30, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(threadPriority);
+                    runnable.run();
+                }, name + "-call-" + threadCount.incrementAndGet()));
+        executor = pool;
+        Log.d(TAG, name + " démarré: " + parallelism + " thread(s), file " + queueCapacity);
+    }
+
+    /**
+     * Arrêter le pool : les tâches en file sont abandonnées, celles en cours sont interrompues
+     */
+    public synchronized void shutdown() {
+        if (executor == null || executor.isShutdown()) {
+            return;
+        }
+        for (Runnable pending : executor.shutdownNow()) {
+            ((TimedTask) pending).drop();
+        }
+        calls.shutdownNow();
+        Log.d(TAG, name + " arrêté: " + getMetrics());
+    }
+
+    /**
+     * Exécuter une tâche avant son échéance, sans limite de durée d'exécution
+     *
+     * @see #execute(Runnable, long, long, Runnable)
+     */
+    public void execute(@NonNull final Runnable task, final long deadlineMillis, final Runnable onDropped) {
+        execute(task, deadlineMillis, Long.MAX_VALUE, onDropped);
+    }
+
+    /**
+     * Exécuter une tâche avant son échéance
+     *
+     * @param deadlineMillis   attente maximale en file
+     * @param runTimeoutMillis durée d'exécution maximale ({@link Long#MAX_VALUE} : sans limite,
+     *                         la tâche tourne directement sur le thread du pool)
+     * @param onDropped        appelé si la tâche acceptée n'est finalement pas exécutée, ou
+     *                         abandonnée en cours (échéance, éviction, durée, arrêt) ; peut être null.
+     *                         Une tâche abandonnée en cours peut encore se terminer ensuite.
+     * @throws RejectedExecutionException pool arrêté, ou file pleine avec la politique ABORT
+     */
+    public void execute(@NonNull final Runnable task, final long deadlineMillis, final long runTimeoutMillis,
+                        final Runnable onDropped) {
+        final var pool = executor;
+        if (pool == null || pool.isShutdown()) {
+            rejected.increment();
+            throw new RejectedExecutionException(name + " arrêté");
+        }
+        pool.execute(new TimedTask(task, deadlineMillis, runTimeoutMillis, onDropped));
+        submitted.increment();
+    }
+
+    public Metrics getMetrics() {
+        final var pool = executor;
+        final var done = completed.sum() + failed.sum();
+        final var started = done + (pool != null ? pool.getActiveCount() : 0);
+        return Metrics.builder()
+                .name(name)
+                .submitted(submitted.sum())
+                .completed(completed.sum())
+                .failed(failed.sum())
+                .expired(expired.sum())
+                .timedOut(timedOut.sum())
+                .rejected(rejected.sum())
+                .queued(pool != null ? pool.getQueue().size() : 0)
+                .active(pool != null ? pool.getActiveCount() : 0)
+                .averageQueueWaitMillis(started > 0 ? totalQueueWait.sum() / started : 0)
+                .maxQueueWaitMillis(maxQueueWait.get())
+                .averageRunMillis(done > 0 ? totalRun.sum() / done : 0)
+                .maxRunMillis(maxRun.get())
+                .build();
+    }
+
+    private class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long deadlineMillis;
+        private final long runTimeoutMillis;
+        private final Runnable onDropped;
+        private final long enqueuedAt = SystemClock.elapsedRealtime();
+
+        TimedTask(final Runnable task, final long deadlineMillis, final long runTimeoutMillis,
+                  final Runnable onDropped) {
+            this.task = task;
+            this.deadlineMillis = deadlineMillis;
+            this.runTimeoutMillis = runTimeoutMillis;
+            this.onDropped = onDropped;
+        }
+
+        @Override
+        public void run() {
+            final var start = SystemClock.elapsedRealtime();
+            final var wait = start - enqueuedAt;
+            totalQueueWait.add(wait);
+            maxQueueWait.accumulateAndGet(wait, Math::max);
+            if (wait > deadlineMillis) {
+                expired.increment();
+                drop();
+                return;
+            }
+            try {
+                if (runTimeoutMillis == Long.MAX_VALUE) {
+                    task.run();
+                    completed.increment();
+                } else {
+                    runWithTimeout();
+                }
+            } catch (RuntimeException e) {
+                failed.increment();
+                Log.e(TAG, name + ": tâche en erreur", e);
+            } finally {
+                final var run = SystemClock.elapsedRealtime() - start;
+                totalRun.add(run);
+                maxRun.accumulateAndGet(run, Math::max);
+            }
+        }
+
+        /**
+         * Exécuter la tâche sur un thread d'appel, attendue au plus {@code runTimeoutMillis} ;
+         * au-delà, l'appel est interrompu (s'il y est sensible) et la tâche abandonnée
+         */
+        private void runWithTimeout() {
+            final Future<?> call;
+            try {
+                call = calls.submit(task);
+            } catch (RejectedExecutionException e) {
+                // Appels précédents toujours bloqués (ou pool arrêté)
+                timedOut.increment();
+                Log.w(TAG, name + ": aucun thread d'appel libre, tâche abandonnée");
+                drop();
+                return;
+            }
+            try {
+                call.get(runTimeoutMillis, TimeUnit.MILLISECONDS);
+                completed.increment();
+            } catch (TimeoutException e) {
+                call.cancel(true);
+                timedOut.increment();
+                Log.w(TAG, name + ": tâche abandonnée après " + runTimeoutMillis + " ms");
+                drop();
+            } catch (ExecutionException e) {
+                failed.increment();
+                Log.e(TAG, name + ": tâche en erreur", e.getCause());
+            } catch (InterruptedException e) {
+                // Arrêt du pool
+                call.cancel(true);
+                Thread.currentThread().interrupt();
+                drop();
+            }
+        }
+
+        void drop() {
+            if (onDropped != null) {
+                try {
+                    onDropped.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, name + ": erreur d'abandon", e);
+                }
+            }
+        }
+    }
+
+    private class Rejection implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor pool) {
+            rejected.increment();
+            if (pool.isShutdown() || rejectionPolicy == RejectionPolicy.ABORT) {
+                throw new RejectedExecutionException(name + ": file pleine");
+            }
+            final var oldest = pool.getQueue().poll();
+            if (oldest != null) {
+                ((TimedTask) oldest).drop();
+            }
+            pool.execute(runnable);
+        }
+    }
+}
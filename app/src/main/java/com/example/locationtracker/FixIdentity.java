@@ -0,0 +1,90 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+import android.os.Bundle;
+
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Identifiant client de chaque position retenue : identifiant de l'appareil
+ * (tiré une fois, conservé dans le magasin d'état) et numéro de séquence croissant.
+ *
+ * <p>Le numéro est attribué à l'acceptation et suit la position jusqu'à l'envoi
+ * (extras de la {@link Location}, tampon Direct Boot) : un nouvel essai ou une reprise
+ * envoie le même identifiant, que le backend utilise comme identifiant de document.</p>
+ */
+public class FixIdentity {
+
+    static final String EXTRA_SEQUENCE = "fixSeq";
+
+    private final ServiceStateStore store;
+    @Getter
+    private final String deviceId;
+
+    public FixIdentity(@NonNull final ServiceStateStore store) {
+        this.store = store;
+        final var ids = new long[2];
+        store.update(editor -> {
+            ids[0] = editor.getLong(ServiceStateStore.Key.DEVICE_ID_HIGH);
+            ids[1] = editor.getLong(ServiceStateStore.Key.DEVICE_ID_LOW);
+            if (ids[0] == 0 && ids[1] == 0) {
+                final var uuid = UUID.randomUUID();
+                ids[0] = uuid.getMostSignificantBits();
+                ids[1] = uuid.getLeastSignificantBits();
+                editor.putLong(ServiceStateStore.Key.DEVICE_ID_HIGH, ids[0])
+                        .putLong(ServiceStateStore.Key.DEVICE_ID_LOW, ids[1]);
+            }
+        });
+        this.deviceId = new UUID(ids[0], ids[1]).toString();
+    }
+
+    /**
+     * Numéroter un lot de positions (une seule écriture dans le magasin) ;
+     * retourne le premier numéro attribué
+     */
+    public long assign(@NonNull final List<Location> locations) {
+        final var first = new long[1];
+        store.update(editor -> {
+            first[0] = editor.getLong(ServiceStateStore.Key.FIX_SEQUENCE);
+            editor.putLong(ServiceStateStore.Key.FIX_SEQUENCE, first[0] + locations.size());
+        });
+        var sequence = first[0];
+        for (Location location : locations) {
+            setSequence(location, sequence++);
+        }
+        return first[0];
+    }
+
+    /**
+     * Prochain numéro à attribuer : tous les numéros inférieurs ont déjà été attribués
+     */
+    public long getNextSequence() {
+        return store.getLong(ServiceStateStore.Key.FIX_SEQUENCE);
+    }
+
+    /**
+     * Identifiant stable d'une position numérotée, ou null
+     */
+    public String getFixId(@NonNull final Location location) {
+        final var sequence = getSequence(location);
+        return sequence < 0 ? null : deviceId + "-" + sequence;
+    }
+
+    static void setSequence(final Location location, final long sequence) {
+        final var extras = location.getExtras() != null ? new Bundle(location.getExtras()) : new Bundle();
+        extras.putLong(EXTRA_SEQUENCE, sequence);
+        location.setExtras(extras);
+    }
+
+    /**
+     * Numéro de séquence de la position, -1 si elle n'a pas été numérotée
+     */
+    static long getSequence(final Location location) {
+        final var extras = location.getExtras();
+        return extras != null ? extras.getLong(EXTRA_SEQUENCE, -1) : -1;
+    }
+}
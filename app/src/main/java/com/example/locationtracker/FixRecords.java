@@ -0,0 +1,134 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+import android.location.LocationManager;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Enregistrement binaire de taille fixe d'une position, commun aux fichiers
+ * de positions en attente (tampon Direct Boot, file de débordement des envois).
+ *
+ * <p>Un événement de visite ({@link VisitEvents}) réutilise les champs : début dans
+ * l'altitude (valeur entière exacte en double), nombre de positions dans la vitesse,
+ * plus grand numéro résumé à la place du numéro de séquence.</p>
+ */
+final class FixRecords {
+
+    private static final String TAG = "FixRecords";
+
+    // time, lat, lng, altitude, accuracy, speed, bearing, flags, sequence
+    static final int RECORD_SIZE = 8 + 8 + 8 + 8 + 4 + 4 + 4 + 4 + 8;
+
+    private static final int FLAG_SPEED = 1;
+    private static final int FLAG_ALTITUDE = 1 << 1;
+    private static final int FLAG_BEARING = 1 << 2;
+    // Bits 3-4 : provider d'origine (0 : autre)
+    private static final int PROVIDER_SHIFT = 3;
+    private static final int PROVIDER_MASK = 3 << PROVIDER_SHIFT;
+    private static final int FLAG_FLAGGED = 1 << 5;
+    private static final int FLAG_VISIT = 1 << 6;
+    private static final int FLAG_VISIT_ENDED = 1 << 7;
+    private static final String UNKNOWN_PROVIDER = "unknown";
+    private static final String[] PROVIDERS = {
+            // LocationManager.FUSED_PROVIDER n'existe qu'à partir de l'API 31
+            null, "fused", LocationManager.GPS_PROVIDER, LocationManager.NETWORK_PROVIDER
+    };
+
+    private FixRecords() {
+    }
+
+    static void encode(final Location location, final ByteBuffer out) {
+        if (VisitEvents.isVisit(location)) {
+            encodeVisit(location, out);
+            return;
+        }
+        var flags = 0;
+        if (location.hasSpeed()) flags |= FLAG_SPEED;
+        if (location.hasAltitude()) flags |= FLAG_ALTITUDE;
+        if (location.hasBearing()) flags |= FLAG_BEARING;
+        for (int code = 1; code < PROVIDERS.length; code++) {
+            if (PROVIDERS[code].equals(location.getProvider())) {
+                flags |= code << PROVIDER_SHIFT;
+                break;
+            }
+        }
+        if (UploadScheduler.isFlagged(location)) flags |= FLAG_FLAGGED;
+
+        out.putLong(location.getTime());
+        out.putDouble(location.getLatitude());
+        out.putDouble(location.getLongitude());
+        out.putDouble(location.getAltitude());
+        out.putFloat(location.getAccuracy());
+        out.putFloat(location.getSpeed());
+        out.putFloat(location.getBearing());
+        out.putInt(flags);
+        out.putLong(FixIdentity.getSequence(location));
+    }
+
+    private static void encodeVisit(final Location location, final ByteBuffer out) {
+        var flags = FLAG_VISIT | FLAG_FLAGGED;
+        if (VisitEvents.isEnded(location)) flags |= FLAG_VISIT_ENDED;
+
+        out.putLong(location.getTime());
+        out.putDouble(location.getLatitude());
+        out.putDouble(location.getLongitude());
+        out.putDouble(VisitEvents.getStartTime(location));
+        out.putFloat(location.getAccuracy());
+        out.putFloat(VisitEvents.getFixCount(location));
+        out.putFloat(0);
+        out.putInt(flags);
+        out.putLong(VisitEvents.getCoveredThrough(location));
+    }
+
+    /**
+     * Position suivante, ou null en fin de flux ; un enregistrement tronqué
+     * (coupure pendant l'écriture) est ignoré
+     *
+     * @param provider provider imposé aux positions relues, null pour garder celui d'origine
+     */
+    static Location decode(final DataInputStream in, @Nullable final String provider) throws IOException {
+        final long time;
+        try {
+            time = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+        try {
+            final var latitude = in.readDouble();
+            final var longitude = in.readDouble();
+            final var altitude = in.readDouble();
+            final var accuracy = in.readFloat();
+            final var speed = in.readFloat();
+            final var bearing = in.readFloat();
+            final var flags = in.readInt();
+            final var sequence = in.readLong();
+            if ((flags & FLAG_VISIT) != 0) {
+                return VisitEvents.create((long) altitude, time, latitude, longitude, accuracy, (int) speed,
+                        (flags & FLAG_VISIT_ENDED) != 0, sequence);
+            }
+            final var recorded = PROVIDERS[(flags & PROVIDER_MASK) >> PROVIDER_SHIFT];
+            final var location = new Location(provider != null ? provider
+                    : recorded != null ? recorded : UNKNOWN_PROVIDER);
+            location.setTime(time);
+            location.setLatitude(latitude);
+            location.setLongitude(longitude);
+            location.setAccuracy(accuracy);
+            if ((flags & FLAG_ALTITUDE) != 0) location.setAltitude(altitude);
+            if ((flags & FLAG_SPEED) != 0) location.setSpeed(speed);
+            if ((flags & FLAG_BEARING) != 0) location.setBearing(bearing);
+            if (sequence >= 0) FixIdentity.setSequence(location, sequence);
+            if ((flags & FLAG_FLAGGED) != 0) UploadScheduler.flag(location);
+            return location;
+        } catch (EOFException e) {
+            Log.w(TAG, "Enregistrement tronqué ignoré");
+            return null;
+        }
+    }
+}
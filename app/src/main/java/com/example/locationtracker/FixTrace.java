@@ -0,0 +1,313 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Traçage des positions de bout en bout, de la livraison par le provider
+ * jusqu'à l'accusé de réception de la Cloud Function.
+ *
+ * <p>Chaque lot reçoit un cookie, porté dans les extras des positions pour suivre
+ * les sauts de thread et les continuations de {@code Task}. Chaque étape est émise
+ * en section {@link Trace} (visible dans Perfetto) et sa durée est gardée dans un
+ * anneau de taille fixe par étape, d'où les p50/p99.</p>
+ *
+ * <p>Les positions d'un lot peuvent partir dans plusieurs envois (voies, lots, nouveaux
+ * essais) : la section de bout en bout n'est close et mesurée qu'une fois, quand
+ * la dernière position du lot est accusée ou abandonnée.</p>
+ */
+public class FixTrace {
+
+    static final String EXTRA_COOKIE = "traceCookie";
+    // Lots suivis au plus (positions passées par le disque : cookie perdu, lot jamais soldé)
+    private static final int MAX_OUTSTANDING = 1024;
+
+    /**
+     * Étapes du parcours d'une position ; les étapes asynchrones commencent
+     * et finissent sur des threads différents
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum Stage {
+        // Attente côté provider : de la mesure la plus ancienne du lot à sa livraison
+        PROVIDER("fix:provider", false),
+        FILTER("fix:filter", false),
+        PIPELINE("fix:pipeline", false),
+        QUEUE("fix:queue", true),
+        PAYLOAD("fix:payload", false),
+        AUTH("fix:auth", true),
+        CALLABLE("fix:callable", true),
+        GEOCODE("fix:geocode", false),
+        END_TO_END("fix:end-to-end", true);
+
+        private final String sectionName;
+        private final boolean async;
+    }
+
+    /**
+     * Positions d'un lot pas encore accusées ni abandonnées
+     */
+    private static final class Outstanding {
+        private final long deliveredNanos;
+        private int remaining;
+        private boolean completed;
+
+        private Outstanding(final int remaining, final long deliveredNanos) {
+            this.remaining = remaining;
+            this.deliveredNanos = deliveredNanos;
+        }
+    }
+
+    private final AtomicInteger cookies = new AtomicInteger();
+    // Par cookie, dans l'ordre d'ouverture : le plus ancien est clos sans mesure au-delà de la limite
+    private final LinkedHashMap<Integer, Outstanding> outstanding = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Integer, Outstanding> eldest) {
+            if (size() <= MAX_OUTSTANDING) {
+                return false;
+            }
+            Trace.endAsyncSection(Stage.END_TO_END.getSectionName(), eldest.getKey());
+            return true;
+        }
+    };
+    private final int capacity;
+    // Anneau de durées (ns) par étape
+    private final long[][] samples;
+    private final long[] counts;
+
+    /**
+     * Répartition des durées d'une étape sur les derniers échantillons
+     */
+    @Getter
+    @Builder
+    public static class StageSummary {
+        private final Stage stage;
+        private final long count;
+        private final int samples;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        @Override
+        public String toString() {
+            return String.format("%s: n=%d, p50=%.1f ms, p99=%.1f ms, max=%.1f ms",
+                    stage.getSectionName(), count, p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6);
+        }
+    }
+
+    /**
+     * Étape en cours ; sans cookie (position non tracée), rien n'est émis ni enregistré
+     */
+    public final class Span {
+        private final Stage stage;
+        private final int cookie;
+        @Getter
+        private final long startNanos;
+        private boolean ended;
+
+        private Span(final Stage stage, final int cookie, final long startNanos) {
+            this.stage = stage;
+            this.cookie = cookie;
+            this.startNanos = startNanos;
+        }
+
+        public void end() {
+            if (close()) {
+                record(stage, SystemClock.elapsedRealtimeNanos() - startNanos);
+            }
+        }
+
+        /**
+         * Fermer la section sans enregistrer de durée (travail abandonné)
+         */
+        public void cancel() {
+            close();
+        }
+
+        private boolean close() {
+            synchronized (this) {
+                if (ended || cookie == 0) {
+                    return false;
+                }
+                ended = true;
+            }
+            if (stage.isAsync()) {
+                Trace.endAsyncSection(stage.getSectionName(), cookie);
+            } else {
+                Trace.endSection();
+            }
+            return true;
+        }
+    }
+
+    public FixTrace(final int capacity) {
+        this.capacity = capacity;
+        this.samples = new long[Stage.values().length][capacity];
+        this.counts = new long[Stage.values().length];
+    }
+
+    /**
+     * Nouveau cookie de lot (jamais 0)
+     */
+    public int newCookie() {
+        int cookie;
+        do {
+            cookie = cookies.incrementAndGet();
+        } while (cookie == 0);
+        return cookie;
+    }
+
+    /**
+     * Commencer une étape sur le thread courant
+     */
+    public Span start(@NonNull final Stage stage, final int cookie) {
+        if (cookie != 0) {
+            if (stage.isAsync()) {
+                Trace.beginAsyncSection(stage.getSectionName(), cookie);
+            } else {
+                Trace.beginSection(stage.getSectionName());
+            }
+        }
+        return new Span(stage, cookie, SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * Rattacher les positions retenues d'un lot à son cookie et à l'instant de livraison ;
+     * ouvre la section de bout en bout, close par {@link #complete(List)} ou {@link #abandon(List)}
+     */
+    public void attach(@NonNull final List<Location> locations, final int cookie, final long deliveredNanos) {
+        if (locations.isEmpty() || cookie == 0) {
+            return;
+        }
+        var oldest = Long.MAX_VALUE;
+        for (Location location : locations) {
+            final var extras = location.getExtras() != null ? new Bundle(location.getExtras()) : new Bundle();
+            extras.putInt(EXTRA_COOKIE, cookie);
+            location.setExtras(extras);
+            oldest = Math.min(oldest, location.getElapsedRealtimeNanos());
+        }
+        if (oldest > 0 && oldest <= deliveredNanos) {
+            record(Stage.PROVIDER, deliveredNanos - oldest);
+        }
+        synchronized (outstanding) {
+            outstanding.put(cookie, new Outstanding(locations.size(), deliveredNanos));
+        }
+        Trace.beginAsyncSection(Stage.END_TO_END.getSectionName(), cookie);
+    }
+
+    /**
+     * Positions accusées par le backend ; la durée de bout en bout d'un lot, depuis
+     * sa livraison, est enregistrée quand sa dernière position est soldée
+     */
+    public void complete(@NonNull final List<Location> locations) {
+        settle(locations, true);
+    }
+
+    /**
+     * Positions qui ne seront pas accusées (tampon, résumé par une visite, pas de listener) ;
+     * un lot entièrement abandonné est clos sans mesure
+     */
+    public void abandon(@NonNull final List<Location> locations) {
+        settle(locations, false);
+    }
+
+    private void settle(final List<Location> locations, final boolean completed) {
+        final var now = SystemClock.elapsedRealtimeNanos();
+        for (Location location : locations) {
+            final var cookie = getCookie(location);
+            if (cookie == 0) {
+                continue;
+            }
+            final Outstanding done;
+            synchronized (outstanding) {
+                final var entry = outstanding.get(cookie);
+                // Lot déjà soldé ou évincé
+                if (entry == null) {
+                    continue;
+                }
+                entry.completed |= completed;
+                if (--entry.remaining > 0) {
+                    continue;
+                }
+                outstanding.remove(cookie);
+                done = entry;
+            }
+            Trace.endAsyncSection(Stage.END_TO_END.getSectionName(), cookie);
+            if (done.completed) {
+                record(Stage.END_TO_END, now - done.deliveredNanos);
+            }
+        }
+    }
+
+    /**
+     * Cookie du lot de la position, 0 si elle n'est pas tracée
+     */
+    public static int getCookie(@NonNull final Location location) {
+        final var extras = location.getExtras();
+        return extras != null ? extras.getInt(EXTRA_COOKIE, 0) : 0;
+    }
+
+    /**
+     * Cookie d'un lot (celui de sa première position)
+     */
+    public static int getCookie(@NonNull final List<Location> locations) {
+        return locations.isEmpty() ? 0 : getCookie(locations.get(0));
+    }
+
+    public synchronized void record(@NonNull final Stage stage, final long durationNanos) {
+        final var index = stage.ordinal();
+        samples[index][(int) (counts[index] % capacity)] = durationNanos;
+        counts[index]++;
+    }
+
+    /**
+     * p50/p99 par étape sur les derniers échantillons (étapes sans mesure omises)
+     */
+    public List<StageSummary> getSummary() {
+        final var stages = Stage.values();
+        final var copies = new long[stages.length][];
+        final var totals = new long[stages.length];
+        synchronized (this) {
+            for (int i = 0; i < stages.length; i++) {
+                totals[i] = counts[i];
+                copies[i] = Arrays.copyOf(samples[i], (int) Math.min(counts[i], capacity));
+            }
+        }
+        final var summary = new ArrayList<StageSummary>(stages.length);
+        for (int i = 0; i < stages.length; i++) {
+            final var values = copies[i];
+            if (values.length == 0) {
+                continue;
+            }
+            Arrays.sort(values);
+            summary.add(StageSummary.builder()
+                    .stage(stages[i])
+                    .count(totals[i])
+                    .samples(values.length)
+                    .p50Nanos(percentile(values, 50))
+                    .p99Nanos(percentile(values, 99))
+                    .maxNanos(values[values.length - 1])
+                    .build());
+        }
+        return summary;
+    }
+
+    private static long percentile(final long[] sorted, final int percent) {
+        final var rank = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+    }
+}
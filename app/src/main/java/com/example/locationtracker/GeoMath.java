@@ -0,0 +1,42 @@
+package com.example.locationtracker;
+
+/**
+ * Calculs géographiques sans allocation (sphère de rayon moyen terrestre)
+ */
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    // Longueur d'un degré de latitude
+    public static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Distance orthodromique (haversine) en mètres
+     */
+    public static double haversine(final double lat1, final double lng1, final double lat2, final double lng2) {
+        final var dLat = Math.toRadians(lat2 - lat1);
+        final var dLng = Math.toRadians(lng2 - lng1);
+        final var sinLat = Math.sin(dLat / 2);
+        final var sinLng = Math.sin(dLng / 2);
+        final var a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLng * sinLng;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Demi-largeur en degrés de latitude d'un cercle de rayon donné
+     */
+    public static double latitudeSpan(final double radiusMeters) {
+        return Math.toDegrees(radiusMeters / EARTH_RADIUS_METERS);
+    }
+
+    /**
+     * Demi-largeur en degrés de longitude d'un cercle de rayon donné, à une latitude donnée
+     */
+    public static double longitudeSpan(final double radiusMeters, final double latitude) {
+        final var cos = Math.cos(Math.toRadians(latitude));
+        return cos < 1e-9 ? 180 : Math.min(180, Math.toDegrees(radiusMeters / (EARTH_RADIUS_METERS * cos)));
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.locationtracker;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodage compact de séries temporelles, d'après Gorilla (Facebook, VLDB 2015) :
+ * delta-of-delta pour les horodatages et les coordonnées, XOR avec la valeur
+ * précédente pour les autres nombres flottants. Les flux de bits sont écrits MSB en premier.
+ */
+final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * Flux de bits extensible en écriture
+     */
+    static final class BitWriter {
+        private byte[] data;
+        private long bitCount;
+
+        BitWriter(final int initialBytes) {
+            this.data = new byte[Math.max(16, initialBytes)];
+        }
+
+        void writeBit(final boolean bit) {
+            writeBits(bit ? 1 : 0, 1);
+        }
+
+        /**
+         * Écrire les {@code count} bits de poids faible de {@code value} (1 à 64)
+         */
+        void writeBits(final long value, int count) {
+            while (count > 0) {
+                final var byteIndex = (int) (bitCount >>> 3);
+                if (byteIndex >= data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+                final var free = 8 - (int) (bitCount & 7);
+                final var n = Math.min(free, count);
+                final var chunk = (int) ((value >>> (count - n)) & ((1 << n) - 1));
+                data[byteIndex] |= (byte) (chunk << (free - n));
+                bitCount += n;
+                count -= n;
+            }
+        }
+
+        int sizeInBytes() {
+            return (int) ((bitCount + 7) >>> 3);
+        }
+
+        void writeTo(final ByteBuffer out) {
+            out.put(data, 0, sizeInBytes());
+        }
+    }
+
+    /**
+     * Lecture d'un flux de bits dans une zone d'un ByteBuffer (typiquement mappé)
+     */
+    static final class BitReader {
+        private final ByteBuffer buffer;
+        private final int base;
+        private long position;
+
+        BitReader(final ByteBuffer buffer, final int base) {
+            this.buffer = buffer;
+            this.base = base;
+        }
+
+        boolean readBit() {
+            return readBits(1) != 0;
+        }
+
+        long readBits(int count) {
+            long result = 0;
+            while (count > 0) {
+                final var b = buffer.get(base + (int) (position >>> 3)) & 0xFF;
+                final var available = 8 - (int) (position & 7);
+                final var n = Math.min(available, count);
+                final var chunk = (b >>> (available - n)) & ((1 << n) - 1);
+                result = (result << n) | chunk;
+                position += n;
+                count -= n;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Entiers à variation régulière (horodatages, coordonnées en virgule fixe) :
+     * première valeur brute, puis delta-of-delta en classes de taille
+     */
+    static final class DeltaOfDeltaEncoder {
+        private long previous;
+        private long previousDelta;
+        private boolean first = true;
+
+        void encode(final long value, final BitWriter out) {
+            if (first) {
+                out.writeBits(value, 64);
+                previous = value;
+                first = false;
+                return;
+            }
+            final var delta = value - previous;
+            final var deltaOfDelta = delta - previousDelta;
+            if (deltaOfDelta == 0) {
+                out.writeBits(0b0, 1);
+            } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+                out.writeBits(0b10, 2);
+                out.writeBits(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+                out.writeBits(0b110, 3);
+                out.writeBits(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(deltaOfDelta, 12);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(deltaOfDelta, 64);
+            }
+            previousDelta = delta;
+            previous = value;
+        }
+    }
+
+    static final class DeltaOfDeltaDecoder {
+        private long previous;
+        private long previousDelta;
+        private boolean first = true;
+
+        long decode(final BitReader in) {
+            if (first) {
+                previous = in.readBits(64);
+                first = false;
+                return previous;
+            }
+            final long deltaOfDelta;
+            if (!in.readBit()) {
+                deltaOfDelta = 0;
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(7), 7);
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(9), 9);
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(12), 12);
+            } else {
+                deltaOfDelta = in.readBits(64);
+            }
+            previousDelta += deltaOfDelta;
+            previous += previousDelta;
+            return previous;
+        }
+
+        private static long signExtend(final long value, final int bits) {
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+
+    /**
+     * Valeurs 64 bits (bits d'un double, ou d'un float décalé de 32) encodées par XOR :
+     * '0' valeur identique, '10' bits significatifs dans la fenêtre précédente,
+     * '11' + zéros de tête (5 bits) + longueur (6 bits) + bits significatifs
+     */
+    static final class XorEncoder {
+        private long previous;
+        private int previousLeading = -1;
+        private int previousTrailing;
+        private boolean first = true;
+
+        void encode(final long bits, final BitWriter out) {
+            if (first) {
+                out.writeBits(bits, 64);
+                previous = bits;
+                first = false;
+                return;
+            }
+            final var xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                out.writeBits(0b0, 1);
+                return;
+            }
+            final var leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            final var trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                out.writeBits(0b10, 2);
+                out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                final var significant = 64 - leading - trailing;
+                out.writeBits(0b11, 2);
+                out.writeBits(leading, 5);
+                out.writeBits(significant - 1, 6);
+                out.writeBits(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+
+        void encodeDouble(final double value, final BitWriter out) {
+            encode(Double.doubleToRawLongBits(value), out);
+        }
+
+        void encodeFloat(final float value, final BitWriter out) {
+            encode(((long) Float.floatToRawIntBits(value)) << 32, out);
+        }
+    }
+
+    static final class XorDecoder {
+        private long previous;
+        private int previousLeading;
+        private int previousTrailing;
+        private boolean first = true;
+
+        long decode(final BitReader in) {
+            if (first) {
+                previous = in.readBits(64);
+                first = false;
+                return previous;
+            }
+            if (!in.readBit()) {
+                return previous;
+            }
+            if (in.readBit()) {
+                previousLeading = (int) in.readBits(5);
+                final var significant = (int) in.readBits(6) + 1;
+                previousTrailing = 64 - previousLeading - significant;
+            }
+            final var significant = 64 - previousLeading - previousTrailing;
+            previous ^= in.readBits(significant) << previousTrailing;
+            return previous;
+        }
+
+        double decodeDouble(final BitReader in) {
+            return Double.longBitsToDouble(decode(in));
+        }
+
+        float decodeFloat(final BitReader in) {
+            return Float.intBitsToFloat((int) (decode(in) >>> 32));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.locationtracker;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Historique local : trace simplifiée de la période choisie et liste paginée des positions
+ * (les plus récentes en premier). Toutes les lectures se font hors du thread principal.
+ */
+public class HistoryActivity extends AppCompatActivity {
+
+    private static final String TAG = "HistoryActivity";
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    // Périodes de la trace, parcourues en touchant l'en-tête (0 : tout l'historique)
+    private static final long[] TRACK_PERIODS = {DAY, 7 * DAY, 30 * DAY, 0};
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "history-ui");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private LocationHistoryStore history;
+    private HistoryPager pager;
+    private TrackView trackView;
+    private TextView tvHistoryRange;
+    private int periodIndex;
+    // Incrémenté à chaque demande de trace : un résultat périmé est ignoré
+    private int trackRequest;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_history);
+
+        history = ((LocationApplication) getApplication()).getContainer().getHistory();
+        trackView = findViewById(R.id.trackView);
+        tvHistoryRange = findViewById(R.id.tvHistoryRange);
+        tvHistoryRange.setOnClickListener(v -> {
+            periodIndex = (periodIndex + 1) % TRACK_PERIODS.length;
+            loadTrack();
+        });
+
+        final RecyclerView list = findViewById(R.id.historyList);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        final HistoryAdapter adapter = new HistoryAdapter();
+        pager = new HistoryPager(history, loader, adapter::onPageLoaded);
+        list.setLayoutManager(layoutManager);
+        list.setHasFixedSize(true);
+        list.setAdapter(adapter);
+        list.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                final int first = layoutManager.findFirstVisibleItemPosition();
+                final int last = layoutManager.findLastVisibleItemPosition();
+                if (first >= 0) {
+                    // Défiler vers le bas de la liste, c'est remonter vers les lignes anciennes
+                    pager.setVisibleRows(adapter.toRowId(first), adapter.toRowId(last), dy > 0);
+                }
+            }
+        });
+
+        // La taille de la vue détermine le niveau de détail
+        trackView.post(this::loadTrack);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        pager.close();
+        loader.shutdownNow();
+    }
+
+    /**
+     * Simplifier la trace de la période courante à la résolution de la vue, en arrière-plan
+     */
+    private void loadTrack() {
+        final long period = TRACK_PERIODS[periodIndex];
+        final long toTime = System.currentTimeMillis();
+        final long fromTime = period == 0 ? 0 : toTime - period;
+        final int resolution = trackView.getResolution();
+        final int request = ++trackRequest;
+        tvHistoryRange.setText(getString(R.string.history_loading));
+        loader.execute(() -> {
+            final long start = System.nanoTime();
+            try {
+                final TrackDecimator.Track track = TrackDecimator.decimate(history, fromTime, toTime, resolution);
+                Log.d(TAG, "Trace: " + track.getSourceCount() + " -> " + track.getPointCount()
+                        + " points en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+                runOnUiThread(() -> {
+                    if (request == trackRequest && !isDestroyed()) {
+                        showTrack(track, period);
+                    }
+                });
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Erreur chargement de la trace", e);
+            }
+        });
+    }
+
+    private void showTrack(TrackDecimator.Track track, long period) {
+        trackView.setTrack(track);
+        if (track.getSourceCount() == 0) {
+            tvHistoryRange.setText(R.string.history_empty);
+            return;
+        }
+        final String label = period == 0
+                ? getString(R.string.history_period_all)
+                : getString(R.string.history_period_days, (int) (period / DAY));
+        tvHistoryRange.setText(getString(R.string.history_range, label, track.getSourceCount()));
+    }
+
+    /**
+     * Adaptateur adossé aux pages de {@link HistoryPager} : position 0 = ligne la plus récente
+     */
+    private class HistoryAdapter extends RecyclerView.Adapter<FixViewHolder> {
+
+        private final DateFormat dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM);
+        private final Date date = new Date();
+
+        long toRowId(int position) {
+            return pager.getRowCount() - 1 - position;
+        }
+
+        void onPageLoaded(int page) {
+            final long firstRowId = (long) page * HistoryPager.PAGE_SIZE;
+            final long lastRowId = Math.min(pager.getRowCount(), firstRowId + HistoryPager.PAGE_SIZE) - 1;
+            final int firstPosition = (int) (pager.getRowCount() - 1 - lastRowId);
+            notifyItemRangeChanged(firstPosition, (int) (lastRowId - firstRowId + 1));
+        }
+
+        @NonNull
+        @Override
+        public FixViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            final View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_history_fix, parent, false);
+            return new FixViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull FixViewHolder holder, int position) {
+            final long rowId = toRowId(position);
+            final HistoryPager.Page page = pager.getPageForRow(rowId);
+            final int index = page == null ? -1 : (int) (rowId - page.getFirstRowId());
+            if (page == null || index >= page.getCount()) {
+                holder.tvFixTime.setText(R.string.history_loading);
+                holder.tvFixDetails.setText(null);
+                return;
+            }
+            date.setTime(page.getTimes()[index]);
+            holder.tvFixTime.setText(dateFormat.format(date));
+            holder.tvFixDetails.setText(String.format(
+                    "%.6f, %.6f  ±%.0f m  %.1f km/h",
+                    page.getLatitudes()[index],
+                    page.getLongitudes()[index],
+                    page.getAccuracies()[index],
+                    Float.isNaN(page.getSpeeds()[index]) ? 0 : page.getSpeeds()[index] * 3.6));
+        }
+
+        @Override
+        public int getItemCount() {
+            return (int) Math.min(Integer.MAX_VALUE, pager.getRowCount());
+        }
+    }
+
+    private static class FixViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvFixTime;
+        final TextView tvFixDetails;
+
+        FixViewHolder(View itemView) {
+            super(itemView);
+            tvFixTime = itemView.findViewById(R.id.tvFixTime);
+            tvFixDetails = itemView.findViewById(R.id.tvFixDetails);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.locationtracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lombok.Getter;
+
+/**
+ * Bloc de lignes non encore scellé : colonnes en tableaux primitifs,
+ * doublées d'un journal mappé en mémoire pour survivre à la mort du processus.
+ *
+ * <p>Un seul écrivain (sous le verrou du magasin). Les lignes déjà écrites ne changent plus :
+ * un lecteur qui a obtenu {@code count} sous ce même verrou peut les lire sans copie.</p>
+ */
+final class HistoryBlock implements HistoryChunk {
+
+    private static final int MAGIC = 0x4C54484A; // "LTHJ"
+    // magic, capacité, firstRowId, nombre de lignes
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    // time, lat, lng, altitude, accuracy, speed, bearing
+    private static final int RECORD_SIZE = 8 + 8 + 8 + 8 + 4 + 4 + 4;
+    private static final int COUNT_OFFSET = 16;
+
+    @Getter
+    private final File journalFile;
+    @Getter
+    private final long firstRowId;
+    @Getter
+    private final int capacity;
+
+    final long[] time;
+    final double[] latitude;
+    final double[] longitude;
+    final double[] altitude;
+    final float[] accuracy;
+    final float[] speed;
+    final float[] bearing;
+
+    private volatile int count;
+    private volatile long minTime = Long.MAX_VALUE;
+    private volatile long maxTime = Long.MIN_VALUE;
+
+    private RandomAccessFile journal;
+    private MappedByteBuffer journalBuffer;
+
+    private HistoryBlock(final File journalFile, final long firstRowId, final int capacity) {
+        this.journalFile = journalFile;
+        this.firstRowId = firstRowId;
+        this.capacity = capacity;
+        this.time = new long[capacity];
+        this.latitude = new double[capacity];
+        this.longitude = new double[capacity];
+        this.altitude = new double[capacity];
+        this.accuracy = new float[capacity];
+        this.speed = new float[capacity];
+        this.bearing = new float[capacity];
+    }
+
+    /**
+     * Nouveau bloc vide avec son journal
+     */
+    static HistoryBlock create(final File journalFile, final long firstRowId, final int capacity) throws IOException {
+        final var block = new HistoryBlock(journalFile, firstRowId, capacity);
+        block.mapJournal();
+        block.journalBuffer.putInt(0, MAGIC);
+        block.journalBuffer.putInt(4, capacity);
+        block.journalBuffer.putLong(8, firstRowId);
+        block.journalBuffer.putInt(COUNT_OFFSET, 0);
+        return block;
+    }
+
+    /**
+     * Recharger un bloc depuis son journal après redémarrage ; null si le journal est illisible
+     */
+    static HistoryBlock replay(final File journalFile) throws IOException {
+        try (var raf = new RandomAccessFile(journalFile, "r")) {
+            if (raf.length() < HEADER_SIZE) {
+                return null;
+            }
+            final var header = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                return null;
+            }
+            final var capacity = header.getInt(4);
+            final var firstRowId = header.getLong(8);
+            final var recorded = header.getInt(COUNT_OFFSET);
+            if (capacity <= 0 || recorded < 0 || recorded > capacity
+                    || raf.length() < HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+                return null;
+            }
+
+            final var block = new HistoryBlock(journalFile, firstRowId, capacity);
+            block.mapJournal();
+            final var buffer = block.journalBuffer;
+            for (int i = 0; i < recorded; i++) {
+                final var offset = HEADER_SIZE + i * RECORD_SIZE;
+                block.set(i,
+                        buffer.getLong(offset),
+                        buffer.getDouble(offset + 8),
+                        buffer.getDouble(offset + 16),
+                        buffer.getDouble(offset + 24),
+                        buffer.getFloat(offset + 32),
+                        buffer.getFloat(offset + 36),
+                        buffer.getFloat(offset + 40));
+            }
+            block.count = recorded;
+            return block;
+        }
+    }
+
+    private void mapJournal() throws IOException {
+        journal = new RandomAccessFile(journalFile, "rw");
+        journalBuffer = journal.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        journalBuffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    /**
+     * Ajouter une ligne (appelant sous le verrou du magasin). Le journal reçoit l'enregistrement
+     * puis le nouveau compteur, qui le publie.
+     */
+    long append(final long t, final double lat, final double lng, final double alt,
+                final float acc, final float spd, final float brg) {
+        final var index = count;
+        set(index, t, lat, lng, alt, acc, spd, brg);
+
+        final var offset = HEADER_SIZE + index * RECORD_SIZE;
+        journalBuffer.putLong(offset, t);
+        journalBuffer.putDouble(offset + 8, lat);
+        journalBuffer.putDouble(offset + 16, lng);
+        journalBuffer.putDouble(offset + 24, alt);
+        journalBuffer.putFloat(offset + 32, acc);
+        journalBuffer.putFloat(offset + 36, spd);
+        journalBuffer.putFloat(offset + 40, brg);
+        journalBuffer.putInt(COUNT_OFFSET, index + 1);
+
+        count = index + 1;
+        return firstRowId + index;
+    }
+
+    private void set(final int index, final long t, final double lat, final double lng, final double alt,
+                     final float acc, final float spd, final float brg) {
+        time[index] = t;
+        latitude[index] = lat;
+        longitude[index] = lng;
+        altitude[index] = alt;
+        accuracy[index] = acc;
+        speed[index] = spd;
+        bearing[index] = brg;
+        minTime = Math.min(minTime, t);
+        maxTime = Math.max(maxTime, t);
+    }
+
+    /**
+     * Libérer le journal (après scellement : il sera supprimé)
+     */
+    void closeJournal() {
+        journalBuffer = null;
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ignored) {
+                // rien à faire, le fichier va être supprimé
+            }
+            journal = null;
+        }
+    }
+
+    void sync() {
+        if (journalBuffer != null) {
+            journalBuffer.force();
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public long getMinTime() {
+        return minTime;
+    }
+
+    @Override
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    @Override
+    public HistoryCursor cursor(final int limit) {
+        return new HistoryCursor() {
+            private int index = -1;
+
+            @Override
+            public boolean next() {
+                return ++index < limit;
+            }
+
+            @Override
+            public long getRowId() {
+                return firstRowId + index;
+            }
+
+            @Override
+            public long getTime() {
+                return time[index];
+            }
+
+            @Override
+            public double getLatitude() {
+                return latitude[index];
+            }
+
+            @Override
+            public double getLongitude() {
+                return longitude[index];
+            }
+
+            @Override
+            public double getAltitude() {
+                return altitude[index];
+            }
+
+            @Override
+            public float getAccuracy() {
+                return accuracy[index];
+            }
+
+            @Override
+            public float getSpeed() {
+                return speed[index];
+            }
+
+            @Override
+            public float getBearing() {
+                return bearing[index];
+            }
+
+            @Override
+            public void close() {
+                // rien à libérer
+            }
+        };
+    }
+}
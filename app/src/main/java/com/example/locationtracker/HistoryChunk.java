@@ -0,0 +1,25 @@
+package com.example.locationtracker;
+
+/**
+ * Plage contiguë de lignes de l'historique (segment scellé ou bloc en cours),
+ * avec les bornes utilisées comme index temporel
+ */
+interface HistoryChunk {
+
+    long getFirstRowId();
+
+    int getCount();
+
+    long getMinTime();
+
+    long getMaxTime();
+
+    /**
+     * Parcourir les {@code count} premières lignes du bloc
+     */
+    HistoryCursor cursor(int count);
+
+    default long getEndRowId() {
+        return getFirstRowId() + getCount();
+    }
+}
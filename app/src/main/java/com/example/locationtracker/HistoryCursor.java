@@ -0,0 +1,34 @@
+package com.example.locationtracker;
+
+import java.io.Closeable;
+
+/**
+ * Parcours séquentiel de l'historique local, sans allocation par position.
+ * Les valeurs absentes (vitesse, cap, altitude) valent NaN.
+ */
+public interface HistoryCursor extends Closeable {
+
+    /**
+     * Avancer à la position suivante ; faux en fin de parcours
+     */
+    boolean next();
+
+    long getRowId();
+
+    long getTime();
+
+    double getLatitude();
+
+    double getLongitude();
+
+    double getAltitude();
+
+    float getAccuracy();
+
+    float getSpeed();
+
+    float getBearing();
+
+    @Override
+    void close();
+}
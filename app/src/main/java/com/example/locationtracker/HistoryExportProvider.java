@@ -0,0 +1,196 @@
+package com.example.locationtracker;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Partage d'un export de l'historique sans fichier intermédiaire.
+ *
+ * <p>URI : {@code content://<package>.export/history.<gpx|geojson|csv>?from=&to=&tolerance=}.
+ * Le contenu est produit à la demande dans un tube par {@link HistoryExporter},
+ * au rythme de lecture de l'application destinataire, sur le pool de travaux de fond
+ * de l'application : l'arrêt du pool interrompt l'export, terminé en erreur.</p>
+ */
+public class HistoryExportProvider extends ContentProvider {
+
+    private static final String TAG = "HistoryExportProvider";
+    private static final String AUTHORITY_SUFFIX = ".export";
+    private static final String FILE_NAME = "history";
+    private static final String PARAM_FROM = "from";
+    private static final String PARAM_TO = "to";
+    private static final String PARAM_TOLERANCE = "tolerance";
+    // Attente maximale derrière d'autres travaux de fond avant d'abandonner l'export
+    private static final long QUEUE_DEADLINE_MILLIS = 30_000;
+
+    /**
+     * URI d'export d'une plage de temps (tolérance 0 : pas de simplification)
+     */
+    public static Uri buildUri(@NonNull final Context context, @NonNull final HistoryExporter.Format format,
+                               final long fromTime, final long toTime, final double toleranceMeters) {
+        return new Uri.Builder()
+                .scheme("content")
+                .authority(context.getPackageName() + AUTHORITY_SUFFIX)
+                .appendPath(FILE_NAME + "." + format.getExtension())
+                .appendQueryParameter(PARAM_FROM, String.valueOf(fromTime))
+                .appendQueryParameter(PARAM_TO, String.valueOf(toTime))
+                .appendQueryParameter(PARAM_TOLERANCE, String.valueOf(toleranceMeters))
+                .build();
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull final Uri uri) {
+        final var format = getFormat(uri);
+        return format != null ? format.getMimeType() : null;
+    }
+
+    /**
+     * Nom et taille (inconnue) pour les applications destinataires du partage
+     */
+    @Nullable
+    @Override
+    public Cursor query(@NonNull final Uri uri, @Nullable final String[] projection, @Nullable final String selection,
+                        @Nullable final String[] selectionArgs, @Nullable final String sortOrder) {
+        final var columns = projection != null
+                ? projection
+                : new String[]{OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE};
+        final var row = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (OpenableColumns.DISPLAY_NAME.equals(columns[i])) {
+                row[i] = uri.getLastPathSegment();
+            }
+        }
+        final var cursor = new MatrixCursor(columns, 1);
+        cursor.addRow(row);
+        return cursor;
+    }
+
+    @Nullable
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull final Uri uri, @NonNull final String mode) throws FileNotFoundException {
+        final var format = getFormat(uri);
+        if (format == null || !"r".equals(mode)) {
+            throw new FileNotFoundException("Export non pris en charge: " + uri);
+        }
+        final var fromTime = getLongParameter(uri, PARAM_FROM, 0);
+        final var toTime = getLongParameter(uri, PARAM_TO, Long.MAX_VALUE);
+        final var tolerance = getDoubleParameter(uri, PARAM_TOLERANCE);
+
+        final ParcelFileDescriptor[] pipe;
+        try {
+            pipe = ParcelFileDescriptor.createReliablePipe();
+        } catch (IOException e) {
+            throw new FileNotFoundException("Création du tube impossible: " + e.getMessage());
+        }
+
+        final var output = pipe[1];
+        final var container = ((LocationApplication) getContext().getApplicationContext()).getContainer();
+        final var executor = container.getBackgroundExecutor();
+        // Démarré avec le service ; sans lui, démarré ici et arrêté de lui-même une fois inactif
+        executor.start();
+        final Runnable export = () -> {
+            try {
+                // Le flux ne possède pas le descripteur : il est fermé explicitement ci-dessous
+                final var channel = new FileOutputStream(output.getFileDescriptor()).getChannel();
+                final var count = new HistoryExporter(container.getHistory())
+                        .export(fromTime, toTime, format, tolerance, channel);
+                output.close();
+                Log.d(TAG, "Export " + format + " terminé: " + count + " positions");
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Erreur export " + format, e);
+                closeWithError(output, e);
+            }
+        };
+        try {
+            executor.execute(export, QUEUE_DEADLINE_MILLIS,
+                    () -> closeWithError(output, new IOException("Export abandonné")));
+        } catch (RejectedExecutionException e) {
+            closeWithError(output, e);
+            closeQuietly(pipe[0]);
+            throw new FileNotFoundException("Export refusé: " + e.getMessage());
+        }
+        return pipe[0];
+    }
+
+    private static void closeQuietly(final ParcelFileDescriptor descriptor) {
+        try {
+            descriptor.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Fermeture du tube impossible", e);
+        }
+    }
+
+    private static void closeWithError(final ParcelFileDescriptor output, final Exception cause) {
+        try {
+            output.closeWithError(String.valueOf(cause.getMessage()));
+        } catch (IOException e) {
+            Log.w(TAG, "Fermeture du tube impossible", e);
+        }
+    }
+
+    @Nullable
+    private static HistoryExporter.Format getFormat(final Uri uri) {
+        final var name = uri.getLastPathSegment();
+        if (name == null || name.lastIndexOf('.') < 0) {
+            return null;
+        }
+        return HistoryExporter.Format.fromExtension(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    private static long getLongParameter(final Uri uri, final String name, final long defaultValue) {
+        try {
+            final var value = uri.getQueryParameter(name);
+            return value != null ? Long.parseLong(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static double getDoubleParameter(final Uri uri, final String name) {
+        try {
+            final var value = uri.getQueryParameter(name);
+            return value != null ? Double.parseDouble(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Fournisseur en lecture seule
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull final Uri uri, @Nullable final ContentValues values) {
+        throw new UnsupportedOperationException("Lecture seule");
+    }
+
+    @Override
+    public int delete(@NonNull final Uri uri, @Nullable final String selection, @Nullable final String[] selectionArgs) {
+        throw new UnsupportedOperationException("Lecture seule");
+    }
+
+    @Override
+    public int update(@NonNull final Uri uri, @Nullable final ContentValues values, @Nullable final String selection,
+                      @Nullable final String[] selectionArgs) {
+        throw new UnsupportedOperationException("Lecture seule");
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.locationtracker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Export d'une plage de l'historique local en GPX, GeoJSON ou CSV.
+ *
+ * <p>Les positions sont lues au curseur et écrites au fil de l'eau dans un tampon borné,
+ * vidé dans le canal dès qu'il est plein : la mémoire utilisée ne dépend pas
+ * de la longueur de la trace.</p>
+ *
+ * <p>En GeoJSON, les horodatages suivent les coordonnées dans la propriété {@code coordTimes}
+ * (un par point, même ordre) : pour rester en mémoire bornée, la plage est relue
+ * une seconde fois, jusqu'à la dernière ligne de la première lecture.</p>
+ *
+ * <p>La simplification optionnelle (fenêtre ouvrante) retire les points situés à moins
+ * de {@code toleranceMeters} du segment qui les entoure ; elle aussi travaille
+ * en mémoire bornée.</p>
+ */
+public class HistoryExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Points gardés en attente au plus par la simplification
+    private static final int MAX_WINDOW = 256;
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+        GPX("application/gpx+xml", "gpx"),
+        GEOJSON("application/geo+json", "geojson"),
+        CSV("text/csv", "csv");
+
+        private final String mimeType;
+        private final String extension;
+
+        /**
+         * Format correspondant à une extension de fichier, ou null
+         */
+        public static Format fromExtension(final String extension) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(extension)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final LocationHistoryStore history;
+
+    public HistoryExporter(@NonNull final LocationHistoryStore history) {
+        this.history = history;
+    }
+
+    /**
+     * Écrire les positions de [fromTime, toTime] dans le canal (qui n'est pas fermé)
+     *
+     * @param toleranceMeters 0 pour exporter toutes les positions
+     * @return nombre de positions écrites
+     */
+    public long export(final long fromTime, final long toTime, @NonNull final Format format,
+                       final double toleranceMeters, @NonNull final WritableByteChannel channel) throws IOException {
+        final var writer = new Writer(format, channel);
+        writer.begin();
+        final var lastRowId = emit(fromTime, toTime, toleranceMeters, Long.MAX_VALUE, writer);
+        if (format == Format.GEOJSON) {
+            // Mêmes lignes, mêmes points retenus : les horodatages s'alignent sur les coordonnées
+            writer.beginTimes();
+            emit(fromTime, toTime, toleranceMeters, lastRowId, writer);
+        }
+        writer.end();
+        return writer.count;
+    }
+
+    /**
+     * Passer les positions de la plage (jusqu'à la ligne {@code maxRowId}) au rédacteur
+     *
+     * @return identifiant de la dernière ligne lue, -1 si aucune
+     */
+    private long emit(final long fromTime, final long toTime, final double toleranceMeters,
+                      final long maxRowId, final Writer writer) throws IOException {
+        var lastRowId = -1L;
+        try (HistoryCursor cursor = history.query(fromTime, toTime)) {
+            final var simplifier = toleranceMeters > 0 ? new Simplifier(toleranceMeters, writer) : null;
+            while (cursor.next() && cursor.getRowId() <= maxRowId) {
+                lastRowId = cursor.getRowId();
+                if (simplifier != null) {
+                    simplifier.add(cursor);
+                } else {
+                    writer.point(cursor.getTime(), cursor.getLatitude(), cursor.getLongitude(),
+                            cursor.getAltitude(), cursor.getAccuracy(), cursor.getSpeed(), cursor.getBearing());
+                }
+            }
+            if (simplifier != null) {
+                simplifier.finish();
+            }
+        }
+        return lastRowId;
+    }
+
+    /**
+     * Simplification par fenêtre ouvrante : depuis le dernier point émis (ancre), la fenêtre
+     * s'allonge tant que tous ses points restent à moins de la tolérance du segment
+     * ancre → nouveau point. Sinon, le point précédent est émis et devient l'ancre.
+     * Distances en projection équirectangulaire locale (mètres).
+     */
+    private static class Simplifier {
+        private final double tolerance;
+        private final Writer writer;
+
+        private boolean hasAnchor;
+        private double anchorLatitude;
+        private double anchorLongitude;
+        private double metersPerDegreeLongitude;
+
+        // Points intermédiaires (coordonnées locales en mètres par rapport à l'ancre)
+        private final double[] windowX = new double[MAX_WINDOW];
+        private final double[] windowY = new double[MAX_WINDOW];
+        private int windowSize;
+
+        // Dernier point lu, pas encore émis
+        private boolean hasPending;
+        private long pendingTime;
+        private double pendingLatitude;
+        private double pendingLongitude;
+        private double pendingAltitude;
+        private float pendingAccuracy;
+        private float pendingSpeed;
+        private float pendingBearing;
+
+        Simplifier(final double tolerance, final Writer writer) {
+            this.tolerance = tolerance;
+            this.writer = writer;
+        }
+
+        void add(final HistoryCursor cursor) throws IOException {
+            if (!hasAnchor) {
+                setAnchor(cursor.getLatitude(), cursor.getLongitude());
+                writer.point(cursor.getTime(), cursor.getLatitude(), cursor.getLongitude(),
+                        cursor.getAltitude(), cursor.getAccuracy(), cursor.getSpeed(), cursor.getBearing());
+                return;
+            }
+            final var x = (cursor.getLongitude() - anchorLongitude) * metersPerDegreeLongitude;
+            final var y = (cursor.getLatitude() - anchorLatitude) * GeoMath.METERS_PER_DEGREE;
+            if (hasPending && (windowSize == MAX_WINDOW || exceedsTolerance(x, y))) {
+                emitPending();
+                setAnchor(pendingLatitude, pendingLongitude);
+                hasPending = false;
+                add(cursor);
+                return;
+            }
+            if (hasPending) {
+                windowX[windowSize] = (pendingLongitude - anchorLongitude) * metersPerDegreeLongitude;
+                windowY[windowSize] = (pendingLatitude - anchorLatitude) * GeoMath.METERS_PER_DEGREE;
+                windowSize++;
+            }
+            hasPending = true;
+            pendingTime = cursor.getTime();
+            pendingLatitude = cursor.getLatitude();
+            pendingLongitude = cursor.getLongitude();
+            pendingAltitude = cursor.getAltitude();
+            pendingAccuracy = cursor.getAccuracy();
+            pendingSpeed = cursor.getSpeed();
+            pendingBearing = cursor.getBearing();
+        }
+
+        void finish() throws IOException {
+            if (hasPending) {
+                emitPending();
+                hasPending = false;
+            }
+        }
+
+        private boolean exceedsTolerance(final double x, final double y) {
+            for (int i = 0; i < windowSize; i++) {
+                if (distanceToSegment(windowX[i], windowY[i], x, y) > tolerance) {
+                    return true;
+                }
+            }
+            // Le point en attente fait aussi partie de la fenêtre
+            return distanceToSegment(
+                    (pendingLongitude - anchorLongitude) * metersPerDegreeLongitude,
+                    (pendingLatitude - anchorLatitude) * GeoMath.METERS_PER_DEGREE,
+                    x, y) > tolerance;
+        }
+
+        // Distance du point (px, py) au segment allant de l'ancre (origine) à (x, y)
+        private static double distanceToSegment(final double px, final double py, final double x, final double y) {
+            final var lengthSquared = x * x + y * y;
+            if (lengthSquared == 0) {
+                return Math.hypot(px, py);
+            }
+            final var t = Math.max(0, Math.min(1, (px * x + py * y) / lengthSquared));
+            return Math.hypot(px - t * x, py - t * y);
+        }
+
+        private void setAnchor(final double latitude, final double longitude) {
+            hasAnchor = true;
+            anchorLatitude = latitude;
+            anchorLongitude = longitude;
+            metersPerDegreeLongitude = GeoMath.METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+            windowSize = 0;
+        }
+
+        private void emitPending() throws IOException {
+            writer.point(pendingTime, pendingLatitude, pendingLongitude,
+                    pendingAltitude, pendingAccuracy, pendingSpeed, pendingBearing);
+        }
+    }
+
+    /**
+     * Mise en forme d'un format, à travers un tampon d'octets borné
+     */
+    private static class Writer {
+        private final Format format;
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final StringBuilder line = new StringBuilder(256);
+        private final SimpleDateFormat isoFormat;
+        private long count;
+        // Seconde lecture GeoJSON : seuls les horodatages sont écrits
+        private boolean timesPass;
+        private long timesCount;
+
+        Writer(final Format format, final WritableByteChannel channel) {
+            this.format = format;
+            this.channel = channel;
+            this.isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+            this.isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+
+        void begin() throws IOException {
+            switch (format) {
+                case GPX:
+                    write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                            + "<gpx version=\"1.1\" creator=\"LocationTracker\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n"
+                            + "<trk><trkseg>\n");
+                    break;
+                case GEOJSON:
+                    write("{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\","
+                            + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[\n");
+                    break;
+                case CSV:
+                    write("time,latitude,longitude,altitude,accuracy,speed,bearing\n");
+                    break;
+            }
+        }
+
+        void beginTimes() throws IOException {
+            write("\n]},\"properties\":{\"count\":" + count + ",\"coordTimes\":[\n");
+            timesPass = true;
+        }
+
+        void point(final long time, final double latitude, final double longitude, final double altitude,
+                   final float accuracy, final float speed, final float bearing) throws IOException {
+            line.setLength(0);
+            if (timesPass) {
+                if (timesCount > 0) {
+                    line.append(",\n");
+                }
+                line.append('"').append(isoFormat.format(new Date(time))).append('"');
+                timesCount++;
+                write(line);
+                return;
+            }
+            switch (format) {
+                case GPX:
+                    line.append("<trkpt lat=\"").append(latitude).append("\" lon=\"").append(longitude).append("\">");
+                    if (!Double.isNaN(altitude)) {
+                        line.append("<ele>").append(altitude).append("</ele>");
+                    }
+                    line.append("<time>").append(isoFormat.format(new Date(time))).append("</time>");
+                    if (!Float.isNaN(speed)) {
+                        line.append("<extensions><speed>").append(speed).append("</speed></extensions>");
+                    }
+                    line.append("</trkpt>\n");
+                    break;
+                case GEOJSON:
+                    // Les horodatages vont dans les propriétés (coordTimes), en fin de document
+                    if (count > 0) {
+                        line.append(",\n");
+                    }
+                    line.append('[').append(longitude).append(',').append(latitude);
+                    if (!Double.isNaN(altitude)) {
+                        line.append(',').append(altitude);
+                    }
+                    line.append(']');
+                    break;
+                case CSV:
+                    line.append(time).append(',').append(latitude).append(',').append(longitude).append(',');
+                    appendOptional(altitude);
+                    line.append(',');
+                    appendOptional(accuracy);
+                    line.append(',');
+                    appendOptional(speed);
+                    line.append(',');
+                    appendOptional(bearing);
+                    line.append('\n');
+                    break;
+            }
+            count++;
+            write(line);
+        }
+
+        void end() throws IOException {
+            switch (format) {
+                case GPX:
+                    write("</trkseg></trk>\n</gpx>\n");
+                    break;
+                case GEOJSON:
+                    write("\n]}}]}\n");
+                    break;
+                case CSV:
+                    break;
+            }
+            drain();
+        }
+
+        private void appendOptional(final double value) {
+            if (!Double.isNaN(value)) {
+                line.append(value);
+            }
+        }
+
+        // Contenu ASCII hors valeurs numériques : l'encodage UTF-8 ne change pas la taille
+        private void write(final CharSequence text) throws IOException {
+            final var bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > buffer.remaining()) {
+                drain();
+            }
+            if (bytes.length > buffer.remaining()) {
+                channel.write(ByteBuffer.wrap(bytes));
+                return;
+            }
+            buffer.put(bytes);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
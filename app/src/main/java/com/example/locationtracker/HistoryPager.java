@@ -0,0 +1,158 @@
+package com.example.locationtracker;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Pages de l'historique pour l'affichage en liste, chargées hors du thread principal.
+ *
+ * <p>Seules les pages proches de la zone visible sont gardées en mémoire (cache LRU) ;
+ * une page demandée trop loin de la zone visible au moment de son chargement est ignorée,
+ * ce qui évite d'accumuler du travail inutile lors d'un défilement rapide.
+ * Toutes les méthodes publiques s'appellent depuis le thread principal.</p>
+ */
+public class HistoryPager {
+
+    private static final String TAG = "HistoryPager";
+    public static final int PAGE_SIZE = 256;
+    private static final int MAX_PAGES = 32;
+
+    /**
+     * Notifié sur le thread principal quand une page est disponible
+     */
+    public interface Listener {
+        void onPageLoaded(int page);
+    }
+
+    /**
+     * Positions d'une page, en colonnes primitives
+     */
+    @Getter
+    public static class Page {
+        private final long firstRowId;
+        private final int count;
+        private final long[] times;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] altitudes;
+        private final float[] accuracies;
+        private final float[] speeds;
+
+        Page(final long firstRowId, final int capacity, final HistoryCursor cursor) {
+            this.firstRowId = firstRowId;
+            this.times = new long[capacity];
+            this.latitudes = new double[capacity];
+            this.longitudes = new double[capacity];
+            this.altitudes = new double[capacity];
+            this.accuracies = new float[capacity];
+            this.speeds = new float[capacity];
+            var read = 0;
+            while (read < capacity && cursor.next()) {
+                times[read] = cursor.getTime();
+                latitudes[read] = cursor.getLatitude();
+                longitudes[read] = cursor.getLongitude();
+                altitudes[read] = cursor.getAltitude();
+                accuracies[read] = cursor.getAccuracy();
+                speeds[read] = cursor.getSpeed();
+                read++;
+            }
+            this.count = read;
+        }
+    }
+
+    private final LocationHistoryStore history;
+    private final Executor executor;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<Integer, Page> pages = new LruCache<>(MAX_PAGES);
+    private final Set<Integer> pending = new HashSet<>();
+
+    @Getter
+    private final long rowCount;
+    // Page au centre de la zone visible, lue par le thread de chargement
+    private volatile int focusPage;
+    private boolean closed;
+
+    public HistoryPager(@NonNull final LocationHistoryStore history, @NonNull final Executor executor,
+                        @NonNull final Listener listener) {
+        this.history = history;
+        this.executor = executor;
+        this.listener = listener;
+        this.rowCount = history.getRowCount();
+    }
+
+    /**
+     * Page contenant la ligne, ou null si elle est en cours de chargement
+     */
+    public Page getPageForRow(final long rowId) {
+        final var page = (int) (rowId / PAGE_SIZE);
+        final var loaded = pages.get(page);
+        if (loaded == null) {
+            request(page);
+        }
+        return loaded;
+    }
+
+    /**
+     * Déclarer la zone visible et précharger les pages voisines dans le sens du défilement
+     */
+    public void setVisibleRows(final long firstRowId, final long lastRowId, final boolean towardsOlder) {
+        final var first = (int) (Math.min(firstRowId, lastRowId) / PAGE_SIZE);
+        final var last = (int) (Math.max(firstRowId, lastRowId) / PAGE_SIZE);
+        focusPage = (first + last) / 2;
+        if (towardsOlder) {
+            request(first - 1);
+            request(first - 2);
+        } else {
+            request(last + 1);
+            request(last + 2);
+        }
+    }
+
+    private void request(final int page) {
+        if (closed || page < 0 || (long) page * PAGE_SIZE >= rowCount
+                || pending.contains(page) || pages.get(page) != null) {
+            return;
+        }
+        pending.add(page);
+        executor.execute(() -> {
+            if (Math.abs(page - focusPage) > MAX_PAGES / 2) {
+                mainHandler.post(() -> pending.remove(page));
+                return;
+            }
+            final var firstRowId = (long) page * PAGE_SIZE;
+            final var capacity = (int) Math.min(PAGE_SIZE, rowCount - firstRowId);
+            try (HistoryCursor cursor = history.scanRows(firstRowId, firstRowId + capacity)) {
+                final var loaded = new Page(firstRowId, capacity, cursor);
+                mainHandler.post(() -> {
+                    pending.remove(page);
+                    if (!closed) {
+                        pages.put(page, loaded);
+                        listener.onPageLoaded(page);
+                    }
+                });
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Erreur chargement page " + page, e);
+                mainHandler.post(() -> pending.remove(page));
+            }
+        });
+    }
+
+    /**
+     * Libérer les pages ; les chargements en cours sont ignorés
+     */
+    public void close() {
+        closed = true;
+        pages.evictAll();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+}
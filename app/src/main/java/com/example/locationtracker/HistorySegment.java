@@ -0,0 +1,283 @@
+package com.example.locationtracker;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lombok.Getter;
+
+/**
+ * Segment scellé de l'historique : fichier immuable, une colonne compressée par champ.
+ *
+ * <pre>
+ * en-tête (little-endian, {@value #HEADER_SIZE} octets)
+ *   magic, version, count, réservé                       4 x int
+ *   firstRowId, minTime, maxTime                         3 x long
+ *   minLat, maxLat, minLng, maxLng                       4 x double
+ *   COLUMNS x (offset, longueur) des colonnes            int, int
+ * colonnes : time, lat, lng (delta-of-delta, coordonnées en 1e-7 degré soit ~1 cm),
+ *   puis altitude, accuracy, speed, bearing (XOR, voir {@link GorillaCodec})
+ * </pre>
+ *
+ * Le fichier est mappé en lecture seule, le décodage se fait directement dans le mapping.
+ */
+final class HistorySegment implements HistoryChunk {
+
+    private static final int MAGIC = 0x4C544853; // "LTHS"
+    private static final int VERSION = 1;
+    private static final int COLUMNS = 7;
+    static final int HEADER_SIZE = 16 + 24 + 32 + COLUMNS * 8;
+
+    private static final int COLUMN_TIME = 0;
+    private static final int COLUMN_LATITUDE = 1;
+    private static final int COLUMN_LONGITUDE = 2;
+    private static final int COLUMN_ALTITUDE = 3;
+    private static final int COLUMN_ACCURACY = 4;
+    private static final int COLUMN_SPEED = 5;
+    private static final int COLUMN_BEARING = 6;
+
+    // Coordonnées stockées en virgule fixe : bien plus compressibles que les bits d'un double
+    private static final double COORDINATE_SCALE = 1e7;
+
+    @Getter
+    private final File file;
+    private final MappedByteBuffer buffer;
+
+    @Getter
+    private final int count;
+    @Getter
+    private final long firstRowId;
+    @Getter
+    private final long minTime;
+    @Getter
+    private final long maxTime;
+    @Getter
+    private final double minLatitude;
+    @Getter
+    private final double maxLatitude;
+    @Getter
+    private final double minLongitude;
+    @Getter
+    private final double maxLongitude;
+
+    private HistorySegment(final File file, final MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Segment invalide: " + file);
+        }
+        this.count = buffer.getInt(8);
+        this.firstRowId = buffer.getLong(16);
+        this.minTime = buffer.getLong(24);
+        this.maxTime = buffer.getLong(32);
+        this.minLatitude = buffer.getDouble(40);
+        this.maxLatitude = buffer.getDouble(48);
+        this.minLongitude = buffer.getDouble(56);
+        this.maxLongitude = buffer.getDouble(64);
+        for (int column = 0; column < COLUMNS; column++) {
+            if ((long) columnOffset(column) + columnLength(column) > buffer.capacity()) {
+                throw new IOException("Segment tronqué: " + file);
+            }
+        }
+    }
+
+    /**
+     * Mapper un segment existant en lecture seule
+     */
+    static HistorySegment open(final File file) throws IOException {
+        try (var raf = new RandomAccessFile(file, "r")) {
+            final var buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new HistorySegment(file, buffer);
+        }
+    }
+
+    /**
+     * Encoder les {@code count} premières lignes d'un curseur dans un nouveau fichier
+     * (écrit à côté puis renommé : un segment visible est toujours complet)
+     */
+    static HistorySegment write(final File file, final long firstRowId, final int count,
+                                final HistoryCursor source) throws IOException {
+        final var writers = new GorillaCodec.BitWriter[COLUMNS];
+        for (int column = 0; column < COLUMNS; column++) {
+            writers[column] = new GorillaCodec.BitWriter(count * 2);
+        }
+        final var timeEncoder = new GorillaCodec.DeltaOfDeltaEncoder();
+        final var latitudeEncoder = new GorillaCodec.DeltaOfDeltaEncoder();
+        final var longitudeEncoder = new GorillaCodec.DeltaOfDeltaEncoder();
+        final var encoders = new GorillaCodec.XorEncoder[COLUMNS];
+        for (int column = COLUMN_ALTITUDE; column < COLUMNS; column++) {
+            encoders[column] = new GorillaCodec.XorEncoder();
+        }
+
+        long minTime = Long.MAX_VALUE, maxTime = Long.MIN_VALUE;
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        var written = 0;
+        while (written < count && source.next()) {
+            final var time = source.getTime();
+            final var lat = source.getLatitude();
+            final var lng = source.getLongitude();
+            timeEncoder.encode(time, writers[COLUMN_TIME]);
+            latitudeEncoder.encode(Math.round(lat * COORDINATE_SCALE), writers[COLUMN_LATITUDE]);
+            longitudeEncoder.encode(Math.round(lng * COORDINATE_SCALE), writers[COLUMN_LONGITUDE]);
+            encoders[COLUMN_ALTITUDE].encodeDouble(source.getAltitude(), writers[COLUMN_ALTITUDE]);
+            encoders[COLUMN_ACCURACY].encodeFloat(source.getAccuracy(), writers[COLUMN_ACCURACY]);
+            encoders[COLUMN_SPEED].encodeFloat(source.getSpeed(), writers[COLUMN_SPEED]);
+            encoders[COLUMN_BEARING].encodeFloat(source.getBearing(), writers[COLUMN_BEARING]);
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+            minLng = Math.min(minLng, lng);
+            maxLng = Math.max(maxLng, lng);
+            written++;
+        }
+        if (written != count) {
+            throw new IOException("Source épuisée: " + written + "/" + count + " lignes");
+        }
+
+        var size = HEADER_SIZE;
+        for (var writer : writers) {
+            size += writer.sizeInBytes();
+        }
+        final var out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0);
+        out.putLong(firstRowId).putLong(minTime).putLong(maxTime);
+        out.putDouble(minLat).putDouble(maxLat).putDouble(minLng).putDouble(maxLng);
+        var offset = HEADER_SIZE;
+        for (var writer : writers) {
+            out.putInt(offset).putInt(writer.sizeInBytes());
+            offset += writer.sizeInBytes();
+        }
+        for (var writer : writers) {
+            writer.writeTo(out);
+        }
+        out.flip();
+
+        final var tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (var stream = new FileOutputStream(tmp)) {
+            final var channel = stream.getChannel();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Renommage impossible: " + tmp + " -> " + file);
+        }
+        return open(file);
+    }
+
+    long getSizeInBytes() {
+        return buffer.capacity();
+    }
+
+    private int columnOffset(final int column) {
+        return buffer.getInt(72 + column * 8);
+    }
+
+    private int columnLength(final int column) {
+        return buffer.getInt(72 + column * 8 + 4);
+    }
+
+    @Override
+    public HistoryCursor cursor(final int limit) {
+        return new SegmentCursor(Math.min(limit, count));
+    }
+
+    /**
+     * Décodage des colonnes en parallèle, une ligne par appel à next()
+     */
+    private final class SegmentCursor implements HistoryCursor {
+        private final int limit;
+        private final GorillaCodec.BitReader[] readers = new GorillaCodec.BitReader[COLUMNS];
+        private final GorillaCodec.DeltaOfDeltaDecoder timeDecoder = new GorillaCodec.DeltaOfDeltaDecoder();
+        private final GorillaCodec.DeltaOfDeltaDecoder latitudeDecoder = new GorillaCodec.DeltaOfDeltaDecoder();
+        private final GorillaCodec.DeltaOfDeltaDecoder longitudeDecoder = new GorillaCodec.DeltaOfDeltaDecoder();
+        private final GorillaCodec.XorDecoder[] decoders = new GorillaCodec.XorDecoder[COLUMNS];
+        private int index = -1;
+
+        private long time;
+        private double latitude;
+        private double longitude;
+        private double altitude;
+        private float accuracy;
+        private float speed;
+        private float bearing;
+
+        SegmentCursor(final int limit) {
+            this.limit = limit;
+            for (int column = 0; column < COLUMNS; column++) {
+                readers[column] = new GorillaCodec.BitReader(buffer, columnOffset(column));
+                decoders[column] = new GorillaCodec.XorDecoder();
+            }
+        }
+
+        @Override
+        public boolean next() {
+            if (index + 1 >= limit) {
+                return false;
+            }
+            index++;
+            time = timeDecoder.decode(readers[COLUMN_TIME]);
+            latitude = latitudeDecoder.decode(readers[COLUMN_LATITUDE]) / COORDINATE_SCALE;
+            longitude = longitudeDecoder.decode(readers[COLUMN_LONGITUDE]) / COORDINATE_SCALE;
+            altitude = decoders[COLUMN_ALTITUDE].decodeDouble(readers[COLUMN_ALTITUDE]);
+            accuracy = decoders[COLUMN_ACCURACY].decodeFloat(readers[COLUMN_ACCURACY]);
+            speed = decoders[COLUMN_SPEED].decodeFloat(readers[COLUMN_SPEED]);
+            bearing = decoders[COLUMN_BEARING].decodeFloat(readers[COLUMN_BEARING]);
+            return true;
+        }
+
+        @Override
+        public long getRowId() {
+            return firstRowId + index;
+        }
+
+        @Override
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public double getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public double getLongitude() {
+            return longitude;
+        }
+
+        @Override
+        public double getAltitude() {
+            return altitude;
+        }
+
+        @Override
+        public float getAccuracy() {
+            return accuracy;
+        }
+
+        @Override
+        public float getSpeed() {
+            return speed;
+        }
+
+        @Override
+        public float getBearing() {
+            return bearing;
+        }
+
+        @Override
+        public void close() {
+            // le mapping appartient au segment
+        }
+    }
+}
@@ -3,45 +3,185 @@ package com.example.locationtracker;
 import android.app.Application;
 import android.content.Context;
 import android.location.Geocoder;
+import android.os.Process;
+import android.util.Log;
 
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
+import com.google.firebase.FirebaseApp;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 
 public class LocationApplication extends Application {
 
+    private static final String TAG = "LocationApplication";
+    // Gazetier préconstruit (voir OfflineReverseGeocoder.write), déposé dans files/
+    private static final String GAZETTEER_FILE = "gazetteer.bin";
+    // Ouverture de l'index spatial et quelques exports simultanés au plus
+    private static final int BACKGROUND_QUEUE_CAPACITY = 4;
+
     @Getter
     private Container container;
 
     @Override
     public void onCreate() {
         super.onCreate();
-        final var context = this.getApplicationContext();
-        final var fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
-        final var geocoder = new Geocoder(context, Locale.getDefault());
-        this.container = new Container(
-                context,
-                new LocationTrackerManager(context, fusedLocationClient, LocationConfig.getDefault()),
-                new LocationRepository(context, geocoder),
-                new LocationTrackerNotification(context),
-                new LocationTrackerBroadcaster(context),
-                new ServicePreferences(context));
+        // Rien n'est construit ici : chaque composant est créé au premier usage,
+        // un démarrage par BootReceiver ne paie que ce que le service utilise
+        this.container = new Container();
     }
 
-    @Getter
-    @AllArgsConstructor
+    /**
+     * Composants de l'application, instanciés paresseusement (thread-safe).
+     * Chemin critique du service : notifier (startForeground) puis préférences.
+     */
     public class Container {
-        private final Context applicationContext;
-        private final LocationTrackerManager manager;
-        private final LocationRepository repository;
-        private final LocationTrackerNotification notifier;
-        private final LocationTrackerBroadcaster broadcaster;
-        private final ServicePreferences servicePreferences;
+        @Getter
+        private final Context applicationContext = LocationApplication.this.getApplicationContext();
+        @Getter
+        private final StartupMetrics startupMetrics = new StartupMetrics();
+        @Getter(lazy = true)
+        private final LocationConfig config = LocationConfig.getDefault();
+        @Getter(lazy = true)
+        private final LocationTrackerNotification notifier =
+                new LocationTrackerNotification(applicationContext, getConfig());
+        @Getter(lazy = true)
+        private final ServicePreferences servicePreferences = new ServicePreferences(applicationContext);
+        @Getter(lazy = true)
+        private final LocationTrackerManager manager = new LocationTrackerManager(
+                applicationContext,
+                LocationServices.getFusedLocationProviderClient(applicationContext),
+                getConfig(),
+                getSessionAccounting(),
+                getFixTrace());
+        @Getter(lazy = true)
+        private final LocationRepository repository = createRepository();
+        @Getter(lazy = true)
+        private final UploadScheduler uploadScheduler = new UploadScheduler(
+                getRepository()::createMany,
+                getMemoryBudget(),
+                getSpillQueue(),
+                getAckTracker(),
+                getConfig().getLiveUploadConcurrency(),
+                getConfig().getLiveUploadMaxBatch(),
+                getConfig().getLiveUploadMaxAge(),
+                getConfig().getBulkUploadConcurrency(),
+                getConfig().getBulkUploadMaxBatch(),
+                getConfig().getBulkUploadLinger(),
+                getConfig().getUploadRetryDelay());
+        // Positions en attente d'envoi : au-delà du budget, l'arriéré passe sur disque
+        @Getter(lazy = true)
+        private final MemoryBudget memoryBudget = new MemoryBudget(getConfig().getPipelineMemoryBudget());
+        @Getter(lazy = true)
+        private final SpillQueue spillQueue = new SpillQueue(applicationContext);
+        @Getter(lazy = true)
+        private final DeviceStatusMonitor deviceStatusMonitor = new DeviceStatusMonitor(applicationContext);
+        // Préparation des envois : un refus fait échouer l'envoi (compté), jamais d'abandon silencieux
+        @Getter(lazy = true)
+        private final EnrichmentExecutor payloadExecutor = new EnrichmentExecutor("payload",
+                getConfig().getPayloadWorkers(),
+                getConfig().getPayloadQueueCapacity(),
+                Process.THREAD_PRIORITY_DEFAULT,
+                EnrichmentExecutor.RejectionPolicy.ABORT);
+        // Géocodage : données périssables, les demandes les plus anciennes cèdent la place
+        @Getter(lazy = true)
+        private final EnrichmentExecutor geocodeExecutor = new EnrichmentExecutor("geocode",
+                getConfig().getGeocodeWorkers(),
+                getConfig().getEnrichmentQueueCapacity(),
+                Process.THREAD_PRIORITY_BACKGROUND,
+                EnrichmentExecutor.RejectionPolicy.DISCARD_OLDEST);
+        // Travaux ponctuels longs (ouverture de l'index spatial, exports) : un seul thread,
+        // démarré avec le service ; inactif, son thread s'arrête de lui-même
+        @Getter(lazy = true)
+        private final EnrichmentExecutor backgroundExecutor = new EnrichmentExecutor("background",
+                1,
+                BACKGROUND_QUEUE_CAPACITY,
+                Process.THREAD_PRIORITY_BACKGROUND,
+                EnrichmentExecutor.RejectionPolicy.ABORT);
+        @Getter(lazy = true)
+        private final ReverseGeocoder reverseGeocoder = createReverseGeocoder();
+        @Getter(lazy = true)
+        private final AddressEnricher addressEnricher = new AddressEnricher(
+                getReverseGeocoder(),
+                getRepository(),
+                getFixIdentity(),
+                getGeocodeExecutor(),
+                getFixTrace(),
+                getConfig().getEnrichmentMaxQueueAge(),
+                getConfig().getEnrichmentMaxRunTime());
+        @Getter(lazy = true)
+        private final FixIdentity fixIdentity = new FixIdentity(getServicePreferences().getStore());
+        @Getter(lazy = true)
+        private final SessionAccounting sessionAccounting =
+                new SessionAccounting(getServicePreferences().getStore());
+        @Getter(lazy = true)
+        private final FixTrace fixTrace = new FixTrace(getConfig().getTraceSamples());
+        @Getter(lazy = true)
+        private final AckTracker ackTracker = new AckTracker(getServicePreferences().getStore());
+        @Getter(lazy = true)
+        private final LocationHistoryStore history =
+                LocationHistoryStore.open(new File(applicationContext.getFilesDir(), "history"));
+        @Getter(lazy = true)
+        private final StayPointDetector stayPointDetector =
+                new StayPointDetector(getConfig().getVisitRadiusMeters(), getConfig().getVisitMinDwell());
+        @Getter(lazy = true)
+        private final TripAggregator tripAggregator = new TripAggregator(getConfig().getTripMaxGap());
+        @Getter(lazy = true)
+        private final DirectBootBuffer directBootBuffer = new DirectBootBuffer(applicationContext);
+
+        /**
+         * Firebase n'est initialisé d'office que dans le processus principal :
+         * le service peut tourner dans le processus :tracker
+         */
+        private LocationRepository createRepository() {
+            FirebaseApp.initializeApp(applicationContext);
+            return new LocationRepository(getFixIdentity(), getPayloadExecutor(),
+                    getConfig().getPayloadDeadline(), getSessionAccounting(), getFixTrace(),
+                    getDeviceStatusMonitor());
+        }
+
+        /**
+         * Ouvrir l'index spatial de l'historique ; coûteux (rattrapage de l'historique) :
+         * à appeler hors du thread principal. L'appelant le ferme à son arrêt
+         */
+        public SpatialIndex openSpatialIndex() {
+            return SpatialIndex.open(new File(applicationContext.getFilesDir(), "history"), getHistory());
+        }
+
+        /**
+         * Géocodeurs dans l'ordre de repli configuré ; le gazetier hors ligne
+         * n'est utilisé que s'il a été installé sur l'appareil
+         */
+        private ReverseGeocoder createReverseGeocoder() {
+            final var geocoders = new ArrayList<ReverseGeocoder>();
+            for (ReverseGeocoder.Source source : getConfig().getGeocoderOrder()) {
+                switch (source) {
+                    case OFFLINE:
+                        final var gazetteer = new File(applicationContext.getFilesDir(), GAZETTEER_FILE);
+                        if (!gazetteer.exists()) {
+                            break;
+                        }
+                        try {
+                            geocoders.add(new OfflineReverseGeocoder(gazetteer, getConfig().getOfflineGeocoderMaxDistance()));
+                        } catch (IOException e) {
+                            Log.e(TAG, "Gazetier hors ligne inutilisable", e);
+                        }
+                        break;
+                    case PLATFORM:
+                        geocoders.add(new PlatformReverseGeocoder(
+                                new Geocoder(applicationContext, Locale.getDefault()), getConfig().getGeocodeTimeout()));
+                        break;
+                }
+            }
+            return new ChainedReverseGeocoder(geocoders);
+        }
     }
 
     @Getter
@@ -54,11 +194,72 @@ public class LocationApplication extends Application {
         @Builder.Default
         private final long minUpdateInterval = 5 * 1000; // pas plus d’une fois toutes les 5s
         @Builder.Default
+        private final long maxUpdateDelay = 20 * 1000; // batching provider : lot livré au plus toutes les 20s
+        @Builder.Default
         private final float minUpdateDistanceMeters = 50; // déclenche seulement si mouvement >50m
         @Builder.Default
         private final boolean waitForAccurateLocation = true; // attend fix GPS précis
         @Builder.Default
         private final float maxAccuracy = 10; // ignore positions >10 m
+        @Builder.Default
+        private final double plausibilityMaxSpeed = 70; // au-delà de 250 km/h, la position est un saut
+        @Builder.Default
+        private final double plausibilityMaxAcceleration = 10; // m/s², au-delà d'une voiture sportive
+        @Builder.Default
+        private final long plausibilityReanchorGap = 5 * 60 * 1000; // après 5 min sans position, nouvelle référence
+        @Builder.Default
+        private final int plausibilityReanchorCount = 3; // positions rejetées cohérentes qui remplacent la référence
+        @Builder.Default
+        private final double visitRadiusMeters = 100; // rayon d'un arrêt
+        @Builder.Default
+        private final long visitMinDwell = 5 * 60 * 1000; // durée minimale d'un arrêt
+        @Builder.Default
+        private final boolean collapseVisitFixes = true; // pendant un arrêt, n'envoyer que le résumé de visite
+        @Builder.Default
+        private final long tripMaxGap = 10 * 60 * 1000; // un trou plus long termine le trajet
+        @Builder.Default
+        private final List<ReverseGeocoder.Source> geocoderOrder =
+                List.of(ReverseGeocoder.Source.OFFLINE, ReverseGeocoder.Source.PLATFORM); // hors ligne d'abord
+        @Builder.Default
+        private final double offlineGeocoderMaxDistance = 250; // lieu du gazetier retenu jusqu'à 250 m
+        @Builder.Default
+        private final int payloadWorkers = 1; // préparation des lots (lecture de l'état de l'appareil)
+        @Builder.Default
+        private final int payloadQueueCapacity = 64;
+        @Builder.Default
+        private final long payloadDeadline = 30 * 1000; // lot non préparé après 30s : envoi en échec
+        @Builder.Default
+        private final int liveUploadConcurrency = 2; // appels directs en parallèle
+        @Builder.Default
+        private final int liveUploadMaxBatch = 50;
+        @Builder.Default
+        private final long liveUploadMaxAge = 2 * 60 * 1000; // position plus ancienne : envoyée avec l'arriéré
+        @Builder.Default
+        private final int bulkUploadConcurrency = 1; // l'arriéré ne dispute pas le réseau à la voie directe
+        @Builder.Default
+        private final int bulkUploadMaxBatch = 500;
+        @Builder.Default
+        private final long bulkUploadLinger = 10 * 1000; // regroupement de l'arriéré avant envoi
+        @Builder.Default
+        private final long uploadRetryDelay = 5 * 1000; // premier délai avant nouvel essai, doublé à chaque échec
+        @Builder.Default
+        private final long pipelineMemoryBudget = 2 * 1024 * 1024; // positions en attente en mémoire (estimé), le reste sur disque
+        @Builder.Default
+        private final int geocodeWorkers = 2; // géocodages en parallèle (réseau)
+        @Builder.Default
+        private final boolean addressEnrichment = true; // adresses calculées après l'envoi des positions
+        @Builder.Default
+        private final long geocodeTimeout = 5 * 1000; // abandon d'un géocodage réseau après 5s
+        @Builder.Default
+        private final int enrichmentQueueCapacity = 256; // au-delà, les demandes les plus anciennes sont abandonnées
+        @Builder.Default
+        private final long enrichmentMaxQueueAge = 2 * 60 * 1000; // demande périmée après 2 min d'attente
+        @Builder.Default
+        private final long enrichmentMaxRunTime = 15 * 1000; // géocodage abandonné après 15s d'exécution (toutes sources)
+        @Builder.Default
+        private final int traceSamples = 512; // durées gardées par étape pour les p50/p99
+        @Builder.Default
+        private final long notificationMinUpdateInterval = 30 * 1000; // notification rafraîchie au plus toutes les 30s
 
         public static LocationConfig getDefault() {
             return LocationConfig.builder().build();
@@ -69,9 +270,26 @@ public class LocationApplication extends Application {
                     .priority(Priority.PRIORITY_HIGH_ACCURACY)   // GPS précis
                     .updateInterval(60_000L)                     // toutes les 60 secondes
                     .minUpdateInterval(60_000L)                  // jamais plus souvent
+                    .maxUpdateDelay(120_000L)                    // lot livré au plus toutes les 2 minutes
                     .minUpdateDistanceMeters(0f)                 // 🔥 IMPORTANT : même sans déplacement
                     .waitForAccurateLocation(false)              // pas bloquant
                     .maxAccuracy(25f)                            // tolérance réaliste en statique
+                    .notificationMinUpdateInterval(60_000L)      // une notif par fix au maximum
+                    .build();
+        }
+
+        /**
+         * Batching agressif : le FLP accumule les positions plusieurs minutes
+         * et les livre en un seul LocationResult, le CPU peut dormir entre-temps.
+         */
+        public static LocationConfig getBatched() {
+            return LocationConfig.builder()
+                    .priority(Priority.PRIORITY_BALANCED_POWER_ACCURACY)
+                    .updateInterval(30_000L)                     // une position toutes les 30 secondes
+                    .minUpdateInterval(15_000L)
+                    .maxUpdateDelay(5 * 60_000L)                 // lot livré toutes les 5 minutes
+                    .waitForAccurateLocation(false)
+                    .maxAccuracy(50f)
                     .build();
         }
     }
@@ -1,14 +1,31 @@
 package com.example.locationtracker;
 
 import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.location.Location;
 import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.RemoteException;
+import android.os.UserManager;
 import android.util.Log;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+
 import lombok.Getter;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Service de géolocalisation en foreground
  * Utilise le Container de LocationApplication pour l'injection de dépendances
@@ -16,19 +33,54 @@ import lombok.Getter;
 public class LocationForegroundService extends Service {
 
     private static final String TAG = "LocationForegroundService";
+    // Statistiques republiées dans le canal tant que l'interface est liée
+    private static final long STATS_PUBLISH_INTERVAL = 5 * 1000;
 
     private LocationApplication.Container container;
-    private final IBinder binder = new LocalBinder();
+    private final IBinder binder = new ChannelBinder();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable publishStatsTask = this::publishStatsPeriodically;
+
+    // Dernière position et statistiques pour l'interface, éventuellement dans un autre processus
+    private volatile TrackerChannel channel;
+    private boolean uiBound = false;
+
+    // Statistiques complètes, republiées par le thread du pipeline (lots, envois, canal)
+    @Getter
+    private volatile TrackingStatsSnapshot statsSnapshot = TrackingStatsSnapshot.EMPTY;
 
     @Getter
     private boolean running = false;
 
+    // Mode minimal avant le premier déverrouillage : positions tamponnées localement
+    @Getter
+    private boolean directBootMode = false;
+    private BroadcastReceiver unlockReceiver;
+    private boolean handOffInProgress = false;
+    // Voies d'envoi (Firebase, file sur disque) : démarrées seulement une fois déverrouillé
+    private volatile boolean uploadsStarted = false;
+    // Index spatial ouvert (ou en cours d'ouverture) une fois déverrouillé
+    private boolean spatialIndexRequested = false;
+    // Index ouvert par ce service, fermé à sa destruction (null tant qu'il n'est pas prêt)
+    private SpatialIndex spatialIndex;
+    // Positions résumées par une visite, confirmées à l'envoi de son événement (thread du pipeline)
+    private final List<Location> collapsedFixes = new ArrayList<>();
+    // Session de suivi ouverte par cette instance du service
+    private boolean sessionOpen = false;
+
     /**
-     * Binder local pour la communication avec MainActivity
+     * Binder du service : remet le canal en mémoire partagée à MainActivity,
+     * que le service tourne dans son processus ou dans le processus :tracker
      */
-    public class LocalBinder extends Binder {
-        public LocationForegroundService getService() {
-            return LocationForegroundService.this;
+    private class ChannelBinder extends Binder {
+        @Override
+        protected boolean onTransact(int code, @NonNull Parcel data, @Nullable Parcel reply, int flags)
+                throws RemoteException {
+            if (code == TrackerChannel.TRANSACTION_GET_CHANNEL && reply != null) {
+                TrackerChannel.writeReply(channel, reply);
+                return true;
+            }
+            return super.onTransact(code, data, reply, flags);
         }
     }
 
@@ -39,6 +91,27 @@ public class LocationForegroundService extends Service {
 
         // 🆕 Marquer comme running APRÈS l'initialisation réussie
         initializeService();
+
+        openChannelSafely();
+    }
+
+    /**
+     * Créer la mémoire partagée lue par l'interface
+     */
+    private void openChannelSafely() {
+        try {
+            channel = TrackerChannel.create();
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur création du canal vers l'interface", e);
+        }
+    }
+
+    private void closeChannel() {
+        final var current = channel;
+        channel = null;
+        if (current != null) {
+            current.close();
+        }
     }
 
     /**
@@ -55,9 +128,8 @@ public class LocationForegroundService extends Service {
                 return;
             }
 
-            // Configurer le listener de localisation
-            setupLocationListener();
-
+            // Le listener (et donc le manager) est configuré après startForeground,
+            // hors du chemin critique du démarrage
             running = true;
             Log.d(TAG, "Service initialisé avec succès");
 
@@ -76,8 +148,9 @@ public class LocationForegroundService extends Service {
     private void setupLocationListener() {
         container.getManager().setListener(new LocationTrackerManager.LocationListener() {
             @Override
-            public void onLocationChanged(final Location location) {
-                handleLocationUpdate(location);
+            public void onLocationsChanged(final List<Location> locations) {
+                handleLocationBatch(locations);
+                refreshStatsSafely();
             }
 
             @Override
@@ -88,22 +161,181 @@ public class LocationForegroundService extends Service {
     }
 
     /**
-     * 🆕 Traiter une nouvelle mise à jour de localisation
+     * Traiter un lot de positions retenues : une seule notification,
+     * un seul broadcast (la plus récente) et un seul upload pour tout le lot
      */
-    private void handleLocationUpdate(Location location) {
-        Log.d(TAG, String.format("Nouvelle position: %.6f, %.6f (±%.0fm)",
-                location.getLatitude(),
-                location.getLongitude(),
-                location.getAccuracy()));
+    private void handleLocationBatch(List<Location> locations) {
+        final var latest = locations.get(locations.size() - 1);
+        Log.d(TAG, String.format("Nouveau lot: %d position(s), dernière %.6f, %.6f (±%.0fm)",
+                locations.size(),
+                latest.getLatitude(),
+                latest.getLongitude(),
+                latest.getAccuracy()));
+
+        container.getStartupMetrics().markFirstFix();
+
+        // Point de reprise : dernière position et compteur, en une seule transaction
+        checkpointSafely(latest, locations.size());
+
+        // Identifiants client, attribués avant tout envoi ou mise en tampon
+        assignFixIdsSafely(locations);
 
         // Mettre à jour la notification
-        updateNotificationSafely(location);
+        updateNotificationSafely(latest);
+
+        // Avant déverrouillage : Firebase et le stockage chiffré sont indisponibles
+        if (directBootMode) {
+            bufferLocationsSafely(locations);
+            container.getFixTrace().abandon(locations);
+            return;
+        }
 
-        // Diffuser l'événement
-        broadcastLocationSafely(location);
+        // Historique local
+        recordHistorySafely(locations);
+
+        // Arrêts et trajets : pendant une visite, seul le résumé est envoyé
+        final var toUpload = analyzeLocationsSafely(locations);
+
+        // Publier pour l'interface
+        publishLocationSafely(latest);
 
         // Sauvegarder dans Firebase
-        saveLocationToFirebase(location);
+        saveLocationsToFirebase(toUpload);
+    }
+
+    /**
+     * Ajouter le lot à l'historique local
+     */
+    private void recordHistorySafely(List<Location> locations) {
+        try {
+            container.getHistory().append(locations);
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur écriture historique", e);
+        }
+    }
+
+    /**
+     * Passer le lot au détecteur d'arrêts et aux statistiques de trajet ;
+     * retourne les positions à envoyer
+     */
+    private List<Location> analyzeLocationsSafely(List<Location> locations) {
+        try {
+            final var detector = container.getStayPointDetector();
+            final var trips = container.getTripAggregator();
+            final var collapse = container.getConfig().isCollapseVisitFixes();
+            final var toUpload = new ArrayList<Location>(locations.size());
+            final var collapsed = new ArrayList<Location>();
+            // Le détecteur peut envoyer un événement en cours de lot : les positions
+            // résumées jusque-là doivent déjà lui être rattachées
+            for (Location location : locations) {
+                final var inVisit = detector.process(location.getTime(), location.getLatitude(), location.getLongitude());
+                trips.process(
+                        location.getTime(),
+                        location.getLatitude(),
+                        location.getLongitude(),
+                        location.hasAltitude() ? location.getAltitude() : Double.NaN,
+                        location.hasSpeed() ? location.getSpeed() : Float.NaN,
+                        inVisit);
+                if (!inVisit || !collapse) {
+                    toUpload.add(location);
+                } else {
+                    collapsed.add(location);
+                    collapsedFixes.add(location);
+                }
+            }
+            // Rien à envoyer ni à tracer pour les positions résumées par la visite :
+            // elles seront confirmées avec l'événement qui les résume
+            container.getFixTrace().abandon(collapsed);
+            return toUpload;
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur analyse des positions", e);
+            return locations;
+        }
+    }
+
+    private void setupVisitListener() {
+        container.getStayPointDetector().setListener(new StayPointDetector.VisitListener() {
+            @Override
+            public void onVisitStarted(StayPointDetector.Visit visit) {
+                saveVisitToFirebase(visit, false);
+            }
+
+            @Override
+            public void onVisitEnded(StayPointDetector.Visit visit) {
+                saveVisitToFirebase(visit, true);
+            }
+        });
+    }
+
+    /**
+     * Envoyer l'événement de visite par la voie directe (nouvel essai et écriture
+     * sur disque comme les positions) ; il résume les positions écartées jusqu'ici
+     */
+    private void saveVisitToFirebase(StayPointDetector.Visit visit, boolean ended) {
+        Log.d(TAG, (ended ? "Fin de visite: " : "Début de visite: ") + visit);
+        try {
+            var coveredThrough = -1L;
+            for (Location location : collapsedFixes) {
+                coveredThrough = Math.max(coveredThrough, FixIdentity.getSequence(location));
+            }
+            final var event = VisitEvents.create(visit, ended, coveredThrough);
+            if (uploadsStarted) {
+                container.getUploadScheduler().submit(UploadScheduler.Lane.LIVE, List.of(event));
+            } else {
+                Log.w(TAG, "Visite abandonnée, envois non démarrés");
+                acknowledgeCollapsedFixes(List.of(event));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la tentative d'envoi de visite", e);
+        }
+    }
+
+    /**
+     * Confirmer les positions résumées par les événements de visite envoyés
+     */
+    private void acknowledgeCollapsedFixes(List<Location> locations) {
+        var coveredThrough = -1L;
+        for (Location location : locations) {
+            if (VisitEvents.isVisit(location)) {
+                coveredThrough = Math.max(coveredThrough, VisitEvents.getCoveredThrough(location));
+            }
+        }
+        if (coveredThrough < 0) {
+            return;
+        }
+        final var covered = new ArrayList<Location>();
+        for (var iterator = collapsedFixes.iterator(); iterator.hasNext(); ) {
+            final var location = iterator.next();
+            if (FixIdentity.getSequence(location) <= coveredThrough) {
+                covered.add(location);
+                iterator.remove();
+            }
+        }
+        container.getAckTracker().ack(covered);
+    }
+
+    /**
+     * Enregistrer la dernière position retenue dans le magasin d'état
+     */
+    private void checkpointSafely(Location latest, int accepted) {
+        try {
+            container.getServicePreferences().getStore().update(editor -> editor
+                    .putLong(ServiceStateStore.Key.LAST_FIX_TIME, latest.getTime())
+                    .putDouble(ServiceStateStore.Key.LAST_FIX_LATITUDE, latest.getLatitude())
+                    .putDouble(ServiceStateStore.Key.LAST_FIX_LONGITUDE, latest.getLongitude())
+                    .putLong(ServiceStateStore.Key.FIXES_ACCEPTED,
+                            editor.getLong(ServiceStateStore.Key.FIXES_ACCEPTED) + accepted));
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur sauvegarde point de reprise", e);
+        }
+    }
+
+    private void assignFixIdsSafely(List<Location> locations) {
+        try {
+            container.getFixIdentity().assign(locations);
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur attribution des identifiants", e);
+        }
     }
 
     /**
@@ -120,37 +352,321 @@ public class LocationForegroundService extends Service {
     }
 
     /**
-     * 🆕 Diffuser la localisation de manière sécurisée
+     * Publier la dernière position dans le canal (aucun appel binder ni Intent)
+     */
+    private void publishLocationSafely(Location location) {
+        try {
+            final var current = channel;
+            if (current != null) {
+                current.publishFix(location);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur publication position", e);
+        }
+    }
+
+    /**
+     * Figer les statistiques de tous les composants (thread du pipeline uniquement) :
+     * les lecteurs, interface ou dump, n'ont plus qu'une référence à lire
+     */
+    private void refreshStatsSafely() {
+        try {
+            if (container == null || !running) {
+                return;
+            }
+            final var geocode = container.getGeocodeExecutor().getMetrics();
+            final var session = getSessionStats();
+            final var lanes = getUploadMetrics();
+            final var budget = container.getMemoryBudget();
+            final var builder = container.getManager().getStatsSnapshot().toBuilder()
+                    .publishedAt(System.currentTimeMillis())
+                    .geocodeQueued(geocode.getQueued())
+                    .geocodeAverageQueueWaitMillis(geocode.getAverageQueueWaitMillis())
+                    .geocodeAverageRunMillis(geocode.getAverageRunMillis())
+                    .sessionGpsMillis(session.getGpsMillis())
+                    .sessionFixesDelivered(session.getFixesDelivered())
+                    .sessionFixesAccepted(session.getFixesAccepted())
+                    .sessionPipelineCpuMillis(session.getPipelineCpuMillis())
+                    .sessionRadioWakeups(session.getRadioWakeups())
+                    .sessionUploadCalls(session.getUploadCalls())
+                    .memoryUsed(budget.getUsed())
+                    .memoryLimit(budget.getLimit());
+            if (!lanes.isEmpty()) {
+                builder.liveQueued(lanes.get(0).getQueued())
+                        .liveAverageLatencyMillis(lanes.get(0).getAverageLatencyMillis())
+                        .bulkQueued(lanes.get(1).getQueued())
+                        .bulkSpilled(lanes.get(1).getSpilled())
+                        .bulkAverageLatencyMillis(lanes.get(1).getAverageLatencyMillis());
+            }
+            final var trip = getCurrentTrip();
+            if (trip != null) {
+                builder.hasTrip(true)
+                        .tripDistanceMeters(trip.getDistanceMeters())
+                        .tripMovingTimeMillis(trip.getMovingTimeMillis())
+                        .tripAverageSpeed(trip.getAverageSpeed())
+                        .tripMaxSpeed(trip.getMaxSpeed())
+                        .tripElevationGain(trip.getElevationGain());
+            }
+            statsSnapshot = builder.build();
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur mise à jour des statistiques", e);
+        }
+    }
+
+    /**
+     * Publier le dernier instantané dans le canal
      */
-    private void broadcastLocationSafely(Location location) {
+    private void publishStatsSafely() {
         try {
-            if (container != null && container.getBroadcaster() != null) {
-                container.getBroadcaster().broadcastLocationUpdate(location);
+            final var current = channel;
+            if (current != null) {
+                current.publishStats(statsSnapshot);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Erreur broadcast location", e);
+            Log.e(TAG, "Erreur publication statistiques", e);
+        }
+    }
+
+    private void publishStatsPeriodically() {
+        // Exécuté sur le thread principal, celui du pipeline : il peut republier
+        refreshStatsSafely();
+        publishStatsSafely();
+        if (uiBound) {
+            handler.postDelayed(publishStatsTask, STATS_PUBLISH_INTERVAL);
         }
     }
 
     /**
-     * 🆕 Sauvegarder la localisation dans Firebase
+     * Sauvegarder le lot de positions dans Firebase : la plus récente part en direct,
+     * les positions anciennes du lot rejoignent l'arriéré
      */
-    private void saveLocationToFirebase(Location location) {
+    private void saveLocationsToFirebase(List<Location> locations) {
+        if (locations.isEmpty()) {
+            return;
+        }
         try {
-            if (container != null && container.getRepository() != null) {
-                container.getRepository().createOne(location)
-                        .addOnSuccessListener(documentId -> {
-                            Log.d(TAG, "Position sauvegardée avec ID: " + documentId);
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Erreur de sauvegarde Firebase: " + e.getMessage(), e);
-                        });
+            if (container == null) {
+                return;
+            }
+            if (uploadsStarted) {
+                container.getUploadScheduler().submitLive(locations);
+            } else {
+                // Jamais envoyées : leurs numéros ne doivent pas bloquer le filigrane
+                Log.w(TAG, locations.size() + " position(s) abandonnée(s), envois non démarrés");
+                container.getAckTracker().ack(locations);
+                container.getFixTrace().abandon(locations);
             }
         } catch (Exception e) {
             Log.e(TAG, "Erreur lors de la tentative de sauvegarde", e);
         }
     }
 
+    /**
+     * Abandonner les numéros perdus en route (voies en mémoire d'un processus tué,
+     * écriture sur disque impossible à l'arrêt) : une fois que rien n'attend sur disque
+     * ni dans le tampon Direct Boot, toute position antérieure à celles encore en mémoire
+     * (voies d'envoi, positions résumées par une visite en attente) a été confirmée
+     * ou ne sera jamais envoyée
+     */
+    private void releaseLostFixesSafely() {
+        try {
+            final var ackTracker = container.getAckTracker();
+            if (!ackTracker.hasGaps() || handOffInProgress || !container.getDirectBootBuffer().isEmpty()) {
+                return;
+            }
+            var floor = container.getUploadScheduler().getOutstandingFloor();
+            if (floor < 0) {
+                return;
+            }
+            // Positions résumées par une visite pas encore envoyée
+            for (Location location : collapsedFixes) {
+                floor = Math.min(floor, FixIdentity.getSequence(location));
+            }
+            final var skipped = ackTracker.skipTo(Math.min(floor, container.getFixIdentity().getNextSequence()));
+            if (skipped > 0) {
+                Log.w(TAG, skipped + " position(s) perdue(s) avant envoi, filigrane à " + ackTracker.getWatermark());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur abandon des positions perdues", e);
+        }
+    }
+
+    /**
+     * Résultat de chaque envoi, quelle que soit sa voie
+     */
+    private void setupUploadListener() {
+        container.getUploadScheduler().setListener(new UploadScheduler.Listener() {
+            @Override
+            public void onUploaded(UploadScheduler.Lane lane, List<Location> locations) {
+                Log.d(TAG, locations.size() + " position(s) sauvegardée(s) (" + lane + ")");
+                container.getAckTracker().ack(locations);
+                acknowledgeCollapsedFixes(locations);
+                releaseLostFixesSafely();
+                container.getFixTrace().complete(locations);
+                countUpload(ServiceStateStore.Key.UPLOADS_SUCCEEDED);
+                enrichAddressesSafely(locations);
+                refreshStatsSafely();
+            }
+
+            @Override
+            public void onFailed(UploadScheduler.Lane lane, List<Location> locations, Exception e) {
+                Log.e(TAG, "Erreur de sauvegarde Firebase (" + lane + "): " + e.getMessage(), e);
+                countUpload(ServiceStateStore.Key.UPLOADS_FAILED);
+                refreshStatsSafely();
+            }
+        });
+    }
+
+    /**
+     * Adresses calculées hors du chemin d'envoi, une fois les positions confirmées
+     */
+    private void enrichAddressesSafely(List<Location> locations) {
+        try {
+            if (container != null && container.getConfig().isAddressEnrichment()) {
+                container.getAddressEnricher().enqueue(locations);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur mise en file des adresses", e);
+        }
+    }
+
+    private void countUpload(ServiceStateStore.Key counter) {
+        if (container != null) {
+            container.getServicePreferences().getStore().increment(counter, 1);
+        }
+    }
+
+    /**
+     * Tamponner le lot dans le stockage protégé par l'appareil
+     */
+    private void bufferLocationsSafely(List<Location> locations) {
+        try {
+            container.getDirectBootBuffer().append(locations);
+            Log.d(TAG, locations.size() + " position(s) tamponnée(s) avant déverrouillage");
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur écriture tampon Direct Boot", e);
+        }
+    }
+
+    /**
+     * Choisir le mode de suivi selon l'état de l'utilisateur (verrouillé depuis le boot ou non)
+     */
+    private void configureTrackingMode() {
+        final var userManager = (UserManager) getSystemService(USER_SERVICE);
+        final var unlocked = userManager == null || userManager.isUserUnlocked();
+
+        if (unlocked) {
+            unregisterUnlockReceiver();
+            directBootMode = false;
+            startUploadsSafely();
+            handOffDirectBootBuffer();
+            // L'index spatial suit ensuite chaque ajout à l'historique
+            openSpatialIndexInBackground();
+            return;
+        }
+
+        Log.i(TAG, "Utilisateur verrouillé depuis le boot : suivi minimal avec tampon local");
+        directBootMode = true;
+        registerUnlockReceiver();
+    }
+
+    private void registerUnlockReceiver() {
+        if (unlockReceiver != null) {
+            return;
+        }
+        unlockReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                Log.i(TAG, "Utilisateur déverrouillé : passage au pipeline complet");
+                configureTrackingMode();
+            }
+        };
+        final var filter = new IntentFilter(Intent.ACTION_USER_UNLOCKED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            registerReceiver(unlockReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
+        } else {
+            registerReceiver(unlockReceiver, filter);
+        }
+    }
+
+    private void unregisterUnlockReceiver() {
+        if (unlockReceiver == null) {
+            return;
+        }
+        try {
+            unregisterReceiver(unlockReceiver);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Receiver de déverrouillage non enregistré", e);
+        }
+        unlockReceiver = null;
+    }
+
+    /**
+     * Remettre les positions tamponnées au pipeline complet (voie de l'arriéré),
+     * le tampon n'est vidé qu'une fois tous les lots acceptés. Chaque lot confirmé
+     * est marqué : une reprise après échec partiel ne renvoie que le reste.
+     * L'historique les reçoit tout de suite, avant toute position en direct.
+     */
+    private void handOffDirectBootBuffer() {
+        try {
+            final var buffer = container.getDirectBootBuffer();
+            if (handOffInProgress || buffer.isEmpty()) {
+                return;
+            }
+            handOffInProgress = true;
+
+            final var locations = buffer.readAll();
+            final var ackTracker = container.getAckTracker();
+            final var pending = ackTracker.filterUnacked(locations);
+            Log.i(TAG, "Reprise de " + locations.size() + " position(s) tamponnée(s), "
+                    + pending.size() + " à envoyer");
+
+            // L'historique suit l'ordre d'insertion : les positions tamponnées, plus anciennes,
+            // y entrent avant la prochaine position en direct (une seule fois, même après un échec)
+            recordBufferedHistorySafely(locations);
+
+            // Arriéré : regroupé par lots, derrière les positions en direct
+            container.getUploadScheduler().submit(UploadScheduler.Lane.BULK, pending)
+                    .addOnCompleteListener(task -> handOffInProgress = false)
+                    .addOnSuccessListener(unused -> {
+                        buffer.clear();
+                        Log.d(TAG, "Tampon Direct Boot transféré et vidé");
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Transfert du tampon Direct Boot incomplet, nouvel essai au prochain démarrage", e);
+                    });
+        } catch (Exception e) {
+            handOffInProgress = false;
+            Log.e(TAG, "Erreur reprise du tampon Direct Boot", e);
+        }
+    }
+
+    /**
+     * Verser à l'historique les positions tamponnées qui n'y sont pas encore
+     */
+    private void recordBufferedHistorySafely(List<Location> locations) {
+        try {
+            final var store = container.getServicePreferences().getStore();
+            final var recordedBefore = store.getLong(ServiceStateStore.Key.DIRECT_BOOT_HISTORY_SEQUENCE);
+            final var toRecord = new ArrayList<Location>(locations.size());
+            var next = recordedBefore;
+            for (Location location : locations) {
+                final var sequence = FixIdentity.getSequence(location);
+                if (sequence < 0 || sequence >= recordedBefore) {
+                    toRecord.add(location);
+                    next = Math.max(next, sequence + 1);
+                }
+            }
+            if (toRecord.isEmpty()) {
+                return;
+            }
+            recordHistorySafely(toRecord);
+            store.putLong(ServiceStateStore.Key.DIRECT_BOOT_HISTORY_SEQUENCE, next);
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur historique du tampon Direct Boot", e);
+        }
+    }
+
     /**
      * 🆕 Gérer le refus de permission
      */
@@ -169,9 +685,23 @@ public class LocationForegroundService extends Service {
             initializeService();
         }
 
-        // Démarrer en foreground avec notification
+        if (container != null) {
+            container.getStartupMetrics().markServiceStart();
+        }
+
+        // Démarrer en foreground avec notification (délai imposé par le système)
         startForegroundWithNotification();
 
+        // Pools et état de l'appareil ; les voies d'envoi attendent le choix du mode
+        startExecutors();
+
+        // Direct Boot : tamponner tant que l'utilisateur n'a pas déverrouillé,
+        // sinon démarrer les envois avant la reprise du tampon
+        configureTrackingMode();
+
+        // Avant le marquage : un service resté "actif" a été tué, sa session reprend
+        beginSessionSafely();
+
         // Marquer le service comme actif
         markServiceAsRunning();
 
@@ -190,6 +720,7 @@ public class LocationForegroundService extends Service {
                 final var notification = container.getNotifier().createInitialNotification();
                 final var notificationId = container.getNotifier().getNotificationId();
                 startForeground(notificationId, notification);
+                container.getStartupMetrics().markForeground();
                 Log.d(TAG, "Service en mode foreground");
             } else {
                 Log.e(TAG, "Impossible de créer la notification");
@@ -200,6 +731,39 @@ public class LocationForegroundService extends Service {
         }
     }
 
+    /**
+     * Ouvrir (ou reprendre après un arrêt brutal) la session de suivi
+     */
+    private void beginSessionSafely() {
+        try {
+            if (container != null && !sessionOpen) {
+                final var resume = container.getServicePreferences().wasServiceRunning();
+                container.getSessionAccounting().beginSession(resume);
+                sessionOpen = true;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur ouverture session", e);
+        }
+    }
+
+    /**
+     * Clore la session et en envoyer le bilan
+     */
+    private void endSessionSafely() {
+        try {
+            if (container != null && sessionOpen) {
+                sessionOpen = false;
+                final var snapshot = container.getSessionAccounting().endSession();
+                if (!directBootMode) {
+                    container.getRepository().createSessionSummary(snapshot)
+                            .addOnFailureListener(e -> Log.e(TAG, "Erreur envoi bilan de session", e));
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur clôture session", e);
+        }
+    }
+
     /**
      * 🆕 Marquer le service comme actif dans les préférences
      */
@@ -209,6 +773,10 @@ public class LocationForegroundService extends Service {
                 container.getServicePreferences().setServiceRunning(true);
                 Log.d(TAG, "Service marqué comme actif");
             }
+            final var current = channel;
+            if (current != null) {
+                current.setRunning(true);
+            }
         } catch (Exception e) {
             Log.e(TAG, "Erreur sauvegarde état service", e);
         }
@@ -220,6 +788,8 @@ public class LocationForegroundService extends Service {
     private void startLocationTracking() {
         try {
             if (container != null && container.getManager() != null) {
+                setupLocationListener();
+                setupVisitListener();
                 container.getManager().startLocationUpdates();
                 Log.d(TAG, "Suivi GPS démarré");
             } else {
@@ -248,12 +818,152 @@ public class LocationForegroundService extends Service {
         // Nettoyer le listener
         cleanupListener();
 
+        unregisterUnlockReceiver();
+
+        // Sceller le bloc d'historique en cours
+        flushHistory();
+
+        closeSpatialIndex();
+
+        stopExecutors();
+
+        // Bilan de session avant le marquage : un arrêt propre ne sera pas repris
+        endSessionSafely();
+
         // Marquer le service comme inactif
         markServiceAsNotRunning();
 
+        handler.removeCallbacks(publishStatsTask);
+        closeChannel();
+
         Log.d(TAG, "Service détruit");
     }
 
+    private void startExecutors() {
+        try {
+            if (container != null) {
+                container.getPayloadExecutor().start();
+                container.getGeocodeExecutor().start();
+                container.getBackgroundExecutor().start();
+                container.getDeviceStatusMonitor().start();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur démarrage des pools", e);
+        }
+    }
+
+    /**
+     * Démarrer les voies d'envoi (une seule fois) : le dépôt initialise Firebase et lit
+     * les identifiants, indisponibles avant le premier déverrouillage
+     */
+    private void startUploadsSafely() {
+        try {
+            if (container == null || uploadsStarted) {
+                return;
+            }
+            setupUploadListener();
+            final var scheduler = container.getUploadScheduler();
+            final var repository = container.getRepository();
+            // Reconnexion : état complet au prochain lot, arriéré retenté sans attendre
+            container.getDeviceStatusMonitor().setNetworkListener(() -> {
+                repository.resyncDeviceStatus();
+                scheduler.retryNow();
+            });
+            scheduler.start();
+            uploadsStarted = true;
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur démarrage des envois", e);
+        }
+    }
+
+    private void stopExecutors() {
+        try {
+            if (container != null) {
+                if (uploadsStarted) {
+                    uploadsStarted = false;
+                    final var pending = container.getUploadScheduler().shutdown();
+                    if (pending > 0) {
+                        Log.i(TAG, pending + " position(s) non envoyée(s) mise(s) de côté sur disque");
+                    }
+                }
+                container.getDeviceStatusMonitor().setNetworkListener(null);
+                container.getPayloadExecutor().shutdown();
+                container.getGeocodeExecutor().shutdown();
+                container.getBackgroundExecutor().shutdown();
+                container.getDeviceStatusMonitor().stop();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur arrêt des pools", e);
+        }
+    }
+
+    /**
+     * Ouvrir l'index spatial hors du thread principal, une fois par service,
+     * au démarrage déverrouillé ou au déverrouillage
+     */
+    private void openSpatialIndexInBackground() {
+        if (directBootMode || spatialIndexRequested) {
+            return;
+        }
+        spatialIndexRequested = true;
+        try {
+            // Sans échéance : l'ouverture n'est abandonnée qu'à l'arrêt du pool
+            container.getBackgroundExecutor().execute(this::openSpatialIndexSafely, Long.MAX_VALUE,
+                    () -> Log.w(TAG, "Ouverture de l'index spatial abandonnée"));
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Ouverture de l'index spatial refusée", e);
+        }
+    }
+
+    private void openSpatialIndexSafely() {
+        try {
+            final var index = container.openSpatialIndex();
+            synchronized (this) {
+                if (running) {
+                    spatialIndex = index;
+                    Log.d(TAG, "Index spatial prêt: " + index.getIndexedRowCount() + " ligne(s)");
+                    return;
+                }
+            }
+            // Service détruit pendant l'ouverture
+            index.close();
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur ouverture index spatial", e);
+        }
+    }
+
+    /**
+     * Index spatial de l'historique, ou null tant qu'il n'est pas ouvert
+     */
+    public synchronized SpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    private void closeSpatialIndex() {
+        final SpatialIndex index;
+        synchronized (this) {
+            index = spatialIndex;
+            spatialIndex = null;
+        }
+        try {
+            if (index != null) {
+                index.close();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur fermeture index spatial", e);
+        }
+    }
+
+    private void flushHistory() {
+        try {
+            if (container != null && !directBootMode) {
+                container.getHistory().flush();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur scellement historique", e);
+        }
+    }
+
     /**
      * 🆕 Arrêter le suivi de localisation
      */
@@ -275,6 +985,12 @@ public class LocationForegroundService extends Service {
         try {
             if (container != null && container.getManager() != null) {
                 container.getManager().setListener(null);
+                // La visite éventuellement ouverte est close avant de détacher son listener
+                container.getStayPointDetector().reset();
+                container.getStayPointDetector().setListener(null);
+                container.getTripAggregator().close();
+                // Plus de mise à jour différée après l'arrêt du suivi
+                container.getNotifier().cancelPendingUpdate();
                 Log.d(TAG, "Listener nettoyé");
             }
         } catch (Exception e) {
@@ -291,6 +1007,10 @@ public class LocationForegroundService extends Service {
                 container.getServicePreferences().setServiceRunning(false);
                 Log.d(TAG, "Service marqué comme inactif");
             }
+            final var current = channel;
+            if (current != null) {
+                current.setRunning(false);
+            }
         } catch (Exception e) {
             Log.e(TAG, "Erreur sauvegarde état service", e);
         }
@@ -300,26 +1020,106 @@ public class LocationForegroundService extends Service {
         return container.getManager().getLastLocation();
     }
 
-    public String getTrackingStats() {
-        return container.getManager().getTrackingStats();
+    /**
+     * Compteurs des pools de préparation, de géocodage et des travaux de fond
+     */
+    public List<EnrichmentExecutor.Metrics> getExecutorMetrics() {
+        return List.of(container.getPayloadExecutor().getMetrics(), container.getGeocodeExecutor().getMetrics(),
+                container.getBackgroundExecutor().getMetrics());
+    }
+
+    /**
+     * Comptabilité de la session en cours (temps GPS, positions, CPU, réveils radio)
+     */
+    public SessionAccounting.Snapshot getSessionStats() {
+        return container.getSessionAccounting().getSnapshot();
+    }
+
+    /**
+     * Compteurs des voies d'envoi (direct et arriéré), vide avant leur démarrage
+     */
+    public List<UploadScheduler.LaneMetrics> getUploadMetrics() {
+        if (!uploadsStarted) {
+            return List.of();
+        }
+        return container.getUploadScheduler().getMetrics();
+    }
+
+    /**
+     * p50/p99 par étape du parcours des positions (livraison, filtres, file, préparation, appel...)
+     */
+    public List<FixTrace.StageSummary> getTraceSummary() {
+        return container.getFixTrace().getSummary();
+    }
+
+    /**
+     * Trajet en cours (lecture O(1), sans verrou), ou null
+     */
+    @Nullable
+    public TripAggregator.TripSummary getCurrentTrip() {
+        return container.getTripAggregator().getCurrentTrip();
+    }
+
+    /**
+     * Derniers trajets terminés, du plus récent au plus ancien
+     */
+    public List<TripAggregator.TripSummary> getRecentTrips() {
+        return container.getTripAggregator().getRecentTrips();
+    }
+
+    /**
+     * adb shell dumpsys activity service .LocationForegroundService
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        if (container == null) {
+            writer.println("Service non initialisé");
+            return;
+        }
+        writer.println("Suivi: " + container.getManager().getState());
+        writer.println("Statistiques: " + statsSnapshot);
+        for (EnrichmentExecutor.Metrics metrics : getExecutorMetrics()) {
+            writer.println("Pool: " + metrics);
+        }
+        for (UploadScheduler.LaneMetrics lane : getUploadMetrics()) {
+            writer.println("Voie: " + lane);
+        }
+        for (FixTrace.StageSummary stage : getTraceSummary()) {
+            writer.println("Étape " + stage);
+        }
+        final var trip = getCurrentTrip();
+        if (trip != null) {
+            writer.println("Trajet: " + trip);
+        }
     }
 
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
         Log.d(TAG, "Service bound");
+        startPublishingStats();
         return binder;
     }
 
     @Override
     public boolean onUnbind(Intent intent) {
         Log.d(TAG, "Service unbound");
-        return super.onUnbind(intent);
+        uiBound = false;
+        handler.removeCallbacks(publishStatsTask);
+        // Vrai : onRebind sera appelé à la prochaine liaison
+        return true;
     }
 
     @Override
     public void onRebind(Intent intent) {
         super.onRebind(intent);
         Log.d(TAG, "Service rebound");
+        startPublishingStats();
+    }
+
+    private void startPublishingStats() {
+        uiBound = true;
+        handler.removeCallbacks(publishStatsTask);
+        handler.post(publishStatsTask);
     }
 }
\ No newline at end of file
@@ -0,0 +1,540 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import lombok.NonNull;
+
+/**
+ * Historique local des positions retenues, stocké en colonnes compressées.
+ *
+ * <p>Les nouvelles lignes vont dans un bloc en mémoire doublé d'un journal mappé.
+ * Un bloc plein est scellé en arrière-plan en {@link HistorySegment} (fichier immuable,
+ * mappé pour la lecture), puis les petits segments voisins sont fusionnés.
+ * Chaque ligne reçoit un identifiant croissant et stable, y compris après fusion.</p>
+ *
+ * <p>Les requêtes par plage de temps ne décodent que les segments dont
+ * les bornes [minTime, maxTime] recoupent la plage demandée.</p>
+ */
+public class LocationHistoryStore implements Closeable {
+
+    private static final String TAG = "LocationHistoryStore";
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String JOURNAL_PREFIX = "jnl-";
+    private static final String JOURNAL_SUFFIX = ".jnl";
+
+    // Lignes par bloc avant scellement, et taille visée par la compaction
+    static final int BLOCK_CAPACITY = 4096;
+    static final int COMPACTED_SEGMENT_SIZE = 4 * BLOCK_CAPACITY;
+
+    private final File directory;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "history-io");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Listes copiées à chaque modification : un curseur travaille sur un instantané
+    private volatile List<HistorySegment> segments = Collections.emptyList();
+    private volatile List<HistoryBlock> sealing = Collections.emptyList();
+    private HistoryBlock active;
+    private long nextRowId;
+    private boolean compactionScheduled;
+    private final List<AppendListener> appendListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Notifié de chaque ligne ajoutée, sous le verrou du magasin (traitement court)
+     */
+    public interface AppendListener {
+        void onAppend(long rowId, double latitude, double longitude);
+    }
+
+    /**
+     * Ouvrir l'historique ; une erreur d'E/S ici est fatale pour le composant
+     */
+    public static LocationHistoryStore open(@NonNull final File directory) {
+        try {
+            return new LocationHistoryStore(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ouverture de l'historique impossible", e);
+        }
+    }
+
+    public LocationHistoryStore(@NonNull final File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Création impossible: " + directory);
+        }
+        load();
+    }
+
+    // --- Chargement ---
+
+    private void load() throws IOException {
+        final var loaded = new ArrayList<HistorySegment>();
+        final var files = directory.listFiles();
+        final var journals = new ArrayList<File>();
+        if (files != null) {
+            for (File file : files) {
+                final var name = file.getName();
+                if (name.endsWith(".tmp")) {
+                    deleteQuietly(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        loaded.add(HistorySegment.open(file));
+                    } catch (IOException e) {
+                        Log.e(TAG, "Segment illisible ignoré: " + file, e);
+                        deleteQuietly(file);
+                    }
+                } else if (name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX)) {
+                    journals.add(file);
+                }
+            }
+        }
+
+        loaded.sort((a, b) -> Long.compare(a.getFirstRowId(), b.getFirstRowId()));
+        // Une fusion interrompue peut laisser un segment déjà couvert par le précédent
+        final var kept = new ArrayList<HistorySegment>(loaded.size());
+        for (HistorySegment segment : loaded) {
+            if (!kept.isEmpty() && segment.getEndRowId() <= kept.get(kept.size() - 1).getEndRowId()) {
+                deleteQuietly(segment.getFile());
+            } else {
+                kept.add(segment);
+            }
+        }
+        segments = Collections.unmodifiableList(kept);
+        nextRowId = kept.isEmpty() ? 0 : kept.get(kept.size() - 1).getEndRowId();
+
+        // Journaux : déjà scellés (à supprimer), pleins (à sceller) ou bloc actif
+        journals.sort((a, b) -> a.getName().compareTo(b.getName()));
+        for (File journal : journals) {
+            final var block = HistoryBlock.replay(journal);
+            if (block == null || block.getFirstRowId() < nextRowId) {
+                if (block != null) {
+                    block.closeJournal();
+                }
+                deleteQuietly(journal);
+                continue;
+            }
+            if (active != null) {
+                seal(active);
+            }
+            active = block;
+            nextRowId = block.getFirstRowId() + block.getCount();
+        }
+
+        if (active == null || active.isFull()) {
+            if (active != null) {
+                seal(active);
+            }
+            active = HistoryBlock.create(journalFile(nextRowId), nextRowId, BLOCK_CAPACITY);
+        }
+        Log.i(TAG, String.format(Locale.ROOT, "Historique chargé: %d segment(s), %d ligne(s)",
+                segments.size(), nextRowId));
+        scheduleCompaction();
+    }
+
+    // --- Écriture ---
+
+    /**
+     * Ajouter une position ; retourne son identifiant de ligne
+     */
+    public synchronized long append(final long time, final double latitude, final double longitude,
+                                    final double altitude, final float accuracy, final float speed,
+                                    final float bearing) {
+        if (active.isFull()) {
+            rotate();
+        }
+        final var rowId = active.append(time, latitude, longitude, altitude, accuracy, speed, bearing);
+        nextRowId = rowId + 1;
+        for (AppendListener listener : appendListeners) {
+            listener.onAppend(rowId, latitude, longitude);
+        }
+        return rowId;
+    }
+
+    public long append(@NonNull final Location location) {
+        return append(
+                location.getTime(),
+                location.getLatitude(),
+                location.getLongitude(),
+                location.hasAltitude() ? location.getAltitude() : Double.NaN,
+                location.getAccuracy(),
+                location.hasSpeed() ? location.getSpeed() : Float.NaN,
+                location.hasBearing() ? location.getBearing() : Float.NaN);
+    }
+
+    /**
+     * Ajouter un lot ; retourne l'identifiant de la première ligne
+     */
+    public synchronized long append(@NonNull final List<Location> locations) {
+        final var first = nextRowId;
+        for (Location location : locations) {
+            append(location);
+        }
+        return first;
+    }
+
+    /**
+     * Sceller le bloc courant même s'il n'est pas plein (arrêt du service) ;
+     * les petits segments ainsi produits sont fusionnés par la compaction
+     */
+    public synchronized void flush() {
+        if (active.getCount() > 0) {
+            rotate();
+        } else {
+            active.sync();
+        }
+    }
+
+    private void rotate() {
+        final var full = active;
+        try {
+            active = HistoryBlock.create(journalFile(nextRowId), nextRowId, BLOCK_CAPACITY);
+        } catch (IOException e) {
+            // On garde le bloc courant : le journal continue de protéger les lignes
+            Log.e(TAG, "Création du journal impossible", e);
+            return;
+        }
+        final var pending = new ArrayList<>(sealing);
+        pending.add(full);
+        sealing = Collections.unmodifiableList(pending);
+        ioExecutor.execute(() -> {
+            try {
+                seal(full);
+            } catch (IOException e) {
+                Log.e(TAG, "Scellement impossible, le journal est conservé: " + full.getJournalFile(), e);
+            }
+        });
+    }
+
+    /**
+     * Encoder un bloc en segment, le publier puis supprimer son journal
+     */
+    private void seal(final HistoryBlock block) throws IOException {
+        final var count = block.getCount();
+        final var segment = HistorySegment.write(
+                segmentFile(block.getFirstRowId()), block.getFirstRowId(), count, block.cursor(count));
+        synchronized (this) {
+            final var updated = new ArrayList<>(segments);
+            updated.add(segment);
+            updated.sort((a, b) -> Long.compare(a.getFirstRowId(), b.getFirstRowId()));
+            segments = Collections.unmodifiableList(updated);
+            final var pending = new ArrayList<>(sealing);
+            pending.remove(block);
+            sealing = Collections.unmodifiableList(pending);
+        }
+        block.closeJournal();
+        deleteQuietly(block.getJournalFile());
+        scheduleCompaction();
+    }
+
+    // --- Compaction ---
+
+    private synchronized void scheduleCompaction() {
+        if (compactionScheduled || ioExecutor.isShutdown() || findCompactionRun(segments) == null) {
+            return;
+        }
+        compactionScheduled = true;
+        ioExecutor.execute(() -> {
+            synchronized (this) {
+                compactionScheduled = false;
+            }
+            try {
+                compact();
+            } catch (IOException e) {
+                Log.e(TAG, "Compaction impossible", e);
+            }
+        });
+    }
+
+    /**
+     * Fusionner les suites de segments voisins tant que leur total reste sous la taille visée
+     */
+    private void compact() throws IOException {
+        int[] run;
+        while ((run = findCompactionRun(segments)) != null) {
+            final var snapshot = segments;
+            final var merged = snapshot.subList(run[0], run[1]);
+            final var first = merged.get(0);
+            var total = 0;
+            for (HistorySegment segment : merged) {
+                total += segment.getCount();
+            }
+
+            final var segment = HistorySegment.write(
+                    segmentFile(first.getFirstRowId()), first.getFirstRowId(), total,
+                    new ChainedCursor(new ArrayList<HistoryChunk>(merged), Long.MIN_VALUE, Long.MAX_VALUE,
+                            0, Long.MAX_VALUE));
+
+            synchronized (this) {
+                final var updated = new ArrayList<>(segments);
+                updated.removeAll(merged);
+                updated.add(segment);
+                updated.sort((a, b) -> Long.compare(a.getFirstRowId(), b.getFirstRowId()));
+                segments = Collections.unmodifiableList(updated);
+            }
+            // Le premier fichier a été remplacé par le segment fusionné
+            for (int i = 1; i < merged.size(); i++) {
+                deleteQuietly(merged.get(i).getFile());
+            }
+            Log.d(TAG, String.format(Locale.ROOT, "Compaction: %d segments -> %d lignes, %d octets",
+                    merged.size(), total, segment.getSizeInBytes()));
+        }
+    }
+
+    /**
+     * Première suite [début, fin) d'au moins deux segments contigus fusionnables, ou null
+     */
+    private static int[] findCompactionRun(final List<HistorySegment> list) {
+        for (int start = 0; start < list.size() - 1; start++) {
+            var total = list.get(start).getCount();
+            var end = start + 1;
+            while (end < list.size()
+                    && list.get(end).getFirstRowId() == list.get(end - 1).getEndRowId()
+                    && total + list.get(end).getCount() <= COMPACTED_SEGMENT_SIZE) {
+                total += list.get(end).getCount();
+                end++;
+            }
+            if (end - start >= 2) {
+                return new int[]{start, end};
+            }
+        }
+        return null;
+    }
+
+    // --- Lecture ---
+
+    /**
+     * Positions dont l'horodatage est dans [fromTime, toTime], par identifiant croissant
+     */
+    public HistoryCursor query(final long fromTime, final long toTime) {
+        return new ChainedCursor(snapshot(), fromTime, toTime, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Lignes d'identifiant dans [fromRowId, toRowId)
+     */
+    public HistoryCursor scanRows(final long fromRowId, final long toRowId) {
+        return new ChainedCursor(snapshot(), Long.MIN_VALUE, Long.MAX_VALUE, fromRowId, toRowId);
+    }
+
+    /**
+     * S'abonner aux ajouts ; retourne le nombre de lignes existantes au moment de l'abonnement
+     * (les lignes suivantes seront toutes notifiées)
+     */
+    public synchronized long addAppendListener(@NonNull final AppendListener listener) {
+        appendListeners.add(listener);
+        return nextRowId;
+    }
+
+    public void removeAppendListener(@NonNull final AppendListener listener) {
+        appendListeners.remove(listener);
+    }
+
+    public synchronized long getRowCount() {
+        return nextRowId;
+    }
+
+    /**
+     * Instantané cohérent des blocs et segments, par identifiant de ligne croissant
+     */
+    private synchronized List<HistoryChunk> snapshot() {
+        final var chunks = new ArrayList<HistoryChunk>(segments.size() + sealing.size() + 1);
+        chunks.addAll(segments);
+        for (HistoryBlock block : sealing) {
+            chunks.add(new FrozenChunk(block, block.getCount()));
+        }
+        chunks.sort((a, b) -> Long.compare(a.getFirstRowId(), b.getFirstRowId()));
+        chunks.add(new FrozenChunk(active, active.getCount()));
+        return chunks;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            flush();
+        }
+        ioExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                Log.w(TAG, "Scellement non terminé à la fermeture, les journaux seront rejoués");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private File segmentFile(final long firstRowId) {
+        return new File(directory, String.format(Locale.ROOT, "%s%019d%s", SEGMENT_PREFIX, firstRowId, SEGMENT_SUFFIX));
+    }
+
+    private File journalFile(final long firstRowId) {
+        return new File(directory, String.format(Locale.ROOT, "%s%019d%s", JOURNAL_PREFIX, firstRowId, JOURNAL_SUFFIX));
+    }
+
+    private static void deleteQuietly(final File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Suppression impossible: " + file);
+        }
+    }
+
+    /**
+     * Bloc vu avec un nombre de lignes figé au moment de l'instantané
+     */
+    private static final class FrozenChunk implements HistoryChunk {
+        private final HistoryBlock block;
+        private final int count;
+
+        FrozenChunk(final HistoryBlock block, final int count) {
+            this.block = block;
+            this.count = count;
+        }
+
+        @Override
+        public long getFirstRowId() {
+            return block.getFirstRowId();
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public long getMinTime() {
+            return block.getMinTime();
+        }
+
+        @Override
+        public long getMaxTime() {
+            return block.getMaxTime();
+        }
+
+        @Override
+        public HistoryCursor cursor(final int limit) {
+            return block.cursor(Math.min(limit, count));
+        }
+    }
+
+    /**
+     * Parcours enchaîné de plusieurs blocs avec filtre temporel et plage de lignes ;
+     * les blocs hors plage sont sautés sans être décodés
+     */
+    private static final class ChainedCursor implements HistoryCursor {
+        private final List<HistoryChunk> chunks;
+        private final long fromTime;
+        private final long toTime;
+        private final long fromRowId;
+        private final long toRowId;
+        private int chunkIndex = -1;
+        private HistoryCursor current;
+
+        ChainedCursor(final List<HistoryChunk> chunks, final long fromTime, final long toTime,
+                      final long fromRowId, final long toRowId) {
+            this.chunks = chunks;
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            this.fromRowId = fromRowId;
+            this.toRowId = toRowId;
+        }
+
+        @Override
+        public boolean next() {
+            while (true) {
+                if (current == null && !advanceChunk()) {
+                    return false;
+                }
+                while (current.next()) {
+                    final var rowId = current.getRowId();
+                    if (rowId >= toRowId) {
+                        current = null;
+                        chunkIndex = chunks.size();
+                        return false;
+                    }
+                    final var time = current.getTime();
+                    if (rowId >= fromRowId && time >= fromTime && time <= toTime) {
+                        return true;
+                    }
+                }
+                current = null;
+            }
+        }
+
+        private boolean advanceChunk() {
+            while (++chunkIndex < chunks.size()) {
+                final var chunk = chunks.get(chunkIndex);
+                if (chunk.getCount() == 0
+                        || chunk.getEndRowId() <= fromRowId
+                        || chunk.getFirstRowId() >= toRowId
+                        || chunk.getMaxTime() < fromTime
+                        || chunk.getMinTime() > toTime) {
+                    continue;
+                }
+                current = chunk.cursor(chunk.getCount());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long getRowId() {
+            return current.getRowId();
+        }
+
+        @Override
+        public long getTime() {
+            return current.getTime();
+        }
+
+        @Override
+        public double getLatitude() {
+            return current.getLatitude();
+        }
+
+        @Override
+        public double getLongitude() {
+            return current.getLongitude();
+        }
+
+        @Override
+        public double getAltitude() {
+            return current.getAltitude();
+        }
+
+        @Override
+        public float getAccuracy() {
+            return current.getAccuracy();
+        }
+
+        @Override
+        public float getSpeed() {
+            return current.getSpeed();
+        }
+
+        @Override
+        public float getBearing() {
+            return current.getBearing();
+        }
+
+        @Override
+        public void close() {
+            current = null;
+            chunkIndex = chunks.size();
+        }
+    }
+}
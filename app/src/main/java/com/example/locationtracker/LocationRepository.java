@@ -1,36 +1,23 @@
 package com.example.locationtracker;
 
-import android.app.KeyguardManager;
-import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.pm.PackageManager;
-import android.location.Geocoder;
 import android.location.Location;
-import android.location.LocationManager;
-import android.net.ConnectivityManager;
-import android.net.NetworkCapabilities;
-import android.os.BatteryManager;
 import android.os.Build;
-import android.os.PowerManager;
 import android.util.Log;
-import android.Manifest;
-
-import androidx.core.content.ContextCompat;
 
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.functions.FirebaseFunctions;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -39,56 +26,214 @@ import lombok.RequiredArgsConstructor;
 public class LocationRepository {
 
     private static final String FUNCTION_NAME = "onCallCreateOne";
+    private static final String BATCH_FUNCTION_NAME = "onCallCreateMany";
     private static final String COLLECTION_NAME = "locations";
+    private static final String VISIT_COLLECTION_NAME = "visits";
+    private static final String ADDRESS_COLLECTION_NAME = "addresses";
+    private static final String SESSION_COLLECTION_NAME = "sessions";
+    @NonNull
+    private final FixIdentity fixIdentity;
+    // Préparation des payloads, hors du thread principal (pool géré par le service)
+    @NonNull
+    private final EnrichmentExecutor executor;
+    private final long payloadDeadline;
+    // Temps CPU de préparation et appels réseau imputés à la session en cours
     @NonNull
-    private final Context context;
+    private final SessionAccounting accounting;
+    // Étapes file d'attente, préparation, connexion et appel de chaque lot tracé
     @NonNull
-    private final Geocoder geocoder;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final FixTrace fixTrace;
+    // État de l'appareil relu seulement quand un broadcast l'a signalé modifié
+    @NonNull
+    private final DeviceStatusMonitor deviceStatus;
+    private final DeviceStatusCodec.Encoder statusEncoder = new DeviceStatusCodec.Encoder();
 
     public Task<String> createOne(@NonNull final Location location) {
+        return createMany(List.of(location));
+    }
+
+    /**
+     * Envoyer un lot de positions en un seul appel de Cloud Function ; les événements
+     * de visite du lot ({@link VisitEvents}) partent chacun dans leur collection.
+     * La tâche n'aboutit que si tous les appels ont réussi.
+     */
+    public Task<String> createMany(@NonNull final List<Location> locations) {
+        if (locations.isEmpty()) {
+            return Tasks.forResult("");
+        }
+
+        final var fixes = new ArrayList<Location>(locations.size());
+        final var calls = new ArrayList<Task<String>>();
+        for (Location location : locations) {
+            if (VisitEvents.isVisit(location)) {
+                calls.add(createVisit(VisitEvents.getVisit(location), VisitEvents.isEnded(location)));
+            } else {
+                fixes.add(location);
+            }
+        }
+        if (calls.isEmpty()) {
+            final var cookie = FixTrace.getCookie(locations);
+            return whenSignedIn(cookie, () -> prepareAndCallFunction(locations, cookie));
+        }
+        if (!fixes.isEmpty()) {
+            final var cookie = FixTrace.getCookie(fixes);
+            calls.add(whenSignedIn(cookie, () -> prepareAndCallFunction(fixes, cookie)));
+        }
+        return Tasks.whenAll(calls).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            return "";
+        });
+    }
+
+    /**
+     * Envoyer le résumé d'une visite (début ou fin) dans sa propre collection
+     */
+    public Task<String> createVisit(@NonNull final StayPointDetector.Visit visit, final boolean ended) {
+        final var document = new HashMap<String, Object>();
+        document.put("lat", visit.getLatitude());
+        document.put("lng", visit.getLongitude());
+        document.put("radius", visit.getRadiusMeters());
+        document.put("startTime", visit.getStartTime());
+        document.put("endTime", ended ? visit.getEndTime() : null);
+        document.put("dwell", visit.getDwellMillis());
+        document.put("fixCount", visit.getFixCount());
+        document.put("user", Build.MANUFACTURER + "-" + Build.DEVICE);
+        document.put("date", System.currentTimeMillis());
+        final var payload = new HashMap<String, Object>();
+        payload.put("collection", VISIT_COLLECTION_NAME);
+        payload.put("document", document);
+
+        return whenSignedIn(() -> callFunction(FUNCTION_NAME, payload));
+    }
+
+    /**
+     * Envoyer le bilan d'une session de suivi (temps GPS, positions, CPU, réveils radio)
+     */
+    public Task<String> createSessionSummary(@NonNull final SessionAccounting.Snapshot snapshot) {
+        final var document = new HashMap<>(snapshot.toMap());
+        document.put("user", Build.MANUFACTURER + "-" + Build.DEVICE);
+        document.put("date", System.currentTimeMillis());
+        final var payload = new HashMap<String, Object>();
+        payload.put("collection", SESSION_COLLECTION_NAME);
+        payload.put("document", document);
 
+        return whenSignedIn(() -> callFunction(FUNCTION_NAME, payload));
+    }
+
+    /**
+     * Envoyer des adresses calculées après coup, rattachées aux positions par leur identifiant
+     */
+    public Task<String> createAddressPatches(@NonNull final Map<String, String> addressesByFixId) {
+        if (addressesByFixId.isEmpty()) {
+            return Tasks.forResult("");
+        }
+        final var documents = new ArrayList<Map<String, Object>>(addressesByFixId.size());
+        final var now = System.currentTimeMillis();
+        for (Map.Entry<String, String> entry : addressesByFixId.entrySet()) {
+            final var document = new HashMap<String, Object>();
+            document.put("fixId", entry.getKey());
+            document.put("address", entry.getValue());
+            document.put("date", now);
+            documents.add(document);
+        }
+        final var payload = new HashMap<String, Object>();
+        payload.put("collection", ADDRESS_COLLECTION_NAME);
+        payload.put("documents", documents);
+
+        return whenSignedIn(() -> callFunction(BATCH_FUNCTION_NAME, payload));
+    }
+
+    /**
+     * Exécuter l'appel, après connexion anonyme si nécessaire
+     */
+    private Task<String> whenSignedIn(@NonNull final Supplier<Task<String>> call) {
+        return whenSignedIn(0, call);
+    }
+
+    private Task<String> whenSignedIn(final int cookie, @NonNull final Supplier<Task<String>> call) {
         final var auth = FirebaseAuth.getInstance();
 
         if (auth.getCurrentUser() == null) {
+            final var span = fixTrace.start(FixTrace.Stage.AUTH, cookie);
             return auth.signInAnonymously()
                     .continueWithTask(task -> {
+                        span.end();
                         if (!task.isSuccessful()) {
                             throw task.getException();
                         }
-                        return prepareAndCallFunction(location);
+                        return call.get();
                     });
         }
 
-        return prepareAndCallFunction(location);
+        return call.get();
+    }
+
+    /**
+     * Le prochain lot envoie l'état complet de l'appareil (reconnexion)
+     */
+    public void resyncDeviceStatus() {
+        statusEncoder.resync();
     }
 
-    private Task<String> prepareAndCallFunction(@NonNull final Location location) {
+    private Task<String> prepareAndCallFunction(@NonNull final List<Location> locations, final int cookie) {
         final var tcs = new TaskCompletionSource<Map<String, Object>>();
+        // Premier état du lot : base des lots suivants une fois l'envoi confirmé
+        final var statusHead = new AtomicReference<Map<String, Object>>();
+        final var queued = fixTrace.start(FixTrace.Stage.QUEUE, cookie);
 
-        executor.execute(() -> {
-            try {
-                final var payload = mapLocationToData(location);
-                tcs.setResult(payload);
-            } catch (Exception e) {
-                tcs.setException(e);
-            }
-        });
+        try {
+            executor.execute(() -> {
+                queued.end();
+                final var span = fixTrace.start(FixTrace.Stage.PAYLOAD, cookie);
+                final var cpuStart = SessionAccounting.threadCpuNanos();
+                try {
+                    final var statuses = statusEncoder.encodeBatch(deviceStatus.getSnapshot(), locations.size());
+                    statusHead.set(statuses.get(0));
+                    final var payload = locations.size() == 1
+                            ? mapLocationToData(locations.get(0), statuses.get(0))
+                            : mapLocationsToData(locations, statuses);
+                    tcs.trySetResult(payload);
+                } catch (Exception e) {
+                    tcs.trySetException(e);
+                } finally {
+                    accounting.addPipelineCpu(cpuStart);
+                    span.end();
+                }
+            }, payloadDeadline, () -> {
+                queued.cancel();
+                tcs.trySetException(new TimeoutException("Préparation du lot abandonnée"));
+            });
+        } catch (RejectedExecutionException e) {
+            queued.cancel();
+            tcs.trySetException(e);
+        }
 
         return tcs.getTask()
                 .continueWithTask(task -> {
                     if (!task.isSuccessful()) {
                         throw task.getException();
                     }
-                    return callFunction(task.getResult());
-                });
+                    final var functionName = locations.size() == 1 ? FUNCTION_NAME : BATCH_FUNCTION_NAME;
+                    return callFunction(functionName, task.getResult(), cookie);
+                })
+                .addOnSuccessListener(result -> statusEncoder.confirm(statusHead.get()));
+    }
+
+    private Task<String> callFunction(@NonNull final String functionName, @NonNull final Map<String, Object> data) {
+        return callFunction(functionName, data, 0);
     }
 
-    private Task<String> callFunction(@NonNull final Map<String, Object> data) {
+    private Task<String> callFunction(@NonNull final String functionName, @NonNull final Map<String, Object> data,
+                                      final int cookie) {
+        accounting.onNetworkCall();
+        final var span = fixTrace.start(FixTrace.Stage.CALLABLE, cookie);
         return FirebaseFunctions.getInstance()
-                .getHttpsCallable(FUNCTION_NAME)
+                .getHttpsCallable(functionName)
                 .call(data)
                 .continueWith(task -> {
+                    span.end();
                     if (!task.isSuccessful()) {
                         Log.e("FUNCTION", "Erreur Cloud Function", task.getException());
                         throw task.getException();
@@ -100,119 +245,40 @@ public class LocationRepository {
                 });
     }
 
-    private String getCompleteAddressString(@NonNull final Location location) {
-        if (!Geocoder.isPresent()) return "";
-        try {
-            // NOTE: This blocks, so it MUST be called on a background thread.
-            final var addresses = this.geocoder.getFromLocation(
-                    location.getLatitude(),
-                    location.getLongitude(),
-                    1
-            );
-            return Optional.ofNullable(addresses)
-                    .filter(list -> !list.isEmpty())
-                    .map(list -> list.get(0))
-                    .map(address ->
-                            IntStream.rangeClosed(0, address.getMaxAddressLineIndex())
-                                    .mapToObj(address::getAddressLine)
-                                    .collect(Collectors.joining(", "))
-                    )
-                    .orElse("");
-        } catch (IOException e) {
-            Log.w("LocationTrackerRepository", "Geocoding failed: " + e.getMessage());
-            return "";
-        }
+    private Map<String, Object> mapLocationToData(@NonNull final Location location,
+                                                  @NonNull final Map<String, Object> status) {
+        return PayloadBuilder.single(COLLECTION_NAME, mapLocationToDocument(location, status));
     }
 
-    private Map<String, Object> mapLocationToData(@NonNull final Location location) {
-        final var document = new HashMap<String, Object>();
-        document.put("lat", location.getLatitude());
-        document.put("lng", location.getLongitude());
-        document.put("time", location.getTime());
-        document.put("provider", location.getProvider());
-        document.put("accuracy", location.getAccuracy());
-        document.put("speed", location.hasSpeed() ? location.getSpeed() : null);
-        document.put("altitude", location.hasAltitude() ? location.getAltitude() : null);
-        document.put("bearing", location.hasBearing() ? location.getBearing() : null);
-        document.put("user", Build.MANUFACTURER + "-" + Build.DEVICE);
-        document.put("address", getCompleteAddressString(location));
-        document.put("date", System.currentTimeMillis());
-        document.put("deviceStatus", getDeviceStatus(this.context));
-        final var payload = new HashMap<String, Object>();
-        payload.put("collection", COLLECTION_NAME);
-        payload.put("document", document);
-        return payload;
-    }
-
-    private Map<String, Object> getDeviceStatus(final Context context) {
-
-        // --- Screen ---
-        final var pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-        final var screenOn = pm.isInteractive();
-        final var powerSave = pm.isPowerSaveMode();
-
-        // --- Lock ---
-        final var km = (KeyguardManager) context.getSystemService(Context.KEYGUARD_SERVICE);
-        final var locked = km.isKeyguardLocked();
-
-        // --- Battery ---
-        final var filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-        final var battery = context.registerReceiver(null, filter);
-
-        final var level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-        final var scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
-        final var percent = (int) ((level / (float) scale) * 100);
-
-        final var status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
-        final var charging = status == BatteryManager.BATTERY_STATUS_CHARGING ||
-                        status == BatteryManager.BATTERY_STATUS_FULL;
-
-        // --- Network ---
-        final var cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        final var caps = cm.getNetworkCapabilities(cm.getActiveNetwork());
-        final var hasInternet = caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
-
-        String networkType = "NONE";
-        if (caps != null) {
-            if (caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
-                networkType = "WIFI";
-            } else if (caps.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
-                networkType = "MOBILE";
-            }
+    /**
+     * Un seul payload pour tout le lot ; l'état de l'appareil est lu une fois, en différence
+     * avec le dernier état confirmé dans le premier document (voir {@link DeviceStatusCodec})
+     * et en différence vide dans les suivants. Les états du lot sont encodés d'un bloc :
+     * avec plusieurs workers de préparation, deux lots n'entrelacent pas leurs numéros.
+     */
+    private Map<String, Object> mapLocationsToData(@NonNull final List<Location> locations,
+                                                   @NonNull final List<Map<String, Object>> statuses) {
+        final var documents = new ArrayList<Map<String, Object>>(locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            documents.add(mapLocationToDocument(locations.get(i), statuses.get(i)));
         }
+        return PayloadBuilder.batch(COLLECTION_NAME, documents);
+    }
 
-        // --- GPS ---
-        final var lm = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
-        final var gpsEnabled = lm.isProviderEnabled(LocationManager.GPS_PROVIDER);
-
-        // --- Permissions ---
-        final var fineGranted =
-                ContextCompat.checkSelfPermission(
-                        context, Manifest.permission.ACCESS_FINE_LOCATION)
-                        == PackageManager.PERMISSION_GRANTED;
-
-        final var backgroundGranted =
-                Build.VERSION.SDK_INT < Build.VERSION_CODES.Q ||
-                        ContextCompat.checkSelfPermission(
-                                context, Manifest.permission.ACCESS_BACKGROUND_LOCATION)
-                                == PackageManager.PERMISSION_GRANTED;
-
-        final var document = new HashMap<String, Object>();
-        document.put("manufacturer", Build.MANUFACTURER);
-        document.put("model", Build.MODEL);
-        document.put("androidVersion", Build.VERSION.RELEASE);
-        document.put("screenOn", screenOn);
-        document.put("deviceLocked", locked);
-        document.put("batteryPercent", percent);
-        document.put("charging", charging);
-        document.put("powerSaveMode", powerSave);
-        document.put("hasInternet", hasInternet);
-        document.put("networkType", networkType);
-        document.put("gpsEnabled", gpsEnabled);
-        document.put("fineLocationGranted", fineGranted);
-        document.put("backgroundLocationGranted", backgroundGranted);
-        document.put("timestamp", System.currentTimeMillis());
-
-        return document;
+    private Map<String, Object> mapLocationToDocument(@NonNull final Location location,
+                                                      @NonNull final Map<String, Object> deviceStatus) {
+        return PayloadBuilder.locationDocument(
+                fixIdentity.getFixId(location),
+                location.getLatitude(),
+                location.getLongitude(),
+                location.getTime(),
+                location.getProvider(),
+                location.getAccuracy(),
+                location.hasSpeed() ? location.getSpeed() : null,
+                location.hasAltitude() ? location.getAltitude() : null,
+                location.hasBearing() ? location.getBearing() : null,
+                Build.MANUFACTURER + "-" + Build.DEVICE,
+                System.currentTimeMillis(),
+                deviceStatus);
     }
-}
\ No newline at end of file
+}
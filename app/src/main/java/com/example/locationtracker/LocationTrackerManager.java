@@ -5,6 +5,7 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
@@ -12,16 +13,39 @@ import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
 import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 
 /**
  * Gestionnaire de localisation responsable des interactions avec l'API GPS
+ *
+ * <p>Le cycle de vie est un automate ({@link State}) dont chaque transition est atomique :
+ * démarrer, arrêter ou reconfigurer peut être demandé depuis n'importe quel thread,
+ * une seule demande l'emporte. Un arrêt demandé pendant un démarrage ou une
+ * reconfiguration est terminé par celle-ci. Le pipeline (filtres, listener)
+ * reste sur le looper principal ; les lectures extérieures passent par des
+ * champs volatils.</p>
  */
 public class LocationTrackerManager {
 
     private static final String TAG = "LocationTrackerManager";
+    // Attente maximale d'une reconfiguration à l'arrêt par un démarrage
+    private static final long START_WAIT_MILLIS = 1_000;
+
+    public enum State {
+        IDLE,
+        STARTING,
+        ACTIVE,
+        RECONFIGURING,
+        STOPPING
+    }
 
     @NonNull
     @Getter
@@ -31,23 +55,43 @@ public class LocationTrackerManager {
     @Getter
     private final FusedLocationProviderClient fusedLocationClient;
 
+    // Remplacée par une reconfiguration
     @NonNull
     @Getter
-    private final LocationApplication.LocationConfig config;
+    private volatile LocationApplication.LocationConfig config;
+
+    // Temps GPS demandé, positions livrées/retenues et CPU du pipeline de la session
+    @NonNull
+    private final SessionAccounting accounting;
+
+    // Étapes de filtrage et de traitement synchrone de chaque lot
+    @NonNull
+    private final FixTrace fixTrace;
+
+    // Sauts physiquement impossibles malgré une bonne précision annoncée ;
+    // remplacé à chaque reconfiguration, lu une fois par lot
+    private volatile PlausibilityFilter plausibilityFilter;
+    // Rejets des filtres remplacés
+    private volatile long plausibilityRejectedBefore;
 
-    private LocationCallback locationCallback;
+    private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+    // Signalé à chaque retour à l'arrêt après une reconfiguration
+    private final Object idleMonitor = new Object();
+
+    // Callback enregistré : les livraisons d'un callback retiré sont ignorées
+    private volatile LocationCallback locationCallback;
 
     @Setter
-    private LocationListener listener;
+    private volatile LocationListener listener;
 
     // 🆕 Dernière position connue en cache
     @Getter
     @Nullable
-    private Location lastLocation;
+    private volatile Location lastLocation;
 
-    // 🆕 Flag pour savoir si les updates sont actifs
+    // Publié par le thread du pipeline à chaque lot, lu sans verrou
     @Getter
-    private boolean updatesActive = false;
+    private volatile TrackingStatsSnapshot statsSnapshot = TrackingStatsSnapshot.EMPTY;
 
     /**
      * Constructeur
@@ -55,10 +99,35 @@ public class LocationTrackerManager {
     public LocationTrackerManager(
             @NonNull Context context,
             @NonNull FusedLocationProviderClient fusedLocationClient,
-            @NonNull LocationApplication.LocationConfig config) {
+            @NonNull LocationApplication.LocationConfig config,
+            @NonNull SessionAccounting accounting,
+            @NonNull FixTrace fixTrace) {
         this.context = context.getApplicationContext();
         this.fusedLocationClient = fusedLocationClient;
         this.config = config;
+        this.accounting = accounting;
+        this.fixTrace = fixTrace;
+        this.plausibilityFilter = createPlausibilityFilter(config);
+    }
+
+    private static PlausibilityFilter createPlausibilityFilter(@NonNull LocationApplication.LocationConfig config) {
+        return new PlausibilityFilter(
+                config.getPlausibilityMaxSpeed(),
+                config.getPlausibilityMaxAcceleration(),
+                config.getPlausibilityReanchorGap(),
+                config.getPlausibilityReanchorCount());
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * 🆕 Vrai si les updates sont enregistrés (actifs ou en reconfiguration)
+     */
+    public boolean isUpdatesActive() {
+        final var current = state.get();
+        return current == State.ACTIVE || (current == State.RECONFIGURING && locationCallback != null);
     }
 
     /**
@@ -68,68 +137,190 @@ public class LocationTrackerManager {
     public void startLocationUpdates() {
         Log.d(TAG, "Démarrage des mises à jour de localisation");
 
-        // 🆕 Vérifier si déjà actif
-        if (updatesActive) {
-            Log.w(TAG, "Les mises à jour sont déjà actives");
+        // 🆕 Une seule demande de démarrage l'emporte
+        if (!state.compareAndSet(State.IDLE, State.STARTING) && !awaitStartAfterReconfiguration()) {
+            Log.w(TAG, "Démarrage ignoré, état: " + state.get());
             return;
         }
 
         if (!hasLocationPermission()) {
             Log.e(TAG, "Permission de localisation manquante");
-            if (listener != null) {
-                listener.onPermissionDenied();
-            }
+            state.set(State.IDLE);
+            notifyPermissionDenied();
             return;
         }
 
-        createLocationCallback();
-        LocationRequest locationRequest = createLocationRequest();
+        // Nouvelle session : la référence de la précédente n'a plus de sens
+        plausibilityFilter.reset();
+
+        final var callback = createLocationCallback();
+        final var requestConfig = config;
+        locationCallback = callback;
 
         try {
             fusedLocationClient.requestLocationUpdates(
-                    locationRequest,
-                    locationCallback,
+                    createLocationRequest(requestConfig),
+                    callback,
                     Looper.getMainLooper()
             );
-            updatesActive = true;
-            Log.d(TAG, "Mises à jour de localisation démarrées avec succès");
-
-            // 🆕 Obtenir la dernière position connue immédiatement
-            getLastKnownLocation();
-
         } catch (SecurityException e) {
             Log.e(TAG, "SecurityException lors du démarrage des updates", e);
-            if (listener != null) {
-                listener.onPermissionDenied();
-            }
+            abortStart();
+            notifyPermissionDenied();
+            return;
         } catch (Exception e) {
             Log.e(TAG, "Erreur lors du démarrage des updates", e);
+            abortStart();
+            return;
+        }
+        accounting.onUpdatesStarted(requestConfig.getPriority());
+
+        if (!state.compareAndSet(State.STARTING, State.ACTIVE)) {
+            // Arrêt demandé pendant le démarrage : c'est à nous de le terminer
+            Log.d(TAG, "Arrêt demandé pendant le démarrage");
+            finishStop(callback);
+            return;
+        }
+        publishStats();
+        Log.d(TAG, "Mises à jour de localisation démarrées avec succès");
+
+        // 🆕 Obtenir la dernière position connue immédiatement
+        getLastKnownLocation();
+    }
+
+    /**
+     * Reconfiguration à l'arrêt (quelques affectations) : le démarrage l'attend,
+     * au plus {@link #START_WAIT_MILLIS}
+     *
+     * @return vrai si l'état STARTING a été obtenu
+     */
+    private boolean awaitStartAfterReconfiguration() {
+        final var deadline = SystemClock.elapsedRealtime() + START_WAIT_MILLIS;
+        synchronized (idleMonitor) {
+            while (!state.compareAndSet(State.IDLE, State.STARTING)) {
+                final var remaining = deadline - SystemClock.elapsedRealtime();
+                if (state.get() != State.RECONFIGURING || locationCallback != null || remaining <= 0) {
+                    return false;
+                }
+                try {
+                    idleMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Échec d'enregistrement : retour à l'arrêt (ou fin d'un arrêt demandé entre-temps)
+     */
+    private void abortStart() {
+        locationCallback = null;
+        state.set(State.IDLE);
+    }
+
+    private void notifyPermissionDenied() {
+        final var current = listener;
+        if (current != null) {
+            current.onPermissionDenied();
         }
     }
 
     /**
      * 🆕 Créer le callback pour recevoir les positions
      */
-    private void createLocationCallback() {
-        locationCallback = new LocationCallback() {
+    private LocationCallback createLocationCallback() {
+        return new LocationCallback() {
             @Override
             public void onLocationResult(@NonNull LocationResult locationResult) {
                 if (locationResult == null) {
                     Log.w(TAG, "LocationResult est null");
                     return;
                 }
-
-                for (Location location : locationResult.getLocations()) {
-                    processLocation(location);
+                // Livraison déjà en file quand le callback a été retiré
+                if (locationCallback != this) {
+                    Log.d(TAG, "Lot d'un callback retiré ignoré");
+                    return;
                 }
+
+                processLocations(locationResult.getLocations());
             }
         };
     }
 
     /**
-     * 🆕 Traiter une nouvelle position
+     * Traiter un lot de positions livré par un même LocationResult.
+     * Les filtres s'appliquent à tout le lot, puis le listener reçoit
+     * un seul callback avec les positions retenues (un upload, une MAJ UI).
+     * Le temps CPU du thread couvre les filtres et le traitement synchrone du listener.
+     */
+    private void processLocations(@NonNull List<Location> locations) {
+        if (locations.isEmpty()) {
+            return;
+        }
+
+        final var cpuStart = SessionAccounting.threadCpuNanos();
+        try {
+            filterAndNotify(locations);
+        } finally {
+            accounting.addPipelineCpu(cpuStart);
+        }
+    }
+
+    private void filterAndNotify(@NonNull List<Location> locations) {
+        final var config = this.config;
+        final var plausibility = plausibilityFilter;
+        final var cookie = fixTrace.newCookie();
+        final var filter = fixTrace.start(FixTrace.Stage.FILTER, cookie);
+        final var accepted = new ArrayList<Location>(locations.size());
+        var reference = lastLocation;
+
+        for (Location location : locations) {
+            if (isAcceptable(config, plausibility, location, reference)) {
+                accepted.add(location);
+                reference = location;
+            }
+        }
+        filter.end();
+
+        Log.d(TAG, String.format("Lot reçu: %d position(s), %d retenue(s)",
+                locations.size(), accepted.size()));
+        accounting.onFixes(locations.size(), accepted.size());
+
+        // Positions valides : conserver la plus récente (inchangée si aucune)
+        lastLocation = reference;
+        publishStats();
+
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // Notifier
+        fixTrace.attach(accepted, cookie, filter.getStartNanos());
+
+        final var current = listener;
+        if (current != null) {
+            final var pipeline = fixTrace.start(FixTrace.Stage.PIPELINE, cookie);
+            try {
+                current.onLocationsChanged(Collections.unmodifiableList(accepted));
+            } finally {
+                pipeline.end();
+            }
+        } else {
+            fixTrace.abandon(accepted);
+            Log.w(TAG, "Listener est null, impossible de notifier");
+        }
+    }
+
+    /**
+     * Appliquer les filtres à une position par rapport à la dernière retenue ;
+     * la vraisemblance passe en dernier : seule une position retenue en devient la référence
      */
-    private void processLocation(@NonNull Location location) {
+    private boolean isAcceptable(@NonNull LocationApplication.LocationConfig config,
+                                 @NonNull PlausibilityFilter plausibility,
+                                 @NonNull Location location, @Nullable Location reference) {
         // Log détaillé de la position
         Log.d(TAG, String.format("Position reçue: %.6f, %.6f (±%.0fm) via %s",
                 location.getLatitude(),
@@ -138,52 +329,70 @@ public class LocationTrackerManager {
                 location.getProvider()));
 
         // Filtre de précision
-        if (!isLocationAccurate(location)) {
+        if (!isLocationAccurate(config, location)) {
             Log.w(TAG, String.format("Position rejetée: précision %.0fm > max %.0fm",
                     location.getAccuracy(),
                     config.getMaxAccuracy()));
-            return;
+            return false;
         }
 
         // 🆕 Filtre de distance minimale (éviter les updates inutiles)
-        if (lastLocation != null && !hasMovedEnough(location)) {
+        if (reference != null && !hasMovedEnough(config, reference, location)) {
             Log.d(TAG, "Position ignorée: mouvement insuffisant");
-            return;
+            return false;
         }
 
         // 🆕 Filtre de temps (éviter les positions trop anciennes)
-        if (!isLocationRecent(location)) {
+        if (!isLocationRecent(config, location)) {
             Log.w(TAG, "Position ignorée: trop ancienne");
-            return;
+            return false;
         }
 
-        // Position valide, la sauvegarder et notifier
-        lastLocation = location;
-
-        if (listener != null) {
-            listener.onLocationChanged(location);
-        } else {
-            Log.w(TAG, "Listener est null, impossible de notifier");
-        }
+        // Filtre de vraisemblance (vitesse, accélération depuis la dernière position crédible)
+        return isLocationPlausible(plausibility, location);
     }
 
     /**
      * 🆕 Vérifier si la position est assez précise
      */
-    private boolean isLocationAccurate(@NonNull Location location) {
+    private static boolean isLocationAccurate(@NonNull LocationApplication.LocationConfig config,
+                                              @NonNull Location location) {
         return location.hasAccuracy() &&
                 location.getAccuracy() <= config.getMaxAccuracy();
     }
 
     /**
-     * 🆕 Vérifier si l'utilisateur a suffisamment bougé
+     * Vérifier que la position est physiquement atteignable depuis les précédentes ;
+     * sans horloge monotone, l'horloge murale (sujette aux sauts) n'est pas substituée :
+     * la position passe sans contrôle
      */
-    private boolean hasMovedEnough(@NonNull Location newLocation) {
-        if (lastLocation == null) {
-            return true;
+    private static boolean isLocationPlausible(@NonNull PlausibilityFilter plausibility,
+                                               @NonNull Location location) {
+        final var verdict = plausibility.check(location.getLatitude(), location.getLongitude(),
+                location.getAccuracy(), location.getElapsedRealtimeNanos());
+        switch (verdict) {
+            case TOO_FAST:
+            case TOO_ABRUPT:
+            case OUT_OF_ORDER:
+                Log.w(TAG, "Position rejetée: invraisemblable (" + verdict + ")");
+                return false;
+            case REANCHORED:
+                Log.d(TAG, "Nouvelle référence de vraisemblance");
+                return true;
+            case UNTIMED:
+                Log.d(TAG, "Vraisemblance non vérifiée: pas d'horloge monotone");
+                return true;
+            default:
+                return true;
         }
+    }
 
-        float distance = lastLocation.distanceTo(newLocation);
+    /**
+     * 🆕 Vérifier si l'utilisateur a suffisamment bougé
+     */
+    private static boolean hasMovedEnough(@NonNull LocationApplication.LocationConfig config,
+                                          @NonNull Location reference, @NonNull Location newLocation) {
+        float distance = reference.distanceTo(newLocation);
         float minDistance = config.getMinUpdateDistanceMeters();
 
         Log.d(TAG, String.format("Distance parcourue: %.2fm (min: %.2fm)",
@@ -193,11 +402,13 @@ public class LocationTrackerManager {
     }
 
     /**
-     * 🆕 Vérifier si la position est récente (moins de 5 minutes)
+     * 🆕 Vérifier si la position est récente (moins de 5 minutes,
+     * plus le délai de batching autorisé côté provider)
      */
-    private boolean isLocationRecent(@NonNull Location location) {
+    private static boolean isLocationRecent(@NonNull LocationApplication.LocationConfig config,
+                                            @NonNull Location location) {
         long locationAge = System.currentTimeMillis() - location.getTime();
-        long maxAge = 5 * 60 * 1000; // 5 minutes en millisecondes
+        long maxAge = 5 * 60 * 1000 + config.getMaxUpdateDelay(); // 5 minutes + délai de batching
 
         if (locationAge > maxAge) {
             Log.w(TAG, String.format("Position trop ancienne: %d secondes",
@@ -211,11 +422,12 @@ public class LocationTrackerManager {
     /**
      * 🆕 Créer la requête de localisation
      */
-    private LocationRequest createLocationRequest() {
-        Log.d(TAG, String.format("Configuration GPS: interval=%dms, priority=%d, minDistance=%.0fm",
+    private static LocationRequest createLocationRequest(@NonNull LocationApplication.LocationConfig config) {
+        Log.d(TAG, String.format("Configuration GPS: interval=%dms, priority=%d, minDistance=%.0fm, maxDelay=%dms",
                 config.getUpdateInterval(),
                 config.getPriority(),
-                config.getMinUpdateDistanceMeters()));
+                config.getMinUpdateDistanceMeters(),
+                config.getMaxUpdateDelay()));
 
         return new LocationRequest.Builder(
                 config.getPriority(),
@@ -224,7 +436,7 @@ public class LocationTrackerManager {
                 .setMinUpdateIntervalMillis(config.getMinUpdateInterval())
                 .setMinUpdateDistanceMeters(config.getMinUpdateDistanceMeters())
                 .setWaitForAccurateLocation(config.isWaitForAccurateLocation())
-                .setMaxUpdateDelayMillis(config.getUpdateInterval() * 2) // 🆕 Max delay
+                .setMaxUpdateDelayMillis(config.getMaxUpdateDelay()) // 🆕 Batching côté provider
                 .build();
     }
 
@@ -240,9 +452,10 @@ public class LocationTrackerManager {
 
         fusedLocationClient.getLastLocation()
                 .addOnSuccessListener(location -> {
-                    if (location != null) {
+                    // Réponse arrivée après un arrêt : ignorée
+                    if (location != null && isUpdatesActive()) {
                         Log.d(TAG, "Dernière position connue récupérée");
-                        processLocation(location);
+                        processLocations(List.of(location));
                     } else {
                         Log.d(TAG, "Aucune dernière position disponible");
                     }
@@ -253,24 +466,51 @@ public class LocationTrackerManager {
     }
 
     /**
-     * Arrêter les mises à jour de localisation
+     * Arrêter les mises à jour de localisation ; pendant un démarrage ou une
+     * reconfiguration, l'arrêt est terminé par celle-ci
      */
     public void stopLocationUpdates() {
         Log.d(TAG, "Arrêt des mises à jour de localisation");
 
-        if (!updatesActive) {
-            Log.w(TAG, "Les mises à jour ne sont pas actives");
-            return;
+        while (true) {
+            final var current = state.get();
+            switch (current) {
+                case ACTIVE:
+                    if (state.compareAndSet(State.ACTIVE, State.STOPPING)) {
+                        finishStop(locationCallback);
+                        return;
+                    }
+                    break;
+                case STARTING:
+                case RECONFIGURING:
+                    if (state.compareAndSet(current, State.STOPPING)) {
+                        Log.d(TAG, "Arrêt différé, état: " + current);
+                        return;
+                    }
+                    break;
+                default:
+                    Log.w(TAG, "Les mises à jour ne sont pas actives, état: " + current);
+                    return;
+            }
         }
+    }
 
-        if (locationCallback != null) {
-            try {
-                fusedLocationClient.removeLocationUpdates(locationCallback);
-                updatesActive = false;
-                Log.d(TAG, "Mises à jour arrêtées avec succès");
-            } catch (Exception e) {
-                Log.e(TAG, "Erreur lors de l'arrêt des updates", e);
+    /**
+     * Retirer le callback et revenir à l'arrêt (par le seul détenteur de l'état STOPPING)
+     */
+    private void finishStop(@Nullable final LocationCallback callback) {
+        try {
+            if (callback != null) {
+                fusedLocationClient.removeLocationUpdates(callback);
             }
+            Log.d(TAG, "Mises à jour arrêtées avec succès");
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de l'arrêt des updates", e);
+        } finally {
+            locationCallback = null;
+            accounting.onUpdatesStopped();
+            state.set(State.IDLE);
+            publishStats();
         }
     }
 
@@ -293,46 +533,99 @@ public class LocationTrackerManager {
     }
 
     /**
-     * 🆕 Obtenir des statistiques de suivi
+     * Figer les statistiques du gestionnaire : appelé par le pipeline à chaque lot,
+     * et au démarrage ou à l'arrêt depuis le thread appelant
      */
-    public String getTrackingStats() {
-        if (lastLocation == null) {
-            return "Aucune position disponible";
+    private synchronized void publishStats() {
+        final var builder = TrackingStatsSnapshot.builder()
+                .publishedAt(System.currentTimeMillis())
+                .updatesActive(isUpdatesActive())
+                .plausibilityRejected(plausibilityRejectedBefore + plausibilityFilter.getRejectedCount());
+        final var last = lastLocation;
+        if (last != null) {
+            builder.hasFix(true)
+                    .lastFixTime(last.getTime())
+                    .lastLatitude(last.getLatitude())
+                    .lastLongitude(last.getLongitude())
+                    .lastAccuracy(last.getAccuracy())
+                    .lastProvider(last.getProvider());
         }
-
-        long age = (System.currentTimeMillis() - lastLocation.getTime()) / 1000;
-
-        return String.format(
-                "Dernière position: %.6f, %.6f\n" +
-                        "Précision: %.0fm\n" +
-                        "Provider: %s\n" +
-                        "Age: %ds\n" +
-                        "Updates actifs: %s",
-                lastLocation.getLatitude(),
-                lastLocation.getLongitude(),
-                lastLocation.getAccuracy(),
-                lastLocation.getProvider(),
-                age,
-                updatesActive ? "Oui" : "Non"
-        );
+        statsSnapshot = builder.build();
     }
 
     /**
-     * 🆕 Changer la configuration en cours d'exécution
+     * 🆕 Changer la configuration en cours d'exécution : à l'arrêt, elle servira
+     * au prochain démarrage ; active, la requête est remplacée sur le même callback.
+     * Le filtre de vraisemblance est reconstruit avec les nouveaux seuils.
+     *
+     * @return faux si un démarrage, un arrêt ou une autre reconfiguration est en cours
      */
-    public void updateConfig(LocationApplication.LocationConfig newConfig) {
+    @SuppressLint("MissingPermission")
+    public boolean updateConfig(@NonNull LocationApplication.LocationConfig newConfig) {
         Log.d(TAG, "Mise à jour de la configuration");
 
-        // Note: Pour vraiment changer la config, il faudrait restart les updates
-        // avec la nouvelle config. Ici on log juste un warning.
-        Log.w(TAG, "Pour appliquer la nouvelle config, redémarrez les updates");
+        if (state.compareAndSet(State.IDLE, State.RECONFIGURING)) {
+            // Un démarrage concurrent attend la fin : il partira avec la nouvelle configuration
+            applyConfig(newConfig);
+            if (!state.compareAndSet(State.RECONFIGURING, State.IDLE)) {
+                // Arrêt demandé entre-temps : rien n'était enregistré
+                state.set(State.IDLE);
+            }
+            synchronized (idleMonitor) {
+                idleMonitor.notifyAll();
+            }
+            return true;
+        }
+        if (!state.compareAndSet(State.ACTIVE, State.RECONFIGURING)) {
+            Log.w(TAG, "Reconfiguration impossible, état: " + state.get());
+            return false;
+        }
+
+        final var callback = locationCallback;
+        applyConfig(newConfig);
+        try {
+            fusedLocationClient.requestLocationUpdates(
+                    createLocationRequest(newConfig),
+                    callback,
+                    Looper.getMainLooper()
+            );
+            accounting.onPriorityChanged(newConfig.getPriority());
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la reconfiguration des updates", e);
+        }
+
+        if (!state.compareAndSet(State.RECONFIGURING, State.ACTIVE)) {
+            Log.d(TAG, "Arrêt demandé pendant la reconfiguration");
+            finishStop(callback);
+        }
+        return true;
+    }
+
+    /**
+     * Remplacer la configuration et le filtre qui en dépend (état RECONFIGURING détenu) ;
+     * le nouveau filtre part de la dernière position retenue, pour que la suivante
+     * soit contrôlée
+     */
+    private void applyConfig(@NonNull LocationApplication.LocationConfig newConfig) {
+        final var filter = createPlausibilityFilter(newConfig);
+        final var last = lastLocation;
+        if (last != null) {
+            filter.seed(last.getLatitude(), last.getLongitude(), last.getAccuracy(),
+                    last.getElapsedRealtimeNanos(), last.hasSpeed() ? last.getSpeed() : 0);
+        }
+        plausibilityRejectedBefore += plausibilityFilter.getRejectedCount();
+        plausibilityFilter = filter;
+        config = newConfig;
     }
 
     /**
      * Interface pour recevoir les callbacks de localisation
      */
     public interface LocationListener {
-        void onLocationChanged(Location location);
+        /**
+         * Positions retenues d'un même lot, dans l'ordre chronologique (jamais vide)
+         */
+        void onLocationsChanged(List<Location> locations);
         void onPermissionDenied();
     }
 }
\ No newline at end of file
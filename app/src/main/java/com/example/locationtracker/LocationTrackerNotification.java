@@ -7,19 +7,38 @@ import android.content.Context;
 import android.content.Intent;
 import android.location.Location;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import androidx.core.app.NotificationCompat;
 
 public class LocationTrackerNotification {
 
     private static final String CHANNEL_ID = "LocationServiceChannel";
     private static final int NOTIFICATION_ID = 1;
+    private static final String TITLE = "Géolocalisation active";
 
     private final Context context;
     private final android.app.NotificationManager systemNotificationManager;
+    private final long minUpdateIntervalMillis;
 
-    public LocationTrackerNotification(Context context) {
+    // Réutilisés pour chaque mise à jour (évite Intent/PendingIntent/Builder par fix)
+    private PendingIntent contentIntent;
+    private NotificationCompat.Builder builder;
+
+    // Dernier contenu affiché et instant du dernier notify (elapsedRealtime)
+    private String lastContent;
+    private long lastNotifyElapsed;
+
+    // Dernière position retenue par la limite de fréquence, affichée en fin d'intervalle
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable trailingUpdate = this::showPendingLocation;
+    private Location pendingLocation;
+
+    public LocationTrackerNotification(Context context, LocationApplication.LocationConfig config) {
         this.context = context;
         this.systemNotificationManager = (android.app.NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        this.minUpdateIntervalMillis = config.getNotificationMinUpdateInterval();
         this.createNotificationChannel();
     }
 
@@ -38,44 +57,101 @@ public class LocationTrackerNotification {
         }
     }
 
-    public Notification createInitialNotification() {
-        return this.buildNotification("Géolocalisation active", "Initialisation du suivi GPS...");
+    public synchronized Notification createInitialNotification() {
+        cancelPendingUpdate();
+        lastContent = null;
+        lastNotifyElapsed = 0;
+        return this.buildNotification(TITLE, "Initialisation du suivi GPS...");
+    }
+
+    /**
+     * Mettre à jour la notification, au plus une fois par intervalle configuré
+     * et seulement si le texte affiché change à la précision montrée. Une position
+     * reçue pendant l'intervalle est affichée à sa fin, faute de position plus récente.
+     */
+    public synchronized void updateNotification(final Location location) {
+        final var now = SystemClock.elapsedRealtime();
+        if (lastContent != null && now - lastNotifyElapsed < minUpdateIntervalMillis) {
+            // Mise en forme différée : seule la dernière position retenue sera affichée
+            if (pendingLocation == null) {
+                handler.postDelayed(trailingUpdate, lastNotifyElapsed + minUpdateIntervalMillis - now);
+            }
+            pendingLocation = location;
+            return;
+        }
+        cancelPendingUpdate();
+        show(location, now);
+    }
+
+    /**
+     * Abandonner la mise à jour différée (arrêt du service)
+     */
+    public synchronized void cancelPendingUpdate() {
+        handler.removeCallbacks(trailingUpdate);
+        pendingLocation = null;
+    }
+
+    private synchronized void showPendingLocation() {
+        final var location = pendingLocation;
+        pendingLocation = null;
+        if (location != null) {
+            show(location, SystemClock.elapsedRealtime());
+        }
     }
 
-    public void updateNotification(final Location location) {
+    private void show(final Location location, final long now) {
         final var content = String.format(
                 "Position: %.6f, %.6f (±%.0fm)",
                 location.getLatitude(),
                 location.getLongitude(),
                 location.getAccuracy()
         );
-        final var notification = this.buildNotification("Géolocalisation active", content);
+        if (content.equals(lastContent)) {
+            return;
+        }
+
+        final var notification = this.buildNotification(TITLE, content);
         if (systemNotificationManager != null) {
             systemNotificationManager.notify(NOTIFICATION_ID, notification);
+            lastContent = content;
+            lastNotifyElapsed = now;
         }
     }
 
     private Notification buildNotification(final String title, final String content) {
-        final var notificationIntent = new Intent(context, MainActivity.class);
-        final var pendingIntent = PendingIntent.getActivity(
-                context,
-                0,
-                notificationIntent,
-                PendingIntent.FLAG_IMMUTABLE
-        );
-
-        return new NotificationCompat.Builder(context, CHANNEL_ID)
+        return getBuilder()
                 .setContentTitle(title)
                 .setContentText(content)
-                .setSmallIcon(android.R.drawable.ic_menu_mylocation)
-                .setContentIntent(pendingIntent)
-                .setOngoing(true)
-                .setPriority(NotificationCompat.PRIORITY_LOW)
-                .setCategory(NotificationCompat.CATEGORY_SERVICE)
                 .build();
     }
 
+    private NotificationCompat.Builder getBuilder() {
+        if (builder == null) {
+            builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                    .setSmallIcon(android.R.drawable.ic_menu_mylocation)
+                    .setContentIntent(getContentIntent())
+                    .setOngoing(true)
+                    .setOnlyAlertOnce(true)
+                    .setPriority(NotificationCompat.PRIORITY_LOW)
+                    .setCategory(NotificationCompat.CATEGORY_SERVICE);
+        }
+        return builder;
+    }
+
+    private PendingIntent getContentIntent() {
+        if (contentIntent == null) {
+            final var notificationIntent = new Intent(context, MainActivity.class);
+            contentIntent = PendingIntent.getActivity(
+                    context,
+                    0,
+                    notificationIntent,
+                    PendingIntent.FLAG_IMMUTABLE
+            );
+        }
+        return contentIntent;
+    }
+
     public int getNotificationId() {
         return NOTIFICATION_ID;
     }
-}
\ No newline at end of file
+}
@@ -2,17 +2,20 @@ package com.example.locationtracker;
 
 import android.Manifest;
 import android.app.AlertDialog;
-import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.location.Location;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.RemoteException;
+import android.system.ErrnoException;
 import android.util.Log;
 import android.widget.Button;
 import android.widget.CheckBox;
@@ -31,6 +34,10 @@ public class MainActivity extends AppCompatActivity {
     private static final int PERMISSION_REQUEST_CODE = 100;
     private static final int BACKGROUND_LOCATION_REQUEST_CODE = 101;
     private static final String TAG = "MainActivity";
+    private static final long EXPORT_PERIOD = 7L * 24 * 60 * 60 * 1000;
+    private static final double EXPORT_TOLERANCE_METERS = 5;
+    // Lecture du canal du service : quelques octets en mémoire partagée, sans appel binder
+    private static final long CHANNEL_POLL_INTERVAL = 1000;
 
     private TextView tvLocation;
     private Button btnStart, btnStop;
@@ -38,17 +45,11 @@ public class MainActivity extends AppCompatActivity {
     private boolean serviceRunning = false;
     private boolean isBound = false;  // 🆕 Track binding state
     private ServicePreferences servicePreferences;
-    private LocationForegroundService locationService;
-
-    private final BroadcastReceiver locationReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            final Location location = LocationTrackerBroadcaster.extractLocationFromIntent(intent);
-            if (location != null) {
-                displayLocation(location);
-            }
-        }
-    };
+    // Canal en mémoire partagée du service (éventuellement dans le processus :tracker)
+    private TrackerChannel channel;
+    private long lastFixSequence;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable pollChannelTask = this::pollChannel;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -78,14 +79,30 @@ public class MainActivity extends AppCompatActivity {
 
         Button btnStats = findViewById(R.id.btnStats);
         btnStats.setOnClickListener(v -> {
-            if (locationService != null) {
-                String stats = locationService.getTrackingStats();
+            final TrackingStatsSnapshot stats = channel != null ? channel.readStats() : null;
+            if (stats != null) {
                 new AlertDialog.Builder(this)
                         .setTitle(R.string.dialog_stats_title)
-                        .setMessage(stats)
+                        .setMessage(formatStats(stats))
                         .show();
             }
         });
+
+        Button btnHistory = findViewById(R.id.btnHistory);
+        btnHistory.setOnClickListener(v -> startActivity(new Intent(this, HistoryActivity.class)));
+
+        Button btnExport = findViewById(R.id.btnExport);
+        btnExport.setOnClickListener(v -> {
+            final HistoryExporter.Format[] formats = HistoryExporter.Format.values();
+            final String[] names = new String[formats.length];
+            for (int i = 0; i < formats.length; i++) {
+                names[i] = formats[i].name();
+            }
+            new AlertDialog.Builder(this)
+                    .setTitle(R.string.dialog_export_title)
+                    .setItems(names, (dialog, which) -> shareHistory(formats[which]))
+                    .show();
+        });
     }
 
     private void setupClickListeners() {
@@ -126,7 +143,7 @@ public class MainActivity extends AppCompatActivity {
         serviceRunning = servicePreferences.wasServiceRunning();
         updateButtonStates();
 
-        registerLocationReceiver();
+        handler.post(pollChannelTask);
     }
 
     @Override
@@ -134,12 +151,7 @@ public class MainActivity extends AppCompatActivity {
         super.onPause();
         Log.d(TAG, "onPause");
 
-        // 🆕 Safe unregister
-        try {
-            unregisterReceiver(locationReceiver);
-        } catch (IllegalArgumentException e) {
-            Log.w(TAG, "Receiver not registered", e);
-        }
+        handler.removeCallbacks(pollChannelTask);
     }
 
     @Override
@@ -163,21 +175,30 @@ public class MainActivity extends AppCompatActivity {
                 Log.w(TAG, "Service not bound", e);
             }
         }
+        closeChannel();
     }
 
     /**
-     * 🆕 Enregistrer le receiver pour les mises à jour de localisation
+     * Afficher la dernière position publiée par le service, si elle a changé
      */
-    private void registerLocationReceiver() {
-        try {
-            final IntentFilter filter = new IntentFilter(LocationTrackerBroadcaster.ACTION_LOCATION_UPDATE);
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                registerReceiver(locationReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-            } else {
-                registerReceiver(locationReceiver, filter);
+    private void pollChannel() {
+        if (channel != null) {
+            final long sequence = channel.getFixSequence();
+            if (sequence != lastFixSequence) {
+                final Location location = channel.readLatestFix();
+                if (location != null) {
+                    displayLocation(location);
+                    lastFixSequence = sequence;
+                }
             }
-        } catch (IllegalArgumentException e) {
-            Log.w(TAG, "Receiver already registered", e);
+        }
+        handler.postDelayed(pollChannelTask, CHANNEL_POLL_INTERVAL);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            channel.close();
+            channel = null;
         }
     }
 
@@ -386,12 +407,25 @@ public class MainActivity extends AppCompatActivity {
         stopService(serviceIntent);
 
         serviceRunning = false;
-        locationService = null;
+        closeChannel();
         updateButtonStates();
         tvLocation.setText(R.string.status_stopped);
         showToast("Service de localisation arrêté");
     }
 
+    /**
+     * Partager l'historique récent : le fichier est produit en flux à la lecture
+     */
+    private void shareHistory(HistoryExporter.Format format) {
+        final long now = System.currentTimeMillis();
+        final Uri uri = HistoryExportProvider.buildUri(this, format, now - EXPORT_PERIOD, now, EXPORT_TOLERANCE_METERS);
+        final Intent share = new Intent(Intent.ACTION_SEND)
+                .setType(format.getMimeType())
+                .putExtra(Intent.EXTRA_STREAM, uri)
+                .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(share, getString(R.string.btn_export)));
+    }
+
     /**
      * Afficher les données de localisation à l'écran
      */
@@ -407,6 +441,65 @@ public class MainActivity extends AppCompatActivity {
         tvLocation.setText(displayText);
     }
 
+    /**
+     * Mettre en forme l'instantané publié par le service
+     */
+    private static String formatStats(TrackingStatsSnapshot stats) {
+        final StringBuilder text = new StringBuilder();
+        if (stats.isHasFix()) {
+            final long age = (System.currentTimeMillis() - stats.getLastFixTime()) / 1000;
+            text.append(String.format(
+                    "Dernière position: %.6f, %.6f\n" +
+                            "Précision: %.0fm\n" +
+                            "Provider: %s\n" +
+                            "Age: %ds\n" +
+                            "Rejets (vraisemblance): %d\n" +
+                            "Updates actifs: %s",
+                    stats.getLastLatitude(),
+                    stats.getLastLongitude(),
+                    stats.getLastAccuracy(),
+                    stats.getLastProvider(),
+                    age,
+                    stats.getPlausibilityRejected(),
+                    stats.isUpdatesActive() ? "Oui" : "Non"));
+        } else {
+            text.append("Aucune position disponible");
+        }
+        text.append(String.format(
+                "\nGéocodage: %d en file, attente moy. %d ms, exéc. moy. %d ms",
+                stats.getGeocodeQueued(),
+                stats.getGeocodeAverageQueueWaitMillis(),
+                stats.getGeocodeAverageRunMillis()));
+        text.append(String.format(
+                "\nSession: GPS %d min, %d/%d position(s) retenues\nCPU: %d ms, réveils radio: %d (%d appels)",
+                stats.getSessionGpsMillis() / 60_000,
+                stats.getSessionFixesAccepted(),
+                stats.getSessionFixesDelivered(),
+                stats.getSessionPipelineCpuMillis(),
+                stats.getSessionRadioWakeups(),
+                stats.getSessionUploadCalls()));
+        text.append(String.format(
+                "\nEnvois direct: %d en file, %d ms moy.\nArriéré: %d en file (+%d sur disque), %d ms moy."
+                        + "\nMémoire d'attente: %d / %d Ko",
+                stats.getLiveQueued(),
+                stats.getLiveAverageLatencyMillis(),
+                stats.getBulkQueued(),
+                stats.getBulkSpilled(),
+                stats.getBulkAverageLatencyMillis(),
+                stats.getMemoryUsed() / 1024,
+                stats.getMemoryLimit() / 1024));
+        if (stats.isHasTrip()) {
+            text.append(String.format(
+                    "\nTrajet: %.1f km, %d min en mouvement\nVitesse moy./max: %.0f / %.0f km/h\nDénivelé +: %.0f m",
+                    stats.getTripDistanceMeters() / 1000,
+                    stats.getTripMovingTimeMillis() / 60_000,
+                    stats.getTripAverageSpeed() * 3.6,
+                    stats.getTripMaxSpeed() * 3.6,
+                    stats.getTripElevationGain()));
+        }
+        return text.toString();
+    }
+
     /**
      * ServiceConnection pour communiquer avec le service
      */
@@ -415,20 +508,28 @@ public class MainActivity extends AppCompatActivity {
         @Override
         public void onServiceConnected(ComponentName name, IBinder binder) {
             Log.d(TAG, "onServiceConnected");
-            final LocationForegroundService.LocalBinder localBinder =
-                    (LocationForegroundService.LocalBinder) binder;
-            locationService = localBinder.getService();
             isBound = true;
+            closeChannel();
+            try {
+                channel = TrackerChannel.fetch(binder);
+            } catch (RemoteException | ErrnoException e) {
+                Log.e(TAG, "Canal du service indisponible", e);
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            lastFixSequence = 0;
 
             // 🆕 Mettre à jour l'UI avec l'état réel du service
-            serviceRunning = locationService.isRunning();
+            serviceRunning = channel.isRunning();
             updateButtonStates();
         }
 
         @Override
         public void onServiceDisconnected(ComponentName name) {
             Log.d(TAG, "onServiceDisconnected");
-            locationService = null;
+            closeChannel();
             isBound = false;
         }
     };
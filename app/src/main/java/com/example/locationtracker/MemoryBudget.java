@@ -0,0 +1,64 @@
+package com.example.locationtracker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+/**
+ * Budget mémoire global du pipeline, tenu par estimation : chaque élément en attente
+ * réserve sa taille estimée et la rend en quittant la mémoire (envoyé, ou mis de côté
+ * sur disque). Aucune mesure du tas, seulement un compteur atomique.
+ */
+public class MemoryBudget {
+
+    /**
+     * Empreinte estimée d'une position en attente : Location, Bundle d'extras
+     * (identité, trace), entrée de file et emplacement dans la deque
+     */
+    public static final long FIX_FOOTPRINT = 768;
+
+    @Getter
+    private final long limit;
+    private final AtomicLong used = new AtomicLong();
+
+    /**
+     * @param limit taille maximale (octets) des éléments en attente
+     */
+    public MemoryBudget(final long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Réserver si le budget le permet
+     */
+    public boolean tryReserve(final long bytes) {
+        while (true) {
+            final var current = used.get();
+            if (current + bytes > limit) {
+                return false;
+            }
+            if (used.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Réserver sans condition (éléments qui ne peuvent pas attendre, la voie directe)
+     */
+    public void reserve(final long bytes) {
+        used.addAndGet(bytes);
+    }
+
+    public void release(final long bytes) {
+        used.addAndGet(-bytes);
+    }
+
+    public long getUsed() {
+        return used.get();
+    }
+
+    public long getAvailable() {
+        return Math.max(0, limit - used.get());
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.locationtracker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Géocodage inverse hors ligne sur un gazetier préconstruit, mappé en mémoire.
+ *
+ * <p>Format (little-endian) : en-tête de 64 octets, index de grille régulière
+ * (tableau de {@code lignes × colonnes + 1} débuts de cellule), lieux triés par cellule
+ * (latitude et longitude en 1e-7 degré, offset du nom, 12 octets), puis les noms
+ * (longueur sur 2 octets + UTF-8).</p>
+ *
+ * <p>La recherche du plus proche voisin parcourt les cellules par anneaux autour
+ * du point et s'arrête dès qu'aucun anneau plus lointain ne peut faire mieux :
+ * quelques dizaines de lieux examinés, aucune allocation hors du résultat.</p>
+ */
+public class OfflineReverseGeocoder implements ReverseGeocoder, Closeable {
+
+    private static final int MAGIC = 0x4C54475A; // "LTGZ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int PLACE_SIZE = 12;
+    private static final double E7 = 1e7;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int placeCount;
+    private final int columns;
+    private final int rows;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double cellSize;
+    private final int placesOffset;
+    private final int namesOffset;
+    private final double maxDistanceMeters;
+
+    /**
+     * Lieu nommé du gazetier (ville, quartier, rue…)
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Place {
+        @NonNull
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+    }
+
+    /**
+     * @param maxDistanceMeters au-delà, le lieu le plus proche n'est pas retenu
+     */
+    public OfflineReverseGeocoder(@NonNull final File gazetteer, final double maxDistanceMeters) throws IOException {
+        this.file = new RandomAccessFile(gazetteer, "r");
+        try {
+            final var channel = file.getChannel();
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Gazetier invalide: " + gazetteer);
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Gazetier de format inconnu: " + gazetteer);
+            }
+            this.placeCount = buffer.getInt(8);
+            this.columns = buffer.getInt(12);
+            this.rows = buffer.getInt(16);
+            this.minLatitude = buffer.getDouble(24);
+            this.minLongitude = buffer.getDouble(32);
+            this.cellSize = buffer.getDouble(40);
+            this.namesOffset = (int) buffer.getLong(48);
+            this.placesOffset = HEADER_SIZE + (rows * columns + 1) * 4;
+            this.maxDistanceMeters = maxDistanceMeters;
+            if (placesOffset + (long) placeCount * PLACE_SIZE > namesOffset || namesOffset > channel.size()) {
+                throw new IOException("Gazetier tronqué: " + gazetteer);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String reverseGeocode(final double latitude, final double longitude) {
+        final var nearest = findNearest(latitude, longitude);
+        return nearest < 0 ? null : readName(nearest);
+    }
+
+    @Override
+    public String getName() {
+        return "offline";
+    }
+
+    public int getPlaceCount() {
+        return placeCount;
+    }
+
+    /**
+     * Index du lieu le plus proche à moins de maxDistanceMeters, -1 sinon
+     */
+    int findNearest(final double latitude, final double longitude) {
+        if (placeCount == 0) {
+            return -1;
+        }
+        final var cos = Math.cos(Math.toRadians(latitude));
+        // Plus petite dimension d'une cellule autour du point
+        final var cellMeters = cellSize * GeoMath.METERS_PER_DEGREE * Math.max(cos, 1e-6);
+        final var column = (int) Math.floor((longitude - minLongitude) / cellSize);
+        final var row = (int) Math.floor((latitude - minLatitude) / cellSize);
+
+        var best = -1;
+        var bestSquared = maxDistanceMeters * maxDistanceMeters;
+        final var maxRing = (int) Math.ceil(maxDistanceMeters / cellMeters) + 1;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Tout lieu de cet anneau est au moins à (ring - 1) cellules du point
+            final var ringDistance = (ring - 1) * cellMeters;
+            if (ring > 0 && ringDistance * ringDistance > bestSquared) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                final var onEdge = r == row - ring || r == row + ring;
+                final var step = onEdge ? 1 : Math.max(1, 2 * ring);
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    final var cell = r * columns + c;
+                    final var end = buffer.getInt(HEADER_SIZE + (cell + 1) * 4);
+                    for (int place = buffer.getInt(HEADER_SIZE + cell * 4); place < end; place++) {
+                        final var offset = placesOffset + place * PLACE_SIZE;
+                        final var dy = (buffer.getInt(offset) / E7 - latitude) * GeoMath.METERS_PER_DEGREE;
+                        final var dx = (buffer.getInt(offset + 4) / E7 - longitude) * GeoMath.METERS_PER_DEGREE * cos;
+                        final var squared = dx * dx + dy * dy;
+                        if (squared <= bestSquared) {
+                            bestSquared = squared;
+                            best = place;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private String readName(final int place) {
+        final var offset = namesOffset + buffer.getInt(placesOffset + place * PLACE_SIZE + 8);
+        final var length = buffer.getShort(offset) & 0xFFFF;
+        final var bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Construire un gazetier (outillage de préparation, hors appareil)
+     *
+     * @param cellSizeDegrees côté d'une cellule de la grille, en degrés
+     */
+    public static void write(@NonNull final File target, @NonNull final List<Place> places,
+                             final double cellSizeDegrees) throws IOException {
+        var minLat = 90.0;
+        var minLng = 180.0;
+        var maxLat = -90.0;
+        var maxLng = -180.0;
+        for (Place place : places) {
+            minLat = Math.min(minLat, place.getLatitude());
+            minLng = Math.min(minLng, place.getLongitude());
+            maxLat = Math.max(maxLat, place.getLatitude());
+            maxLng = Math.max(maxLng, place.getLongitude());
+        }
+        if (places.isEmpty()) {
+            minLat = minLng = maxLat = maxLng = 0;
+        }
+        final var columns = (int) Math.floor((maxLng - minLng) / cellSizeDegrees) + 1;
+        final var rows = (int) Math.floor((maxLat - minLat) / cellSizeDegrees) + 1;
+        final var originLat = minLat;
+        final var originLng = minLng;
+        final Comparator<Place> byCell = Comparator.comparingInt(place ->
+                cellOf(place, originLat, originLng, cellSizeDegrees, columns));
+        final var sorted = new ArrayList<>(places);
+        sorted.sort(byCell);
+
+        final var cellStarts = new int[rows * columns + 1];
+        for (Place place : sorted) {
+            cellStarts[cellOf(place, originLat, originLng, cellSizeDegrees, columns) + 1]++;
+        }
+        for (int i = 1; i < cellStarts.length; i++) {
+            cellStarts[i] += cellStarts[i - 1];
+        }
+
+        final var names = new ByteArrayOutputStream();
+        final var nameOffsets = new int[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            final var bytes = sorted.get(i).getName().getBytes(StandardCharsets.UTF_8);
+            final var length = Math.min(bytes.length, 0xFFFF);
+            nameOffsets[i] = names.size();
+            names.write(length & 0xFF);
+            names.write(length >>> 8);
+            names.write(bytes, 0, length);
+        }
+
+        final var namesOffset = HEADER_SIZE + cellStarts.length * 4 + sorted.size() * PLACE_SIZE;
+        final var out = ByteBuffer.allocate(namesOffset + names.size()).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(sorted.size()).putInt(columns).putInt(rows).putInt(0)
+                .putDouble(originLat).putDouble(originLng).putDouble(cellSizeDegrees)
+                .putLong(namesOffset).putLong(0);
+        for (int start : cellStarts) {
+            out.putInt(start);
+        }
+        for (int i = 0; i < sorted.size(); i++) {
+            out.putInt((int) Math.round(sorted.get(i).getLatitude() * E7));
+            out.putInt((int) Math.round(sorted.get(i).getLongitude() * E7));
+            out.putInt(nameOffsets[i]);
+        }
+        out.put(names.toByteArray());
+        out.flip();
+        try (var raf = new RandomAccessFile(target, "rw")) {
+            raf.setLength(0);
+            final var channel = raf.getChannel();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+    }
+
+    private static int cellOf(final Place place, final double minLat, final double minLng,
+                              final double cellSize, final int columns) {
+        final var column = (int) Math.floor((place.getLongitude() - minLng) / cellSize);
+        final var row = (int) Math.floor((place.getLatitude() - minLat) / cellSize);
+        return row * columns + column;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.locationtracker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.NonNull;
+
+/**
+ * Mise en forme des payloads des Cloud Functions {@code onCallCreateOne} / {@code onCallCreateMany}.
+ * Java pur (aucune dépendance Android) : partagé par {@link LocationRepository}
+ * et par le générateur de charge des tests JVM.
+ */
+public final class PayloadBuilder {
+
+    private PayloadBuilder() {
+    }
+
+    /**
+     * Document d'une position ; vitesse, altitude et cap sont null si absents
+     */
+    public static Map<String, Object> locationDocument(final String fixId, final double latitude,
+                                                       final double longitude, final long time,
+                                                       final String provider, final float accuracy,
+                                                       final Float speed, final Double altitude, final Float bearing,
+                                                       final String user, final long date,
+                                                       @NonNull final Map<String, Object> deviceStatus) {
+        final var document = new HashMap<String, Object>();
+        // Identifiant client : le backend en fait l'identifiant du document (création idempotente)
+        document.put("fixId", fixId);
+        document.put("lat", latitude);
+        document.put("lng", longitude);
+        document.put("time", time);
+        document.put("provider", provider);
+        document.put("accuracy", accuracy);
+        document.put("speed", speed);
+        document.put("altitude", altitude);
+        document.put("bearing", bearing);
+        document.put("user", user);
+        document.put("date", date);
+        document.put("deviceStatus", deviceStatus);
+        return document;
+    }
+
+    /**
+     * Payload de {@code onCallCreateOne}
+     */
+    public static Map<String, Object> single(@NonNull final String collection,
+                                             @NonNull final Map<String, Object> document) {
+        final var payload = new HashMap<String, Object>();
+        payload.put("collection", collection);
+        payload.put("document", document);
+        return payload;
+    }
+
+    /**
+     * Payload de {@code onCallCreateMany}
+     */
+    public static Map<String, Object> batch(@NonNull final String collection,
+                                            @NonNull final List<Map<String, Object>> documents) {
+        final var payload = new HashMap<String, Object>();
+        payload.put("collection", collection);
+        payload.put("documents", new ArrayList<>(documents));
+        return payload;
+    }
+}
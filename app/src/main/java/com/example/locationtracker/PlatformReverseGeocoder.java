@@ -0,0 +1,96 @@
+package com.example.locationtracker;
+
+import android.location.Address;
+import android.location.Geocoder;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Géocodeur de la plateforme (réseau le plus souvent), borné par un délai
+ * sur Android 13+ (API asynchrone) ; avant, l'appel bloque jusqu'à sa réponse.
+ */
+@RequiredArgsConstructor
+public class PlatformReverseGeocoder implements ReverseGeocoder {
+
+    private static final String TAG = "PlatformReverseGeocoder";
+
+    @NonNull
+    private final Geocoder geocoder;
+    private final long timeoutMillis;
+
+    @Override
+    public String reverseGeocode(final double latitude, final double longitude) {
+        if (!Geocoder.isPresent()) return null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return reverseGeocodeWithTimeout(latitude, longitude);
+        }
+        return reverseGeocodeBlocking(latitude, longitude);
+    }
+
+    /**
+     * Avant Android 13, seule l'API synchrone existe (dépréciée depuis)
+     */
+    @SuppressWarnings("deprecation")
+    private String reverseGeocodeBlocking(final double latitude, final double longitude) {
+        try {
+            // NOTE: This blocks, so it MUST be called on a background thread.
+            return format(this.geocoder.getFromLocation(latitude, longitude, 1));
+        } catch (IOException e) {
+            Log.w(TAG, "Geocoding failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String reverseGeocodeWithTimeout(final double latitude, final double longitude) {
+        final var done = new CountDownLatch(1);
+        final var result = new AtomicReference<String>();
+        this.geocoder.getFromLocation(latitude, longitude, 1, new Geocoder.GeocodeListener() {
+            @Override
+            public void onGeocode(@NonNull final List<Address> addresses) {
+                result.set(format(addresses));
+                done.countDown();
+            }
+
+            @Override
+            public void onError(final String errorMessage) {
+                Log.w(TAG, "Geocoding failed: " + errorMessage);
+                done.countDown();
+            }
+        });
+        try {
+            if (!done.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Geocoding timeout (" + timeoutMillis + " ms)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result.get();
+    }
+
+    private static String format(final List<Address> addresses) {
+        if (addresses == null || addresses.isEmpty()) {
+            return null;
+        }
+        final var address = addresses.get(0);
+        final var text = IntStream.rangeClosed(0, address.getMaxAddressLineIndex())
+                .mapToObj(address::getAddressLine)
+                .collect(Collectors.joining(", "));
+        return text.isEmpty() ? null : text;
+    }
+
+    @Override
+    public String getName() {
+        return "platform";
+    }
+}
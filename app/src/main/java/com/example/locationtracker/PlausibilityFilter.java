@@ -0,0 +1,168 @@
+package com.example.locationtracker;
+
+import lombok.Getter;
+
+/**
+ * Rejet en flux des positions physiquement impossibles : un saut de plusieurs
+ * kilomètres annoncé avec une bonne précision (Wi-Fi ou antenne mal localisés)
+ * passe le filtre de précision, mais pas un contrôle de vitesse et d'accélération.
+ *
+ * <p>Chaque position est comparée à la dernière position vraisemblable. La distance
+ * est d'abord diminuée de la somme des précisions annoncées, pour ne pas rejeter
+ * le bruit normal. Après un silence de plus de {@code reanchorGap}, la position
+ * suivante sert de nouvelle référence. Si la référence était elle-même fausse,
+ * {@code reanchorCount} positions rejetées mais cohérentes entre elles deviennent
+ * la nouvelle référence. État en primitives uniquement : aucune allocation par position.</p>
+ *
+ * <p>Le contrôle n'a de sens que sur l'horloge monotone : une position qui n'en a pas
+ * (horloge murale seule, sujette aux sauts) est laissée passer sans contrôle et ne devient
+ * pas la référence.</p>
+ */
+public class PlausibilityFilter {
+
+    public enum Verdict {
+        ACCEPTED,
+        // Première position, silence ou nouvelle référence : acceptée sans contrôle
+        REANCHORED,
+        TOO_FAST,
+        TOO_ABRUPT,
+        OUT_OF_ORDER,
+        // Sans horloge monotone : acceptée sans contrôle, la référence est inchangée
+        UNTIMED
+    }
+
+    private final double maxSpeed;
+    private final double maxAcceleration;
+    private final long reanchorGapNanos;
+    private final int reanchorCount;
+
+    // Dernière position vraisemblable
+    private boolean anchored;
+    private double latitude;
+    private double longitude;
+    private float accuracy;
+    private long timeNanos;
+    private double speed;
+
+    // Positions rejetées cohérentes entre elles (référence suspecte)
+    private int candidateCount;
+    private double candidateLatitude;
+    private double candidateLongitude;
+    private float candidateAccuracy;
+    private long candidateTimeNanos;
+
+    // Lu par d'autres threads pour les statistiques
+    @Getter
+    private volatile long rejectedCount;
+
+    /**
+     * @param maxSpeed        vitesse maximale vraisemblable (m/s)
+     * @param maxAcceleration accélération maximale vraisemblable (m/s²)
+     * @param reanchorGap     silence (ms) au-delà duquel la référence est oubliée
+     * @param reanchorCount   positions rejetées cohérentes qui remplacent la référence
+     */
+    public PlausibilityFilter(final double maxSpeed, final double maxAcceleration,
+                              final long reanchorGap, final int reanchorCount) {
+        this.maxSpeed = maxSpeed;
+        this.maxAcceleration = maxAcceleration;
+        this.reanchorGapNanos = reanchorGap * 1_000_000;
+        this.reanchorCount = reanchorCount;
+    }
+
+    /**
+     * Évaluer une position ; la référence avance sur chaque position acceptée.
+     *
+     * @param timeNanos horloge monotone de la mesure (elapsedRealtimeNanos), 0 si inconnue
+     */
+    public Verdict check(final double latitude, final double longitude, final float accuracy, final long timeNanos) {
+        if (timeNanos <= 0) {
+            return Verdict.UNTIMED;
+        }
+        if (!anchored || timeNanos - this.timeNanos > reanchorGapNanos) {
+            anchor(latitude, longitude, accuracy, timeNanos, 0);
+            return Verdict.REANCHORED;
+        }
+        if (timeNanos <= this.timeNanos) {
+            rejectedCount++;
+            return Verdict.OUT_OF_ORDER;
+        }
+
+        final var speed = speed(this.latitude, this.longitude, this.accuracy, this.timeNanos,
+                latitude, longitude, accuracy, timeNanos);
+        final var seconds = (timeNanos - this.timeNanos) / 1e9;
+        final Verdict verdict;
+        if (speed > maxSpeed) {
+            verdict = Verdict.TOO_FAST;
+        } else if ((speed - this.speed) / seconds > maxAcceleration) {
+            verdict = Verdict.TOO_ABRUPT;
+        } else {
+            anchor(latitude, longitude, accuracy, timeNanos, speed);
+            return Verdict.ACCEPTED;
+        }
+
+        if (trackCandidate(latitude, longitude, accuracy, timeNanos)) {
+            anchor(latitude, longitude, accuracy, timeNanos, 0);
+            return Verdict.REANCHORED;
+        }
+        rejectedCount++;
+        return verdict;
+    }
+
+    /**
+     * Partir d'une position déjà retenue (reconfiguration) plutôt que d'accepter
+     * la suivante sans contrôle ; sans horloge monotone, rien n'est retenu
+     *
+     * @param speed vitesse connue à cette position (m/s), 0 si inconnue
+     */
+    public void seed(final double latitude, final double longitude, final float accuracy, final long timeNanos,
+                     final double speed) {
+        if (timeNanos > 0) {
+            anchor(latitude, longitude, accuracy, timeNanos, speed);
+        }
+    }
+
+    public void reset() {
+        anchored = false;
+        candidateCount = 0;
+    }
+
+    /**
+     * Suivre les positions rejetées : vrai quand assez d'entre elles se suivent
+     * de façon vraisemblable pour remplacer la référence
+     */
+    private boolean trackCandidate(final double latitude, final double longitude, final float accuracy,
+                                   final long timeNanos) {
+        if (candidateCount > 0 && timeNanos > candidateTimeNanos
+                && speed(candidateLatitude, candidateLongitude, candidateAccuracy, candidateTimeNanos,
+                latitude, longitude, accuracy, timeNanos) <= maxSpeed) {
+            candidateCount++;
+        } else {
+            candidateCount = 1;
+        }
+        candidateLatitude = latitude;
+        candidateLongitude = longitude;
+        candidateAccuracy = accuracy;
+        candidateTimeNanos = timeNanos;
+        return candidateCount >= reanchorCount;
+    }
+
+    private void anchor(final double latitude, final double longitude, final float accuracy,
+                        final long timeNanos, final double speed) {
+        this.anchored = true;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+        this.timeNanos = timeNanos;
+        this.speed = speed;
+        this.candidateCount = 0;
+    }
+
+    /**
+     * Vitesse minimale compatible avec les deux positions et leurs précisions (m/s)
+     */
+    private static double speed(final double lat1, final double lng1, final float accuracy1, final long time1,
+                                final double lat2, final double lng2, final float accuracy2, final long time2) {
+        final var distance = GeoMath.haversine(lat1, lng1, lat2, lng2) - accuracy1 - accuracy2;
+        return distance <= 0 ? 0 : distance / ((time2 - time1) / 1e9);
+    }
+}
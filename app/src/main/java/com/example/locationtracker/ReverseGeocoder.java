@@ -0,0 +1,31 @@
+package com.example.locationtracker;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * Source d'adresses pour une coordonnée. Les implémentations peuvent bloquer :
+ * à appeler hors du thread principal.
+ */
+public interface ReverseGeocoder {
+
+    /**
+     * Sources disponibles, pour configurer l'ordre de repli
+     */
+    enum Source {
+        OFFLINE, PLATFORM
+    }
+
+    /**
+     * Adresse lisible de la coordonnée, ou null si cette source n'a pas de réponse
+     * (la source suivante est alors essayée)
+     */
+    @Nullable
+    @WorkerThread
+    String reverseGeocode(double latitude, double longitude);
+
+    /**
+     * Nom court pour les logs et les métriques
+     */
+    String getName();
+}
@@ -1,57 +1,106 @@
 package com.example.locationtracker;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.os.UserManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import lombok.Getter;
 import lombok.NonNull;
 
 public class ServicePreferences {
 
+    private static final String TAG = "ServicePreferences";
+    private static final String STATE_FILE_NAME = "service_state.bin";
+
+    // Anciennes SharedPreferences, reprises une seule fois à la création du magasin
     private static final String PREFS_NAME = "ServicePreferences";
     private static final String KEY_SERVICE_RUNNING = "service_running";
     private static final String KEY_AUTO_START_ENABLED = "auto_start_enabled";
 
-    private final SharedPreferences preferences;
+    /**
+     * Magasin d'état sous-jacent, pour les données de reprise plus fréquentes (dernière position, compteurs)
+     */
+    @Getter
+    private final ServiceStateStore store;
 
+    /**
+     * L'état vit dans le stockage protégé par l'appareil,
+     * lisible dès LOCKED_BOOT_COMPLETED (avant le premier déverrouillage)
+     */
     public ServicePreferences(@NonNull final Context context) {
-        this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        final var deviceContext = context.createDeviceProtectedStorageContext();
+        try {
+            this.store = ServiceStateStore.open(new File(deviceContext.getFilesDir(), STATE_FILE_NAME));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ouverture du magasin d'état impossible", e);
+        }
+        if (store.isCreated()) {
+            migrateFromSharedPreferences(context, deviceContext);
+        }
+    }
+
+    /**
+     * Reprendre les valeurs des anciennes SharedPreferences (stockage appareil ou chiffré)
+     */
+    private void migrateFromSharedPreferences(final Context context, final Context deviceContext) {
+        final var userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        final var unlocked = userManager == null || userManager.isUserUnlocked();
+        if (unlocked && !deviceContext.moveSharedPreferencesFrom(context, PREFS_NAME)) {
+            Log.w(TAG, "Migration des préférences vers le stockage appareil impossible");
+        }
+
+        final var legacy = deviceContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (legacy.getAll().isEmpty()) {
+            return;
+        }
+        store.update(editor -> editor
+                .putBoolean(ServiceStateStore.Key.SERVICE_RUNNING, legacy.getBoolean(KEY_SERVICE_RUNNING, false))
+                .putBoolean(ServiceStateStore.Key.AUTO_START_ENABLED, legacy.getBoolean(KEY_AUTO_START_ENABLED, false)));
+        deviceContext.deleteSharedPreferences(PREFS_NAME);
+        Log.i(TAG, "Préférences migrées vers le magasin d'état");
     }
 
     /**
      * Marquer le service comme actif
      */
     public void setServiceRunning(boolean running) {
-        preferences.edit()
-                .putBoolean(KEY_SERVICE_RUNNING, running)
-                .apply();
+        // Appelé à chaque onStartCommand : ne rien écrire si rien ne change
+        if (store.getBoolean(ServiceStateStore.Key.SERVICE_RUNNING) != running) {
+            store.putBoolean(ServiceStateStore.Key.SERVICE_RUNNING, running);
+        }
     }
 
     /**
      * Vérifier si le service était actif
      */
     public boolean wasServiceRunning() {
-        return preferences.getBoolean(KEY_SERVICE_RUNNING, false);
+        return store.getBoolean(ServiceStateStore.Key.SERVICE_RUNNING);
     }
 
     /**
      * Activer/désactiver le démarrage automatique
      */
     public void setAutoStartEnabled(boolean enabled) {
-        preferences.edit()
-                .putBoolean(KEY_AUTO_START_ENABLED, enabled)
-                .apply();
+        if (store.getBoolean(ServiceStateStore.Key.AUTO_START_ENABLED) != enabled) {
+            store.putBoolean(ServiceStateStore.Key.AUTO_START_ENABLED, enabled);
+        }
     }
 
     /**
      * Vérifier si le démarrage automatique est activé
      */
     public boolean isAutoStartEnabled() {
-        return preferences.getBoolean(KEY_AUTO_START_ENABLED, false);
+        return store.getBoolean(ServiceStateStore.Key.AUTO_START_ENABLED);
     }
 
     /**
      * Effacer toutes les préférences
      */
     public void clear() {
-        preferences.edit().clear().apply();
+        store.clear();
     }
 }
@@ -0,0 +1,420 @@
+package com.example.locationtracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Petit magasin d'état typé, persistant, à disposition fixe dans un fichier mappé en mémoire.
+ *
+ * <p>Le fichier contient deux emplacements (A/B) de même taille. Une écriture recopie
+ * l'emplacement courant dans l'autre, y applique la modification, puis publie
+ * un numéro de séquence et un CRC32. À la lecture on retient l'emplacement valide
+ * de plus grande séquence : une écriture interrompue laisse l'ancien état intact.
+ * Aucun parsing au démarrage, une mise à jour ne touche que quelques octets.</p>
+ *
+ * <p>Le fichier peut être ouvert par plusieurs processus (interface et service dans
+ * le processus :tracker) : chaque écriture prend un verrou de fichier sur l'en-tête,
+ * et chaque accès suit l'emplacement publié le plus récent. Une lecture sans verrou
+ * est validée après coup (séquence et CRC de l'emplacement inchangés), sinon reprise ;
+ * après quelques essais, elle prend un verrou partagé.</p>
+ *
+ * <p>Les champs sont déclarés dans {@link Key} avec un offset fixe : en ajouter
+ * un nouveau à la fin est compatible, en déplacer un ne l'est pas.</p>
+ */
+public class ServiceStateStore {
+
+    private static final int MAGIC = 0x4C545353; // "LTSS"
+    private static final int VERSION = 1;
+
+    // En-tête du fichier : magic, version
+    private static final int FILE_HEADER_SIZE = 16;
+    // En-tête d'emplacement : séquence (long), crc (int), réservé (int)
+    private static final int SLOT_HEADER_SIZE = 16;
+    static final int PAYLOAD_SIZE = 496;
+    private static final int SLOT_SIZE = SLOT_HEADER_SIZE + PAYLOAD_SIZE;
+    private static final int FILE_SIZE = FILE_HEADER_SIZE + 2 * SLOT_SIZE;
+    private static final int MAX_READ_ATTEMPTS = 8;
+
+    /**
+     * Types de champs supportés (taille fixe)
+     */
+    @RequiredArgsConstructor
+    public enum Type {
+        BOOLEAN(1), INT(4), LONG(8), DOUBLE(8);
+
+        @Getter
+        private final int size;
+    }
+
+    /**
+     * Disposition du contenu d'un emplacement. Les offsets sont relatifs au contenu.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum Key {
+        SERVICE_RUNNING(0, Type.BOOLEAN),
+        AUTO_START_ENABLED(1, Type.BOOLEAN),
+        // Dernière position retenue (point de reprise)
+        LAST_FIX_TIME(8, Type.LONG),
+        LAST_FIX_LATITUDE(16, Type.DOUBLE),
+        LAST_FIX_LONGITUDE(24, Type.DOUBLE),
+        // Compteurs cumulés
+        FIXES_ACCEPTED(32, Type.LONG),
+        UPLOADS_SUCCEEDED(40, Type.LONG),
+        UPLOADS_FAILED(48, Type.LONG),
+        // Identité des positions envoyées (uploads idempotents)
+        DEVICE_ID_HIGH(56, Type.LONG),
+        DEVICE_ID_LOW(64, Type.LONG),
+        FIX_SEQUENCE(72, Type.LONG),
+        ACK_WATERMARK(80, Type.LONG),
+        // Session de suivi en cours (comptabilité énergétique, reprise après redémarrage)
+        SESSION_START(88, Type.LONG),
+        SESSION_GPS_HIGH_ACCURACY_MS(96, Type.LONG),
+        SESSION_GPS_BALANCED_MS(104, Type.LONG),
+        SESSION_GPS_LOW_POWER_MS(112, Type.LONG),
+        SESSION_GPS_PASSIVE_MS(120, Type.LONG),
+        SESSION_FIXES_DELIVERED(128, Type.LONG),
+        SESSION_FIXES_ACCEPTED(136, Type.LONG),
+        SESSION_PIPELINE_CPU_NS(144, Type.LONG),
+        SESSION_UPLOAD_CALLS(152, Type.LONG),
+        SESSION_RADIO_WAKEUPS(160, Type.LONG),
+        // Tampon Direct Boot : positions de numéro inférieur déjà versées à l'historique
+        DIRECT_BOOT_HISTORY_SEQUENCE(168, Type.LONG);
+
+        private final int offset;
+        private final Type type;
+    }
+
+    // Une instance par fichier et par processus : chacune garde l'emplacement courant en cache
+    private static final Map<String, ServiceStateStore> INSTANCES = new HashMap<>();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+
+    // Emplacement courant (0 ou 1) et sa séquence
+    private int activeSlot;
+    private long sequence;
+
+    /**
+     * Vrai si le fichier vient d'être créé (aucun état antérieur valide)
+     */
+    @Getter
+    private boolean created;
+
+    /**
+     * Instance partagée du magasin pour ce fichier
+     */
+    public static ServiceStateStore open(@NonNull final File file) throws IOException {
+        synchronized (INSTANCES) {
+            final var path = file.getAbsolutePath();
+            var store = INSTANCES.get(path);
+            if (store == null) {
+                store = new ServiceStateStore(file);
+                INSTANCES.put(path, store);
+            }
+            return store;
+        }
+    }
+
+    private ServiceStateStore(@NonNull final File file) throws IOException {
+        final var raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+        final var fresh = channel.size() < FILE_SIZE;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        final var lock = channel.lock(0, FILE_HEADER_SIZE, false);
+        try {
+            if (fresh || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                initialize();
+            } else {
+                recover();
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    private void initialize() {
+        for (int i = 0; i < FILE_SIZE; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        activeSlot = 0;
+        sequence = 0;
+        seal(0, 1);
+        created = true;
+    }
+
+    private void recover() {
+        final var seqA = validSequence(0);
+        final var seqB = validSequence(1);
+        if (seqA < 0 && seqB < 0) {
+            initialize();
+            return;
+        }
+        activeSlot = seqB > seqA ? 1 : 0;
+        sequence = Math.max(seqA, seqB);
+    }
+
+    /**
+     * Séquence de l'emplacement s'il est intègre, -1 sinon
+     */
+    private long validSequence(final int slot) {
+        final var base = slotOffset(slot);
+        final var seq = buffer.getLong(base);
+        final var expected = buffer.getInt(base + 8);
+        return seq > 0 && checksum(slot) == expected ? seq : -1;
+    }
+
+    private int checksum(final int slot) {
+        final var payload = slotOffset(slot) + SLOT_HEADER_SIZE;
+        final var view = buffer.duplicate();
+        view.limit(payload + PAYLOAD_SIZE).position(payload);
+        crc.reset();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    private void seal(final int slot, final long seq) {
+        final var base = slotOffset(slot);
+        buffer.putInt(base + 8, checksum(slot));
+        // La séquence est écrite en dernier : elle publie l'emplacement
+        TrackerChannel.fullFence();
+        buffer.putLong(base, seq);
+    }
+
+    /**
+     * Suivre les écritures des autres processus : l'emplacement publié de plus
+     * grande séquence fait foi (un emplacement en cours d'écriture est à 0)
+     */
+    private void refresh() {
+        final var seqA = buffer.getLong(slotOffset(0));
+        final var seqB = buffer.getLong(slotOffset(1));
+        final var latest = Math.max(seqA, seqB);
+        if (latest > sequence) {
+            activeSlot = seqB > seqA ? 1 : 0;
+            sequence = latest;
+        }
+    }
+
+    private static int slotOffset(final int slot) {
+        return FILE_HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private int fieldOffset(final int slot, final Key key) {
+        return slotOffset(slot) + SLOT_HEADER_SIZE + key.getOffset();
+    }
+
+    // --- Lecture ---
+
+    public boolean getBoolean(@NonNull final Key key) {
+        check(key, Type.BOOLEAN);
+        return read(key, offset -> buffer.get(offset) != 0);
+    }
+
+    public int getInt(@NonNull final Key key) {
+        check(key, Type.INT);
+        return read(key, buffer::getInt);
+    }
+
+    public long getLong(@NonNull final Key key) {
+        check(key, Type.LONG);
+        return read(key, buffer::getLong);
+    }
+
+    public double getDouble(@NonNull final Key key) {
+        check(key, Type.DOUBLE);
+        return read(key, buffer::getDouble);
+    }
+
+    /**
+     * Lire un champ de l'emplacement publié ; un autre processus peut le réutiliser
+     * pendant la lecture (deux écritures), la valeur n'est donc retenue que si
+     * l'emplacement n'a pas changé entre-temps
+     */
+    private synchronized <T> T read(final Key key, final IntFunction<T> field) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            refresh();
+            final var slot = activeSlot;
+            final var seq = sequence;
+            TrackerChannel.fullFence();
+            final var value = field.apply(fieldOffset(slot, key));
+            TrackerChannel.fullFence();
+            if (validSequence(slot) == seq) {
+                return value;
+            }
+        }
+        // Écrivain trop rapide : lecture sous verrou partagé
+        try {
+            final var lock = channel.lock(0, FILE_HEADER_SIZE, true);
+            try {
+                refresh();
+                return field.apply(fieldOffset(activeSlot, key));
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Verrou du magasin d'état indisponible", e);
+        }
+    }
+
+    // --- Écriture (une transaction par appel) ---
+
+    public void putBoolean(@NonNull final Key key, final boolean value) {
+        check(key, Type.BOOLEAN);
+        update(editor -> editor.putBoolean(key, value));
+    }
+
+    public void putInt(@NonNull final Key key, final int value) {
+        check(key, Type.INT);
+        update(editor -> editor.putInt(key, value));
+    }
+
+    public void putLong(@NonNull final Key key, final long value) {
+        check(key, Type.LONG);
+        update(editor -> editor.putLong(key, value));
+    }
+
+    public void putDouble(@NonNull final Key key, final double value) {
+        check(key, Type.DOUBLE);
+        update(editor -> editor.putDouble(key, value));
+    }
+
+    public void increment(@NonNull final Key key, final long delta) {
+        check(key, Type.LONG);
+        update(editor -> editor.putLong(key, editor.getLong(key) + delta));
+    }
+
+    /**
+     * Appliquer plusieurs modifications de façon atomique (tout ou rien)
+     */
+    public synchronized void update(@NonNull final Transaction transaction) {
+        // Une seule écriture à la fois, tous processus confondus
+        try {
+            final var lock = channel.lock(0, FILE_HEADER_SIZE, false);
+            try {
+                refresh();
+                final var target = 1 - activeSlot;
+                final var from = slotOffset(activeSlot) + SLOT_HEADER_SIZE;
+                final var to = slotOffset(target) + SLOT_HEADER_SIZE;
+
+                // Invalider la cible avant de la réécrire
+                buffer.putLong(slotOffset(target), 0L);
+                TrackerChannel.fullFence();
+                final var source = buffer.duplicate();
+                source.limit(from + PAYLOAD_SIZE).position(from);
+                final var destination = buffer.duplicate();
+                destination.position(to);
+                destination.put(source);
+
+                transaction.apply(new Editor(target));
+
+                seal(target, sequence + 1);
+                sequence++;
+                activeSlot = target;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Verrou du magasin d'état indisponible", e);
+        }
+    }
+
+    /**
+     * Forcer l'écriture sur le support (coupure d'alimentation) ; inutile pour survivre
+     * à la mort du processus, le noyau conserve les pages modifiées
+     */
+    public synchronized void sync() {
+        buffer.force();
+    }
+
+    public synchronized void clear() {
+        update(editor -> {
+            for (Key key : Key.values()) {
+                editor.clear(key);
+            }
+        });
+    }
+
+    public void close() throws IOException {
+        synchronized (INSTANCES) {
+            INSTANCES.values().remove(this);
+        }
+        sync();
+        channel.close();
+    }
+
+    private static void check(final Key key, final Type type) {
+        if (key.getType() != type) {
+            throw new IllegalArgumentException(key + " est de type " + key.getType() + ", pas " + type);
+        }
+    }
+
+    /**
+     * Modifications groupées appliquées dans un emplacement non publié
+     */
+    public interface Transaction {
+        void apply(Editor editor);
+    }
+
+    @RequiredArgsConstructor
+    public final class Editor {
+        private final int slot;
+
+        public boolean getBoolean(final Key key) {
+            return buffer.get(fieldOffset(slot, key)) != 0;
+        }
+
+        public long getLong(final Key key) {
+            return buffer.getLong(fieldOffset(slot, key));
+        }
+
+        public Editor putBoolean(final Key key, final boolean value) {
+            check(key, Type.BOOLEAN);
+            buffer.put(fieldOffset(slot, key), (byte) (value ? 1 : 0));
+            return this;
+        }
+
+        public Editor putInt(final Key key, final int value) {
+            check(key, Type.INT);
+            buffer.putInt(fieldOffset(slot, key), value);
+            return this;
+        }
+
+        public Editor putLong(final Key key, final long value) {
+            check(key, Type.LONG);
+            buffer.putLong(fieldOffset(slot, key), value);
+            return this;
+        }
+
+        public Editor putDouble(final Key key, final double value) {
+            check(key, Type.DOUBLE);
+            buffer.putDouble(fieldOffset(slot, key), value);
+            return this;
+        }
+
+        public Editor clear(final Key key) {
+            final var offset = fieldOffset(slot, key);
+            for (int i = 0; i < key.getType().getSize(); i++) {
+                buffer.put(offset + i, (byte) 0);
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.locationtracker;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.location.Priority;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * Comptabilité d'une session de suivi (du démarrage à l'arrêt du service),
+ * indicateurs indirects de la consommation : temps de GPS demandé par niveau de
+ * {@link Priority}, positions livrées et retenues, temps CPU du pipeline,
+ * appels réseau et réveils radio.
+ *
+ * <p>Les compteurs s'accumulent en mémoire et sont reportés dans le magasin d'état
+ * à chaque lot de positions et à l'arrêt : après un redémarrage du processus,
+ * la session interrompue reprend là où elle en était.</p>
+ */
+public class SessionAccounting {
+
+    private static final String TAG = "SessionAccounting";
+    // Durée pendant laquelle la radio reste active après un échange (queue LTE typique)
+    private static final long RADIO_TAIL_MILLIS = 10_000;
+
+    private static final ServiceStateStore.Key[] PRIORITY_KEYS = {
+            ServiceStateStore.Key.SESSION_GPS_HIGH_ACCURACY_MS,
+            ServiceStateStore.Key.SESSION_GPS_BALANCED_MS,
+            ServiceStateStore.Key.SESSION_GPS_LOW_POWER_MS,
+            ServiceStateStore.Key.SESSION_GPS_PASSIVE_MS,
+    };
+
+    private final ServiceStateStore store;
+
+    // Deltas pas encore reportés dans le magasin
+    private final long[] gpsMillis = new long[PRIORITY_KEYS.length];
+    private long fixesDelivered;
+    private long fixesAccepted;
+    private long pipelineCpuNanos;
+    private long uploadCalls;
+    private long radioWakeups;
+
+    // Demande GPS en cours (-1 : aucune)
+    private int activePriority = -1;
+    private long activeSince;
+    private long lastNetworkActivity = Long.MIN_VALUE / 2;
+
+    /**
+     * Instantané d'une session
+     */
+    @Getter
+    @Builder
+    @ToString
+    public static class Snapshot {
+        private final long sessionStart;
+        private final long highAccuracyMillis;
+        private final long balancedMillis;
+        private final long lowPowerMillis;
+        private final long passiveMillis;
+        private final long fixesDelivered;
+        private final long fixesAccepted;
+        private final long pipelineCpuMillis;
+        private final long uploadCalls;
+        private final long radioWakeups;
+
+        public long getGpsMillis() {
+            return highAccuracyMillis + balancedMillis + lowPowerMillis + passiveMillis;
+        }
+
+        public Map<String, Object> toMap() {
+            final var document = new HashMap<String, Object>();
+            document.put("sessionStart", sessionStart);
+            document.put("gpsHighAccuracyMs", highAccuracyMillis);
+            document.put("gpsBalancedMs", balancedMillis);
+            document.put("gpsLowPowerMs", lowPowerMillis);
+            document.put("gpsPassiveMs", passiveMillis);
+            document.put("fixesDelivered", fixesDelivered);
+            document.put("fixesAccepted", fixesAccepted);
+            document.put("pipelineCpuMs", pipelineCpuMillis);
+            document.put("uploadCalls", uploadCalls);
+            document.put("radioWakeups", radioWakeups);
+            return document;
+        }
+    }
+
+    public SessionAccounting(@NonNull final ServiceStateStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Ouvrir une session ; {@code resume} : le service n'a pas été arrêté proprement,
+     * la session précédente continue
+     */
+    public synchronized void beginSession(final boolean resume) {
+        if (resume && store.getLong(ServiceStateStore.Key.SESSION_START) != 0) {
+            Log.d(TAG, "Reprise de la session: " + getSnapshot());
+            return;
+        }
+        clearPending();
+        store.update(editor -> {
+            editor.putLong(ServiceStateStore.Key.SESSION_START, System.currentTimeMillis());
+            for (ServiceStateStore.Key key : PRIORITY_KEYS) {
+                editor.putLong(key, 0);
+            }
+            editor.putLong(ServiceStateStore.Key.SESSION_FIXES_DELIVERED, 0)
+                    .putLong(ServiceStateStore.Key.SESSION_FIXES_ACCEPTED, 0)
+                    .putLong(ServiceStateStore.Key.SESSION_PIPELINE_CPU_NS, 0)
+                    .putLong(ServiceStateStore.Key.SESSION_UPLOAD_CALLS, 0)
+                    .putLong(ServiceStateStore.Key.SESSION_RADIO_WAKEUPS, 0);
+        });
+    }
+
+    /**
+     * Clore la session : le temps GPS en cours est compté, tout est reporté
+     */
+    public synchronized Snapshot endSession() {
+        onUpdatesStopped();
+        checkpoint();
+        final var snapshot = getSnapshot();
+        Log.i(TAG, "Fin de session: " + snapshot);
+        return snapshot;
+    }
+
+    public synchronized void onUpdatesStarted(final int priority) {
+        closeInterval();
+        activePriority = priority;
+        activeSince = SystemClock.elapsedRealtime();
+    }
+
+    public synchronized void onPriorityChanged(final int priority) {
+        if (activePriority >= 0) {
+            onUpdatesStarted(priority);
+        }
+    }
+
+    public synchronized void onUpdatesStopped() {
+        closeInterval();
+        activePriority = -1;
+    }
+
+    /**
+     * Lot livré par le provider : positions reçues et retenues, reporté aussitôt
+     */
+    public synchronized void onFixes(final int delivered, final int accepted) {
+        fixesDelivered += delivered;
+        fixesAccepted += accepted;
+        checkpoint();
+    }
+
+    /**
+     * Temps CPU du thread courant depuis {@code startNanos} (voir {@link #threadCpuNanos()})
+     */
+    public void addPipelineCpu(final long startNanos) {
+        if (startNanos < 0) {
+            return;
+        }
+        final var elapsed = threadCpuNanos() - startNanos;
+        if (elapsed > 0) {
+            synchronized (this) {
+                pipelineCpuNanos += elapsed;
+            }
+        }
+    }
+
+    /**
+     * Appel réseau : c'est un réveil radio si la radio a eu le temps de se rendormir
+     */
+    public synchronized void onNetworkCall() {
+        final var now = SystemClock.elapsedRealtime();
+        uploadCalls++;
+        if (now - lastNetworkActivity > RADIO_TAIL_MILLIS) {
+            radioWakeups++;
+        }
+        lastNetworkActivity = now;
+    }
+
+    /**
+     * Temps CPU du thread courant, -1 si indisponible
+     */
+    public static long threadCpuNanos() {
+        return Debug.threadCpuTimeNanos();
+    }
+
+    /**
+     * Reporter les deltas dans le magasin (une transaction)
+     */
+    public synchronized void checkpoint() {
+        // Le temps GPS en cours est compté jusqu'ici, l'intervalle continue
+        if (activePriority >= 0) {
+            final var priority = activePriority;
+            closeInterval();
+            activePriority = priority;
+            activeSince = SystemClock.elapsedRealtime();
+        }
+        store.update(editor -> {
+            for (int i = 0; i < PRIORITY_KEYS.length; i++) {
+                editor.putLong(PRIORITY_KEYS[i], editor.getLong(PRIORITY_KEYS[i]) + gpsMillis[i]);
+            }
+            add(editor, ServiceStateStore.Key.SESSION_FIXES_DELIVERED, fixesDelivered);
+            add(editor, ServiceStateStore.Key.SESSION_FIXES_ACCEPTED, fixesAccepted);
+            add(editor, ServiceStateStore.Key.SESSION_PIPELINE_CPU_NS, pipelineCpuNanos);
+            add(editor, ServiceStateStore.Key.SESSION_UPLOAD_CALLS, uploadCalls);
+            add(editor, ServiceStateStore.Key.SESSION_RADIO_WAKEUPS, radioWakeups);
+        });
+        clearPending();
+    }
+
+    /**
+     * Valeurs persistées plus les deltas en mémoire et l'intervalle GPS en cours
+     */
+    public synchronized Snapshot getSnapshot() {
+        final var millis = new long[PRIORITY_KEYS.length];
+        for (int i = 0; i < PRIORITY_KEYS.length; i++) {
+            millis[i] = store.getLong(PRIORITY_KEYS[i]) + gpsMillis[i];
+        }
+        final var index = priorityIndex(activePriority);
+        if (index >= 0) {
+            millis[index] += SystemClock.elapsedRealtime() - activeSince;
+        }
+        return Snapshot.builder()
+                .sessionStart(store.getLong(ServiceStateStore.Key.SESSION_START))
+                .highAccuracyMillis(millis[0])
+                .balancedMillis(millis[1])
+                .lowPowerMillis(millis[2])
+                .passiveMillis(millis[3])
+                .fixesDelivered(store.getLong(ServiceStateStore.Key.SESSION_FIXES_DELIVERED) + fixesDelivered)
+                .fixesAccepted(store.getLong(ServiceStateStore.Key.SESSION_FIXES_ACCEPTED) + fixesAccepted)
+                .pipelineCpuMillis((store.getLong(ServiceStateStore.Key.SESSION_PIPELINE_CPU_NS) + pipelineCpuNanos)
+                        / 1_000_000)
+                .uploadCalls(store.getLong(ServiceStateStore.Key.SESSION_UPLOAD_CALLS) + uploadCalls)
+                .radioWakeups(store.getLong(ServiceStateStore.Key.SESSION_RADIO_WAKEUPS) + radioWakeups)
+                .build();
+    }
+
+    private void closeInterval() {
+        final var index = priorityIndex(activePriority);
+        if (index >= 0) {
+            gpsMillis[index] += SystemClock.elapsedRealtime() - activeSince;
+        }
+    }
+
+    private void clearPending() {
+        for (int i = 0; i < gpsMillis.length; i++) {
+            gpsMillis[i] = 0;
+        }
+        fixesDelivered = 0;
+        fixesAccepted = 0;
+        pipelineCpuNanos = 0;
+        uploadCalls = 0;
+        radioWakeups = 0;
+    }
+
+    private static void add(final ServiceStateStore.Editor editor, final ServiceStateStore.Key key, final long delta) {
+        editor.putLong(key, editor.getLong(key) + delta);
+    }
+
+    private static int priorityIndex(final int priority) {
+        switch (priority) {
+            case Priority.PRIORITY_HIGH_ACCURACY:
+                return 0;
+            case Priority.PRIORITY_BALANCED_POWER_ACCURACY:
+                return 1;
+            case Priority.PRIORITY_LOW_POWER:
+                return 2;
+            case Priority.PRIORITY_PASSIVE:
+                return 3;
+            default:
+                return -1;
+        }
+    }
+}
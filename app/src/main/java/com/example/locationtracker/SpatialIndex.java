@@ -0,0 +1,719 @@
+package com.example.locationtracker;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import lombok.NonNull;
+
+/**
+ * Index spatial des lignes de l'historique, par code de Morton (trie de géohash binaire).
+ *
+ * <p>Chaque position est quantifiée sur 26 bits par axe (~0,3 m en latitude) puis les bits
+ * sont entrelacés : un préfixe de clé correspond à une cellule de quadtree, donc à une plage
+ * contiguë de clés. Structure en deux niveaux :</p>
+ * <ul>
+ *     <li>des runs triés dans des fichiers mappés en mémoire (16 octets par ligne, hors tas Java) ;</li>
+ *     <li>des deltas en mémoire alimentés à chaque ajout dans l'historique, écrits en run
+ *     en arrière-plan quand ils sont pleins.</li>
+ * </ul>
+ *
+ * <p>Les runs de taille voisine sont fusionnés par flux (lecture mappée, écriture tamponnée),
+ * comme un compteur binaire : au plus un run par puissance de deux, chaque ligne réécrite
+ * O(log n) fois, et jamais plus d'un tampon d'écriture sur le tas.</p>
+ *
+ * <p>Une requête rectangle est découpée en au plus quelques dizaines de cellules, chacune
+ * cherchée par dichotomie dans chaque run ; les candidats sont ensuite filtrés exactement.
+ * Les résultats sont des identifiants de ligne de {@link LocationHistoryStore}, triés et uniques.</p>
+ */
+public class SpatialIndex implements LocationHistoryStore.AppendListener, Closeable {
+
+    private static final String TAG = "SpatialIndex";
+    private static final String RUN_PREFIX = "idx-";
+    private static final String RUN_SUFFIX = ".run";
+    // Format 1 : une seule base réécrite à chaque fusion, remplacée par les runs
+    private static final String LEGACY_FILE_NAME = "spatial.idx";
+
+    private static final int MAGIC = 0x4C545349; // "LTSI"
+    private static final int VERSION = 2;
+    // magic, version, count, réservé, indexedRowCount, première et dernière génération
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 8 + 8;
+    private static final int ENTRY_SIZE = 8 + 8;
+
+    private static final int BITS = 26;
+    private static final double SCALE = 1 << BITS;
+    private static final int DELTA_CAPACITY = 8192;
+    // Nombre de cellules visé par axe lors du découpage d'une requête
+    private static final int CELLS_PER_AXIS = 4;
+
+    private final File directory;
+    private final LocationHistoryStore history;
+    private final ExecutorService mergeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "spatial-merge");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Runs triés, du plus gros au plus petit (remplacés en bloc après chaque écriture)
+    private volatile List<Run> runs = Collections.emptyList();
+    // Génération du prochain delta écrit (thread de fusion, ou ouverture)
+    private long nextGeneration;
+
+    // Deltas gelés en attente d'écriture, puis delta courant
+    private List<Delta> frozen = Collections.emptyList();
+    private Delta delta = new Delta(DELTA_CAPACITY);
+
+    // Lignes couvertes : tout identifiant inférieur est indexé (les doublons sont tolérés)
+    private long indexedRowCount;
+    private boolean catchingUp;
+    private boolean closed;
+
+    private SpatialIndex(final File directory, final LocationHistoryStore history) {
+        this.directory = directory;
+        this.history = history;
+    }
+
+    /**
+     * Ouvrir l'index, rattraper les lignes ajoutées depuis sa dernière sauvegarde
+     * (ou tout reconstruire en chargement groupé) puis suivre les nouveaux ajouts.
+     * Parcourt l'historique : à appeler hors du thread principal. L'appelant le ferme.
+     */
+    public static SpatialIndex open(@NonNull final File directory, @NonNull final LocationHistoryStore history) {
+        final var index = new SpatialIndex(directory, history);
+        if (!index.load()) {
+            index.bulkLoad();
+        }
+        index.catchUp();
+        return index;
+    }
+
+    private boolean load() {
+        final var legacy = new File(directory, LEGACY_FILE_NAME);
+        if (legacy.exists() && !legacy.delete()) {
+            Log.w(TAG, "Suppression impossible: " + legacy);
+        }
+        final var files = directory.listFiles((dir, name) -> name.startsWith(RUN_PREFIX) && name.endsWith(RUN_SUFFIX));
+        if (files == null || files.length == 0) {
+            return false;
+        }
+        final var loaded = new ArrayList<Run>(files.length);
+        try {
+            for (File file : files) {
+                loaded.add(Run.map(file));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Index illisible, reconstruction", e);
+            for (File file : files) {
+                deleteQuietly(file);
+            }
+            return false;
+        }
+        // Une fusion interrompue peut laisser des runs déjà contenus dans son résultat
+        final var kept = new ArrayList<Run>(loaded.size());
+        for (Run run : loaded) {
+            var covered = false;
+            for (Run other : loaded) {
+                if (other != run && other.contains(run) && (!run.contains(other) || other.file.compareTo(run.file) < 0)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (covered) {
+                deleteQuietly(run.file);
+            } else {
+                kept.add(run);
+                indexedRowCount = Math.max(indexedRowCount, run.indexedRowCount);
+                nextGeneration = Math.max(nextGeneration, run.lastGeneration + 1);
+            }
+        }
+        kept.sort((a, b) -> Integer.compare(b.count, a.count));
+        runs = Collections.unmodifiableList(kept);
+        return true;
+    }
+
+    /**
+     * Reconstruction complète par morceaux de {@link #DELTA_CAPACITY} lignes, chacun trié
+     * puis écrit en run et fusionné au fil de l'eau : tas Java borné quelle que soit la taille
+     */
+    private void bulkLoad() {
+        final var rows = history.getRowCount();
+        final var chunk = new Delta(DELTA_CAPACITY);
+        try (var cursor = history.scanRows(0, rows)) {
+            while (cursor.next()) {
+                chunk.add(encode(cursor.getLatitude(), cursor.getLongitude()), cursor.getRowId());
+                if (chunk.count == chunk.keys.length) {
+                    chunk.sort();
+                    addRun(chunk, cursor.getRowId() + 1);
+                    chunk.count = 0;
+                }
+            }
+            if (chunk.count > 0) {
+                chunk.sort();
+                addRun(chunk, rows);
+            }
+            indexedRowCount = rows;
+            Log.i(TAG, String.format(Locale.ROOT, "Index reconstruit: %d lignes, %d run(s)", rows, runs.size()));
+        } catch (IOException e) {
+            // Les runs écrits restent valides : le reste sera rattrapé en mémoire
+            Log.e(TAG, "Écriture de l'index impossible", e);
+            for (Run run : runs) {
+                indexedRowCount = Math.max(indexedRowCount, run.indexedRowCount);
+            }
+        }
+    }
+
+    private void catchUp() {
+        final var from = indexedRowCount;
+        synchronized (this) {
+            catchingUp = true;
+        }
+        // Abonnement et comptage atomiques : les lignes suivantes arrivent par onAppend
+        final var to = history.addAppendListener(this);
+        try (var cursor = history.scanRows(from, to)) {
+            while (cursor.next()) {
+                insert(cursor.getRowId(), cursor.getLatitude(), cursor.getLongitude());
+            }
+        }
+        synchronized (this) {
+            catchingUp = false;
+            indexedRowCount = Math.max(indexedRowCount, to);
+        }
+        if (to > from) {
+            Log.d(TAG, String.format(Locale.ROOT, "Index rattrapé: %d ligne(s)", to - from));
+        }
+    }
+
+    @Override
+    public void onAppend(final long rowId, final double latitude, final double longitude) {
+        insert(rowId, latitude, longitude);
+    }
+
+    private synchronized void insert(final long rowId, final double latitude, final double longitude) {
+        if (closed) {
+            return;
+        }
+        delta.add(encode(latitude, longitude), rowId);
+        if (!catchingUp) {
+            indexedRowCount = Math.max(indexedRowCount, rowId + 1);
+        }
+        if (delta.count == delta.keys.length) {
+            freezeDelta();
+        }
+    }
+
+    private void freezeDelta() {
+        final var full = delta;
+        full.sort();
+        delta = new Delta(DELTA_CAPACITY);
+        final var pending = new ArrayList<>(frozen);
+        pending.add(full);
+        frozen = Collections.unmodifiableList(pending);
+        // Pendant le rattrapage, indexedRowCount reste au point de départ : au pire
+        // quelques lignes seront réindexées à la prochaine ouverture (doublons filtrés)
+        final var covered = indexedRowCount;
+        mergeExecutor.execute(() -> {
+            try {
+                addRun(full, covered);
+            } catch (IOException e) {
+                // Le delta reste gelé en mémoire : les requêtes le voient toujours
+                Log.e(TAG, "Écriture de l'index impossible", e);
+                return;
+            }
+            synchronized (this) {
+                final var remaining = new ArrayList<>(frozen);
+                remaining.remove(full);
+                frozen = Collections.unmodifiableList(remaining);
+            }
+        });
+    }
+
+    /**
+     * Écrire un delta trié en run, puis fusionner tant que le run précédent n'est pas plus gros ;
+     * les runs remplacés sont supprimés une fois la nouvelle liste publiée
+     */
+    private void addRun(final Delta sorted, final long covered) throws IOException {
+        final var generation = nextGeneration++;
+        var run = Run.write(runFile(generation, generation), sorted, covered, generation);
+        final var merged = new ArrayList<>(runs);
+        final var obsolete = new ArrayList<Run>();
+        while (!merged.isEmpty() && merged.get(merged.size() - 1).count <= run.count) {
+            final var previous = merged.remove(merged.size() - 1);
+            final var result = Run.merge(runFile(previous.firstGeneration, run.lastGeneration), previous, run);
+            obsolete.add(previous);
+            obsolete.add(run);
+            run = result;
+        }
+        merged.add(run);
+        runs = Collections.unmodifiableList(merged);
+        // Une requête en cours garde son mapping : le fichier peut disparaître
+        for (Run old : obsolete) {
+            deleteQuietly(old.file);
+        }
+    }
+
+    private File runFile(final long firstGeneration, final long lastGeneration) {
+        return new File(directory, String.format(Locale.ROOT, "%s%019d-%019d%s",
+                RUN_PREFIX, firstGeneration, lastGeneration, RUN_SUFFIX));
+    }
+
+    /**
+     * Ne plus suivre l'historique et laisser finir les écritures en cours ;
+     * les deltas encore en mémoire seront réindexés à la prochaine ouverture
+     */
+    @Override
+    public void close() {
+        history.removeAppendListener(this);
+        synchronized (this) {
+            closed = true;
+        }
+        mergeExecutor.shutdown();
+        try {
+            if (!mergeExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                Log.w(TAG, "Écriture de l'index non terminée à la fermeture");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void deleteQuietly(final File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Suppression impossible: " + file);
+        }
+    }
+
+    // --- Requêtes ---
+
+    /**
+     * Lignes dont la position est dans le rectangle donné (degrés)
+     */
+    public long[] queryBoundingBox(final double minLatitude, final double minLongitude,
+                                   final double maxLatitude, final double maxLongitude) {
+        final var results = new RowCollector();
+        search(minLatitude, minLongitude, maxLatitude, maxLongitude, results, Double.NaN, 0, 0);
+        return results.toSortedUniqueArray();
+    }
+
+    /**
+     * Lignes à moins de {@code radiusMeters} du point donné
+     */
+    public long[] queryRadius(final double latitude, final double longitude, final double radiusMeters) {
+        final var dLat = GeoMath.latitudeSpan(radiusMeters);
+        final var dLng = GeoMath.longitudeSpan(radiusMeters, latitude);
+        final var results = new RowCollector();
+        search(latitude - dLat, longitude - dLng, latitude + dLat, longitude + dLng,
+                results, radiusMeters, latitude, longitude);
+        return results.toSortedUniqueArray();
+    }
+
+    private void search(final double minLat, final double minLng, final double maxLat, final double maxLng,
+                        final RowCollector results, final double radius, final double centerLat, final double centerLng) {
+        final var x0 = quantizeLongitude(minLng);
+        final var x1 = quantizeLongitude(maxLng);
+        final var y0 = quantizeLatitude(minLat);
+        final var y1 = quantizeLatitude(maxLat);
+
+        // Taille de cellule telle que le rectangle couvre au plus ~CELLS_PER_AXIS cellules par axe
+        final var span = Math.max(x1 - x0, y1 - y0) / CELLS_PER_AXIS;
+        final var shift = span <= 0 ? 0 : Math.min(BITS, 64 - Long.numberOfLeadingZeros(span));
+
+        final var filter = new EntryFilter(x0, x1, y0, y1, radius, centerLat, centerLng);
+
+        final List<Run> currentRuns;
+        final List<Delta> currentFrozen;
+        final Delta currentDelta;
+        final int deltaCount;
+        synchronized (this) {
+            currentRuns = runs;
+            currentFrozen = frozen;
+            currentDelta = delta;
+            deltaCount = delta.count;
+        }
+
+        for (long cx = x0 >>> shift; cx <= x1 >>> shift; cx++) {
+            for (long cy = y0 >>> shift; cy <= y1 >>> shift; cy++) {
+                final var from = interleave(cx, cy) << (2 * shift);
+                final var to = (interleave(cx, cy) + 1) << (2 * shift);
+                for (Run run : currentRuns) {
+                    for (int i = run.lowerBound(from); i < run.count; i++) {
+                        final var key = run.key(i);
+                        if (key >= to) {
+                            break;
+                        }
+                        if (filter.accept(key)) {
+                            results.add(run.rowId(i));
+                        }
+                    }
+                }
+            }
+        }
+        for (Delta frozenDelta : currentFrozen) {
+            frozenDelta.scan(frozenDelta.count, filter, results);
+        }
+        currentDelta.scan(deltaCount, filter, results);
+    }
+
+    public synchronized long getIndexedRowCount() {
+        return indexedRowCount;
+    }
+
+    // --- Codage des clés ---
+
+    static long encode(final double latitude, final double longitude) {
+        return interleave(quantizeLongitude(longitude), quantizeLatitude(latitude));
+    }
+
+    private static long quantizeLatitude(final double latitude) {
+        return clamp((long) Math.floor((latitude + 90) / 180 * SCALE));
+    }
+
+    private static long quantizeLongitude(final double longitude) {
+        return clamp((long) Math.floor((longitude + 180) / 360 * SCALE));
+    }
+
+    private static long clamp(final long value) {
+        return Math.max(0, Math.min((1L << BITS) - 1, value));
+    }
+
+    private static double latitudeOf(final long y) {
+        return (y + 0.5) / SCALE * 180 - 90;
+    }
+
+    private static double longitudeOf(final long x) {
+        return (x + 0.5) / SCALE * 360 - 180;
+    }
+
+    /**
+     * Entrelacement des bits : x sur les bits pairs, y sur les bits impairs
+     */
+    private static long interleave(final long x, final long y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static long spread(long v) {
+        v &= 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+
+    private static long compact(long v) {
+        v &= 0x5555555555555555L;
+        v = (v | (v >>> 1)) & 0x3333333333333333L;
+        v = (v | (v >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v >>> 16)) & 0x00000000FFFFFFFFL;
+        return v;
+    }
+
+    /**
+     * Tri en place de clés avec leurs identifiants (tri rapide + insertion)
+     */
+    static void sort(final long[] keys, final long[] rowIds, int from, int to) {
+        while (to - from > 16) {
+            final var mid = (from + to) >>> 1;
+            final var pivot = median(keys[from], keys[mid], keys[to - 1]);
+            int i = from, j = to - 1;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    swap(keys, rowIds, i++, j--);
+                }
+            }
+            // Récursion sur la plus petite partie, boucle sur la plus grande
+            if (j - from < to - i) {
+                sort(keys, rowIds, from, j + 1);
+                from = i;
+            } else {
+                sort(keys, rowIds, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && keys[j - 1] > keys[j]; j--) {
+                swap(keys, rowIds, j, j - 1);
+            }
+        }
+    }
+
+    private static long median(final long a, final long b, final long c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static void swap(final long[] keys, final long[] rowIds, final int i, final int j) {
+        final var key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        final var row = rowIds[i];
+        rowIds[i] = rowIds[j];
+        rowIds[j] = row;
+    }
+
+    /**
+     * Filtre exact d'une clé candidate : rectangle quantifié, puis distance si rayon
+     */
+    private static final class EntryFilter {
+        private final long x0, x1, y0, y1;
+        private final double radius, centerLat, centerLng;
+
+        EntryFilter(final long x0, final long x1, final long y0, final long y1,
+                    final double radius, final double centerLat, final double centerLng) {
+            this.x0 = x0;
+            this.x1 = x1;
+            this.y0 = y0;
+            this.y1 = y1;
+            this.radius = radius;
+            this.centerLat = centerLat;
+            this.centerLng = centerLng;
+        }
+
+        boolean accept(final long key) {
+            final var x = compact(key);
+            final var y = compact(key >>> 1);
+            if (x < x0 || x > x1 || y < y0 || y > y1) {
+                return false;
+            }
+            return Double.isNaN(radius)
+                    || GeoMath.haversine(centerLat, centerLng, latitudeOf(y), longitudeOf(x)) <= radius;
+        }
+    }
+
+    /**
+     * Accumulateur d'identifiants sans boxing
+     */
+    private static final class RowCollector {
+        private long[] rows = new long[64];
+        private int count;
+
+        void add(final long rowId) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = rowId;
+        }
+
+        long[] toSortedUniqueArray() {
+            Arrays.sort(rows, 0, count);
+            var unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || rows[unique - 1] != rows[i]) {
+                    rows[unique++] = rows[i];
+                }
+            }
+            return Arrays.copyOf(rows, unique);
+        }
+    }
+
+    /**
+     * Ajouts récents, triés au gel puis écrits en run
+     */
+    private static final class Delta {
+        final long[] keys;
+        final long[] rowIds;
+        int count;
+
+        Delta(final int capacity) {
+            keys = new long[capacity];
+            rowIds = new long[capacity];
+        }
+
+        void add(final long key, final long rowId) {
+            keys[count] = key;
+            rowIds[count] = rowId;
+            count++;
+        }
+
+        void sort() {
+            SpatialIndex.sort(keys, rowIds, 0, count);
+        }
+
+        void scan(final int limit, final EntryFilter filter, final RowCollector results) {
+            for (int i = 0; i < limit; i++) {
+                if (filter.accept(keys[i])) {
+                    results.add(rowIds[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Run trié : fichier mappé en lecture, entrées (clé long, ligne long), couvrant
+     * les deltas des générations {@code firstGeneration} à {@code lastGeneration}
+     */
+    private static final class Run {
+        final File file;
+        final ByteBuffer buffer;
+        final int count;
+        final long indexedRowCount;
+        final long firstGeneration;
+        final long lastGeneration;
+
+        private Run(final File file, final ByteBuffer buffer) throws IOException {
+            this.file = file;
+            this.buffer = buffer;
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("En-tête d'index invalide: " + file);
+            }
+            this.count = buffer.getInt(8);
+            this.indexedRowCount = buffer.getLong(16);
+            this.firstGeneration = buffer.getLong(24);
+            this.lastGeneration = buffer.getLong(32);
+            if (count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > buffer.capacity()) {
+                throw new IOException("Index tronqué: " + file);
+            }
+        }
+
+        static Run map(final File file) throws IOException {
+            try (var raf = new RandomAccessFile(file, "r")) {
+                final var buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                return new Run(file, buffer);
+            }
+        }
+
+        static Run write(final File file, final Delta sorted, final long indexedRowCount,
+                         final long generation) throws IOException {
+            try (var writer = new RunWriter(file)) {
+                for (int i = 0; i < sorted.count; i++) {
+                    writer.add(sorted.keys[i], sorted.rowIds[i]);
+                }
+                writer.finish(indexedRowCount, generation, generation);
+            }
+            return map(file);
+        }
+
+        /**
+         * Fusion par flux de deux runs triés : seul le tampon d'écriture est sur le tas
+         */
+        static Run merge(final File file, final Run older, final Run newer) throws IOException {
+            try (var writer = new RunWriter(file)) {
+                int i = 0, j = 0;
+                while (i < older.count || j < newer.count) {
+                    if (j == newer.count || (i < older.count && older.key(i) <= newer.key(j))) {
+                        writer.add(older.key(i), older.rowId(i));
+                        i++;
+                    } else {
+                        writer.add(newer.key(j), newer.rowId(j));
+                        j++;
+                    }
+                }
+                writer.finish(Math.max(older.indexedRowCount, newer.indexedRowCount),
+                        older.firstGeneration, newer.lastGeneration);
+            }
+            return map(file);
+        }
+
+        boolean contains(final Run other) {
+            return firstGeneration <= other.firstGeneration && other.lastGeneration <= lastGeneration;
+        }
+
+        long key(final int index) {
+            return buffer.getLong(HEADER_SIZE + index * ENTRY_SIZE);
+        }
+
+        long rowId(final int index) {
+            return buffer.getLong(HEADER_SIZE + index * ENTRY_SIZE + 8);
+        }
+
+        /**
+         * Premier indice dont la clé est >= key
+         */
+        int lowerBound(final long key) {
+            int low = 0, high = count;
+            while (low < high) {
+                final var mid = (low + high) >>> 1;
+                if (key(mid) < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Écriture tamponnée d'un run dans un fichier temporaire, en-tête écrit en dernier,
+     * puis renommage atomique : un run visible est toujours complet
+     */
+    private static final class RunWriter implements Closeable {
+        private final File file;
+        private final File tmp;
+        private final FileOutputStream stream;
+        private final FileChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private int count;
+        private boolean finished;
+
+        RunWriter(final File file) throws IOException {
+            this.file = file;
+            this.tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            this.stream = new FileOutputStream(tmp);
+            this.channel = stream.getChannel();
+            channel.position(HEADER_SIZE);
+        }
+
+        void add(final long key, final long rowId) throws IOException {
+            if (out.remaining() < ENTRY_SIZE) {
+                drain();
+            }
+            out.putLong(key).putLong(rowId);
+            count++;
+        }
+
+        void finish(final long indexedRowCount, final long firstGeneration, final long lastGeneration)
+                throws IOException {
+            drain();
+            out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0)
+                    .putLong(indexedRowCount).putLong(firstGeneration).putLong(lastGeneration);
+            out.flip();
+            var position = 0L;
+            while (out.hasRemaining()) {
+                position += channel.write(out, position);
+            }
+            out.clear();
+            channel.force(true);
+            stream.close();
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Renommage impossible: " + tmp);
+            }
+            finished = true;
+        }
+
+        private void drain() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+            if (!finished) {
+                deleteQuietly(tmp);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.locationtracker;
+
+import android.content.Context;
+import android.location.Location;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.NonNull;
+
+/**
+ * File FIFO sur disque des positions à envoyer qui ne tiennent plus dans le budget
+ * mémoire du pipeline. Enregistrements {@link FixRecords} de 56 octets, précédés
+ * d'un en-tête qui donne l'indice de la tête de file.
+ *
+ * <p>La file survit aux redémarrages du processus (stockage protégé par l'appareil,
+ * comme le tampon Direct Boot). Une position lue reste dans la file jusqu'à ce que
+ * son envoi soit confirmé : un arrêt brutal entre-temps la fait renvoyer. Une fois vide, le fichier est tronqué ; une tête
+ * très avancée est compactée dans un nouveau fichier (remplacement atomique).</p>
+ */
+public class SpillQueue {
+
+    private static final String TAG = "SpillQueue";
+    private static final String FILE_NAME = "upload_spill.bin";
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = FixRecords.RECORD_SIZE;
+    // Au-delà (environ 1 Mo lu et inutile), la partie restante est recopiée
+    private static final long COMPACT_THRESHOLD = 16_384;
+
+    private final File file;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    public SpillQueue(@NonNull final Context context) {
+        this(new File(context.createDeviceProtectedStorageContext().getFilesDir(), FILE_NAME));
+    }
+
+    SpillQueue(@NonNull final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Ajouter des positions en fin de file (écriture synchronisée sur disque)
+     */
+    public synchronized void append(@NonNull final List<Location> locations) throws IOException {
+        if (locations.isEmpty()) {
+            return;
+        }
+        try (var raf = new RandomAccessFile(file, "rw")) {
+            final var channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                writeHead(channel, 0);
+            }
+            // Un enregistrement tronqué (coupure pendant l'écriture) est écrasé
+            channel.position(HEADER_SIZE + recordCount(channel) * RECORD_SIZE);
+            for (Location location : locations) {
+                record.clear();
+                FixRecords.encode(location, record);
+                record.flip();
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Lire jusqu'à {@code max} positions à partir de la {@code skip}-ième de la file,
+     * sans les retirer : elles restent sur disque jusqu'à {@link #remove(long)}
+     */
+    public synchronized List<Location> peek(final long skip, final int max) throws IOException {
+        final var locations = new ArrayList<Location>();
+        if (!file.exists() || max <= 0) {
+            return locations;
+        }
+        try (var raf = new RandomAccessFile(file, "r")) {
+            final var channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                return locations;
+            }
+            final var start = readHead(channel) + skip;
+            final var take = (int) Math.min(max, recordCount(channel) - start);
+            if (take <= 0) {
+                return locations;
+            }
+            channel.position(HEADER_SIZE + start * RECORD_SIZE);
+            final var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            for (int i = 0; i < take; i++) {
+                final var location = FixRecords.decode(in, null);
+                if (location == null) {
+                    break;
+                }
+                locations.add(location);
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Retirer {@code count} positions en tête de file, une fois envoyées
+     * (nouvelle tête écrite et synchronisée sur disque)
+     */
+    public synchronized void remove(final long count) throws IOException {
+        if (!file.exists() || count <= 0) {
+            return;
+        }
+        try (var raf = new RandomAccessFile(file, "rw")) {
+            final var channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                return;
+            }
+            final var total = recordCount(channel);
+            final var newHead = Math.min(total, readHead(channel) + count);
+            if (newHead >= total) {
+                // File vide : repartir d'un fichier minimal
+                channel.truncate(HEADER_SIZE);
+                writeHead(channel, 0);
+            } else {
+                writeHead(channel, newHead);
+            }
+            channel.force(false);
+            if (newHead < total && newHead >= COMPACT_THRESHOLD && newHead * 2 >= total) {
+                compact(channel, newHead, total);
+            }
+        }
+    }
+
+    public synchronized long size() {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (var raf = new RandomAccessFile(file, "r")) {
+            final var channel = raf.getChannel();
+            return channel.size() < HEADER_SIZE ? 0 : recordCount(channel) - readHead(channel);
+        } catch (IOException e) {
+            Log.e(TAG, "Lecture de la taille impossible", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Recopier les enregistrements non lus dans un nouveau fichier qui remplace l'ancien
+     */
+    private void compact(final FileChannel channel, final long head, final long count) throws IOException {
+        final var compacted = new File(file.getPath() + ".tmp");
+        try (var raf = new RandomAccessFile(compacted, "rw")) {
+            final var target = raf.getChannel();
+            target.truncate(0);
+            writeHead(target, 0);
+            target.position(HEADER_SIZE);
+            var position = HEADER_SIZE + head * RECORD_SIZE;
+            final var end = HEADER_SIZE + count * RECORD_SIZE;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+            target.force(true);
+        }
+        if (!compacted.renameTo(file)) {
+            Log.w(TAG, "Compactage de la file impossible");
+            compacted.delete();
+        } else {
+            Log.d(TAG, "File compactée: " + (count - head) + " position(s)");
+        }
+    }
+
+    private long readHead(final FileChannel channel) throws IOException {
+        header.clear();
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // lecture de l'en-tête complet
+        }
+        return header.getLong(0);
+    }
+
+    private void writeHead(final FileChannel channel, final long head) throws IOException {
+        header.clear();
+        header.putLong(0, head);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private static long recordCount(final FileChannel channel) throws IOException {
+        return Math.max(0, channel.size() - HEADER_SIZE) / RECORD_SIZE;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.locationtracker;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import lombok.Getter;
+
+/**
+ * Mesures du démarrage à froid : délai jusqu'au startForeground
+ * et jusqu'à la première position retenue (temps elapsedRealtime)
+ */
+public class StartupMetrics {
+
+    private static final String TAG = "StartupMetrics";
+
+    // Début du processus tel que vu par le système
+    @Getter
+    private final long processStartElapsed = Process.getStartElapsedRealtime();
+
+    @Getter
+    private volatile long serviceStartElapsed;
+
+    @Getter
+    private volatile long foregroundElapsed;
+
+    @Getter
+    private volatile long firstFixElapsed;
+
+    /**
+     * Appelé à l'entrée de onStartCommand ; seul le premier démarrage du processus
+     * est mesuré (une commande redélivrée n'écrase pas la mesure à froid)
+     */
+    public synchronized void markServiceStart() {
+        if (serviceStartElapsed != 0) {
+            return;
+        }
+        serviceStartElapsed = SystemClock.elapsedRealtime();
+    }
+
+    public void markForeground() {
+        if (foregroundElapsed != 0) {
+            return;
+        }
+        foregroundElapsed = SystemClock.elapsedRealtime();
+        Log.i(TAG, String.format("Time-to-foreground: %dms depuis le processus, %dms depuis onStartCommand",
+                foregroundElapsed - processStartElapsed,
+                foregroundElapsed - serviceStartElapsed));
+    }
+
+    public void markFirstFix() {
+        if (firstFixElapsed != 0) {
+            return;
+        }
+        firstFixElapsed = SystemClock.elapsedRealtime();
+        Log.i(TAG, String.format("Time-to-first-fix: %dms depuis le processus, %dms depuis onStartCommand",
+                firstFixElapsed - processStartElapsed,
+                firstFixElapsed - serviceStartElapsed));
+    }
+
+    public long getTimeToForeground() {
+        return foregroundElapsed == 0 ? -1 : foregroundElapsed - serviceStartElapsed;
+    }
+
+    public long getTimeToFirstFix() {
+        return firstFixElapsed == 0 ? -1 : firstFixElapsed - serviceStartElapsed;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.locationtracker;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Détection en flux des arrêts (visites) à partir des positions retenues.
+ *
+ * <p>Un candidat est ouvert sur une position ; les positions suivantes à moins de
+ * {@code radiusMeters} de son centroïde l'enrichissent (moyenne incrémentale).
+ * Quand le candidat dure au moins {@code minDwellMillis}, une visite commence ;
+ * la première position hors du rayon la termine et ouvre un nouveau candidat.
+ * État en primitives uniquement : mémoire bornée et O(1) par position.</p>
+ *
+ * <p>Les positions étant filtrées par distance minimale, un appareil à l'arrêt n'en
+ * produit plus : un long silence suivi d'un départ compte comme une présence continue
+ * jusqu'à la position de départ.</p>
+ */
+public class StayPointDetector {
+
+    private final double radiusMeters;
+    private final long minDwellMillis;
+
+    @Setter
+    private VisitListener listener;
+
+    // Candidat courant
+    private boolean hasCandidate;
+    private boolean inVisit;
+    private long startTime;
+    private long lastTime;
+    private double sumLatitude;
+    private double sumLongitude;
+    private int count;
+    private double radius;
+
+    public StayPointDetector(final double radiusMeters, final long minDwellMillis) {
+        this.radiusMeters = radiusMeters;
+        this.minDwellMillis = minDwellMillis;
+    }
+
+    /**
+     * Traiter une position retenue (ordre chronologique).
+     *
+     * @return vrai si la position appartient à une visite en cours (après traitement)
+     */
+    public synchronized boolean process(final long time, final double latitude, final double longitude) {
+        if (!hasCandidate) {
+            openCandidate(time, latitude, longitude);
+            return false;
+        }
+
+        final var centerLat = sumLatitude / count;
+        final var centerLng = sumLongitude / count;
+        final var distance = GeoMath.haversine(centerLat, centerLng, latitude, longitude);
+
+        if (distance <= radiusMeters) {
+            sumLatitude += latitude;
+            sumLongitude += longitude;
+            count++;
+            radius = Math.max(radius, distance);
+            lastTime = Math.max(lastTime, time);
+            if (!inVisit && lastTime - startTime >= minDwellMillis) {
+                inVisit = true;
+                if (listener != null) {
+                    listener.onVisitStarted(snapshot(lastTime));
+                }
+            }
+            return inVisit;
+        }
+
+        // Départ : la présence est comptée jusqu'à la première position hors du rayon
+        if (!inVisit && time - startTime >= minDwellMillis && listener != null) {
+            listener.onVisitStarted(snapshot(time));
+            inVisit = true;
+        }
+        if (inVisit && listener != null) {
+            listener.onVisitEnded(snapshot(time));
+        }
+        openCandidate(time, latitude, longitude);
+        return false;
+    }
+
+    /**
+     * Visite en cours, ou null
+     */
+    public synchronized Visit getCurrentVisit() {
+        return inVisit ? snapshot(lastTime) : null;
+    }
+
+    /**
+     * Oublier le candidat courant (arrêt du suivi) ; une visite ouverte est terminée
+     * à la dernière position connue
+     */
+    public synchronized void reset() {
+        if (inVisit && listener != null) {
+            listener.onVisitEnded(snapshot(lastTime));
+        }
+        hasCandidate = false;
+        inVisit = false;
+    }
+
+    private void openCandidate(final long time, final double latitude, final double longitude) {
+        hasCandidate = true;
+        inVisit = false;
+        startTime = time;
+        lastTime = time;
+        sumLatitude = latitude;
+        sumLongitude = longitude;
+        count = 1;
+        radius = 0;
+    }
+
+    private Visit snapshot(final long endTime) {
+        return Visit.builder()
+                .startTime(startTime)
+                .endTime(endTime)
+                .latitude(sumLatitude / count)
+                .longitude(sumLongitude / count)
+                .radiusMeters(radius)
+                .fixCount(count)
+                .build();
+    }
+
+    /**
+     * Résumé compact d'une visite (centroïde, rayon observé, durée)
+     */
+    @Getter
+    @Builder
+    @ToString
+    public static class Visit {
+        private final long startTime;
+        private final long endTime;
+        private final double latitude;
+        private final double longitude;
+        private final double radiusMeters;
+        private final int fixCount;
+
+        public long getDwellMillis() {
+            return endTime - startTime;
+        }
+    }
+
+    public interface VisitListener {
+        void onVisitStarted(@NonNull Visit visit);
+
+        void onVisitEnded(@NonNull Visit visit);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.locationtracker;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Réduction d'une trace au niveau de détail affichable.
+ *
+ * <p>Deux passes au curseur sur la plage demandée : la première calcule l'emprise,
+ * la seconde ne garde que les points distants d'au moins un pixel du dernier point gardé
+ * (projection équirectangulaire sur l'emprise). Le résultat ne dépend donc que de la
+ * taille d'affichage, pas du nombre de positions de la plage.</p>
+ */
+public final class TrackDecimator {
+
+    private TrackDecimator() {
+    }
+
+    /**
+     * Trace simplifiée, en coordonnées normalisées : x et y dans [0, 1],
+     * même échelle sur les deux axes (la plus grande dimension de l'emprise vaut 1)
+     */
+    @Getter
+    public static class Track {
+        private final float[] points;
+        private final int pointCount;
+        private final long sourceCount;
+        private final float width;
+        private final float height;
+
+        Track(final float[] points, final int pointCount, final long sourceCount,
+              final float width, final float height) {
+            this.points = points;
+            this.pointCount = pointCount;
+            this.sourceCount = sourceCount;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Trace de [fromTime, toTime] pour un affichage de {@code resolution} pixels
+     * sur sa plus grande dimension
+     */
+    public static Track decimate(@NonNull final LocationHistoryStore history, final long fromTime,
+                                 final long toTime, final int resolution) {
+        var minLatitude = Double.POSITIVE_INFINITY;
+        var maxLatitude = Double.NEGATIVE_INFINITY;
+        var minLongitude = Double.POSITIVE_INFINITY;
+        var maxLongitude = Double.NEGATIVE_INFINITY;
+        long sourceCount = 0;
+        try (HistoryCursor cursor = history.query(fromTime, toTime)) {
+            while (cursor.next()) {
+                minLatitude = Math.min(minLatitude, cursor.getLatitude());
+                maxLatitude = Math.max(maxLatitude, cursor.getLatitude());
+                minLongitude = Math.min(minLongitude, cursor.getLongitude());
+                maxLongitude = Math.max(maxLongitude, cursor.getLongitude());
+                sourceCount++;
+            }
+        }
+        if (sourceCount == 0) {
+            return new Track(new float[0], 0, 0, 0, 0);
+        }
+
+        // Équirectangulaire : la longitude est contractée par le cosinus de la latitude moyenne
+        final var cos = Math.cos(Math.toRadians((minLatitude + maxLatitude) / 2));
+        final var spanX = (maxLongitude - minLongitude) * cos;
+        final var spanY = maxLatitude - minLatitude;
+        final var span = Math.max(Math.max(spanX, spanY), 1e-9);
+        final var tolerance = 1.0 / Math.max(1, resolution);
+        final var toleranceSquared = tolerance * tolerance;
+
+        var points = new float[Math.min(1024, (int) Math.min(Integer.MAX_VALUE / 2, sourceCount)) * 2];
+        var count = 0;
+        float lastX = 0;
+        float lastY = 0;
+        try (HistoryCursor cursor = history.query(fromTime, toTime)) {
+            long read = 0;
+            while (cursor.next()) {
+                read++;
+                final var x = (float) ((cursor.getLongitude() - minLongitude) * cos / span);
+                // Axe y vers le bas (repère écran)
+                final var y = (float) ((maxLatitude - cursor.getLatitude()) / span);
+                final var dx = x - lastX;
+                final var dy = y - lastY;
+                // Le premier et le dernier point sont toujours gardés
+                if (count == 0 || dx * dx + dy * dy >= toleranceSquared || read == sourceCount) {
+                    if (count * 2 == points.length) {
+                        points = Arrays.copyOf(points, points.length * 2);
+                    }
+                    points[count * 2] = x;
+                    points[count * 2 + 1] = y;
+                    count++;
+                    lastX = x;
+                    lastY = y;
+                }
+            }
+        }
+        return new Track(points, count, sourceCount, (float) (spanX / span), (float) (spanY / span));
+    }
+}
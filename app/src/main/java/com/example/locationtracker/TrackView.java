@@ -0,0 +1,99 @@
+package com.example.locationtracker;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Affichage d'une trace déjà simplifiée par {@link TrackDecimator}.
+ * Les segments sont projetés une seule fois par changement de trace ou de taille ;
+ * le dessin est un unique {@link Canvas#drawLines}.
+ */
+public class TrackView extends View {
+
+    private static final float PADDING = 16f;
+
+    private final Paint trackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint endPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    @Nullable
+    private TrackDecimator.Track track;
+    // Segments projetés (x0, y0, x1, y1, ...)
+    private float[] lines = new float[0];
+    private int lineValues;
+
+    public TrackView(final Context context) {
+        this(context, null);
+    }
+
+    public TrackView(final Context context, @Nullable final AttributeSet attrs) {
+        super(context, attrs);
+        final var density = getResources().getDisplayMetrics().density;
+        trackPaint.setStyle(Paint.Style.STROKE);
+        trackPaint.setStrokeWidth(2 * density);
+        trackPaint.setStrokeCap(Paint.Cap.ROUND);
+        trackPaint.setColor(context.getColor(R.color.secondary));
+        endPaint.setColor(context.getColor(R.color.primary));
+    }
+
+    /**
+     * Résolution utile pour {@link TrackDecimator} : plus grande dimension en pixels
+     */
+    public int getResolution() {
+        return Math.max(getWidth(), getHeight());
+    }
+
+    public void setTrack(@Nullable final TrackDecimator.Track track) {
+        this.track = track;
+        project();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(final int width, final int height, final int oldWidth, final int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        project();
+    }
+
+    private void project() {
+        lineValues = 0;
+        if (track == null || track.getPointCount() < 2 || getWidth() == 0) {
+            return;
+        }
+        final var availableWidth = getWidth() - 2 * PADDING;
+        final var availableHeight = getHeight() - 2 * PADDING;
+        // Même échelle sur les deux axes, trace centrée
+        final var scale = Math.min(
+                availableWidth / Math.max(track.getWidth(), 1e-6f),
+                availableHeight / Math.max(track.getHeight(), 1e-6f));
+        final var offsetX = PADDING + (availableWidth - track.getWidth() * scale) / 2;
+        final var offsetY = PADDING + (availableHeight - track.getHeight() * scale) / 2;
+
+        final var points = track.getPoints();
+        final var needed = (track.getPointCount() - 1) * 4;
+        if (lines.length < needed) {
+            lines = new float[needed];
+        }
+        for (int i = 1; i < track.getPointCount(); i++) {
+            lines[lineValues++] = offsetX + points[(i - 1) * 2] * scale;
+            lines[lineValues++] = offsetY + points[(i - 1) * 2 + 1] * scale;
+            lines[lineValues++] = offsetX + points[i * 2] * scale;
+            lines[lineValues++] = offsetY + points[i * 2 + 1] * scale;
+        }
+    }
+
+    @Override
+    protected void onDraw(final Canvas canvas) {
+        super.onDraw(canvas);
+        if (lineValues == 0) {
+            return;
+        }
+        canvas.drawLines(lines, 0, lineValues, trackPaint);
+        // Position la plus récente
+        canvas.drawCircle(lines[lineValues - 2], lines[lineValues - 1], trackPaint.getStrokeWidth() * 2, endPaint);
+    }
+}
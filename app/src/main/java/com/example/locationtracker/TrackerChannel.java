@@ -0,0 +1,281 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+import android.os.Build;
+import android.os.IBinder;
+import android.os.Parcel;
+import android.os.RemoteException;
+import android.os.SharedMemory;
+import android.system.ErrnoException;
+import android.system.OsConstants;
+
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Canal du service vers l'interface en mémoire partagée ({@link SharedMemory}),
+ * utilisable que le service tourne dans le processus de l'interface ou dans
+ * le processus dédié {@code :tracker}.
+ *
+ * <p>Le service est l'unique écrivain. Les dernières positions sont publiées dans un
+ * anneau d'emplacements protégés chacun par un seqlock : version impaire pendant
+ * l'écriture, relecture si la version a changé. Écrire l'emplacement suivant laisse
+ * intact celui que l'interface est en train de lire. Les statistiques sont un
+ * {@link TrackingStatsSnapshot} binaire sous un seqlock à part, mis en forme par
+ * l'interface. L'interface lit sans appel binder : seule la remise de la mémoire
+ * passe par le binder, une fois par connexion.</p>
+ */
+public class TrackerChannel implements Closeable {
+
+    /**
+     * Transaction du binder du service qui remet la mémoire partagée
+     */
+    public static final int TRANSACTION_GET_CHANNEL = IBinder.FIRST_CALL_TRANSACTION;
+
+    private static final String NAME = "tracker-channel";
+    private static final int MAGIC = 0x4C544348; // "LTCH"
+    private static final int VERSION = 2;
+    private static final int MAX_READ_ATTEMPTS = 8;
+
+    // En-tête : magic, version, positions publiées, service actif, seqlock et taille des statistiques
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_FIX_SEQUENCE = 8;
+    private static final int HEADER_RUNNING = 16;
+    private static final int HEADER_STATS_VERSION = 24;
+    private static final int HEADER_STATS_LENGTH = 32;
+    private static final int HEADER_SIZE = 64;
+
+    // Emplacement : version, time, lat, lng, altitude, accuracy, speed, bearing
+    private static final int SLOT_VERSION = 0;
+    private static final int SLOT_TIME = 8;
+    private static final int SLOT_LATITUDE = 16;
+    private static final int SLOT_LONGITUDE = 24;
+    private static final int SLOT_ALTITUDE = 32;
+    private static final int SLOT_ACCURACY = 40;
+    private static final int SLOT_SPEED = 44;
+    private static final int SLOT_BEARING = 48;
+    private static final int SLOT_SIZE = 64;
+    private static final int SLOTS = 16;
+
+    private static final int STATS_OFFSET = HEADER_SIZE + SLOTS * SLOT_SIZE;
+    // Au moins TrackingStatsSnapshot.MAX_ENCODED_SIZE (environ 250 octets)
+    private static final int STATS_CAPACITY = 512;
+    private static final int SIZE = STATS_OFFSET + STATS_CAPACITY;
+
+    // Barrière de repli avant l'API 33 (VarHandle) : écriture puis lecture volatiles
+    private static volatile int fence;
+
+    @Getter
+    private final SharedMemory sharedMemory;
+    private final ByteBuffer buffer;
+    private final boolean writable;
+
+    private TrackerChannel(final SharedMemory sharedMemory, final ByteBuffer buffer, final boolean writable) {
+        this.sharedMemory = sharedMemory;
+        this.buffer = buffer.order(ByteOrder.nativeOrder());
+        this.writable = writable;
+    }
+
+    /**
+     * Créer le canal côté service ; les mappages suivants (interface) seront en lecture seule
+     */
+    public static TrackerChannel create() throws ErrnoException {
+        final var memory = SharedMemory.create(NAME, SIZE);
+        final var buffer = memory.mapReadWrite();
+        memory.setProtect(OsConstants.PROT_READ);
+        final var channel = new TrackerChannel(memory, buffer, true);
+        channel.buffer.putInt(HEADER_MAGIC, MAGIC);
+        channel.buffer.putInt(HEADER_VERSION, VERSION);
+        return channel;
+    }
+
+    /**
+     * Récupérer le canal par le binder du service, ou null si le service n'en a pas
+     */
+    @Nullable
+    public static TrackerChannel fetch(@NonNull final IBinder binder) throws RemoteException, ErrnoException {
+        final var data = Parcel.obtain();
+        final var reply = Parcel.obtain();
+        try {
+            if (!binder.transact(TRANSACTION_GET_CHANNEL, data, reply, 0) || reply.readInt() == 0) {
+                return null;
+            }
+            final var memory = SharedMemory.CREATOR.createFromParcel(reply);
+            final var channel = new TrackerChannel(memory, memory.mapReadOnly(), false);
+            if (channel.buffer.getInt(HEADER_MAGIC) != MAGIC || channel.buffer.getInt(HEADER_VERSION) != VERSION) {
+                channel.close();
+                return null;
+            }
+            return channel;
+        } finally {
+            data.recycle();
+            reply.recycle();
+        }
+    }
+
+    /**
+     * Réponse du service à {@link #TRANSACTION_GET_CHANNEL}
+     */
+    public static void writeReply(@Nullable final TrackerChannel channel, @NonNull final Parcel reply) {
+        if (channel == null) {
+            reply.writeInt(0);
+            return;
+        }
+        reply.writeInt(1);
+        channel.sharedMemory.writeToParcel(reply, 0);
+    }
+
+    // --- Écriture (service, un seul thread) ---
+
+    public void publishFix(@NonNull final Location location) {
+        checkWritable();
+        final var sequence = buffer.getLong(HEADER_FIX_SEQUENCE);
+        final var slot = slotOffset(sequence);
+        final var version = buffer.getLong(slot + SLOT_VERSION);
+        buffer.putLong(slot + SLOT_VERSION, version + 1);
+        fullFence();
+        buffer.putLong(slot + SLOT_TIME, location.getTime());
+        buffer.putDouble(slot + SLOT_LATITUDE, location.getLatitude());
+        buffer.putDouble(slot + SLOT_LONGITUDE, location.getLongitude());
+        buffer.putDouble(slot + SLOT_ALTITUDE, location.getAltitude());
+        buffer.putFloat(slot + SLOT_ACCURACY, location.getAccuracy());
+        buffer.putFloat(slot + SLOT_SPEED, location.getSpeed());
+        buffer.putFloat(slot + SLOT_BEARING, location.getBearing());
+        fullFence();
+        buffer.putLong(slot + SLOT_VERSION, version + 2);
+        fullFence();
+        buffer.putLong(HEADER_FIX_SEQUENCE, sequence + 1);
+    }
+
+    public void publishStats(@NonNull final TrackingStatsSnapshot stats) {
+        checkWritable();
+        final var version = buffer.getLong(HEADER_STATS_VERSION);
+        buffer.putLong(HEADER_STATS_VERSION, version + 1);
+        fullFence();
+        final var view = buffer.duplicate().order(buffer.order());
+        view.position(STATS_OFFSET);
+        stats.writeTo(view);
+        buffer.putInt(HEADER_STATS_LENGTH, view.position() - STATS_OFFSET);
+        fullFence();
+        buffer.putLong(HEADER_STATS_VERSION, version + 2);
+    }
+
+    public void setRunning(final boolean running) {
+        checkWritable();
+        buffer.putInt(HEADER_RUNNING, running ? 1 : 0);
+        fullFence();
+    }
+
+    // --- Lecture (interface, sans verrou) ---
+
+    /**
+     * Nombre de positions publiées : une valeur inchangée dispense de relire la position
+     */
+    public long getFixSequence() {
+        final var sequence = buffer.getLong(HEADER_FIX_SEQUENCE);
+        fullFence();
+        return sequence;
+    }
+
+    public boolean isRunning() {
+        return buffer.getInt(HEADER_RUNNING) != 0;
+    }
+
+    /**
+     * Dernière position publiée, ou null (aucune, ou écrivain trop rapide)
+     */
+    @Nullable
+    public Location readLatestFix() {
+        final var sequence = getFixSequence();
+        if (sequence == 0) {
+            return null;
+        }
+        final var slot = slotOffset(sequence - 1);
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            final var version = buffer.getLong(slot + SLOT_VERSION);
+            if ((version & 1) != 0) {
+                continue;
+            }
+            fullFence();
+            final var location = new Location("tracker");
+            location.setTime(buffer.getLong(slot + SLOT_TIME));
+            location.setLatitude(buffer.getDouble(slot + SLOT_LATITUDE));
+            location.setLongitude(buffer.getDouble(slot + SLOT_LONGITUDE));
+            location.setAltitude(buffer.getDouble(slot + SLOT_ALTITUDE));
+            location.setAccuracy(buffer.getFloat(slot + SLOT_ACCURACY));
+            location.setSpeed(buffer.getFloat(slot + SLOT_SPEED));
+            location.setBearing(buffer.getFloat(slot + SLOT_BEARING));
+            fullFence();
+            if (buffer.getLong(slot + SLOT_VERSION) == version) {
+                return location;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Dernières statistiques publiées, ou null
+     */
+    @Nullable
+    public TrackingStatsSnapshot readStats() {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            final var version = buffer.getLong(HEADER_STATS_VERSION);
+            if (version == 0) {
+                return null;
+            }
+            if ((version & 1) != 0) {
+                continue;
+            }
+            fullFence();
+            final var length = Math.min(Math.max(buffer.getInt(HEADER_STATS_LENGTH), 0), STATS_CAPACITY);
+            final var bytes = new byte[length];
+            final var view = buffer.duplicate();
+            view.position(STATS_OFFSET);
+            view.get(bytes, 0, length);
+            fullFence();
+            if (buffer.getLong(HEADER_STATS_VERSION) == version) {
+                // Copie cohérente : décodée hors de la mémoire partagée
+                return TrackingStatsSnapshot.readFrom(ByteBuffer.wrap(bytes).order(buffer.order()));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        SharedMemory.unmap(buffer);
+        sharedMemory.close();
+    }
+
+    private void checkWritable() {
+        if (!writable) {
+            throw new IllegalStateException("Canal en lecture seule");
+        }
+    }
+
+    private static int slotOffset(final long sequence) {
+        return HEADER_SIZE + (int) (sequence % SLOTS) * SLOT_SIZE;
+    }
+
+    /**
+     * Ordonner les accès à la mémoire partagée, invisibles du modèle mémoire Java
+     * (aussi pour le fichier mappé de {@link ServiceStateStore})
+     */
+    static void fullFence() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            VarHandle.fullFence();
+        } else {
+            // Écriture volatile (stlr) suivie d'une lecture volatile (ldar) : barrière complète sur ART
+            fence = 0;
+            final var ignored = fence;
+        }
+    }
+}
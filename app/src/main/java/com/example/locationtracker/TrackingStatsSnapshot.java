@@ -0,0 +1,166 @@
+package com.example.locationtracker;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Statistiques de suivi figées à un instant. Publiées par le thread du pipeline
+ * (référence volatile) et lues sans verrou ; la mise en forme revient à l'interface.
+ *
+ * <p>Les valeurs sont brutes (ms, m, m/s) : l'âge de la position se calcule à la lecture
+ * à partir de {@link #getLastFixTime()}. Un instantané s'écrit en binaire de taille
+ * bornée dans le canal en mémoire partagée ({@link TrackerChannel}).</p>
+ */
+@Getter
+@Builder(toBuilder = true)
+@ToString
+public class TrackingStatsSnapshot {
+
+    public static final TrackingStatsSnapshot EMPTY = TrackingStatsSnapshot.builder().build();
+
+    private static final int VERSION = 1;
+    // Provider tronqué au-delà (noms courts : fused, gps, network)
+    private static final int MAX_PROVIDER_BYTES = 32;
+
+    private final long publishedAt;
+
+    // Gestionnaire de localisation
+    private final boolean updatesActive;
+    private final boolean hasFix;
+    private final long lastFixTime;
+    private final double lastLatitude;
+    private final double lastLongitude;
+    private final float lastAccuracy;
+    private final String lastProvider;
+    private final long plausibilityRejected;
+
+    // Géocodage
+    private final int geocodeQueued;
+    private final long geocodeAverageQueueWaitMillis;
+    private final long geocodeAverageRunMillis;
+
+    // Session en cours
+    private final long sessionGpsMillis;
+    private final long sessionFixesDelivered;
+    private final long sessionFixesAccepted;
+    private final long sessionPipelineCpuMillis;
+    private final long sessionRadioWakeups;
+    private final long sessionUploadCalls;
+
+    // Voies d'envoi et mémoire d'attente
+    private final int liveQueued;
+    private final long liveAverageLatencyMillis;
+    private final int bulkQueued;
+    private final long bulkSpilled;
+    private final long bulkAverageLatencyMillis;
+    private final long memoryUsed;
+    private final long memoryLimit;
+
+    // Trajet en cours
+    private final boolean hasTrip;
+    private final double tripDistanceMeters;
+    private final long tripMovingTimeMillis;
+    private final double tripAverageSpeed;
+    private final double tripMaxSpeed;
+    private final double tripElevationGain;
+
+    /**
+     * Taille maximale de {@link #writeTo(ByteBuffer)}
+     */
+    public static final int MAX_ENCODED_SIZE = 4 + 8 + 2 + 8 + 8 + 8 + 4 + 4 + MAX_PROVIDER_BYTES + 8
+            + 4 + 8 + 8
+            + 6 * 8
+            + 4 + 8 + 4 + 8 + 8 + 8 + 8
+            + 1 + 8 + 8 + 8 + 8 + 8;
+
+    public void writeTo(final ByteBuffer out) {
+        out.putInt(VERSION);
+        out.putLong(publishedAt);
+        out.put((byte) (updatesActive ? 1 : 0));
+        out.put((byte) (hasFix ? 1 : 0));
+        out.putLong(lastFixTime);
+        out.putDouble(lastLatitude);
+        out.putDouble(lastLongitude);
+        out.putFloat(lastAccuracy);
+        final var provider = lastProvider != null ? lastProvider.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        final var providerLength = Math.min(provider.length, MAX_PROVIDER_BYTES);
+        out.putInt(providerLength);
+        out.put(provider, 0, providerLength);
+        out.putLong(plausibilityRejected);
+
+        out.putInt(geocodeQueued);
+        out.putLong(geocodeAverageQueueWaitMillis);
+        out.putLong(geocodeAverageRunMillis);
+
+        out.putLong(sessionGpsMillis);
+        out.putLong(sessionFixesDelivered);
+        out.putLong(sessionFixesAccepted);
+        out.putLong(sessionPipelineCpuMillis);
+        out.putLong(sessionRadioWakeups);
+        out.putLong(sessionUploadCalls);
+
+        out.putInt(liveQueued);
+        out.putLong(liveAverageLatencyMillis);
+        out.putInt(bulkQueued);
+        out.putLong(bulkSpilled);
+        out.putLong(bulkAverageLatencyMillis);
+        out.putLong(memoryUsed);
+        out.putLong(memoryLimit);
+
+        out.put((byte) (hasTrip ? 1 : 0));
+        out.putDouble(tripDistanceMeters);
+        out.putLong(tripMovingTimeMillis);
+        out.putDouble(tripAverageSpeed);
+        out.putDouble(tripMaxSpeed);
+        out.putDouble(tripElevationGain);
+    }
+
+    /**
+     * Relire un instantané écrit par {@link #writeTo(ByteBuffer)}, ou null (version inconnue)
+     */
+    public static TrackingStatsSnapshot readFrom(final ByteBuffer in) {
+        if (in.getInt() != VERSION) {
+            return null;
+        }
+        final var builder = builder()
+                .publishedAt(in.getLong())
+                .updatesActive(in.get() != 0)
+                .hasFix(in.get() != 0)
+                .lastFixTime(in.getLong())
+                .lastLatitude(in.getDouble())
+                .lastLongitude(in.getDouble())
+                .lastAccuracy(in.getFloat());
+        final var provider = new byte[Math.min(Math.max(in.getInt(), 0), MAX_PROVIDER_BYTES)];
+        in.get(provider);
+        return builder
+                .lastProvider(new String(provider, StandardCharsets.UTF_8))
+                .plausibilityRejected(in.getLong())
+                .geocodeQueued(in.getInt())
+                .geocodeAverageQueueWaitMillis(in.getLong())
+                .geocodeAverageRunMillis(in.getLong())
+                .sessionGpsMillis(in.getLong())
+                .sessionFixesDelivered(in.getLong())
+                .sessionFixesAccepted(in.getLong())
+                .sessionPipelineCpuMillis(in.getLong())
+                .sessionRadioWakeups(in.getLong())
+                .sessionUploadCalls(in.getLong())
+                .liveQueued(in.getInt())
+                .liveAverageLatencyMillis(in.getLong())
+                .bulkQueued(in.getInt())
+                .bulkSpilled(in.getLong())
+                .bulkAverageLatencyMillis(in.getLong())
+                .memoryUsed(in.getLong())
+                .memoryLimit(in.getLong())
+                .hasTrip(in.get() != 0)
+                .tripDistanceMeters(in.getDouble())
+                .tripMovingTimeMillis(in.getLong())
+                .tripAverageSpeed(in.getDouble())
+                .tripMaxSpeed(in.getDouble())
+                .tripElevationGain(in.getDouble())
+                .build();
+    }
+}
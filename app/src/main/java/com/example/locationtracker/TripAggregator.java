@@ -0,0 +1,182 @@
+package com.example.locationtracker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Découpage en trajets et statistiques en continu, alimentés par le pipeline de positions.
+ *
+ * <p>Un trajet se termine sur un trou de plus de {@code maxGapMillis} ou au début d'un arrêt
+ * (visite). Les accumulateurs sont des primitives mises à jour en O(1) par position ;
+ * le résumé du trajet courant est republié après chaque position, sa lecture est donc O(1).
+ * Les derniers trajets terminés sont conservés dans un tampon circulaire.</p>
+ */
+public class TripAggregator {
+
+    // En dessous de cette vitesse, l'intervalle ne compte pas comme temps en mouvement
+    private static final double MOVING_SPEED = 0.5;
+    // Hystérésis du dénivelé positif (bruit de l'altitude GPS)
+    private static final double ELEVATION_THRESHOLD = 3;
+    private static final int RECENT_TRIPS = 10;
+
+    private final long maxGapMillis;
+
+    // Trajet courant
+    private boolean active;
+    private long startTime;
+    private long lastTime;
+    private double lastLatitude;
+    private double lastLongitude;
+    private double distance;
+    private long movingTime;
+    private double maxSpeed;
+    private double elevationReference = Double.NaN;
+    private double elevationGain;
+    private int fixCount;
+
+    private volatile TripSummary current;
+
+    // Trajets terminés, du plus ancien au plus récent
+    private final TripSummary[] recent = new TripSummary[RECENT_TRIPS];
+    private int recentStart;
+    private int recentCount;
+
+    public TripAggregator(final long maxGapMillis) {
+        this.maxGapMillis = maxGapMillis;
+    }
+
+    /**
+     * Traiter une position retenue.
+     *
+     * @param altitude NaN si absente
+     * @param speed    vitesse fournie par le provider, NaN si absente
+     * @param stopped  vrai si la position appartient à un arrêt (visite en cours)
+     */
+    public synchronized void process(final long time, final double latitude, final double longitude,
+                                     final double altitude, final float speed, final boolean stopped) {
+        if (active && time - lastTime > maxGapMillis) {
+            close();
+        }
+        if (stopped) {
+            if (active) {
+                close();
+            }
+            return;
+        }
+        if (!active) {
+            open(time, latitude, longitude, altitude);
+        } else if (time > lastTime) {
+            final var step = GeoMath.haversine(lastLatitude, lastLongitude, latitude, longitude);
+            final var interval = time - lastTime;
+            final var stepSpeed = step * 1000 / interval;
+            distance += step;
+            if (stepSpeed >= MOVING_SPEED) {
+                movingTime += interval;
+            }
+            maxSpeed = Math.max(maxSpeed, Float.isNaN(speed) ? stepSpeed : Math.max(speed, stepSpeed));
+            trackElevation(altitude);
+            lastTime = time;
+            lastLatitude = latitude;
+            lastLongitude = longitude;
+            fixCount++;
+        }
+        current = summarize();
+    }
+
+    private void open(final long time, final double latitude, final double longitude, final double altitude) {
+        active = true;
+        startTime = time;
+        lastTime = time;
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        distance = 0;
+        movingTime = 0;
+        maxSpeed = 0;
+        elevationReference = altitude;
+        elevationGain = 0;
+        fixCount = 1;
+    }
+
+    private void trackElevation(final double altitude) {
+        if (Double.isNaN(altitude)) {
+            return;
+        }
+        if (Double.isNaN(elevationReference) || altitude < elevationReference) {
+            elevationReference = altitude;
+        } else if (altitude - elevationReference >= ELEVATION_THRESHOLD) {
+            elevationGain += altitude - elevationReference;
+            elevationReference = altitude;
+        }
+    }
+
+    /**
+     * Terminer le trajet courant (trou, arrêt, fin du suivi)
+     */
+    public synchronized void close() {
+        if (!active) {
+            return;
+        }
+        active = false;
+        if (fixCount > 1) {
+            recent[(recentStart + recentCount) % RECENT_TRIPS] = summarize();
+            if (recentCount < RECENT_TRIPS) {
+                recentCount++;
+            } else {
+                recentStart = (recentStart + 1) % RECENT_TRIPS;
+            }
+        }
+        current = null;
+    }
+
+    private TripSummary summarize() {
+        return TripSummary.builder()
+                .startTime(startTime)
+                .endTime(lastTime)
+                .distanceMeters(distance)
+                .movingTimeMillis(movingTime)
+                .maxSpeed(maxSpeed)
+                .averageSpeed(movingTime > 0 ? distance * 1000 / movingTime : 0)
+                .elevationGain(elevationGain)
+                .fixCount(fixCount)
+                .build();
+    }
+
+    /**
+     * Trajet en cours, ou null (lecture sans verrou)
+     */
+    public TripSummary getCurrentTrip() {
+        return current;
+    }
+
+    /**
+     * Derniers trajets terminés, du plus récent au plus ancien
+     */
+    public synchronized List<TripSummary> getRecentTrips() {
+        final var trips = new ArrayList<TripSummary>(recentCount);
+        for (int i = recentCount - 1; i >= 0; i--) {
+            trips.add(recent[(recentStart + i) % RECENT_TRIPS]);
+        }
+        return trips;
+    }
+
+    /**
+     * Statistiques d'un trajet (vitesses en m/s)
+     */
+    @Getter
+    @Builder
+    @ToString
+    public static class TripSummary {
+        private final long startTime;
+        private final long endTime;
+        private final double distanceMeters;
+        private final long movingTimeMillis;
+        private final double maxSpeed;
+        private final double averageSpeed;
+        private final double elevationGain;
+        private final int fixCount;
+    }
+}
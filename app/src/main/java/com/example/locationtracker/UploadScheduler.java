@@ -0,0 +1,808 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Ordonnancement des envois en deux voies.
+ *
+ * <ul>
+ *     <li>{@link Lane#LIVE} : dernière position et événements signalés ({@link #flag(Location)},
+ *     par exemple les visites), quel que soit leur âge. Envoi immédiat, sans attente
+ *     de regroupement, plusieurs appels en parallèle.</li>
+ *     <li>{@link Lane#BULK} : arriéré (positions anciennes d'un lot, tampon Direct Boot,
+ *     envois en échec). Regroupé en gros lots après une attente, un seul appel à la fois,
+ *     et jamais tant que la voie directe a du travail. Un échec est retenté avec un délai
+ *     croissant, ou dès le retour du réseau.</li>
+ * </ul>
+ *
+ * <p>Après une reconnexion, la position courante part donc en quelques secondes,
+ * avant l'arriéré. Chaque voie a ses propres compteurs.</p>
+ *
+ * <p>Chaque position en mémoire réserve sa part du {@link MemoryBudget}. Quand
+ * l'arriéré ne tient plus dans le budget, il est mis de côté dans la {@link SpillQueue}
+ * (une position écrite sur disque compte comme remise), puis rechargé par lots dès
+ * que la mémoire se libère. Une position rechargée n'est retirée du disque qu'une fois
+ * son envoi confirmé, dans l'ordre de la file : un arrêt brutal la fait renvoyer
+ * (les envois sont idempotents). Tant que le disque n'est pas vide, le nouvel arriéré
+ * le suit pour garder l'ordre. À l'arrêt, tout ce qui attend en mémoire y est écrit :
+ * plusieurs jours hors ligne ne coûtent que 56 octets par position.</p>
+ *
+ * <p>Une position de l'arriéré déjà confirmée ({@link AckTracker}), par exemple rechargée
+ * après un arrêt survenu entre sa confirmation et son retrait du disque, n'est pas renvoyée.</p>
+ */
+public class UploadScheduler {
+
+    private static final String TAG = "UploadScheduler";
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+    static final String EXTRA_FLAGGED = "flagged";
+
+    public enum Lane {
+        LIVE,
+        BULK
+    }
+
+    /**
+     * Envoi d'un lot (en pratique {@link LocationRepository#createMany(List)})
+     */
+    public interface Uploader {
+        Task<String> upload(List<Location> locations);
+    }
+
+    /**
+     * Résultat de chaque appel, sur le thread principal
+     */
+    public interface Listener {
+        void onUploaded(Lane lane, List<Location> locations);
+
+        void onFailed(Lane lane, List<Location> locations, Exception e);
+    }
+
+    /**
+     * Compteurs d'une voie
+     */
+    @Getter
+    @Builder
+    @ToString
+    public static class LaneMetrics {
+        private final Lane lane;
+        private final int queued;
+        private final int inFlight;
+        private final long submittedFixes;
+        private final long uploadedFixes;
+        // Positions en attente sur disque (arriéré uniquement)
+        private final long spilled;
+        private final long calls;
+        private final long failedCalls;
+        private final long averageQueueWaitMillis;
+        private final long maxQueueWaitMillis;
+        private final long averageLatencyMillis;
+        private final long maxLatencyMillis;
+    }
+
+    /**
+     * Positions soumises ensemble : leur tâche aboutit quand toutes sont envoyées
+     */
+    private static final class Submission {
+        private final TaskCompletionSource<Void> completion = new TaskCompletionSource<>();
+        private int remaining;
+    }
+
+    /**
+     * Position en attente ; sans soumission quand elle est rechargée depuis le disque,
+     * elle porte alors son rang dans la file sur disque
+     */
+    private static final class Entry {
+        private final Location location;
+        private final Submission submission;
+        private final long enqueuedAt;
+        private final long spillGeneration;
+        private final long spillOrdinal;
+
+        private Entry(final Location location, final Submission submission, final long enqueuedAt) {
+            this(location, submission, enqueuedAt, 0, -1);
+        }
+
+        private Entry(final Location location, final Submission submission, final long enqueuedAt,
+                      final long spillGeneration, final long spillOrdinal) {
+            this.location = location;
+            this.submission = submission;
+            this.enqueuedAt = enqueuedAt;
+            this.spillGeneration = spillGeneration;
+            this.spillOrdinal = spillOrdinal;
+        }
+
+        private boolean isReloaded() {
+            return spillOrdinal >= 0;
+        }
+    }
+
+    private static final class LaneState {
+        private final Lane lane;
+        private final int concurrency;
+        private final int maxBatch;
+        private final long linger;
+        private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+        // Lots en cours d'envoi
+        private final List<List<Entry>> sending = new ArrayList<>();
+        private int inFlight;
+        private long submittedFixes;
+        private long uploadedFixes;
+        private long calls;
+        private long failedCalls;
+        private long totalQueueWait;
+        private long maxQueueWait;
+        private long totalLatency;
+        private long maxLatency;
+
+        private LaneState(final Lane lane, final int concurrency, final int maxBatch, final long linger) {
+            this.lane = lane;
+            this.concurrency = concurrency;
+            this.maxBatch = maxBatch;
+            this.linger = linger;
+        }
+
+        private LaneMetrics toMetrics(final long spilled) {
+            final var finished = calls + failedCalls;
+            return LaneMetrics.builder()
+                    .lane(lane)
+                    .queued(queue.size())
+                    .inFlight(inFlight)
+                    .submittedFixes(submittedFixes)
+                    .uploadedFixes(uploadedFixes)
+                    .spilled(spilled)
+                    .calls(calls)
+                    .failedCalls(failedCalls)
+                    .averageQueueWaitMillis(finished + inFlight > 0 ? totalQueueWait / (finished + inFlight) : 0)
+                    .maxQueueWaitMillis(maxQueueWait)
+                    .averageLatencyMillis(finished > 0 ? totalLatency / finished : 0)
+                    .maxLatencyMillis(maxLatency)
+                    .build();
+        }
+    }
+
+    private final Uploader uploader;
+    private final MemoryBudget memoryBudget;
+    private final SpillQueue spillQueue;
+    private final AckTracker ackTracker;
+    // Arrêté une fois l'arrêt demandé et les derniers appels terminés, recréé au démarrage suivant
+    private ExecutorService spillExecutor = newSpillExecutor();
+    private final long liveMaxAge;
+    private final long retryDelay;
+    private final LaneState live;
+    private final LaneState bulk;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable dispatchTask = this::dispatch;
+
+    @Setter
+    private volatile Listener listener;
+
+    private boolean running;
+    private long backoff;
+    // Attente de regroupement de l'arriéré (levée par un lot plein)
+    private long bulkLingerUntil;
+    // Délai après échec de l'arriéré (toujours respecté)
+    private long bulkRetryAt;
+    // Positions sur disque, et en cours d'écriture (l'arriéré les suit tant qu'il y en a)
+    private long spilled;
+    private long spillPending;
+    // Faux tant que la taille de la file sur disque n'a pas été relue au démarrage
+    private boolean spillSizeKnown;
+    private boolean reloading;
+    // Rangs (depuis le démarrage) de la tête sur disque et de la prochaine position à recharger :
+    // entre les deux, les positions rechargées pas encore confirmées
+    private long spillHead;
+    private long spillNext;
+    private final TreeSet<Long> spillAcked = new TreeSet<>();
+    // Les confirmations d'une exécution précédente sont ignorées (rangs recalculés)
+    private long spillGeneration;
+
+    /**
+     * @param liveMaxAge    au-delà de cet âge (ms), une position d'un lot direct part dans l'arriéré
+     * @param bulkLinger    attente (ms) pour regrouper l'arriéré en lots pleins
+     * @param retryDelay    premier délai (ms) avant de retenter un envoi d'arriéré en échec
+     */
+    public UploadScheduler(@NonNull final Uploader uploader,
+                           @NonNull final MemoryBudget memoryBudget,
+                           @NonNull final SpillQueue spillQueue,
+                           @NonNull final AckTracker ackTracker,
+                           final int liveConcurrency, final int liveMaxBatch, final long liveMaxAge,
+                           final int bulkConcurrency, final int bulkMaxBatch, final long bulkLinger,
+                           final long retryDelay) {
+        this.uploader = uploader;
+        this.memoryBudget = memoryBudget;
+        this.spillQueue = spillQueue;
+        this.ackTracker = ackTracker;
+        this.liveMaxAge = liveMaxAge;
+        this.retryDelay = retryDelay;
+        this.live = new LaneState(Lane.LIVE, liveConcurrency, liveMaxBatch, 0);
+        this.bulk = new LaneState(Lane.BULK, bulkConcurrency, bulkMaxBatch, bulkLinger);
+    }
+
+    /**
+     * Démarrer ; l'arriéré laissé sur disque par une exécution précédente est repris
+     */
+    public synchronized void start() {
+        running = true;
+        backoff = 0;
+        spillGeneration++;
+        spillHead = 0;
+        spillNext = 0;
+        spillAcked.clear();
+        spillSizeKnown = false;
+        final var previous = spillExecutor.isShutdown() ? spillExecutor : null;
+        if (previous != null) {
+            spillExecutor = newSpillExecutor();
+        }
+        spillExecutor.execute(() -> {
+            if (previous != null) {
+                // Écritures de l'exécution précédente d'abord, pour relire la taille complète
+                awaitTermination(previous);
+            }
+            final var size = spillQueue.size();
+            synchronized (this) {
+                // Les écritures soumises depuis sont comptées à leur fin
+                spilled = size;
+                spillSizeKnown = true;
+            }
+            if (size > 0) {
+                Log.i(TAG, size + " position(s) en attente sur disque");
+                handler.post(dispatchTask);
+            }
+        });
+        handler.post(dispatchTask);
+    }
+
+    /**
+     * Arrêter l'ordonnancement ; les positions en attente en mémoire sont écrites
+     * sur disque et repartiront au prochain démarrage (les appels en cours vont à leur terme).
+     * Le thread d'écriture s'arrête après la dernière écriture.
+     *
+     * @return nombre de positions mises de côté
+     */
+    public synchronized int shutdown() {
+        running = false;
+        handler.removeCallbacks(dispatchTask);
+        final var pending = new ArrayList<Entry>(live.queue.size() + bulk.queue.size());
+        pending.addAll(bulk.queue);
+        pending.addAll(live.queue);
+        live.queue.clear();
+        bulk.queue.clear();
+        final var count = spill(pending, true);
+        stopSpillExecutorIfIdle();
+        return count;
+    }
+
+    private static ExecutorService newSpillExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            final var thread = new Thread(runnable, "upload-spill");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Arrêté, sans appel en cours : plus rien à écrire, le thread d'écriture termine
+     * les tâches déjà soumises puis s'arrête (un échec en cours serait encore écrit sur disque)
+     */
+    private void stopSpillExecutorIfIdle() {
+        if (!running && live.inFlight == 0 && bulk.inFlight == 0) {
+            spillExecutor.shutdown();
+        }
+    }
+
+    private static void awaitTermination(final ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                Log.w(TAG, "Écritures précédentes non terminées, taille sur disque provisoire");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Signaler une position ou un événement : il passe par la voie directe même ancien
+     * (conservé dans ses extras, et sur disque par {@link FixRecords})
+     */
+    public static void flag(@NonNull final Location location) {
+        final var extras = location.getExtras() != null ? new Bundle(location.getExtras()) : new Bundle();
+        extras.putBoolean(EXTRA_FLAGGED, true);
+        location.setExtras(extras);
+    }
+
+    public static boolean isFlagged(@NonNull final Location location) {
+        final var extras = location.getExtras();
+        return extras != null && extras.getBoolean(EXTRA_FLAGGED);
+    }
+
+    /**
+     * Positions fraîchement retenues : la plus récente, les positions récentes et les
+     * positions signalées passent en direct, les plus anciennes rejoignent l'arriéré
+     */
+    public Task<Void> submitLive(@NonNull final List<Location> locations) {
+        if (locations.isEmpty()) {
+            return submit(Lane.LIVE, locations);
+        }
+        final var now = System.currentTimeMillis();
+        final var newest = locations.get(locations.size() - 1);
+        final var fresh = new ArrayList<Location>(locations.size());
+        final var stale = new ArrayList<Location>();
+        for (Location location : locations) {
+            if (location == newest || isFlagged(location) || now - location.getTime() <= liveMaxAge) {
+                fresh.add(location);
+            } else {
+                stale.add(location);
+            }
+        }
+        if (stale.isEmpty()) {
+            return submit(Lane.LIVE, fresh);
+        }
+        Log.d(TAG, stale.size() + " position(s) ancienne(s) passée(s) dans l'arriéré");
+        final var backlog = submit(Lane.BULK, stale);
+        final var current = submit(Lane.LIVE, fresh);
+        return Tasks.whenAll(current, backlog);
+    }
+
+    /**
+     * Soumettre des positions à une voie ; la tâche aboutit quand toutes sont envoyées
+     */
+    public synchronized Task<Void> submit(@NonNull final Lane lane, @NonNull final List<Location> locations) {
+        final var submission = new Submission();
+        if (locations.isEmpty()) {
+            submission.completion.trySetResult(null);
+            return submission.completion.getTask();
+        }
+        if (!running) {
+            submission.completion.trySetException(new CancellationException("Envois arrêtés"));
+            return submission.completion.getTask();
+        }
+        final var now = SystemClock.elapsedRealtime();
+        submission.remaining = locations.size();
+        final var entries = new ArrayList<Entry>(locations.size());
+        for (Location location : locations) {
+            entries.add(new Entry(location, submission, now));
+        }
+        if (lane == Lane.LIVE) {
+            // La voie directe ne déborde jamais : elle est bornée par les lots livrés
+            memoryBudget.reserve(entries.size() * MemoryBudget.FIX_FOOTPRINT);
+            live.queue.addAll(entries);
+            live.submittedFixes += entries.size();
+        } else {
+            bulk.submittedFixes += entries.size();
+            enqueueBulk(entries, false);
+        }
+        handler.post(dispatchTask);
+        return submission.completion.getTask();
+    }
+
+    /**
+     * Réseau de retour : l'arriéré est retenté sans attendre la fin du délai
+     */
+    public synchronized void retryNow() {
+        if (!bulk.queue.isEmpty() || spilled > 0) {
+            backoff = 0;
+            bulkLingerUntil = 0;
+            bulkRetryAt = 0;
+            handler.post(dispatchTask);
+        }
+    }
+
+    /**
+     * Plus petit numéro de séquence encore en mémoire (files et envois en cours),
+     * {@link Long#MAX_VALUE} s'il n'y en a aucun, ou -1 tant que des positions
+     * attendent sur disque (ou que leur nombre n'est pas encore connu)
+     */
+    public synchronized long getOutstandingFloor() {
+        if (!spillSizeKnown || spilled + spillPending > 0) {
+            return -1;
+        }
+        var floor = Long.MAX_VALUE;
+        for (LaneState state : List.of(live, bulk)) {
+            floor = Math.min(floor, minSequence(state.queue));
+            for (List<Entry> batch : state.sending) {
+                floor = Math.min(floor, minSequence(batch));
+            }
+        }
+        return floor;
+    }
+
+    private static long minSequence(final Iterable<Entry> entries) {
+        var floor = Long.MAX_VALUE;
+        for (Entry entry : entries) {
+            final var sequence = FixIdentity.getSequence(entry.location);
+            if (sequence >= 0) {
+                floor = Math.min(floor, sequence);
+            }
+        }
+        return floor;
+    }
+
+    public synchronized List<LaneMetrics> getMetrics() {
+        return List.of(live.toMetrics(0), bulk.toMetrics(unread() + spillPending));
+    }
+
+    /**
+     * Ajouter à l'arriéré en mémoire si le budget le permet et que rien n'attend
+     * sur disque, sinon à la suite sur disque
+     *
+     * @param reserved les positions ont déjà leur part du budget (échec direct)
+     */
+    private void enqueueBulk(final List<Entry> entries, final boolean reserved) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        final var bytes = entries.size() * MemoryBudget.FIX_FOOTPRINT;
+        if (spilled + spillPending > 0 || !(reserved || memoryBudget.tryReserve(bytes))) {
+            spill(entries, reserved);
+            return;
+        }
+        if (bulk.queue.isEmpty()) {
+            // Premier élément d'arriéré : laisser le temps aux suivants de se regrouper
+            bulkLingerUntil = SystemClock.elapsedRealtime() + bulk.linger;
+        }
+        bulk.queue.addAll(entries);
+    }
+
+    /**
+     * Écrire des positions sur disque (thread dédié) ; une fois écrites, leur part
+     * du budget est rendue et elles comptent comme remises à leur soumission.
+     * En cas d'échec d'écriture, elles restent en mémoire malgré le budget.
+     * Les positions rechargées, toujours sur disque, sont seulement libérées.
+     *
+     * @return nombre de positions écrites
+     */
+    private int spill(final List<Entry> batch, final boolean reserved) {
+        final var entries = new ArrayList<Entry>(batch.size());
+        for (Entry entry : batch) {
+            if (entry.isReloaded()) {
+                memoryBudget.release(MemoryBudget.FIX_FOOTPRINT);
+            } else {
+                entries.add(entry);
+            }
+        }
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        spillPending += entries.size();
+        final var locations = new ArrayList<Location>(entries.size());
+        for (Entry entry : entries) {
+            locations.add(entry.location);
+        }
+        spillExecutor.execute(() -> {
+            try {
+                spillQueue.append(locations);
+            } catch (IOException e) {
+                Log.e(TAG, "Écriture sur disque impossible, " + entries.size() + " position(s) gardée(s) en mémoire", e);
+                onSpillFailed(entries, reserved);
+                return;
+            }
+            onSpilled(entries, reserved);
+        });
+        return entries.size();
+    }
+
+    private synchronized void onSpilled(final List<Entry> entries, final boolean reserved) {
+        spillPending -= entries.size();
+        spilled += entries.size();
+        if (reserved) {
+            memoryBudget.release(entries.size() * MemoryBudget.FIX_FOOTPRINT);
+        }
+        for (Entry entry : entries) {
+            delivered(entry);
+        }
+        Log.d(TAG, entries.size() + " position(s) mise(s) de côté sur disque, " + spilled + " en attente");
+        if (running) {
+            // Rechargeables dès maintenant si la mémoire s'est libérée entre-temps
+            handler.post(dispatchTask);
+        }
+    }
+
+    private synchronized void onSpillFailed(final List<Entry> entries, final boolean reserved) {
+        spillPending -= entries.size();
+        if (!running) {
+            // Perdues : leurs numéros seront abandonnés une fois l'arriéré vidé (voir AckTracker#skipTo)
+            for (Entry entry : entries) {
+                cancelled(entry);
+            }
+            if (reserved) {
+                memoryBudget.release(entries.size() * MemoryBudget.FIX_FOOTPRINT);
+            }
+            return;
+        }
+        if (!reserved) {
+            memoryBudget.reserve(entries.size() * MemoryBudget.FIX_FOOTPRINT);
+        }
+        bulk.queue.addAll(entries);
+        handler.post(dispatchTask);
+    }
+
+    /**
+     * Positions sur disque pas encore rechargées
+     */
+    private long unread() {
+        return spilled - (spillNext - spillHead);
+    }
+
+    /**
+     * Recharger depuis le disque ce que la mémoire libre permet, à la suite de l'arriéré ;
+     * les positions rechargées restent sur disque jusqu'à leur confirmation
+     */
+    private void reloadIfRoom() {
+        if (reloading || unread() <= 0 || bulk.queue.size() >= bulk.maxBatch) {
+            return;
+        }
+        final var room = (int) Math.min(bulk.maxBatch - bulk.queue.size(),
+                memoryBudget.getAvailable() / MemoryBudget.FIX_FOOTPRINT);
+        if (room <= 0) {
+            return;
+        }
+        reloading = true;
+        memoryBudget.reserve(room * MemoryBudget.FIX_FOOTPRINT);
+        final var generation = spillGeneration;
+        final var first = spillNext;
+        // Les retraits déjà soumis passent avant sur le même thread : rang relatif à la tête
+        final var skip = spillNext - spillHead;
+        spillExecutor.execute(() -> {
+            List<Location> locations;
+            try {
+                locations = spillQueue.peek(skip, room);
+            } catch (IOException e) {
+                Log.e(TAG, "Lecture du disque impossible, reprise au prochain démarrage", e);
+                locations = null;
+            }
+            onReloaded(locations, room, generation, first);
+        });
+    }
+
+    private synchronized void onReloaded(@Nullable final List<Location> locations, final int reserved,
+                                         final long generation, final long first) {
+        reloading = false;
+        final var count = locations != null ? locations.size() : 0;
+        if (!running || generation != spillGeneration) {
+            // Arrêté pendant la lecture : les positions sont toujours sur disque
+            memoryBudget.release(reserved * MemoryBudget.FIX_FOOTPRINT);
+            return;
+        }
+        memoryBudget.release((reserved - count) * MemoryBudget.FIX_FOOTPRINT);
+        spillNext = first + count;
+        if (count == 0) {
+            // Fichier illisible ou plus court que prévu : le reste attend le prochain démarrage
+            spilled = spillNext - spillHead;
+            return;
+        }
+        final var now = SystemClock.elapsedRealtime();
+        final var entries = new ArrayList<Entry>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new Entry(locations.get(i), null, now, generation, first + i));
+        }
+        bulk.queue.addAll(dropAcknowledged(entries));
+        Log.d(TAG, count + " position(s) rechargée(s) depuis le disque");
+        handler.post(dispatchTask);
+    }
+
+    /**
+     * Confirmer des positions rechargées : la tête sur disque avance sur les positions
+     * confirmées consécutives (synchronisée sur disque par le thread dédié)
+     */
+    private void acknowledgeReloaded(final List<Entry> batch) {
+        for (Entry entry : batch) {
+            if (entry.isReloaded() && entry.spillGeneration == spillGeneration) {
+                spillAcked.add(entry.spillOrdinal);
+            }
+        }
+        var count = 0L;
+        while (spillAcked.remove(spillHead + count)) {
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        spillHead += count;
+        spilled -= count;
+        final var removed = count;
+        spillExecutor.execute(() -> {
+            try {
+                spillQueue.remove(removed);
+            } catch (IOException e) {
+                // Tête inchangée : ces positions seront renvoyées au prochain démarrage
+                Log.e(TAG, "Mise à jour de la file sur disque impossible", e);
+            }
+        });
+    }
+
+    private void dispatch() {
+        final var batches = new ArrayList<List<Entry>>();
+        final var lanes = new ArrayList<LaneState>();
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            final var now = SystemClock.elapsedRealtime();
+            reloadIfRoom();
+            while (live.inFlight < live.concurrency && !live.queue.isEmpty()) {
+                batches.add(take(live, now));
+                lanes.add(live);
+            }
+            // L'arriéré attend que la voie directe soit vide
+            final var liveIdle = live.queue.isEmpty() && live.inFlight == 0;
+            while (liveIdle && bulk.inFlight < bulk.concurrency && !bulk.queue.isEmpty()) {
+                final var notBefore = bulk.queue.size() >= bulk.maxBatch
+                        ? bulkRetryAt
+                        : Math.max(bulkRetryAt, bulkLingerUntil);
+                if (now < notBefore) {
+                    handler.removeCallbacks(dispatchTask);
+                    handler.postAtTime(dispatchTask, SystemClock.uptimeMillis() + (notBefore - now));
+                    break;
+                }
+                batches.add(take(bulk, now));
+                lanes.add(bulk);
+            }
+        }
+        for (int i = 0; i < batches.size(); i++) {
+            send(lanes.get(i), batches.get(i));
+        }
+    }
+
+    private List<Entry> take(final LaneState state, final long now) {
+        final var batch = new ArrayList<Entry>(Math.min(state.queue.size(), state.maxBatch));
+        while (batch.size() < state.maxBatch && !state.queue.isEmpty()) {
+            batch.add(state.queue.pollFirst());
+        }
+        final var wait = now - batch.get(0).enqueuedAt;
+        state.totalQueueWait += wait;
+        state.maxQueueWait = Math.max(state.maxQueueWait, wait);
+        state.inFlight++;
+        state.sending.add(batch);
+        return batch;
+    }
+
+    /**
+     * Écarter les positions déjà confirmées (rechargées du disque, renvoyées après
+     * un échec) : elles comptent comme remises sans nouvel appel, leur part du budget
+     * est rendue. Retourne les positions restant à envoyer.
+     */
+    private List<Entry> dropAcknowledged(final List<Entry> entries) {
+        final var pending = new ArrayList<Entry>(entries.size());
+        final var skipped = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            final var sequence = FixIdentity.getSequence(entry.location);
+            if (sequence >= 0 && ackTracker.isAcked(sequence)) {
+                skipped.add(entry);
+            } else {
+                pending.add(entry);
+            }
+        }
+        if (skipped.isEmpty()) {
+            return entries;
+        }
+        memoryBudget.release(skipped.size() * MemoryBudget.FIX_FOOTPRINT);
+        acknowledgeReloaded(skipped);
+        for (Entry entry : skipped) {
+            delivered(entry);
+        }
+        Log.d(TAG, skipped.size() + " position(s) déjà confirmée(s) écartée(s) de l'arriéré");
+        return pending;
+    }
+
+    private void send(final LaneState state, final List<Entry> batch) {
+        final var locations = new ArrayList<Location>(batch.size());
+        for (Entry entry : batch) {
+            locations.add(entry.location);
+        }
+        final var start = SystemClock.elapsedRealtime();
+        Task<String> upload;
+        try {
+            upload = uploader.upload(locations);
+        } catch (RuntimeException e) {
+            final var failed = new TaskCompletionSource<String>();
+            failed.setException(e);
+            upload = failed.getTask();
+        }
+        upload.addOnCompleteListener(task -> {
+            final var latency = SystemClock.elapsedRealtime() - start;
+            if (task.isSuccessful()) {
+                onSuccess(state, batch, latency);
+                final var current = listener;
+                if (current != null) {
+                    current.onUploaded(state.lane, locations);
+                }
+            } else {
+                onFailure(state, batch, latency);
+                final var current = listener;
+                if (current != null) {
+                    current.onFailed(state.lane, locations, task.getException());
+                }
+            }
+            dispatch();
+        });
+    }
+
+    private synchronized void onSuccess(final LaneState state, final List<Entry> batch, final long latency) {
+        state.inFlight--;
+        state.sending.remove(batch);
+        state.calls++;
+        state.uploadedFixes += batch.size();
+        recordLatency(state, latency);
+        memoryBudget.release(batch.size() * MemoryBudget.FIX_FOOTPRINT);
+        if (state == bulk) {
+            backoff = 0;
+        }
+        acknowledgeReloaded(batch);
+        for (Entry entry : batch) {
+            delivered(entry);
+        }
+        stopSpillExecutorIfIdle();
+    }
+
+    /**
+     * Un échec direct passe dans l'arriéré ; un échec d'arriéré y retourne en tête,
+     * avec un délai doublé à chaque échec consécutif
+     */
+    private synchronized void onFailure(final LaneState state, final List<Entry> batch, final long latency) {
+        state.inFlight--;
+        state.sending.remove(batch);
+        state.failedCalls++;
+        recordLatency(state, latency);
+        if (!running) {
+            // Arrêt pendant l'appel : mis de côté comme le reste de l'arriéré
+            spill(batch, true);
+            stopSpillExecutorIfIdle();
+            return;
+        }
+        final var retry = dropAcknowledged(batch);
+        if (state == live) {
+            enqueueBulk(retry, true);
+        } else {
+            for (int i = retry.size() - 1; i >= 0; i--) {
+                bulk.queue.addFirst(retry.get(i));
+            }
+        }
+        backoff = backoff == 0 ? retryDelay : Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        bulkRetryAt = SystemClock.elapsedRealtime() + backoff;
+        Log.w(TAG, batch.size() + " position(s) en échec (" + state.lane + "), nouvel essai dans " + backoff + " ms");
+    }
+
+    private static void delivered(final Entry entry) {
+        if (entry.submission != null && --entry.submission.remaining == 0) {
+            entry.submission.completion.trySetResult(null);
+        }
+    }
+
+    private static void cancelled(final Entry entry) {
+        if (entry.submission != null) {
+            entry.submission.completion.trySetException(new CancellationException("Envois arrêtés"));
+        }
+    }
+
+    private static void recordLatency(final LaneState state, final long latency) {
+        state.totalLatency += latency;
+        state.maxLatency = Math.max(state.maxLatency, latency);
+    }
+}
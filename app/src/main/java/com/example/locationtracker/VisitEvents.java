@@ -0,0 +1,91 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+import android.os.Bundle;
+
+/**
+ * Événement de visite (début ou fin) sous forme de {@link Location} signalée, pour
+ * suivre le chemin des positions : voie directe de l'{@link UploadScheduler}, nouvel
+ * essai dans l'arriéré, écriture sur disque ({@link FixRecords}).
+ *
+ * <p>Centroïde en latitude/longitude, fin (ou dernière présence) en horodatage, rayon
+ * observé en précision. L'événement porte aussi le plus grand numéro de séquence
+ * des positions qu'il résume : elles ne sont confirmées qu'une fois l'événement envoyé.
+ * Pas de numéro de séquence propre : un événement n'entre pas dans le filigrane.</p>
+ */
+final class VisitEvents {
+
+    static final String PROVIDER = "visit";
+
+    private static final String EXTRA_START_TIME = "visitStart";
+    private static final String EXTRA_FIX_COUNT = "visitFixes";
+    private static final String EXTRA_ENDED = "visitEnded";
+    private static final String EXTRA_COVERED_THROUGH = "visitCovered";
+
+    private VisitEvents() {
+    }
+
+    /**
+     * @param coveredThrough plus grand numéro des positions résumées, -1 si aucune
+     */
+    static Location create(final StayPointDetector.Visit visit, final boolean ended, final long coveredThrough) {
+        return create(visit.getStartTime(), visit.getEndTime(), visit.getLatitude(), visit.getLongitude(),
+                (float) visit.getRadiusMeters(), visit.getFixCount(), ended, coveredThrough);
+    }
+
+    static Location create(final long startTime, final long endTime, final double latitude, final double longitude,
+                           final float radiusMeters, final int fixCount, final boolean ended,
+                           final long coveredThrough) {
+        final var location = new Location(PROVIDER);
+        location.setTime(endTime);
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setAccuracy(radiusMeters);
+        final var extras = new Bundle();
+        extras.putLong(EXTRA_START_TIME, startTime);
+        extras.putInt(EXTRA_FIX_COUNT, fixCount);
+        extras.putBoolean(EXTRA_ENDED, ended);
+        extras.putLong(EXTRA_COVERED_THROUGH, coveredThrough);
+        location.setExtras(extras);
+        UploadScheduler.flag(location);
+        return location;
+    }
+
+    static boolean isVisit(final Location location) {
+        final var extras = location.getExtras();
+        return extras != null && extras.containsKey(EXTRA_START_TIME);
+    }
+
+    static StayPointDetector.Visit getVisit(final Location location) {
+        final var extras = location.getExtras();
+        return StayPointDetector.Visit.builder()
+                .startTime(extras.getLong(EXTRA_START_TIME))
+                .endTime(location.getTime())
+                .latitude(location.getLatitude())
+                .longitude(location.getLongitude())
+                .radiusMeters(location.getAccuracy())
+                .fixCount(extras.getInt(EXTRA_FIX_COUNT))
+                .build();
+    }
+
+    static boolean isEnded(final Location location) {
+        final var extras = location.getExtras();
+        return extras != null && extras.getBoolean(EXTRA_ENDED);
+    }
+
+    static long getStartTime(final Location location) {
+        return location.getExtras().getLong(EXTRA_START_TIME);
+    }
+
+    static int getFixCount(final Location location) {
+        return location.getExtras().getInt(EXTRA_FIX_COUNT);
+    }
+
+    /**
+     * Plus grand numéro des positions résumées par l'événement, -1 si aucune
+     */
+    static long getCoveredThrough(final Location location) {
+        final var extras = location.getExtras();
+        return extras != null ? extras.getLong(EXTRA_COVERED_THROUGH, -1) : -1;
+    }
+}
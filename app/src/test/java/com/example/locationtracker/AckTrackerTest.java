@@ -0,0 +1,127 @@
+package com.example.locationtracker;
+
+import static com.example.locationtracker.TestFixes.fixes;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Fenêtre de confirmations : le filigrane ne dépasse jamais une position non confirmée,
+ * même quand la voie directe confirme loin devant un arriéré hors ligne.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AckTrackerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ServiceStateStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = ServiceStateStore.open(folder.newFile("state.bin"));
+    }
+
+    @Test
+    public void outOfOrderAcksAdvanceWatermarkWhenContiguous() {
+        final var tracker = new AckTracker(store);
+        tracker.ack(fixes(5, 10));
+        Assert.assertEquals(0, tracker.getWatermark());
+        Assert.assertTrue(tracker.isAcked(7));
+        Assert.assertFalse(tracker.isAcked(2));
+
+        tracker.ack(fixes(0, 5));
+        Assert.assertEquals(10, tracker.getWatermark());
+        Assert.assertEquals(10, store.getLong(ServiceStateStore.Key.ACK_WATERMARK));
+    }
+
+    @Test
+    public void ackBeyondWindowKeepsUnackedBacklog() {
+        final var tracker = new AckTracker(store);
+        // Voie directe : positions récentes confirmées loin devant l'arriéré
+        final var live = fixes(AckTracker.WINDOW + 100, AckTracker.WINDOW + 110);
+        tracker.ack(live);
+
+        Assert.assertEquals(0, tracker.getWatermark());
+        Assert.assertEquals(0, store.getLong(ServiceStateStore.Key.ACK_WATERMARK));
+        Assert.assertTrue(tracker.isAcked(AckTracker.WINDOW + 105));
+        Assert.assertFalse(tracker.isAcked(0));
+        Assert.assertFalse(tracker.isAcked(AckTracker.WINDOW + 99));
+
+        final var backlog = fixes(0, 200);
+        Assert.assertEquals(200, tracker.filterUnacked(backlog).size());
+        Assert.assertTrue(tracker.filterUnacked(live).isEmpty());
+
+        // L'arriéré part : le filigrane rattrape les confirmations mises à part
+        tracker.ack(fixes(0, AckTracker.WINDOW + 100));
+        Assert.assertEquals(AckTracker.WINDOW + 110, tracker.getWatermark());
+        Assert.assertFalse(tracker.isAcked(AckTracker.WINDOW + 110));
+    }
+
+    @Test
+    public void watermarkIsRestoredWithoutOverflow() {
+        final var tracker = new AckTracker(store);
+        tracker.ack(fixes(0, 3));
+        tracker.ack(fixes(3 * AckTracker.WINDOW, 3 * AckTracker.WINDOW + 1));
+
+        final var restored = new AckTracker(store);
+        Assert.assertEquals(3, restored.getWatermark());
+        // Confirmations hors fenêtre non persistées : renvoyées après redémarrage
+        Assert.assertFalse(restored.isAcked(3 * AckTracker.WINDOW));
+        Assert.assertFalse(restored.isAcked(3));
+    }
+
+    @Test
+    public void neverAckedSequenceIsSkippedOnceReleased() {
+        final var tracker = new AckTracker(store);
+        // La position 5 a été perdue avec le processus : jamais confirmée
+        tracker.ack(fixes(0, 5));
+        tracker.ack(fixes(6, 100));
+        Assert.assertEquals(5, tracker.getWatermark());
+        Assert.assertTrue(tracker.hasGaps());
+
+        Assert.assertEquals(0, tracker.skipTo(3));
+        Assert.assertEquals(1, tracker.skipTo(6));
+        Assert.assertEquals(100, tracker.getWatermark());
+        Assert.assertEquals(100, store.getLong(ServiceStateStore.Key.ACK_WATERMARK));
+        Assert.assertFalse(tracker.hasGaps());
+    }
+
+    @Test
+    public void skipKeepsAcksBeyondFloor() {
+        final var tracker = new AckTracker(store);
+        final var far = (long) AckTracker.WINDOW + 10;
+        tracker.ack(fixes(1, 10));
+        tracker.ack(fixes(far, far + 10));
+        Assert.assertEquals(0, tracker.getWatermark());
+
+        // Au-delà de la fenêtre : 0, puis 10 à far - 5 jamais confirmées
+        Assert.assertEquals(1 + (far - 5 - 10), tracker.skipTo(far - 5));
+        Assert.assertEquals(far - 5, tracker.getWatermark());
+        Assert.assertTrue(tracker.isAcked(far + 3));
+        Assert.assertFalse(tracker.isAcked(far - 1));
+        Assert.assertTrue(tracker.hasGaps());
+
+        tracker.ack(fixes(far - 5, far));
+        Assert.assertEquals(far + 10, tracker.getWatermark());
+        Assert.assertFalse(tracker.hasGaps());
+    }
+
+    @Test
+    public void overflowCapForgetsFarthestAcks() {
+        final var tracker = new AckTracker(store);
+        final var first = (long) AckTracker.WINDOW;
+        tracker.ack(fixes(first, first + AckTracker.MAX_OVERFLOW + 1));
+
+        Assert.assertEquals(0, tracker.getWatermark());
+        Assert.assertTrue(tracker.isAcked(first));
+        Assert.assertTrue(tracker.isAcked(first + AckTracker.MAX_OVERFLOW - 1));
+        // Oubliée : sera renvoyée, jamais tenue pour confirmée à tort
+        Assert.assertFalse(tracker.isAcked(first + AckTracker.MAX_OVERFLOW));
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.locationtracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Différences d'état de l'appareil : le décodeur reconstruit l'état complet, chaque lot
+ * reste décodable seul, même préparé en parallèle d'autres lots, et les lots suivants
+ * ne portent que les différences avec le dernier état confirmé.
+ */
+public class DeviceStatusCodecTest {
+
+    @Test
+    public void diffsReconstructFullState() {
+        final var encoder = new DeviceStatusCodec.Encoder();
+        final var decoder = new DeviceStatusCodec.Decoder();
+        final var first = status(80, true, 1_000);
+        final var same = status(80, true, 2_000);
+        final var changed = status(79, false, 3_000);
+
+        final var full = encoder.encode(first, false);
+        Assert.assertEquals(Boolean.TRUE, full.get(DeviceStatusCodec.FULL));
+        Assert.assertEquals(first.toMap(), decoder.apply(full));
+
+        // Rien de changé hors horodatage : numéro seul
+        final var empty = encoder.encode(same, false);
+        Assert.assertEquals(1, empty.size());
+        Assert.assertEquals(first.toMap(), decoder.apply(empty));
+
+        final var diff = encoder.encode(changed, false);
+        Assert.assertEquals(79, diff.get("batteryPercent"));
+        Assert.assertEquals(false, diff.get("screenOn"));
+        Assert.assertFalse(diff.containsKey("model"));
+        Assert.assertEquals(changed.toMap(), decoder.apply(diff));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void diffWithoutBaseIsRejected() {
+        final var encoder = new DeviceStatusCodec.Encoder();
+        encoder.encode(status(80, true, 1_000), true);
+        final var diff = encoder.encode(status(70, true, 2_000), false);
+        new DeviceStatusCodec.Decoder().apply(diff);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingSequenceIsRejected() {
+        final var encoder = new DeviceStatusCodec.Encoder();
+        final var decoder = new DeviceStatusCodec.Decoder();
+        decoder.apply(encoder.encode(status(80, true, 1_000), true));
+        encoder.encode(status(70, true, 2_000), false);
+        decoder.apply(encoder.encode(status(60, true, 3_000), false));
+    }
+
+    @Test
+    public void concurrentBatchesDecodeIndependently() throws Exception {
+        final var encoder = new DeviceStatusCodec.Encoder();
+        final var executor = Executors.newFixedThreadPool(4);
+        try {
+            final var tasks = new ArrayList<Callable<List<Map<String, Object>>>>();
+            for (int batch = 0; batch < 64; batch++) {
+                final var percent = batch;
+                tasks.add(() -> encoder.encodeBatch(status(percent, percent % 2 == 0, percent), 20));
+            }
+            for (Future<List<Map<String, Object>>> future : executor.invokeAll(tasks)) {
+                final var batch = future.get();
+                Assert.assertEquals(20, batch.size());
+                final var decoder = new DeviceStatusCodec.Decoder();
+                final var expected = decoder.apply(batch.get(0));
+                for (Map<String, Object> encoded : batch.subList(1, batch.size())) {
+                    Assert.assertEquals(expected, decoder.apply(encoded));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void batchesDiffAgainstLastConfirmedState() {
+        final var encoder = new DeviceStatusCodec.Encoder();
+        final var decoder = new DeviceStatusCodec.Decoder();
+
+        final var first = encoder.encodeBatch(status(80, true, 1_000), 1);
+        Assert.assertEquals(Boolean.TRUE, first.get(0).get(DeviceStatusCodec.FULL));
+        decoder.apply(first.get(0));
+        encoder.confirm(first.get(0));
+
+        // Rien de changé : numéro et base seuls, même pour un lot d'une position
+        final var same = encoder.encodeBatch(status(80, true, 2_000), 1);
+        Assert.assertEquals(2, same.get(0).size());
+        Assert.assertEquals(status(80, true, 1_000).toMap(), decoder.apply(same.get(0)));
+
+        final var changed = encoder.encodeBatch(status(75, true, 3_000), 3);
+        Assert.assertFalse(changed.get(0).containsKey(DeviceStatusCodec.FULL));
+        Assert.assertEquals(75, changed.get(0).get("batteryPercent"));
+        Assert.assertFalse(changed.get(0).containsKey("model"));
+        for (Map<String, Object> encoded : changed) {
+            Assert.assertEquals(status(75, true, 3_000).toMap(), decoder.apply(encoded));
+        }
+    }
+
+    @Test
+    public void lostOrReorderedBatchesStillDecode() {
+        final var encoder = new DeviceStatusCodec.Encoder();
+        final var decoder = new DeviceStatusCodec.Decoder();
+        final var base = encoder.encodeBatch(status(80, true, 1_000), 2);
+        decoder.apply(base.get(0));
+        decoder.apply(base.get(1));
+        encoder.confirm(base.get(0));
+
+        // Lot perdu (jamais confirmé), puis deux lots arrivés dans le désordre
+        encoder.encodeBatch(status(70, true, 2_000), 2);
+        final var second = encoder.encodeBatch(status(60, false, 3_000), 2);
+        final var third = encoder.encodeBatch(status(50, false, 4_000), 2);
+
+        for (Map<String, Object> encoded : third) {
+            Assert.assertEquals(status(50, false, 4_000).toMap(), decoder.apply(encoded));
+        }
+        for (Map<String, Object> encoded : second) {
+            Assert.assertEquals(status(60, false, 3_000).toMap(), decoder.apply(encoded));
+        }
+    }
+
+    @Test
+    public void resyncSendsFullState() {
+        final var encoder = new DeviceStatusCodec.Encoder();
+        final var first = encoder.encodeBatch(status(80, true, 1_000), 1);
+        encoder.confirm(first.get(0));
+        Assert.assertFalse(encoder.encodeBatch(status(80, true, 2_000), 1).get(0).containsKey(DeviceStatusCodec.FULL));
+
+        encoder.resync();
+        final var full = encoder.encodeBatch(status(80, true, 3_000), 1).get(0);
+        Assert.assertEquals(Boolean.TRUE, full.get(DeviceStatusCodec.FULL));
+        // Backend réinitialisé : l'état complet suffit
+        Assert.assertEquals(status(80, true, 3_000).toMap(), new DeviceStatusCodec.Decoder().apply(full));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownBaseIsRejected() {
+        final var encoder = new DeviceStatusCodec.Encoder();
+        encoder.confirm(encoder.encodeBatch(status(80, true, 1_000), 1).get(0));
+        new DeviceStatusCodec.Decoder().apply(encoder.encodeBatch(status(70, true, 2_000), 1).get(0));
+    }
+
+    private static DeviceStatus status(final int batteryPercent, final boolean screenOn, final long timestamp) {
+        return DeviceStatus.builder()
+                .manufacturer("Google")
+                .model("Pixel 7")
+                .androidVersion("14")
+                .screenOn(screenOn)
+                .batteryPercent(batteryPercent)
+                .charging(false)
+                .hasInternet(true)
+                .networkType("WIFI")
+                .gpsEnabled(true)
+                .fineLocationGranted(true)
+                .backgroundLocationGranted(true)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.locationtracker;
+
+import android.os.Process;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Durée d'exécution bornée : un géocodeur bloqué n'immobilise pas le thread du pool,
+ * la tâche est abandonnée une fois (callback d'abandon) et les suivantes passent.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EnrichmentExecutorTest {
+
+    private static final long RUN_TIMEOUT_MILLIS = 100;
+    private static final long DEADLINE_MILLIS = 60_000;
+
+    // Libère les géocodeurs bloqués à la fin du test
+    private final CountDownLatch release = new CountDownLatch(1);
+    private EnrichmentExecutor executor;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void stalledGeocoderIsAbandonedAndNextTaskRuns() throws InterruptedException {
+        executor = start(2);
+        final var geocoder = new StalledGeocoder(false);
+        final var dropped = new AtomicInteger();
+        final var next = new CountDownLatch(1);
+
+        executor.execute(() -> geocoder.reverseGeocode(45, 5), DEADLINE_MILLIS, RUN_TIMEOUT_MILLIS,
+                dropped::incrementAndGet);
+        Assert.assertTrue(geocoder.called.await(1, TimeUnit.SECONDS));
+        executor.execute(next::countDown, DEADLINE_MILLIS, RUN_TIMEOUT_MILLIS, null);
+
+        // Le géocodeur est toujours bloqué : la tâche suivante passe quand même
+        Assert.assertTrue(next.await(2, TimeUnit.SECONDS));
+        awaitMetrics(() -> executor.getMetrics().getTimedOut() == 1 && executor.getMetrics().getCompleted() == 1);
+        Assert.assertEquals(1, dropped.get());
+        Assert.assertEquals(0, executor.getMetrics().getFailed());
+    }
+
+    @Test
+    public void timeoutInterruptsTheCall() throws InterruptedException {
+        executor = start(1);
+        final var geocoder = new StalledGeocoder(true);
+        final var dropped = new CountDownLatch(1);
+
+        executor.execute(() -> geocoder.reverseGeocode(45, 5), DEADLINE_MILLIS, RUN_TIMEOUT_MILLIS,
+                dropped::countDown);
+
+        Assert.assertTrue(dropped.await(2, TimeUnit.SECONDS));
+        Assert.assertTrue(geocoder.interrupted.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executor.getMetrics().getTimedOut());
+    }
+
+    @Test
+    public void noFreeCallThreadDropsWithoutWaiting() throws InterruptedException {
+        executor = start(1);
+        final var geocoder = new StalledGeocoder(false);
+        final var dropped = new CountDownLatch(2);
+        final var ran = new AtomicBoolean();
+
+        executor.execute(() -> geocoder.reverseGeocode(45, 5), DEADLINE_MILLIS, RUN_TIMEOUT_MILLIS,
+                dropped::countDown);
+        Assert.assertTrue(geocoder.called.await(1, TimeUnit.SECONDS));
+        // Seul thread d'appel toujours bloqué : abandon immédiat, sans nouvel appel
+        executor.execute(() -> ran.set(true), DEADLINE_MILLIS, RUN_TIMEOUT_MILLIS, dropped::countDown);
+
+        Assert.assertTrue(dropped.await(2, TimeUnit.SECONDS));
+        Assert.assertFalse(ran.get());
+        Assert.assertEquals(2, executor.getMetrics().getTimedOut());
+    }
+
+    @Test
+    public void fastTaskCompletesWithinTimeout() throws InterruptedException {
+        executor = start(1);
+        final var done = new CountDownLatch(1);
+        final var dropped = new AtomicInteger();
+
+        executor.execute(done::countDown, DEADLINE_MILLIS, RUN_TIMEOUT_MILLIS, dropped::incrementAndGet);
+
+        Assert.assertTrue(done.await(2, TimeUnit.SECONDS));
+        awaitMetrics(() -> executor.getMetrics().getCompleted() == 1);
+        Assert.assertEquals(0, dropped.get());
+        Assert.assertEquals(0, executor.getMetrics().getTimedOut());
+    }
+
+    private static EnrichmentExecutor start(final int parallelism) {
+        final var executor = new EnrichmentExecutor("test", parallelism, 4, Process.THREAD_PRIORITY_BACKGROUND,
+                EnrichmentExecutor.RejectionPolicy.ABORT);
+        executor.start();
+        return executor;
+    }
+
+    private static void awaitMetrics(final BooleanSupplier condition) throws InterruptedException {
+        final var deadline = System.currentTimeMillis() + 2_000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Compteurs non atteints", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Géocodeur qui ne répond pas : insensible aux interruptions (API synchrone d'avant
+     * Android 13), ou interrompu proprement
+     */
+    private class StalledGeocoder implements ReverseGeocoder {
+        private final boolean interruptible;
+        private final CountDownLatch called = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        StalledGeocoder(final boolean interruptible) {
+            this.interruptible = interruptible;
+        }
+
+        @Override
+        public String reverseGeocode(final double latitude, final double longitude) {
+            called.countDown();
+            while (true) {
+                try {
+                    release.await();
+                    return null;
+                } catch (InterruptedException e) {
+                    if (interruptible) {
+                        interrupted.countDown();
+                        return null;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "stalled";
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.locationtracker;
+
+import static com.example.locationtracker.TestFixes.fixes;
+
+import android.location.Location;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+/**
+ * Traçage : percentiles sur l'anneau d'échantillons, étapes sans cookie ignorées,
+ * mesure de bout en bout une seule fois par lot, à la dernière position soldée.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FixTraceTest {
+
+    private static final long MILLI = 1_000_000;
+
+    private FixTrace trace;
+
+    @Before
+    public void setUp() {
+        trace = new FixTrace(10);
+    }
+
+    @Test
+    public void percentilesUseLatestSamples() {
+        final var large = new FixTrace(100);
+        for (int i = 1; i <= 100; i++) {
+            large.record(FixTrace.Stage.FILTER, i * MILLI);
+        }
+        final var filter = summary(large, FixTrace.Stage.FILTER);
+        Assert.assertEquals(100, filter.getCount());
+        Assert.assertEquals(50 * MILLI, filter.getP50Nanos());
+        Assert.assertEquals(99 * MILLI, filter.getP99Nanos());
+        Assert.assertEquals(100 * MILLI, filter.getMaxNanos());
+
+        // Anneau de 10 : seuls les 10 derniers comptent
+        for (int i = 1; i <= 25; i++) {
+            trace.record(FixTrace.Stage.QUEUE, i * MILLI);
+        }
+        final var queue = summary(trace, FixTrace.Stage.QUEUE);
+        Assert.assertEquals(25, queue.getCount());
+        Assert.assertEquals(10, queue.getSamples());
+        Assert.assertEquals(20 * MILLI, queue.getP50Nanos());
+        Assert.assertEquals(25 * MILLI, queue.getMaxNanos());
+    }
+
+    @Test
+    public void untracedSpanRecordsNothing() {
+        trace.start(FixTrace.Stage.FILTER, 0).end();
+        Assert.assertTrue(trace.getSummary().isEmpty());
+
+        final var span = trace.start(FixTrace.Stage.FILTER, trace.newCookie());
+        span.end();
+        span.end();
+        Assert.assertEquals(1, summary(trace, FixTrace.Stage.FILTER).getCount());
+
+        trace.start(FixTrace.Stage.PAYLOAD, trace.newCookie()).cancel();
+        Assert.assertNull(summary(trace, FixTrace.Stage.PAYLOAD));
+    }
+
+    @Test
+    public void endToEndIsMeasuredOnceAtLastSettledFix() {
+        final var locations = fixes(0, 3);
+        final var delivered = System.nanoTime();
+        for (Location location : locations) {
+            location.setElapsedRealtimeNanos(delivered - 5 * MILLI);
+        }
+        final var cookie = trace.newCookie();
+        trace.attach(locations, cookie, delivered);
+        Assert.assertEquals(cookie, FixTrace.getCookie(locations));
+        Assert.assertEquals(5 * MILLI, summary(trace, FixTrace.Stage.PROVIDER).getMaxNanos());
+
+        // Envoyées en deux fois (voie directe puis arriéré)
+        trace.complete(locations.subList(0, 2));
+        Assert.assertNull(summary(trace, FixTrace.Stage.END_TO_END));
+        trace.abandon(locations.subList(2, 3));
+        Assert.assertEquals(1, summary(trace, FixTrace.Stage.END_TO_END).getCount());
+
+        // Renvoi après coup : lot déjà soldé
+        trace.complete(locations);
+        Assert.assertEquals(1, summary(trace, FixTrace.Stage.END_TO_END).getCount());
+    }
+
+    @Test
+    public void abandonedBatchIsNotMeasured() {
+        final var locations = fixes(0, 2);
+        trace.attach(locations, trace.newCookie(), System.nanoTime());
+        trace.abandon(locations);
+        Assert.assertNull(summary(trace, FixTrace.Stage.END_TO_END));
+
+        // Positions non tracées : ignorées
+        trace.complete(fixes(10, 12));
+        Assert.assertNull(summary(trace, FixTrace.Stage.END_TO_END));
+    }
+
+    private static FixTrace.StageSummary summary(final FixTrace trace, final FixTrace.Stage stage) {
+        final List<FixTrace.StageSummary> summary = trace.getSummary();
+        for (FixTrace.StageSummary entry : summary) {
+            if (entry.getStage() == stage) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
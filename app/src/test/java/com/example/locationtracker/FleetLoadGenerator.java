@@ -0,0 +1,697 @@
+package com.example.locationtracker;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Générateur de charge : N appareils virtuels produisent des positions réalistes
+ * et l'état de l'appareil, mis en forme par {@link PayloadBuilder} (le code des envois
+ * de {@link LocationRepository}) puis envoyés au format des fonctions callable
+ * vers un serveur local de substitution (ou un endpoint donné).
+ *
+ * <p>Désactivé par défaut. Exemple :</p>
+ * <pre>
+ * ./gradlew :app:testDebugUnitTest --tests '*FleetLoadGenerator*' \
+ *     -Dloadgen.enabled=true -Dloadgen.devices=500 -Dloadgen.batchSize=4
+ * </pre>
+ *
+ * <p>Paramètres ({@code -Dloadgen.*}) : devices, batchSize, uploadIntervalMs, fixIntervalMs,
+ * durationSec, threads, serverLatencyMs, endpoint, report (fichier JSON du rapport).</p>
+ */
+public class FleetLoadGenerator {
+
+    private static final String COLLECTION_NAME = "locations";
+
+    @Test
+    public void run() throws Exception {
+        Assume.assumeTrue("Générateur de charge désactivé (-Dloadgen.enabled=true)",
+                Boolean.getBoolean("loadgen.enabled"));
+
+        final var settings = new Settings();
+        StandInServer server = null;
+        final URL url;
+        if (settings.endpoint != null) {
+            url = new URL(settings.endpoint);
+        } else {
+            server = new StandInServer(settings.serverLatencyMs, settings.threads);
+            url = server.getUrl();
+        }
+        try {
+            final var report = new LoadRun(settings, url).execute();
+            System.out.println(report.toText());
+            if (settings.reportFile != null) {
+                Files.write(Paths.get(settings.reportFile), report.toJson().getBytes(StandardCharsets.UTF_8));
+            }
+            if (server != null) {
+                System.out.printf(Locale.ROOT, "Substitut: %d état(s) reconstruit(s), %d échec(s)%n",
+                        server.getStatusRebuilt(), server.getStatusFailures());
+                Assert.assertEquals("États de l'appareil non reconstruits", 0, server.getStatusFailures());
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Paramètres lus dans les propriétés système
+     */
+    static class Settings {
+        final int devices = Integer.getInteger("loadgen.devices", 100);
+        final int batchSize = Integer.getInteger("loadgen.batchSize", 2);
+        final long uploadIntervalMs = Long.getLong("loadgen.uploadIntervalMs", 1000);
+        final long fixIntervalMs = Long.getLong("loadgen.fixIntervalMs", 10_000);
+        final int durationSec = Integer.getInteger("loadgen.durationSec", 30);
+        final int threads = Integer.getInteger("loadgen.threads", 32);
+        final long serverLatencyMs = Long.getLong("loadgen.serverLatencyMs", 20);
+        final String endpoint = System.getProperty("loadgen.endpoint");
+        final String reportFile = System.getProperty("loadgen.report");
+    }
+
+    /**
+     * Appareil virtuel : marche aléatoire à vitesse de circulation, batterie qui décroît
+     */
+    static class VirtualDevice {
+        private final int index;
+        private final String user;
+        private final Random random;
+        private double latitude;
+        private double longitude;
+        private double heading;
+        private double speed;
+        private long time;
+        private long sequence;
+        private double battery;
+        private boolean screenOn;
+        private boolean wifi;
+        private final DeviceStatusCodec.Encoder statusEncoder = new DeviceStatusCodec.Encoder();
+        // Premier état du dernier lot, confirmé si le serveur l'accepte
+        private Map<String, Object> statusHead;
+
+        VirtualDevice(final int index, final long seed) {
+            this.index = index;
+            this.user = "loadgen-" + index;
+            this.random = new Random(seed);
+            this.latitude = 43 + random.nextDouble() * 6;
+            this.longitude = -1 + random.nextDouble() * 8;
+            this.heading = random.nextDouble() * 2 * Math.PI;
+            this.speed = 5 + random.nextDouble() * 25;
+            this.time = System.currentTimeMillis();
+            this.battery = 40 + random.nextInt(60);
+        }
+
+        /**
+         * Payload d'un lot, avancé de {@code batchSize} positions. Comme
+         * {@link LocationRepository} : l'état de l'appareil est lu une fois par lot,
+         * encodé par {@link DeviceStatusCodec.Encoder#encodeBatch} en différence avec
+         * le dernier lot confirmé ({@link #confirm()})
+         */
+        Map<String, Object> nextPayload(final int batchSize, final long fixIntervalMs) {
+            final var documents = new ArrayList<Map<String, Object>>(batchSize);
+            final var times = new long[batchSize];
+            final var latitudes = new double[batchSize];
+            final var longitudes = new double[batchSize];
+            final var speeds = new float[batchSize];
+            final var bearings = new float[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                advance(fixIntervalMs);
+                evolveStatus();
+                times[i] = time;
+                latitudes[i] = latitude;
+                longitudes[i] = longitude;
+                speeds[i] = (float) speed;
+                bearings[i] = (float) Math.toDegrees(heading);
+            }
+            // État lu à la préparation du lot, après ses positions
+            final var statuses = statusEncoder.encodeBatch(status(), batchSize);
+            statusHead = statuses.get(0);
+            for (int i = 0; i < batchSize; i++) {
+                documents.add(PayloadBuilder.locationDocument(
+                        user + "-" + sequence++,
+                        latitudes[i],
+                        longitudes[i],
+                        times[i],
+                        "fused",
+                        3 + random.nextFloat() * 7,
+                        speeds[i],
+                        100 + random.nextGaussian() * 5,
+                        bearings[i],
+                        user,
+                        System.currentTimeMillis(),
+                        statuses.get(i)));
+            }
+            return batchSize == 1
+                    ? PayloadBuilder.single(COLLECTION_NAME, documents.get(0))
+                    : PayloadBuilder.batch(COLLECTION_NAME, documents);
+        }
+
+        /**
+         * Lot accepté par le serveur : son état sert de base aux lots suivants
+         */
+        void confirm() {
+            if (statusHead != null) {
+                statusEncoder.confirm(statusHead);
+            }
+        }
+
+        /**
+         * Entre deux positions, l'écran s'allume parfois et le réseau change
+         */
+        private void evolveStatus() {
+            if (random.nextInt(20) == 0) {
+                screenOn = !screenOn;
+            }
+            if (random.nextInt(50) == 0) {
+                wifi = !wifi;
+            }
+        }
+
+        private DeviceStatus status() {
+            return DeviceStatus.builder()
+                    .manufacturer("loadgen")
+                    .model("virtual")
+                    .androidVersion("14")
+                    .screenOn(screenOn)
+                    .deviceLocked(!screenOn)
+                    .batteryPercent((int) battery)
+                    .charging(false)
+                    .powerSaveMode(battery < 20)
+                    .hasInternet(true)
+                    .networkType(wifi ? "WIFI" : "MOBILE")
+                    .gpsEnabled(true)
+                    .fineLocationGranted(true)
+                    .backgroundLocationGranted(true)
+                    .timestamp(System.currentTimeMillis())
+                    .build();
+        }
+
+        private void advance(final long fixIntervalMs) {
+            time += fixIntervalMs;
+            heading += random.nextGaussian() * 0.2;
+            speed = Math.max(0, Math.min(35, speed + random.nextGaussian()));
+            final var distance = speed * fixIntervalMs / 1000;
+            latitude += Math.toDegrees(distance * Math.cos(heading) / GeoMath.EARTH_RADIUS_METERS);
+            longitude += Math.toDegrees(distance * Math.sin(heading)
+                    / (GeoMath.EARTH_RADIUS_METERS * Math.cos(Math.toRadians(latitude))));
+            battery = Math.max(1, battery - 0.001);
+        }
+    }
+
+    /**
+     * Exécution : chaque appareil envoie un lot par intervalle, les appels sont bornés
+     * par le nombre de threads ; latences et octets sont relevés par appel
+     */
+    static class LoadRun {
+        private final Settings settings;
+        private final URL url;
+        private final LatencyRecorder latencies = new LatencyRecorder();
+        private final LatencyRecorder buildTimes = new LatencyRecorder();
+        private final AtomicLongArray bytesSent;
+        private final AtomicLongArray bytesReceived;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder fixes = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        LoadRun(final Settings settings, final URL url) {
+            this.settings = settings;
+            this.url = url;
+            this.bytesSent = new AtomicLongArray(settings.devices);
+            this.bytesReceived = new AtomicLongArray(settings.devices);
+        }
+
+        Report execute() throws InterruptedException {
+            final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(settings.threads);
+            final var random = new Random(42);
+            final var start = System.nanoTime();
+            for (int i = 0; i < settings.devices; i++) {
+                final var device = new VirtualDevice(i, random.nextLong());
+                scheduler.scheduleAtFixedRate(() -> upload(device),
+                        random.nextInt((int) Math.max(1, settings.uploadIntervalMs)),
+                        settings.uploadIntervalMs, TimeUnit.MILLISECONDS);
+            }
+            Thread.sleep(TimeUnit.SECONDS.toMillis(settings.durationSec));
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            final var elapsed = (System.nanoTime() - start) / 1e9;
+            return new Report(settings, elapsed, calls.sum(), fixes.sum(), errors.sum(),
+                    latencies.percentiles(), buildTimes.percentiles(), sum(bytesSent), sum(bytesReceived));
+        }
+
+        private void upload(final VirtualDevice device) {
+            final var buildStart = System.nanoTime();
+            final var payload = device.nextPayload(settings.batchSize, settings.fixIntervalMs);
+            final var body = CallableJson.encodeRequest(payload);
+            buildTimes.record(System.nanoTime() - buildStart);
+
+            final var callStart = System.nanoTime();
+            try {
+                final var connection = (HttpURLConnection) url.openConnection();
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+                final var status = connection.getResponseCode();
+                final var response = readFully(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+                latencies.record(System.nanoTime() - callStart);
+                bytesSent.addAndGet(device.index, body.length);
+                bytesReceived.addAndGet(device.index, response);
+                calls.increment();
+                if (status == 200) {
+                    device.confirm();
+                    fixes.add(settings.batchSize);
+                } else {
+                    errors.increment();
+                }
+            } catch (IOException e) {
+                errors.increment();
+            }
+        }
+
+        private static long readFully(final InputStream in) throws IOException {
+            if (in == null) {
+                return 0;
+            }
+            try (in) {
+                final var buffer = new byte[8192];
+                long total = 0;
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    total += read;
+                }
+                return total;
+            }
+        }
+
+        private static long[] sum(final AtomicLongArray values) {
+            final var result = new long[values.length()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = values.get(i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Durées en nanosecondes, percentiles calculés en fin d'exécution
+     */
+    static class LatencyRecorder {
+        private long[] values = new long[1024];
+        private int count;
+
+        synchronized void record(final long nanos) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = nanos;
+        }
+
+        /**
+         * p50, p95, p99, max en millisecondes
+         */
+        synchronized double[] percentiles() {
+            final var sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            return new double[]{at(sorted, 0.50), at(sorted, 0.95), at(sorted, 0.99), at(sorted, 1.0)};
+        }
+
+        private static double at(final long[] sorted, final double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            final var index = Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    static class Report {
+        private final Settings settings;
+        private final double elapsedSeconds;
+        private final long calls;
+        private final long fixes;
+        private final long errors;
+        private final double[] latency;
+        private final double[] build;
+        private final long[] bytesSent;
+        private final long[] bytesReceived;
+
+        Report(final Settings settings, final double elapsedSeconds, final long calls, final long fixes,
+               final long errors, final double[] latency, final double[] build,
+               final long[] bytesSent, final long[] bytesReceived) {
+            this.settings = settings;
+            this.elapsedSeconds = elapsedSeconds;
+            this.calls = calls;
+            this.fixes = fixes;
+            this.errors = errors;
+            this.latency = latency;
+            this.build = build;
+            this.bytesSent = bytesSent;
+            this.bytesReceived = bytesReceived;
+        }
+
+        private long total(final long[] values) {
+            return Arrays.stream(values).sum();
+        }
+
+        String toText() {
+            final var sent = total(bytesSent);
+            final var received = total(bytesReceived);
+            final var targetCalls = settings.devices * 1000.0 / settings.uploadIntervalMs;
+            return String.format(Locale.ROOT,
+                    "=== Charge: %d appareils, lots de %d, 1 envoi / %d ms / appareil ===%n"
+                            + "Durée: %.1f s, appels: %d (%.1f/s, cible %.1f/s), positions: %d (%.1f/s), erreurs: %d%n"
+                            + "Latence appel (ms): p50 %.1f, p95 %.1f, p99 %.1f, max %.1f%n"
+                            + "Préparation payload (ms): p50 %.3f, p95 %.3f, p99 %.3f, max %.3f%n"
+                            + "Octets envoyés: %d (%.0f / appareil, %.0f / position), reçus: %d (%.0f / appareil)",
+                    settings.devices, settings.batchSize, settings.uploadIntervalMs,
+                    elapsedSeconds, calls, calls / elapsedSeconds, targetCalls, fixes, fixes / elapsedSeconds, errors,
+                    latency[0], latency[1], latency[2], latency[3],
+                    build[0], build[1], build[2], build[3],
+                    sent, sent / (double) settings.devices, fixes > 0 ? sent / (double) fixes : 0,
+                    received, received / (double) settings.devices);
+        }
+
+        String toJson() {
+            final var sent = total(bytesSent);
+            return String.format(Locale.ROOT,
+                    "{\"devices\":%d,\"batchSize\":%d,\"uploadIntervalMs\":%d,\"elapsedSeconds\":%.3f,"
+                            + "\"calls\":%d,\"fixes\":%d,\"errors\":%d,\"callsPerSecond\":%.3f,\"fixesPerSecond\":%.3f,"
+                            + "\"latencyMs\":{\"p50\":%.3f,\"p95\":%.3f,\"p99\":%.3f,\"max\":%.3f},"
+                            + "\"buildMs\":{\"p50\":%.4f,\"p95\":%.4f,\"p99\":%.4f,\"max\":%.4f},"
+                            + "\"bytesSent\":%d,\"bytesReceived\":%d,\"bytesPerDevice\":%.1f,\"bytesPerFix\":%.1f}%n",
+                    settings.devices, settings.batchSize, settings.uploadIntervalMs, elapsedSeconds,
+                    calls, fixes, errors, calls / elapsedSeconds, fixes / elapsedSeconds,
+                    latency[0], latency[1], latency[2], latency[3],
+                    build[0], build[1], build[2], build[3],
+                    sent, total(bytesReceived), sent / (double) settings.devices,
+                    fixes > 0 ? sent / (double) fixes : 0);
+        }
+    }
+
+    /**
+     * Encodage JSON des fonctions callable : {"data": ...}. Comme le SDK Firebase,
+     * les long sont encodés en Int64Value (chaîne typée), ce qui pèse sur la taille.
+     */
+    static final class CallableJson {
+        private static final String INT64_TYPE = "type.googleapis.com/google.protobuf.Int64Value";
+
+        private CallableJson() {
+        }
+
+        static byte[] encodeRequest(final Object data) {
+            final var json = new StringBuilder(512);
+            json.append("{\"data\":");
+            encode(data, json);
+            json.append('}');
+            return json.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static void encode(final Object value, final StringBuilder json) {
+            if (value == null) {
+                json.append("null");
+            } else if (value instanceof Long) {
+                json.append("{\"@type\":\"").append(INT64_TYPE).append("\",\"value\":\"").append(value).append("\"}");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                json.append(value);
+            } else if (value instanceof Map) {
+                json.append('{');
+                var first = true;
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    first = false;
+                    string(String.valueOf(entry.getKey()), json);
+                    json.append(':');
+                    encode(entry.getValue(), json);
+                }
+                json.append('}');
+            } else if (value instanceof List) {
+                json.append('[');
+                var first = true;
+                for (Object item : (List<?>) value) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    first = false;
+                    encode(item, json);
+                }
+                json.append(']');
+            } else {
+                string(value.toString(), json);
+            }
+        }
+
+        /**
+         * Contenu de {"data": ...} : Map, List, String, Boolean, Double, Long (Int64Value) ou null
+         */
+        static Object decodeRequest(final byte[] body) {
+            final var request = new Reader(new String(body, StandardCharsets.UTF_8)).value();
+            return request instanceof Map ? ((Map<?, ?>) request).get("data") : null;
+        }
+
+        /**
+         * Lecteur JSON minimal, suffisant pour les corps produits par {@link #encodeRequest}
+         */
+        private static final class Reader {
+            private final String json;
+            private int position;
+
+            Reader(final String json) {
+                this.json = json;
+            }
+
+            Object value() {
+                skipSpaces();
+                final var c = json.charAt(position);
+                if (c == '{') {
+                    final var object = object();
+                    // Int64Value : {"@type": ..., "value": "123"}
+                    if (INT64_TYPE.equals(object.get("@type"))) {
+                        return Long.parseLong((String) object.get("value"));
+                    }
+                    return object;
+                } else if (c == '[') {
+                    return array();
+                } else if (c == '"') {
+                    return string();
+                } else if (json.startsWith("null", position)) {
+                    position += 4;
+                    return null;
+                } else if (json.startsWith("true", position)) {
+                    position += 4;
+                    return true;
+                } else if (json.startsWith("false", position)) {
+                    position += 5;
+                    return false;
+                }
+                final var start = position;
+                while (position < json.length() && "+-.eE0123456789".indexOf(json.charAt(position)) >= 0) {
+                    position++;
+                }
+                return Double.parseDouble(json.substring(start, position));
+            }
+
+            private Map<String, Object> object() {
+                final var object = new HashMap<String, Object>();
+                position++;
+                skipSpaces();
+                if (json.charAt(position) == '}') {
+                    position++;
+                    return object;
+                }
+                while (true) {
+                    skipSpaces();
+                    final var key = string();
+                    skipSpaces();
+                    position++; // ':'
+                    object.put(key, value());
+                    skipSpaces();
+                    if (json.charAt(position++) == '}') {
+                        return object;
+                    }
+                }
+            }
+
+            private List<Object> array() {
+                final var array = new ArrayList<Object>();
+                position++;
+                skipSpaces();
+                if (json.charAt(position) == ']') {
+                    position++;
+                    return array;
+                }
+                while (true) {
+                    array.add(value());
+                    skipSpaces();
+                    if (json.charAt(position++) == ']') {
+                        return array;
+                    }
+                }
+            }
+
+            private String string() {
+                final var text = new StringBuilder();
+                position++;
+                while (true) {
+                    final var c = json.charAt(position++);
+                    if (c == '"') {
+                        return text.toString();
+                    } else if (c == '\\') {
+                        final var escaped = json.charAt(position++);
+                        if (escaped == 'u') {
+                            text.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                            position += 4;
+                        } else {
+                            text.append(escaped);
+                        }
+                    } else {
+                        text.append(c);
+                    }
+                }
+            }
+
+            private void skipSpaces() {
+                while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                    position++;
+                }
+            }
+        }
+
+        private static void string(final String text, final StringBuilder json) {
+            json.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                final var c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                } else if (c < 0x20) {
+                    json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                } else {
+                    json.append(c);
+                }
+            }
+            json.append('"');
+        }
+    }
+
+    /**
+     * Substitut local de onCallCreateOne / onCallCreateMany : lit le corps, reconstruit
+     * l'état complet de l'appareil de chaque document comme le ferait le backend,
+     * simule la latence et répond comme une fonction callable
+     */
+    static class StandInServer implements AutoCloseable {
+        private static final byte[] RESPONSE = "{\"result\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+        private static final int STATUS_FIELDS = 14;
+
+        private final HttpServer server;
+        private final ExecutorService executor;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong statusRebuilt = new AtomicLong();
+        private final AtomicLong statusFailures = new AtomicLong();
+        // Dernier état connu par appareil
+        private final Map<Object, DeviceStatusCodec.Decoder> decoders = new ConcurrentHashMap<>();
+
+        StandInServer(final long latencyMs, final int threads) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            executor = Executors.newFixedThreadPool(Math.max(4, threads));
+            server.setExecutor(executor);
+            server.createContext("/", exchange -> {
+                try (exchange) {
+                    final var body = new ByteArrayOutputStream();
+                    exchange.getRequestBody().transferTo(body);
+                    requests.incrementAndGet();
+                    rebuildStatuses(CallableJson.decodeRequest(body.toByteArray()));
+                    if (latencyMs > 0) {
+                        Thread.sleep(latencyMs);
+                    }
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, RESPONSE.length);
+                    exchange.getResponseBody().write(RESPONSE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            server.start();
+        }
+
+        /**
+         * Appliquer, dans l'ordre du lot, l'état encodé de chaque document
+         */
+        @SuppressWarnings("unchecked")
+        private void rebuildStatuses(final Object data) {
+            if (!(data instanceof Map)) {
+                statusFailures.incrementAndGet();
+                return;
+            }
+            final var payload = (Map<String, Object>) data;
+            final var documents = payload.containsKey("documents")
+                    ? (List<Object>) payload.get("documents")
+                    : List.of(payload.get("document"));
+            for (Object item : documents) {
+                final var document = (Map<String, Object>) item;
+                try {
+                    final var decoder = decoders.computeIfAbsent(document.get("user"),
+                            user -> new DeviceStatusCodec.Decoder());
+                    final var state = decoder.apply((Map<String, Object>) document.get("deviceStatus"));
+                    if (state.size() == STATUS_FIELDS) {
+                        statusRebuilt.incrementAndGet();
+                    } else {
+                        statusFailures.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    statusFailures.incrementAndGet();
+                }
+            }
+        }
+
+        long getStatusRebuilt() {
+            return statusRebuilt.get();
+        }
+
+        long getStatusFailures() {
+            return statusFailures.get();
+        }
+
+        URL getUrl() throws IOException {
+            return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/onCallCreateMany");
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.locationtracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Aller-retour des flux de bits : chaque classe de taille du delta-of-delta,
+ * et les cas XOR (valeur identique, fenêtre réutilisée, nouvelle fenêtre).
+ */
+public class GorillaCodecTest {
+
+    @Test
+    public void bitsRoundTripAcrossByteBoundaries() {
+        final var writer = new GorillaCodec.BitWriter(1);
+        writer.writeBit(true);
+        writer.writeBits(0b101, 3);
+        writer.writeBits(0x1234_5678_9ABC_DEF0L, 64);
+        writer.writeBits(-1L, 64);
+        writer.writeBit(false);
+        writer.writeBits(0x7F, 7);
+
+        final var reader = new GorillaCodec.BitReader(toBuffer(writer), 0);
+        Assert.assertTrue(reader.readBit());
+        Assert.assertEquals(0b101, reader.readBits(3));
+        Assert.assertEquals(0x1234_5678_9ABC_DEF0L, reader.readBits(64));
+        Assert.assertEquals(-1L, reader.readBits(64));
+        Assert.assertFalse(reader.readBit());
+        Assert.assertEquals(0x7F, reader.readBits(7));
+    }
+
+    @Test
+    public void deltaOfDeltaRoundTripsEverySizeClass() {
+        final long[] values = {
+                1_700_000_000_000L,
+                1_700_000_001_000L, // premier delta
+                1_700_000_002_000L, // delta-of-delta nul
+                1_700_000_003_063L, // 7 bits, bornes
+                1_700_000_004_062L,
+                1_700_000_005_317L, // 9 bits
+                1_700_000_006_316L,
+                1_700_000_009_363L, // 12 bits
+                1_700_000_010_362L,
+                1_700_100_000_000L, // 64 bits
+                1_600_000_000_000L, // grand saut négatif
+                -5L,
+                Long.MAX_VALUE,
+                Long.MIN_VALUE,
+        };
+        final var writer = new GorillaCodec.BitWriter(16);
+        final var encoder = new GorillaCodec.DeltaOfDeltaEncoder();
+        for (long value : values) {
+            encoder.encode(value, writer);
+        }
+
+        final var reader = new GorillaCodec.BitReader(toBuffer(writer), 0);
+        final var decoder = new GorillaCodec.DeltaOfDeltaDecoder();
+        for (long value : values) {
+            Assert.assertEquals(value, decoder.decode(reader));
+        }
+    }
+
+    @Test
+    public void xorRoundTripsDoublesAndFloats() {
+        final double[] doubles = {
+                123.25, 123.25, 123.5, -0.0, 0.0, Double.NaN, Double.NaN, 1e-300, -1e300,
+                Double.POSITIVE_INFINITY, 42.0, 42.000001
+        };
+        final float[] floats = {
+                5f, 5f, 5.5f, Float.NaN, 0.1f, -3.75f, Float.MAX_VALUE, Float.MIN_VALUE, 5f
+        };
+        final var doubleWriter = new GorillaCodec.BitWriter(16);
+        final var floatWriter = new GorillaCodec.BitWriter(16);
+        final var doubleEncoder = new GorillaCodec.XorEncoder();
+        final var floatEncoder = new GorillaCodec.XorEncoder();
+        for (double value : doubles) {
+            doubleEncoder.encodeDouble(value, doubleWriter);
+        }
+        for (float value : floats) {
+            floatEncoder.encodeFloat(value, floatWriter);
+        }
+
+        final var doubleReader = new GorillaCodec.BitReader(toBuffer(doubleWriter), 0);
+        final var floatReader = new GorillaCodec.BitReader(toBuffer(floatWriter), 0);
+        final var doubleDecoder = new GorillaCodec.XorDecoder();
+        final var floatDecoder = new GorillaCodec.XorDecoder();
+        for (double value : doubles) {
+            Assert.assertEquals(Double.doubleToRawLongBits(value),
+                    Double.doubleToRawLongBits(doubleDecoder.decodeDouble(doubleReader)));
+        }
+        for (float value : floats) {
+            Assert.assertEquals(Float.floatToRawIntBits(value),
+                    Float.floatToRawIntBits(floatDecoder.decodeFloat(floatReader)));
+        }
+    }
+
+    @Test
+    public void readerHonoursBaseOffset() {
+        final var writer = new GorillaCodec.BitWriter(16);
+        final var encoder = new GorillaCodec.DeltaOfDeltaEncoder();
+        encoder.encode(10, writer);
+        encoder.encode(20, writer);
+        final var buffer = ByteBuffer.allocate(5 + writer.sizeInBytes());
+        buffer.position(5);
+        writer.writeTo(buffer);
+
+        final var reader = new GorillaCodec.BitReader(buffer, 5);
+        final var decoder = new GorillaCodec.DeltaOfDeltaDecoder();
+        Assert.assertEquals(10, decoder.decode(reader));
+        Assert.assertEquals(20, decoder.decode(reader));
+    }
+
+    private static ByteBuffer toBuffer(final GorillaCodec.BitWriter writer) {
+        final var buffer = ByteBuffer.allocate(writer.sizeInBytes());
+        writer.writeTo(buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.locationtracker;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Export de l'historique : plage respectée, documents GPX et GeoJSON valides
+ * (horodatages alignés sur les coordonnées), simplification, écriture par tampon borné.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HistoryExporterTest {
+
+    private static final double LATITUDE = 45;
+    private static final double LONGITUDE = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocationHistoryStore history;
+    private HistoryExporter exporter;
+
+    @Before
+    public void setUp() throws IOException {
+        history = new LocationHistoryStore(folder.getRoot());
+        exporter = new HistoryExporter(history);
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+    }
+
+    @Test
+    public void csvContainsRangeOnly() throws IOException {
+        appendNorth(0, 10, 10);
+        history.append(10_000, LATITUDE, LONGITUDE, 120.5, 4, 1.5f, 90);
+
+        final var out = new ByteArrayOutputStream();
+        Assert.assertEquals(4, exporter.export(7_000, 10_000, HistoryExporter.Format.CSV, 0, Channels.newChannel(out)));
+
+        final var lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        Assert.assertEquals(5, lines.length);
+        Assert.assertEquals("time,latitude,longitude,altitude,accuracy,speed,bearing", lines[0]);
+        Assert.assertTrue(lines[1].startsWith("7000,"));
+        Assert.assertEquals("10000,45.0,5.0,120.5,4.0,1.5,90.0", lines[4]);
+    }
+
+    @Test
+    public void gpxIsWellFormed() throws Exception {
+        appendNorth(0, 20, 10);
+
+        final var out = new ByteArrayOutputStream();
+        Assert.assertEquals(20, exporter.export(0, Long.MAX_VALUE, HistoryExporter.Format.GPX, 0,
+                Channels.newChannel(out)));
+
+        final var document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(out.toByteArray()));
+        final var points = document.getElementsByTagName("trkpt");
+        Assert.assertEquals(20, points.getLength());
+        final var first = (Element) points.item(0);
+        Assert.assertEquals(LATITUDE, Double.parseDouble(first.getAttribute("lat")), 1e-9);
+        Assert.assertEquals("1970-01-01T00:00:00.000Z", first.getElementsByTagName("time").item(0).getTextContent());
+    }
+
+    @Test
+    public void geojsonTimesAlignWithSimplifiedCoordinates() throws Exception {
+        // Ligne droite vers le nord puis vers l'est : seuls les extrémités et l'angle restent
+        appendNorth(0, 50, 10);
+        final var corner = LATITUDE + GeoMath.latitudeSpan(490);
+        for (int i = 1; i <= 50; i++) {
+            history.append((50 + i) * 1000L, corner, LONGITUDE + GeoMath.longitudeSpan(i * 10, corner),
+                    Double.NaN, 5, 0, 0);
+        }
+
+        final var out = new ByteArrayOutputStream();
+        final var count = exporter.export(0, Long.MAX_VALUE, HistoryExporter.Format.GEOJSON, 5,
+                Channels.newChannel(out));
+        Assert.assertEquals(3, count);
+
+        final var feature = new JSONObject(out.toString(StandardCharsets.UTF_8.name()))
+                .getJSONArray("features").getJSONObject(0);
+        final var coordinates = feature.getJSONObject("geometry").getJSONArray("coordinates");
+        final var times = feature.getJSONObject("properties").getJSONArray("coordTimes");
+        Assert.assertEquals(3, coordinates.length());
+        Assert.assertEquals(3, times.length());
+        Assert.assertEquals("1970-01-01T00:00:49.000Z", times.getString(1));
+        Assert.assertEquals(corner, coordinates.getJSONArray(1).getDouble(1), 1e-9);
+        Assert.assertEquals("1970-01-01T00:01:40.000Z", times.getString(2));
+    }
+
+    @Test
+    public void largeExportIsWrittenInBoundedChunks() throws IOException {
+        final var rows = 20_000;
+        appendNorth(0, rows, 1);
+        final var channel = new RecordingChannel();
+
+        Assert.assertEquals(rows, exporter.export(0, Long.MAX_VALUE, HistoryExporter.Format.CSV, 0, channel));
+        Assert.assertTrue(channel.writes > 1);
+        Assert.assertTrue(channel.largestWrite <= 64 * 1024);
+        Assert.assertTrue(channel.total > rows * 20L);
+    }
+
+    /**
+     * Positions {@code from} à {@code to} (ligne = seconde), espacées de {@code step} mètres vers le nord
+     */
+    private void appendNorth(final int from, final int to, final double step) {
+        for (int row = from; row < to; row++) {
+            history.append(row * 1000L, LATITUDE + GeoMath.latitudeSpan(row * step), LONGITUDE,
+                    Double.NaN, 5, 0, 0);
+        }
+    }
+
+    private static class RecordingChannel implements WritableByteChannel {
+        private int writes;
+        private int largestWrite;
+        private long total;
+
+        @Override
+        public int write(final ByteBuffer source) {
+            final var length = source.remaining();
+            source.position(source.limit());
+            writes++;
+            largestWrite = Math.max(largestWrite, length);
+            total += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.locationtracker;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Scellement d'un bloc en segment compressé puis relecture : valeurs identiques
+ * (coordonnées au 1e-7 près), valeurs absentes préservées, segment tronqué refusé.
+ */
+public class HistorySegmentTest {
+
+    private static final long FIRST_ROW_ID = 1_000;
+    private static final int COUNT = 500;
+    private static final double COORDINATE_TOLERANCE = 0.6e-7;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sealedSegmentDecodesEveryRow() throws IOException {
+        final var block = fill(HistoryBlock.create(folder.newFile("block.jnl"), FIRST_ROW_ID, COUNT));
+        final var file = new File(folder.getRoot(), "block.seg");
+        HistorySegment.write(file, FIRST_ROW_ID, COUNT, block.cursor(COUNT));
+
+        final var segment = HistorySegment.open(file);
+        Assert.assertEquals(COUNT, segment.getCount());
+        Assert.assertEquals(FIRST_ROW_ID, segment.getFirstRowId());
+        Assert.assertEquals(block.getMinTime(), segment.getMinTime());
+        Assert.assertEquals(block.getMaxTime(), segment.getMaxTime());
+        assertSameRows(block, segment.cursor(Integer.MAX_VALUE), COUNT);
+        assertSameRows(block, segment.cursor(10), 10);
+    }
+
+    @Test
+    public void replayedJournalSealsToSameRows() throws IOException {
+        final var journal = folder.newFile("block.jnl");
+        final var block = fill(HistoryBlock.create(journal, FIRST_ROW_ID, COUNT));
+        block.sync();
+        final var replayed = HistoryBlock.replay(journal);
+        Assert.assertNotNull(replayed);
+        Assert.assertEquals(COUNT, replayed.getCount());
+
+        final var file = new File(folder.getRoot(), "block.seg");
+        HistorySegment.write(file, FIRST_ROW_ID, COUNT, replayed.cursor(COUNT));
+        assertSameRows(block, HistorySegment.open(file).cursor(COUNT), COUNT);
+    }
+
+    @Test(expected = IOException.class)
+    public void exhaustedSourceIsRejected() throws IOException {
+        final var block = fill(HistoryBlock.create(folder.newFile("block.jnl"), FIRST_ROW_ID, COUNT));
+        HistorySegment.write(new File(folder.getRoot(), "block.seg"), FIRST_ROW_ID, COUNT + 1,
+                block.cursor(COUNT));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedSegmentIsRejected() throws IOException {
+        final var block = fill(HistoryBlock.create(folder.newFile("block.jnl"), FIRST_ROW_ID, COUNT));
+        final var file = new File(folder.getRoot(), "block.seg");
+        HistorySegment.write(file, FIRST_ROW_ID, COUNT, block.cursor(COUNT));
+        try (var raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        HistorySegment.open(file);
+    }
+
+    /**
+     * Trajet réaliste (pas d'une seconde, à-coups), avec valeurs absentes
+     */
+    private static HistoryBlock fill(final HistoryBlock block) {
+        var time = 1_700_000_000_000L;
+        var latitude = 48.8566;
+        var longitude = 2.3522;
+        for (int i = 0; i < COUNT; i++) {
+            time += i % 50 == 0 ? 37_123 : 1_000 + (i % 7);
+            latitude += 0.00001 * Math.sin(i / 10.0);
+            longitude += 0.00001 * Math.cos(i / 13.0);
+            final var altitude = i % 11 == 0 ? Double.NaN : 35 + i * 0.1;
+            final var speed = i % 5 == 0 ? Float.NaN : 1.5f + (i % 3);
+            final var bearing = i % 4 == 0 ? Float.NaN : (i * 3) % 360;
+            block.append(time, latitude, longitude, altitude, 3 + (i % 20), speed, bearing);
+        }
+        return block;
+    }
+
+    private static void assertSameRows(final HistoryBlock expected, final HistoryCursor actual, final int rows) {
+        for (int i = 0; i < rows; i++) {
+            Assert.assertTrue(actual.next());
+            Assert.assertEquals(FIRST_ROW_ID + i, actual.getRowId());
+            Assert.assertEquals(expected.time[i], actual.getTime());
+            Assert.assertEquals(expected.latitude[i], actual.getLatitude(), COORDINATE_TOLERANCE);
+            Assert.assertEquals(expected.longitude[i], actual.getLongitude(), COORDINATE_TOLERANCE);
+            Assert.assertEquals(expected.altitude[i], actual.getAltitude(), 0);
+            Assert.assertEquals(expected.accuracy[i], actual.getAccuracy(), 0);
+            Assert.assertEquals(expected.speed[i], actual.getSpeed(), 0);
+            Assert.assertEquals(expected.bearing[i], actual.getBearing(), 0);
+        }
+        Assert.assertFalse(actual.next());
+        actual.close();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.locationtracker;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gazetier hors ligne : le parcours par anneaux trouve le même plus proche voisin
+ * qu'un parcours exhaustif, distance maximale respectée, noms UTF-8, fichiers invalides refusés.
+ */
+public class OfflineReverseGeocoderTest {
+
+    private static final double MAX_DISTANCE = 5_000;
+    private static final double CELL_SIZE = 0.05;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void nearestMatchesBruteForce() throws IOException {
+        final var random = new Random(42);
+        final var places = new ArrayList<OfflineReverseGeocoder.Place>();
+        for (int i = 0; i < 2_000; i++) {
+            places.add(new OfflineReverseGeocoder.Place("lieu-" + i,
+                    45 + random.nextDouble(), 5 + random.nextDouble()));
+        }
+        try (var geocoder = open(places)) {
+            Assert.assertEquals(places.size(), geocoder.getPlaceCount());
+            for (int i = 0; i < 1_000; i++) {
+                // Requêtes jusqu'à un peu en dehors de l'emprise
+                final var latitude = 44.95 + random.nextDouble() * 1.1;
+                final var longitude = 4.95 + random.nextDouble() * 1.1;
+                final var expected = bruteForce(places, latitude, longitude);
+                final var name = geocoder.reverseGeocode(latitude, longitude);
+                if (Double.isNaN(expected)) {
+                    Assert.assertNull(name);
+                } else {
+                    Assert.assertNotNull(name);
+                    final var found = places.get(Integer.parseInt(name.substring("lieu-".length())));
+                    // Égalité de distance : deux lieux à égale distance sont aussi bons l'un que l'autre
+                    Assert.assertEquals(expected, distance(found, latitude, longitude), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void farPlaceIsNotReturned() throws IOException {
+        final var places = List.of(new OfflineReverseGeocoder.Place("Lyon", 45.764, 4.8357));
+        try (var geocoder = open(places)) {
+            Assert.assertEquals("Lyon", geocoder.reverseGeocode(45.77, 4.84));
+            // Environ 10 km au nord
+            Assert.assertNull(geocoder.reverseGeocode(45.854, 4.8357));
+        }
+    }
+
+    @Test
+    public void namesAreUtf8() throws IOException {
+        final var places = List.of(
+                new OfflineReverseGeocoder.Place("Saint-Étienne", 45.4397, 4.3872),
+                new OfflineReverseGeocoder.Place("Besançon", 47.2378, 6.0241));
+        try (var geocoder = open(places)) {
+            Assert.assertEquals("Saint-Étienne", geocoder.reverseGeocode(45.44, 4.39));
+            Assert.assertEquals("Besançon", geocoder.reverseGeocode(47.24, 6.02));
+        }
+    }
+
+    @Test
+    public void emptyGazetteerFindsNothing() throws IOException {
+        try (var geocoder = open(List.of())) {
+            Assert.assertEquals(0, geocoder.getPlaceCount());
+            Assert.assertNull(geocoder.reverseGeocode(45, 5));
+        }
+    }
+
+    @Test
+    public void invalidFilesAreRejected() throws IOException {
+        final var garbage = folder.newFile("garbage.bin");
+        try (var raf = new RandomAccessFile(garbage, "rw")) {
+            raf.write(new byte[128]);
+        }
+        assertRejected(garbage);
+
+        final var truncated = folder.newFile("truncated.bin");
+        OfflineReverseGeocoder.write(truncated,
+                List.of(new OfflineReverseGeocoder.Place("Lyon", 45.764, 4.8357)), CELL_SIZE);
+        try (var raf = new RandomAccessFile(truncated, "rw")) {
+            raf.setLength(80);
+        }
+        assertRejected(truncated);
+    }
+
+    private OfflineReverseGeocoder open(final List<OfflineReverseGeocoder.Place> places) throws IOException {
+        final var file = new File(folder.getRoot(), "gazetteer-" + places.size() + ".bin");
+        OfflineReverseGeocoder.write(file, places, CELL_SIZE);
+        return new OfflineReverseGeocoder(file, MAX_DISTANCE);
+    }
+
+    private static void assertRejected(final File file) {
+        try {
+            new OfflineReverseGeocoder(file, MAX_DISTANCE).close();
+            Assert.fail("Gazetier accepté: " + file);
+        } catch (IOException expected) {
+            // attendu
+        }
+    }
+
+    /**
+     * Distance au lieu le plus proche dans la limite, NaN si aucun
+     */
+    private static double bruteForce(final List<OfflineReverseGeocoder.Place> places,
+                                     final double latitude, final double longitude) {
+        var best = Double.NaN;
+        for (OfflineReverseGeocoder.Place place : places) {
+            final var distance = distance(place, latitude, longitude);
+            if (distance <= MAX_DISTANCE && !(distance >= best)) {
+                best = distance;
+            }
+        }
+        return best;
+    }
+
+    // Même métrique que le géocodeur (coordonnées stockées au 1e-7 degré)
+    private static double distance(final OfflineReverseGeocoder.Place place,
+                                   final double latitude, final double longitude) {
+        final var placeLatitude = Math.round(place.getLatitude() * 1e7) / 1e7;
+        final var placeLongitude = Math.round(place.getLongitude() * 1e7) / 1e7;
+        final var dy = (placeLatitude - latitude) * GeoMath.METERS_PER_DEGREE;
+        final var dx = (placeLongitude - longitude) * GeoMath.METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
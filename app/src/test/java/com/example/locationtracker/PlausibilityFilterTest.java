@@ -0,0 +1,137 @@
+package com.example.locationtracker;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Filtre de vraisemblance : déplacements réalistes acceptés, sauts et accélérations
+ * impossibles rejetés, nouvelle référence après un silence ou des rejets cohérents,
+ * et aucune comparaison sans horloge monotone.
+ */
+public class PlausibilityFilterTest {
+
+    private static final double MAX_SPEED = 70;
+    private static final double MAX_ACCELERATION = 10;
+    private static final long REANCHOR_GAP_MILLIS = 5 * 60 * 1000;
+    private static final int REANCHOR_COUNT = 3;
+    private static final long SECOND = 1_000_000_000L;
+    private static final double LATITUDE = 45;
+    private static final double LONGITUDE = 5;
+    private static final float ACCURACY = 5;
+
+    private PlausibilityFilter filter;
+
+    @Before
+    public void setUp() {
+        filter = new PlausibilityFilter(MAX_SPEED, MAX_ACCELERATION, REANCHOR_GAP_MILLIS, REANCHOR_COUNT);
+    }
+
+    @Test
+    public void realisticTrackIsAccepted() {
+        Assert.assertEquals(PlausibilityFilter.Verdict.REANCHORED, check(0, SECOND));
+        // Piéton puis voiture qui accélère progressivement
+        var meters = 0.0;
+        var speed = 1.5;
+        for (int second = 2; second <= 30; second++) {
+            speed = Math.min(30, speed + 2);
+            meters += speed;
+            Assert.assertEquals(PlausibilityFilter.Verdict.ACCEPTED, check(meters, second * SECOND));
+        }
+        Assert.assertEquals(0, filter.getRejectedCount());
+    }
+
+    @Test
+    public void jumpIsRejectedAndReferenceKept() {
+        check(0, SECOND);
+        check(10, 2 * SECOND);
+        // 5 km en une seconde malgré une bonne précision annoncée
+        Assert.assertEquals(PlausibilityFilter.Verdict.TOO_FAST, check(5_000, 3 * SECOND));
+        // La référence reste la dernière position vraisemblable
+        Assert.assertEquals(PlausibilityFilter.Verdict.ACCEPTED, check(20, 4 * SECOND));
+        Assert.assertEquals(1, filter.getRejectedCount());
+    }
+
+    @Test
+    public void abruptAccelerationIsRejected() {
+        check(0, SECOND);
+        check(1, 2 * SECOND);
+        // De l'arrêt à ~60 m/s en une seconde : sous la vitesse maximale, pas l'accélération
+        Assert.assertEquals(PlausibilityFilter.Verdict.TOO_ABRUPT, check(1 + 60 + 2 * ACCURACY, 3 * SECOND));
+    }
+
+    @Test
+    public void noiseWithinAccuracyIsAccepted() {
+        check(0, SECOND);
+        // Écart inférieur à la somme des précisions en un dixième de seconde
+        Assert.assertEquals(PlausibilityFilter.Verdict.ACCEPTED, check(2 * ACCURACY, SECOND + SECOND / 10));
+    }
+
+    @Test
+    public void outOfOrderFixIsRejected() {
+        check(0, 10 * SECOND);
+        Assert.assertEquals(PlausibilityFilter.Verdict.OUT_OF_ORDER, check(5, 9 * SECOND));
+        Assert.assertEquals(PlausibilityFilter.Verdict.OUT_OF_ORDER, check(5, 10 * SECOND));
+    }
+
+    @Test
+    public void longSilenceReanchors() {
+        check(0, SECOND);
+        final var later = SECOND + (REANCHOR_GAP_MILLIS + 1_000) * 1_000_000;
+        Assert.assertEquals(PlausibilityFilter.Verdict.REANCHORED, check(50_000, later));
+        Assert.assertEquals(PlausibilityFilter.Verdict.ACCEPTED, check(50_010, later + SECOND));
+    }
+
+    @Test
+    public void consistentRejectionsReplaceWrongReference() {
+        // Référence fausse à 20 km, puis la vraie trajectoire
+        check(20_000, SECOND);
+        Assert.assertEquals(PlausibilityFilter.Verdict.TOO_FAST, check(0, 2 * SECOND));
+        Assert.assertEquals(PlausibilityFilter.Verdict.TOO_FAST, check(10, 3 * SECOND));
+        Assert.assertEquals(PlausibilityFilter.Verdict.REANCHORED, check(20, 4 * SECOND));
+        Assert.assertEquals(PlausibilityFilter.Verdict.ACCEPTED, check(30, 5 * SECOND));
+        Assert.assertEquals(2, filter.getRejectedCount());
+    }
+
+    @Test
+    public void fixWithoutMonotonicTimeIsNotCompared() {
+        check(0, SECOND);
+        // Horloge murale seule : ni contrôle, ni nouvelle référence
+        Assert.assertEquals(PlausibilityFilter.Verdict.UNTIMED, check(5_000, 0));
+        Assert.assertEquals(PlausibilityFilter.Verdict.ACCEPTED, check(10, 2 * SECOND));
+        Assert.assertEquals(PlausibilityFilter.Verdict.TOO_FAST, check(5_000, 3 * SECOND));
+    }
+
+    @Test
+    public void untimedFixDoesNotAnchor() {
+        Assert.assertEquals(PlausibilityFilter.Verdict.UNTIMED, check(0, 0));
+        Assert.assertEquals(PlausibilityFilter.Verdict.REANCHORED, check(5_000, SECOND));
+    }
+
+    @Test
+    public void seededFilterChecksNextFix() {
+        filter.seed(LATITUDE, LONGITUDE, ACCURACY, SECOND, 0);
+        Assert.assertEquals(PlausibilityFilter.Verdict.TOO_FAST, check(5_000, 2 * SECOND));
+        Assert.assertEquals(PlausibilityFilter.Verdict.ACCEPTED, check(5, 3 * SECOND));
+    }
+
+    @Test
+    public void seedWithoutMonotonicTimeIsIgnored() {
+        filter.seed(LATITUDE, LONGITUDE, ACCURACY, 0, 0);
+        Assert.assertEquals(PlausibilityFilter.Verdict.REANCHORED, check(5_000, 2 * SECOND));
+    }
+
+    @Test
+    public void resetForgetsReference() {
+        check(0, SECOND);
+        filter.reset();
+        Assert.assertEquals(PlausibilityFilter.Verdict.REANCHORED, check(5_000, 2 * SECOND));
+    }
+
+    /**
+     * Position à {@code meters} au nord du point de départ
+     */
+    private PlausibilityFilter.Verdict check(final double meters, final long timeNanos) {
+        return filter.check(LATITUDE + GeoMath.latitudeSpan(meters), LONGITUDE, ACCURACY, timeNanos);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.locationtracker;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index spatial : mêmes lignes qu'un parcours exhaustif, que les positions arrivent
+ * par l'historique (deltas écrits en runs puis fusionnés) ou par reconstruction,
+ * et après réouverture ; nombre de runs logarithmique.
+ */
+public class SpatialIndexTest {
+
+    // Plusieurs deltas pleins : runs écrits puis fusionnés
+    private static final int ROWS = 3 * 8192 + 500;
+    // Bords de requête entre deux points de la grille
+    private static final double MIN_LAT = 45.0105;
+    private static final double MAX_LAT = 45.0305;
+    private static final double MIN_LNG = 5.0205;
+    private static final double MAX_LNG = 5.0505;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private LocationHistoryStore history;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.getRoot();
+        history = new LocationHistoryStore(directory);
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+    }
+
+    @Test
+    public void appendedRowsAreFoundBeforeAndAfterReopen() {
+        final var index = SpatialIndex.open(directory, history);
+        append(0, ROWS);
+        assertMatchesBruteForce(index);
+        index.close();
+
+        // Lignes ajoutées index fermé : rattrapées à l'ouverture
+        append(ROWS, ROWS + 100);
+        final var reopened = SpatialIndex.open(directory, history);
+        Assert.assertEquals(ROWS + 100, reopened.getIndexedRowCount());
+        assertMatchesBruteForce(reopened);
+        Assert.assertTrue(runFiles().length <= 3);
+        reopened.close();
+    }
+
+    @Test
+    public void missingIndexIsRebuiltFromHistory() {
+        append(0, ROWS);
+        final var index = SpatialIndex.open(directory, history);
+        Assert.assertEquals(ROWS, index.getIndexedRowCount());
+        assertMatchesBruteForce(index);
+        index.close();
+
+        // Morceaux fusionnés au fil de l'eau : au plus un run par puissance de deux
+        Assert.assertTrue(runFiles().length <= 3);
+        final var reopened = SpatialIndex.open(directory, history);
+        assertMatchesBruteForce(reopened);
+        reopened.close();
+    }
+
+    @Test
+    public void corruptRunTriggersRebuild() throws IOException {
+        append(0, ROWS);
+        SpatialIndex.open(directory, history).close();
+        try (var raf = new RandomAccessFile(runFiles()[0], "rw")) {
+            raf.writeInt(0);
+        }
+
+        final var index = SpatialIndex.open(directory, history);
+        assertMatchesBruteForce(index);
+        index.close();
+    }
+
+    @Test
+    public void radiusQueryFiltersByDistance() {
+        final var index = SpatialIndex.open(directory, history);
+        append(0, 1_000);
+        // Grille au millième de degré : ~111 m en latitude, ~79 m en longitude
+        final var center = latitude(0);
+        final var rows = index.queryRadius(center, longitude(0), 100);
+        final var expected = new ArrayList<Long>();
+        for (long row = 0; row < 1_000; row++) {
+            if (GeoMath.haversine(center, longitude(0), latitude(row), longitude(row)) <= 100) {
+                expected.add(row);
+            }
+        }
+        Assert.assertEquals(expected, toList(rows));
+        index.close();
+    }
+
+    private void append(final long from, final long to) {
+        for (long row = from; row < to; row++) {
+            Assert.assertEquals(row, history.append(row * 1000, latitude(row), longitude(row),
+                    Double.NaN, 5, Float.NaN, Float.NaN));
+        }
+    }
+
+    private void assertMatchesBruteForce(final SpatialIndex index) {
+        final var expected = new ArrayList<Long>();
+        for (long row = 0; row < history.getRowCount(); row++) {
+            final var latitude = latitude(row);
+            final var longitude = longitude(row);
+            if (latitude >= MIN_LAT && latitude <= MAX_LAT && longitude >= MIN_LNG && longitude <= MAX_LNG) {
+                expected.add(row);
+            }
+        }
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, toList(index.queryBoundingBox(MIN_LAT, MIN_LNG, MAX_LAT, MAX_LNG)));
+    }
+
+    private File[] runFiles() {
+        return directory.listFiles((dir, name) -> name.endsWith(".run"));
+    }
+
+    private static double latitude(final long row) {
+        return 45 + (row % 100) * 1e-3;
+    }
+
+    private static double longitude(final long row) {
+        return 5 + (row / 100 % 100) * 1e-3;
+    }
+
+    private static List<Long> toList(final long[] rows) {
+        final var list = new ArrayList<Long>(rows.length);
+        for (long row : rows) {
+            list.add(row);
+        }
+        return list;
+    }
+}
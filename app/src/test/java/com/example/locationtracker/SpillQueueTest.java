@@ -0,0 +1,149 @@
+package com.example.locationtracker;
+
+import static com.example.locationtracker.TestFixes.fixes;
+
+import android.location.Location;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+/**
+ * File de débordement : ordre FIFO, lecture sans retrait, et reprise après arrêt
+ * brutal (nouvelle instance sur le même fichier, enregistrement tronqué en fin).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpillQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "spill.bin");
+    }
+
+    @Test
+    public void peekKeepsFixesUntilRemoved() throws IOException {
+        final var queue = new SpillQueue(file);
+        queue.append(fixes(0, 10));
+        queue.append(fixes(10, 15));
+        Assert.assertEquals(15, queue.size());
+
+        assertSequences(queue.peek(0, 4), 0, 4);
+        assertSequences(queue.peek(0, 4), 0, 4);
+        assertSequences(queue.peek(12, 100), 12, 15);
+        Assert.assertTrue(queue.peek(15, 10).isEmpty());
+        Assert.assertEquals(15, queue.size());
+
+        queue.remove(4);
+        Assert.assertEquals(11, queue.size());
+        assertSequences(queue.peek(0, 3), 4, 7);
+    }
+
+    @Test
+    public void fieldsRoundTrip() throws IOException {
+        final var queue = new SpillQueue(file);
+        final var fix = new Location("gps");
+        fix.setTime(1_700_000_000_000L);
+        fix.setLatitude(48.8566123);
+        fix.setLongitude(2.3522456);
+        fix.setAccuracy(4.5f);
+        fix.setAltitude(35.25);
+        fix.setSpeed(1.5f);
+        FixIdentity.setSequence(fix, 42);
+        queue.append(List.of(fix));
+
+        final var read = queue.peek(0, 1).get(0);
+        Assert.assertEquals("gps", read.getProvider());
+        Assert.assertEquals(fix.getTime(), read.getTime());
+        Assert.assertEquals(fix.getLatitude(), read.getLatitude(), 0);
+        Assert.assertEquals(fix.getLongitude(), read.getLongitude(), 0);
+        Assert.assertEquals(fix.getAccuracy(), read.getAccuracy(), 0);
+        Assert.assertEquals(fix.getAltitude(), read.getAltitude(), 0);
+        Assert.assertEquals(fix.getSpeed(), read.getSpeed(), 0);
+        Assert.assertTrue(read.hasAltitude());
+        Assert.assertTrue(read.hasSpeed());
+        Assert.assertFalse(read.hasBearing());
+        Assert.assertEquals(42, FixIdentity.getSequence(read));
+    }
+
+    @Test
+    public void unconfirmedFixesSurviveRestart() throws IOException {
+        final var queue = new SpillQueue(file);
+        queue.append(fixes(0, 20));
+        // Lues mais non confirmées : toujours là après redémarrage
+        queue.peek(0, 20);
+        queue.remove(5);
+
+        final var restarted = new SpillQueue(file);
+        Assert.assertEquals(15, restarted.size());
+        assertSequences(restarted.peek(0, 100), 5, 20);
+    }
+
+    @Test
+    public void truncatedTailIsIgnoredThenOverwritten() throws IOException {
+        final var queue = new SpillQueue(file);
+        queue.append(fixes(0, 3));
+        // Coupure pendant l'écriture du quatrième enregistrement
+        try (var raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() + FixRecords.RECORD_SIZE / 2);
+        }
+
+        final var restarted = new SpillQueue(file);
+        Assert.assertEquals(3, restarted.size());
+        assertSequences(restarted.peek(0, 10), 0, 3);
+
+        restarted.append(fixes(3, 5));
+        Assert.assertEquals(5, restarted.size());
+        assertSequences(restarted.peek(0, 10), 0, 5);
+    }
+
+    @Test
+    public void emptiedQueueIsTruncated() throws IOException {
+        final var queue = new SpillQueue(file);
+        queue.append(fixes(0, 10));
+        queue.remove(100);
+        Assert.assertEquals(0, queue.size());
+        Assert.assertTrue(queue.peek(0, 10).isEmpty());
+        Assert.assertTrue(file.length() < FixRecords.RECORD_SIZE);
+
+        queue.append(fixes(10, 12));
+        assertSequences(queue.peek(0, 10), 10, 12);
+    }
+
+    @Test
+    public void compactionKeepsRemainder() throws IOException {
+        final var queue = new SpillQueue(file);
+        final var total = 20_000;
+        queue.append(fixes(0, total));
+        final var before = file.length();
+
+        queue.remove(17_000);
+        Assert.assertTrue(file.length() < before);
+        Assert.assertEquals(total - 17_000, queue.size());
+        assertSequences(queue.peek(0, 2), 17_000, 17_002);
+
+        final var restarted = new SpillQueue(file);
+        assertSequences(restarted.peek(total - 17_000 - 2, 10), total - 2, total);
+    }
+
+    private static void assertSequences(final List<Location> locations, final long from, final long to) {
+        Assert.assertEquals(to - from, locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            Assert.assertEquals(from + i, FixIdentity.getSequence(locations.get(i)));
+            Assert.assertEquals((from + i) * 1000, locations.get(i).getTime());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.locationtracker;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Détection des visites : durée minimale dans le rayon, fin sur la première position
+ * hors du rayon, présence comptée pendant un silence, visite ouverte terminée à l'arrêt.
+ */
+public class StayPointDetectorTest {
+
+    private static final double RADIUS = 50;
+    private static final long MIN_DWELL = 5 * 60 * 1000;
+    private static final long MINUTE = 60 * 1000;
+    private static final double LATITUDE = 45;
+    private static final double LONGITUDE = 5;
+
+    private final List<StayPointDetector.Visit> started = new ArrayList<>();
+    private final List<StayPointDetector.Visit> ended = new ArrayList<>();
+    private StayPointDetector detector;
+
+    @Before
+    public void setUp() {
+        detector = new StayPointDetector(RADIUS, MIN_DWELL);
+        detector.setListener(new StayPointDetector.VisitListener() {
+            @Override
+            public void onVisitStarted(final StayPointDetector.Visit visit) {
+                started.add(visit);
+            }
+
+            @Override
+            public void onVisitEnded(final StayPointDetector.Visit visit) {
+                ended.add(visit);
+            }
+        });
+    }
+
+    @Test
+    public void visitStartsAfterMinimumDwell() {
+        Assert.assertFalse(process(0, 0));
+        Assert.assertFalse(process(2 * MINUTE, 10));
+        Assert.assertFalse(process(4 * MINUTE, 20));
+        Assert.assertNull(detector.getCurrentVisit());
+
+        Assert.assertTrue(process(5 * MINUTE, 10));
+        Assert.assertEquals(1, started.size());
+        final var visit = started.get(0);
+        Assert.assertEquals(0, visit.getStartTime());
+        Assert.assertEquals(5 * MINUTE, visit.getDwellMillis());
+        Assert.assertEquals(4, visit.getFixCount());
+        // Centroïde à 10 m au nord ; rayon mesuré au centroïde courant (20 m contre 5 m)
+        Assert.assertEquals(LATITUDE + GeoMath.latitudeSpan(10), visit.getLatitude(), 1e-7);
+        Assert.assertEquals(15, visit.getRadiusMeters(), 0.1);
+
+        Assert.assertTrue(process(6 * MINUTE, 0));
+        Assert.assertEquals(1, started.size());
+        Assert.assertEquals(6 * MINUTE, detector.getCurrentVisit().getEndTime());
+    }
+
+    @Test
+    public void departureEndsVisitAndOpensCandidate() {
+        process(0, 0);
+        process(10 * MINUTE, 5);
+        Assert.assertEquals(1, started.size());
+
+        Assert.assertFalse(process(11 * MINUTE, 500));
+        Assert.assertEquals(1, ended.size());
+        Assert.assertEquals(11 * MINUTE, ended.get(0).getEndTime());
+        Assert.assertEquals(2, ended.get(0).getFixCount());
+        Assert.assertNull(detector.getCurrentVisit());
+
+        // Le point de départ ouvre le candidat suivant
+        Assert.assertTrue(process(16 * MINUTE, 510));
+        Assert.assertEquals(2, started.size());
+        Assert.assertEquals(11 * MINUTE, started.get(1).getStartTime());
+    }
+
+    @Test
+    public void silenceBeforeDepartureCountsAsPresence() {
+        // Positions filtrées par distance : plus rien pendant l'arrêt
+        process(0, 0);
+        Assert.assertFalse(process(30 * MINUTE, 1_000));
+
+        Assert.assertEquals(1, started.size());
+        Assert.assertEquals(1, ended.size());
+        Assert.assertEquals(0, ended.get(0).getStartTime());
+        Assert.assertEquals(30 * MINUTE, ended.get(0).getEndTime());
+        Assert.assertEquals(1, ended.get(0).getFixCount());
+    }
+
+    @Test
+    public void shortStopIsNotAVisit() {
+        process(0, 0);
+        process(MINUTE, 10);
+        process(2 * MINUTE, 1_000);
+        Assert.assertTrue(started.isEmpty());
+        Assert.assertTrue(ended.isEmpty());
+    }
+
+    @Test
+    public void resetEndsOpenVisit() {
+        process(0, 0);
+        process(8 * MINUTE, 5);
+        detector.reset();
+
+        Assert.assertEquals(1, ended.size());
+        Assert.assertEquals(8 * MINUTE, ended.get(0).getEndTime());
+        Assert.assertNull(detector.getCurrentVisit());
+
+        // Après l'arrêt, la première position ouvre un nouveau candidat
+        Assert.assertFalse(process(60 * MINUTE, 5));
+        Assert.assertEquals(1, started.size());
+    }
+
+    /**
+     * Position à {@code meters} au nord du point de départ
+     */
+    private boolean process(final long time, final double meters) {
+        return detector.process(time, LATITUDE + GeoMath.latitudeSpan(meters), LONGITUDE);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.locationtracker;
+
+import android.location.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Positions de test numérotées : séquence {@code s}, horodatage {@code s} secondes
+ */
+final class TestFixes {
+
+    private TestFixes() {
+    }
+
+    /**
+     * Positions de séquences {@code from} (incluse) à {@code to} (exclue)
+     */
+    static List<Location> fixes(final long from, final long to) {
+        final var locations = new ArrayList<Location>();
+        for (long sequence = from; sequence < to; sequence++) {
+            locations.add(fix(sequence));
+        }
+        return locations;
+    }
+
+    static Location fix(final long sequence) {
+        final var location = new Location("fused");
+        location.setTime(sequence * 1000);
+        location.setLatitude(45 + sequence * 1e-5);
+        location.setLongitude(5 - sequence * 1e-5);
+        location.setAccuracy(5);
+        FixIdentity.setSequence(location, sequence);
+        return location;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.locationtracker;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+/**
+ * Simplification de trace : nombre de points borné par la résolution quel que soit
+ * le nombre de positions, extrémités conservées, proportions de l'emprise respectées.
+ */
+public class TrackDecimatorTest {
+
+    private static final int RESOLUTION = 100;
+    private static final double LATITUDE = 45;
+    private static final double LONGITUDE = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocationHistoryStore history;
+
+    @Before
+    public void setUp() throws IOException {
+        history = new LocationHistoryStore(folder.getRoot());
+    }
+
+    @After
+    public void tearDown() {
+        history.close();
+    }
+
+    @Test
+    public void emptyRangeGivesEmptyTrack() {
+        appendLine(0, 100, 1_000, 0);
+        final var track = TrackDecimator.decimate(history, 1_000_000, 2_000_000, RESOLUTION);
+        Assert.assertEquals(0, track.getPointCount());
+        Assert.assertEquals(0, track.getSourceCount());
+    }
+
+    @Test
+    public void pointCountDependsOnResolutionNotDensity() {
+        // Même kilomètre vers le nord, 1 000 puis 20 000 positions
+        appendLine(0, 1_000, 1_000, 0);
+        appendLine(1_000, 21_000, 1_000, 0);
+
+        final var sparse = TrackDecimator.decimate(history, 0, 999_999, RESOLUTION);
+        final var dense = TrackDecimator.decimate(history, 1_000_000, Long.MAX_VALUE, RESOLUTION);
+        Assert.assertEquals(1_000, sparse.getSourceCount());
+        Assert.assertEquals(20_000, dense.getSourceCount());
+        for (TrackDecimator.Track track : new TrackDecimator.Track[]{sparse, dense}) {
+            Assert.assertTrue(track.getPointCount() >= RESOLUTION / 2);
+            Assert.assertTrue(track.getPointCount() <= RESOLUTION + 2);
+        }
+        Assert.assertTrue(Math.abs(sparse.getPointCount() - dense.getPointCount()) <= 2);
+    }
+
+    @Test
+    public void endpointsAreKeptInScreenCoordinates() {
+        appendLine(0, 5_000, 1_000, 0);
+        final var track = TrackDecimator.decimate(history, 0, Long.MAX_VALUE, RESOLUTION);
+        final var points = track.getPoints();
+        final var last = track.getPointCount() - 1;
+
+        // Vers le nord : de bas (y = 1) en haut (y = 0) de l'écran
+        Assert.assertEquals(0, points[0], 1e-4);
+        Assert.assertEquals(1, points[1], 1e-4);
+        Assert.assertEquals(0, points[last * 2], 1e-4);
+        Assert.assertEquals(0, points[last * 2 + 1], 1e-4);
+    }
+
+    @Test
+    public void aspectRatioFollowsGroundDistances() {
+        // 1 km vers l'est et 500 m vers le nord
+        appendLine(0, 2_000, 500, 1_000);
+        final var track = TrackDecimator.decimate(history, 0, Long.MAX_VALUE, RESOLUTION);
+        Assert.assertEquals(1, track.getWidth(), 1e-3);
+        Assert.assertEquals(0.5, track.getHeight(), 1e-3);
+        for (int i = 0; i < track.getPointCount() * 2; i++) {
+            Assert.assertTrue(track.getPoints()[i] >= 0 && track.getPoints()[i] <= 1);
+        }
+    }
+
+    /**
+     * Positions {@code from} à {@code to} (ligne = seconde), régulièrement réparties
+     * sur un segment de {@code north} mètres vers le nord et {@code east} vers l'est
+     */
+    private void appendLine(final long from, final long to, final double north, final double east) {
+        final var count = to - from;
+        for (long row = from; row < to; row++) {
+            final var fraction = (double) (row - from) / (count - 1);
+            history.append(row * 1000,
+                    LATITUDE + GeoMath.latitudeSpan(north * fraction),
+                    LONGITUDE + GeoMath.longitudeSpan(east * fraction, LATITUDE),
+                    Double.NaN, 5, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.locationtracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodage binaire des instantanés : aller-retour champ à champ, taille bornée
+ * par {@link TrackingStatsSnapshot#MAX_ENCODED_SIZE}, version inconnue ignorée.
+ */
+public class TrackingStatsSnapshotTest {
+
+    @Test
+    public void everyFieldRoundTrips() {
+        final var snapshot = sample("fused");
+        final var buffer = ByteBuffer.allocate(TrackingStatsSnapshot.MAX_ENCODED_SIZE);
+        snapshot.writeTo(buffer);
+        buffer.flip();
+
+        final var read = TrackingStatsSnapshot.readFrom(buffer);
+        Assert.assertNotNull(read);
+        Assert.assertFalse(buffer.hasRemaining());
+        Assert.assertEquals(snapshot.toString(), read.toString());
+    }
+
+    @Test
+    public void longProviderIsTruncatedWithinBound() {
+        final var provider = "p".repeat(200);
+        final var buffer = ByteBuffer.allocate(TrackingStatsSnapshot.MAX_ENCODED_SIZE);
+        sample(provider).writeTo(buffer);
+        Assert.assertEquals(TrackingStatsSnapshot.MAX_ENCODED_SIZE, buffer.position());
+        buffer.flip();
+
+        final var read = TrackingStatsSnapshot.readFrom(buffer);
+        Assert.assertNotNull(read);
+        Assert.assertTrue(provider.startsWith(read.getLastProvider()));
+        Assert.assertEquals(sample(read.getLastProvider()).toString(), read.toString());
+    }
+
+    @Test
+    public void emptySnapshotRoundTrips() {
+        final var buffer = ByteBuffer.allocate(TrackingStatsSnapshot.MAX_ENCODED_SIZE);
+        TrackingStatsSnapshot.EMPTY.writeTo(buffer);
+        buffer.flip();
+
+        final var read = TrackingStatsSnapshot.readFrom(buffer);
+        Assert.assertNotNull(read);
+        // Provider absent relu comme chaîne vide
+        Assert.assertEquals("", read.getLastProvider());
+        Assert.assertEquals(TrackingStatsSnapshot.EMPTY.toBuilder().lastProvider("").build().toString(),
+                read.toString());
+    }
+
+    @Test
+    public void unknownVersionIsIgnored() {
+        final var buffer = ByteBuffer.allocate(TrackingStatsSnapshot.MAX_ENCODED_SIZE);
+        sample("gps").writeTo(buffer);
+        buffer.putInt(0, 99);
+        buffer.flip();
+        Assert.assertNull(TrackingStatsSnapshot.readFrom(buffer));
+    }
+
+    private static TrackingStatsSnapshot sample(final String provider) {
+        return TrackingStatsSnapshot.builder()
+                .publishedAt(1_700_000_000_123L)
+                .updatesActive(true)
+                .hasFix(true)
+                .lastFixTime(1_700_000_000_000L)
+                .lastLatitude(48.8566123)
+                .lastLongitude(-2.3522456)
+                .lastAccuracy(4.5f)
+                .lastProvider(provider)
+                .plausibilityRejected(3)
+                .geocodeQueued(2)
+                .geocodeAverageQueueWaitMillis(15)
+                .geocodeAverageRunMillis(120)
+                .sessionGpsMillis(3_600_000)
+                .sessionFixesDelivered(3_600)
+                .sessionFixesAccepted(3_550)
+                .sessionPipelineCpuMillis(4_200)
+                .sessionRadioWakeups(60)
+                .sessionUploadCalls(61)
+                .liveQueued(5)
+                .liveAverageLatencyMillis(250)
+                .bulkQueued(1_200)
+                .bulkSpilled(40_000)
+                .bulkAverageLatencyMillis(9_000)
+                .memoryUsed(1 << 20)
+                .memoryLimit(8 << 20)
+                .hasTrip(true)
+                .tripDistanceMeters(12_345.6)
+                .tripMovingTimeMillis(2_400_000)
+                .tripAverageSpeed(5.14)
+                .tripMaxSpeed(13.9)
+                .tripElevationGain(87.5)
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.locationtracker;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Trajets en continu : distance, temps en mouvement, dénivelé avec hystérésis,
+ * découpage sur un trou ou un arrêt, tampon des derniers trajets.
+ */
+public class TripAggregatorTest {
+
+    private static final long MAX_GAP = 10 * 60 * 1000;
+    private static final long SECOND = 1000;
+    private static final double LATITUDE = 45;
+    private static final double LONGITUDE = 5;
+
+    private TripAggregator aggregator;
+
+    @Before
+    public void setUp() {
+        aggregator = new TripAggregator(MAX_GAP);
+    }
+
+    @Test
+    public void statisticsAccumulateAlongTrip() {
+        Assert.assertNull(aggregator.getCurrentTrip());
+        // 10 m/s pendant 10 s, puis 10 s à l'arrêt
+        for (int i = 0; i <= 10; i++) {
+            process(i * SECOND, i * 10, Double.NaN, Float.NaN);
+        }
+        process(20 * SECOND, 100, Double.NaN, Float.NaN);
+
+        final var trip = aggregator.getCurrentTrip();
+        Assert.assertEquals(0, trip.getStartTime());
+        Assert.assertEquals(20 * SECOND, trip.getEndTime());
+        Assert.assertEquals(100, trip.getDistanceMeters(), 0.1);
+        Assert.assertEquals(10 * SECOND, trip.getMovingTimeMillis());
+        Assert.assertEquals(10, trip.getAverageSpeed(), 0.01);
+        Assert.assertEquals(10, trip.getMaxSpeed(), 0.01);
+        Assert.assertEquals(12, trip.getFixCount());
+    }
+
+    @Test
+    public void providerSpeedRaisesMaximum() {
+        process(0, 0, Double.NaN, Float.NaN);
+        process(SECOND, 5, Double.NaN, 12f);
+        Assert.assertEquals(12, aggregator.getCurrentTrip().getMaxSpeed(), 0.001);
+    }
+
+    @Test
+    public void elevationGainIgnoresSmallNoise() {
+        final double[] altitudes = {100, 102, 101, 103, 104, 99, 110, 111, 112};
+        for (int i = 0; i < altitudes.length; i++) {
+            process(i * SECOND, i * 10, altitudes[i], Float.NaN);
+        }
+        // 100 -> 103 (+3), 103 -> 104 bruit, descente à 99, 99 -> 110 (+11), 110 -> 112 sous le seuil
+        Assert.assertEquals(14, aggregator.getCurrentTrip().getElevationGain(), 0.001);
+    }
+
+    @Test
+    public void gapClosesTrip() {
+        process(0, 0, Double.NaN, Float.NaN);
+        process(SECOND, 10, Double.NaN, Float.NaN);
+        process(SECOND + MAX_GAP + 1, 5_000, Double.NaN, Float.NaN);
+
+        final var recent = aggregator.getRecentTrips();
+        Assert.assertEquals(1, recent.size());
+        Assert.assertEquals(SECOND, recent.get(0).getEndTime());
+        Assert.assertEquals(10, recent.get(0).getDistanceMeters(), 0.01);
+        // La position après le trou ouvre le trajet suivant
+        Assert.assertEquals(SECOND + MAX_GAP + 1, aggregator.getCurrentTrip().getStartTime());
+        Assert.assertEquals(0, aggregator.getCurrentTrip().getDistanceMeters(), 0);
+    }
+
+    @Test
+    public void stopClosesTripAndSingleFixIsNotKept() {
+        process(0, 0, Double.NaN, Float.NaN);
+        aggregator.process(SECOND, LATITUDE, LONGITUDE, Double.NaN, Float.NaN, true);
+        Assert.assertNull(aggregator.getCurrentTrip());
+        // Une seule position : pas un trajet
+        Assert.assertTrue(aggregator.getRecentTrips().isEmpty());
+
+        process(2 * SECOND, 0, Double.NaN, Float.NaN);
+        process(3 * SECOND, 20, Double.NaN, Float.NaN);
+        aggregator.process(4 * SECOND, LATITUDE, LONGITUDE, Double.NaN, Float.NaN, true);
+        Assert.assertEquals(1, aggregator.getRecentTrips().size());
+    }
+
+    @Test
+    public void recentTripsKeepLatestFirst() {
+        for (int trip = 0; trip < 12; trip++) {
+            final var start = trip * 1_000 * SECOND;
+            process(start, 0, Double.NaN, Float.NaN);
+            process(start + SECOND, 10, Double.NaN, Float.NaN);
+            aggregator.close();
+        }
+        final var recent = aggregator.getRecentTrips();
+        Assert.assertEquals(10, recent.size());
+        Assert.assertEquals(11 * 1_000 * SECOND, recent.get(0).getStartTime());
+        Assert.assertEquals(2 * 1_000 * SECOND, recent.get(9).getStartTime());
+    }
+
+    /**
+     * Position à {@code meters} au nord du point de départ
+     */
+    private void process(final long time, final double meters, final double altitude, final float speed) {
+        aggregator.process(time, LATITUDE + GeoMath.latitudeSpan(meters), LONGITUDE, altitude, speed, false);
+    }
+}
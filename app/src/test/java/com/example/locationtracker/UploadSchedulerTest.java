@@ -0,0 +1,234 @@
+package com.example.locationtracker;
+
+import static com.example.locationtracker.TestFixes.fixes;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.location.Location;
+import android.os.Looper;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Ordonnancement des envois : la voie directe passe avant l'arriéré, l'arriéré qui
+ * dépasse le budget mémoire part sur disque puis revient dans l'ordre sans jamais
+ * dépasser le budget, et un arrêt met de côté ce qui attend pour le démarrage suivant.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class UploadSchedulerTest {
+
+    private static final int BUDGET_FIXES = 10;
+    private static final int MAX_BATCH = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<List<Location>> calls = new ArrayList<>();
+    private final List<TaskCompletionSource<String>> results = new ArrayList<>();
+    private MemoryBudget memoryBudget;
+    private SpillQueue spillQueue;
+    private UploadScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        memoryBudget = new MemoryBudget(BUDGET_FIXES * MemoryBudget.FIX_FOOTPRINT);
+        spillQueue = new SpillQueue(new File(folder.getRoot(), "spill.bin"));
+        final var ackTracker = new AckTracker(ServiceStateStore.open(folder.newFile("state.bin")));
+        scheduler = new UploadScheduler(this::upload, memoryBudget, spillQueue, ackTracker,
+                2, MAX_BATCH, 60_000, 1, MAX_BATCH, 0, 0);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+        // Appels restés en cours : terminés pour arrêter le thread d'écriture
+        for (TaskCompletionSource<String> result : results) {
+            result.trySetException(new IllegalStateException("Fin du test"));
+        }
+        idle();
+    }
+
+    @Test
+    public void liveLaneGoesBeforeBacklog() {
+        scheduler.start();
+        final var backlog = scheduler.submit(UploadScheduler.Lane.BULK, fixes(0, 5));
+        scheduler.submit(UploadScheduler.Lane.LIVE, fixes(5, 6));
+        idle();
+
+        // L'arriéré attend que la voie directe soit vide
+        Assert.assertEquals(1, calls.size());
+        assertSequences(calls.get(0), 5, 6);
+
+        succeed(0);
+        Assert.assertEquals(2, calls.size());
+        assertSequences(calls.get(1), 0, 5);
+        Assert.assertFalse(backlog.isComplete());
+
+        succeed(1);
+        Assert.assertTrue(backlog.isSuccessful());
+        Assert.assertEquals(0, memoryBudget.getUsed());
+    }
+
+    @Test
+    public void flaggedAndNewestFixesStayLive() {
+        scheduler.start();
+        // Positions de 1970 : toutes anciennes
+        final var locations = fixes(0, 4);
+        UploadScheduler.flag(locations.get(1));
+        scheduler.submitLive(locations);
+        idle();
+
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals(List.of(1L, 3L), sequences(calls.get(0)));
+
+        succeed(0);
+        Assert.assertEquals(2, calls.size());
+        Assert.assertEquals(List.of(0L, 2L), sequences(calls.get(1)));
+    }
+
+    @Test
+    public void failedLiveBatchJoinsBacklog() {
+        scheduler.start();
+        final var task = scheduler.submit(UploadScheduler.Lane.LIVE, fixes(0, 3));
+        idle();
+        Assert.assertEquals(1, calls.size());
+
+        fail(0);
+        Assert.assertEquals(2, calls.size());
+        assertSequences(calls.get(1), 0, 3);
+        Assert.assertFalse(task.isComplete());
+
+        succeed(1);
+        Assert.assertTrue(task.isSuccessful());
+        final var bulk = scheduler.getMetrics().get(1);
+        Assert.assertEquals(UploadScheduler.Lane.BULK, bulk.getLane());
+        Assert.assertEquals(3, bulk.getUploadedFixes());
+    }
+
+    @Test
+    public void backlogBeyondBudgetIsSpilledThenReloadedInOrder() {
+        scheduler.start();
+        final var total = 3 * MAX_BATCH + 5;
+        final Task<Void> task = scheduler.submit(UploadScheduler.Lane.BULK, fixes(0, total));
+
+        // Remise dès l'écriture sur disque, sans garder de mémoire
+        waitFor(task::isComplete);
+        Assert.assertTrue(task.isSuccessful());
+
+        var sent = 0;
+        while (sent < total) {
+            final var call = calls.size();
+            waitFor(() -> calls.size() > call);
+            Assert.assertTrue(memoryBudget.getUsed() <= BUDGET_FIXES * MemoryBudget.FIX_FOOTPRINT);
+            final var batch = calls.get(call);
+            assertSequences(batch, sent, sent + batch.size());
+            sent += batch.size();
+            succeed(call);
+        }
+        Assert.assertEquals(total, sent);
+        waitFor(() -> spillQueue.size() == 0);
+        Assert.assertEquals(0, scheduler.getMetrics().get(1).getSpilled());
+        Assert.assertEquals(0, memoryBudget.getUsed());
+    }
+
+    @Test
+    public void shutdownSpillsQueuedFixesAndRestartSendsThem() {
+        scheduler.start();
+        scheduler.submit(UploadScheduler.Lane.BULK, fixes(0, 5));
+        scheduler.submit(UploadScheduler.Lane.LIVE, fixes(5, 7));
+
+        // Arrêt avant tout envoi : l'arriéré puis la voie directe, dans l'ordre
+        Assert.assertEquals(7, scheduler.shutdown());
+        waitFor(() -> spillQueue.size() == 7 && memoryBudget.getUsed() == 0);
+        // Plus rien à écrire : le thread d'écriture s'arrête
+        waitFor(() -> !isSpillThreadAlive());
+        idle();
+        Assert.assertTrue(calls.isEmpty());
+
+        scheduler.start();
+        waitFor(() -> calls.size() == 1);
+        assertSequences(calls.get(0), 0, 7);
+        succeed(0);
+        waitFor(() -> spillQueue.size() == 0);
+    }
+
+    private Task<String> upload(final List<Location> locations) {
+        final var result = new TaskCompletionSource<String>();
+        calls.add(new ArrayList<>(locations));
+        results.add(result);
+        return result.getTask();
+    }
+
+    private void succeed(final int call) {
+        results.get(call).setResult("ok");
+        idle();
+    }
+
+    private void fail(final int call) {
+        results.get(call).setException(new IllegalStateException("Hors ligne"));
+        idle();
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    /**
+     * Laisser tourner le thread principal jusqu'à la condition (écritures et lectures
+     * sur disque faites par le thread dédié)
+     */
+    private static void waitFor(final BooleanSupplier condition) {
+        final var deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            idle();
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            Assert.assertTrue("Condition non atteinte", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static boolean isSpillThreadAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("upload-spill") && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Long> sequences(final List<Location> locations) {
+        final var sequences = new ArrayList<Long>(locations.size());
+        for (Location location : locations) {
+            sequences.add(FixIdentity.getSequence(location));
+        }
+        return sequences;
+    }
+
+    private static void assertSequences(final List<Location> locations, final long from, final long to) {
+        Assert.assertEquals(to - from, locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            Assert.assertEquals(from + i, FixIdentity.getSequence(locations.get(i)));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.locationtracker;
+
+import static com.example.locationtracker.TestFixes.fix;
+
+import android.location.Location;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Événements de visite : signalés pour la voie directe, et intacts après un passage
+ * sur disque (champs de la visite, fin, positions résumées).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class VisitEventsTest {
+
+    @Test
+    public void visitSurvivesRecordRoundTrip() throws IOException {
+        final var visit = StayPointDetector.Visit.builder()
+                .startTime(1_700_000_000_000L)
+                .endTime(1_700_000_900_000L)
+                .latitude(48.8566123)
+                .longitude(2.3522456)
+                .radiusMeters(42.5)
+                .fixCount(17)
+                .build();
+        final var event = VisitEvents.create(visit, true, 1_234);
+        Assert.assertTrue(UploadScheduler.isFlagged(event));
+        Assert.assertEquals(-1, FixIdentity.getSequence(event));
+
+        final var read = roundTrip(event);
+        Assert.assertTrue(VisitEvents.isVisit(read));
+        Assert.assertTrue(VisitEvents.isEnded(read));
+        Assert.assertTrue(UploadScheduler.isFlagged(read));
+        Assert.assertEquals(1_234, VisitEvents.getCoveredThrough(read));
+        Assert.assertEquals(-1, FixIdentity.getSequence(read));
+        Assert.assertEquals(visit.toString(), VisitEvents.getVisit(read).toString());
+    }
+
+    @Test
+    public void startedVisitWithoutCoveredFixes() throws IOException {
+        final var visit = StayPointDetector.Visit.builder()
+                .startTime(1_000)
+                .endTime(301_000)
+                .latitude(45)
+                .longitude(5)
+                .radiusMeters(10)
+                .fixCount(3)
+                .build();
+        final var read = roundTrip(VisitEvents.create(visit, false, -1));
+        Assert.assertFalse(VisitEvents.isEnded(read));
+        Assert.assertEquals(-1, VisitEvents.getCoveredThrough(read));
+        Assert.assertEquals(300_000, VisitEvents.getVisit(read).getDwellMillis());
+    }
+
+    @Test
+    public void flaggedFixKeepsItsFlag() throws IOException {
+        final var flagged = fix(7);
+        UploadScheduler.flag(flagged);
+        final var read = roundTrip(flagged);
+        Assert.assertFalse(VisitEvents.isVisit(read));
+        Assert.assertTrue(UploadScheduler.isFlagged(read));
+        Assert.assertEquals(7, FixIdentity.getSequence(read));
+
+        Assert.assertFalse(UploadScheduler.isFlagged(roundTrip(fix(8))));
+    }
+
+    private static Location roundTrip(final Location location) throws IOException {
+        final var buffer = ByteBuffer.allocate(FixRecords.RECORD_SIZE);
+        FixRecords.encode(location, buffer);
+        Assert.assertFalse(buffer.hasRemaining());
+        final var in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        return FixRecords.decode(in, null);
+    }
+}